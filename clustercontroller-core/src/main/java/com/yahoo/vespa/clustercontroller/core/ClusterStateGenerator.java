@@ -138,11 +138,42 @@ public class ClusterStateGenerator {
 
         takeDownGroupsWithTooLowAvailability(workingState, nodeStateReasons, params);
 
-        final Optional<ClusterStateReason> reasonToBeDown = clusterDownReason(workingState, params);
+        return completeState(workingState, nodeStateReasons, params);
+    }
+
+    /**
+     * Sets the cluster-wide state and distribution bit count of the given state, which must contain
+     * the effective states of all nodes, including any implicit group takedowns.
+     */
+    static AnnotatedClusterState completeState(final ClusterState workingState,
+                                               final Map<Node, NodeStateReason> nodeStateReasons,
+                                               final Params params)
+    {
+        return completeState(workingState, nodeStateReasons, params,
+                             countAvailableNodesOfType(NodeType.STORAGE, params.cluster, workingState),
+                             countAvailableNodesOfType(NodeType.DISTRIBUTOR, params.cluster, workingState),
+                             minUsedBitsOfAvailableStorageNodes(params.cluster, workingState));
+    }
+
+    /**
+     * As {@link #completeState(ClusterState, Map, Params)}, but with the node availability the cluster-wide state
+     * is derived from already counted by the caller, who must count configured nodes only.
+     *
+     * @param minUsedBits the lowest min used bits count reported by any storage node which is up, initializing
+     *                    or retired in the working state, or empty if there are no such nodes
+     */
+    static AnnotatedClusterState completeState(final ClusterState workingState,
+                                               final Map<Node, NodeStateReason> nodeStateReasons,
+                                               final Params params,
+                                               final long upStorageCount,
+                                               final long upDistributorCount,
+                                               final Optional<Integer> minUsedBits)
+    {
+        final Optional<ClusterStateReason> reasonToBeDown = clusterDownReason(upStorageCount, upDistributorCount, params);
         if (reasonToBeDown.isPresent()) {
             workingState.setClusterState(State.DOWN);
         }
-        workingState.setDistributionBits(inferDistributionBitCount(cluster, workingState, params));
+        workingState.setDistributionBits(inferDistributionBitCount(minUsedBits, params));
 
         return new AnnotatedClusterState(workingState, reasonToBeDown, nodeStateReasons);
     }
@@ -159,9 +190,9 @@ public class ClusterStateGenerator {
         baseline.setDescription(wanted.getDescription());
     }
 
-    private static NodeState computeEffectiveNodeState(final NodeInfo nodeInfo,
-                                                       final Params params,
-                                                       Map<Node, NodeStateReason> nodeStateReasons)
+    static NodeState computeEffectiveNodeState(final NodeInfo nodeInfo,
+                                               final Params params,
+                                               Map<Node, NodeStateReason> nodeStateReasons)
     {
         final NodeState reported = nodeInfo.getReportedState();
         final NodeState wanted   = nodeInfo.getWantedState();
@@ -183,6 +214,23 @@ public class ClusterStateGenerator {
         return baseline;
     }
 
+    /**
+     * Returns whether the effective state of the given node may change by time passing alone, i.e. without
+     * any change to the node info or parameters. This errs on the side of returning true.
+     */
+    static boolean effectiveNodeStateDependsOnTime(final NodeInfo nodeInfo, final Params params) {
+        if ( ! nodeInfo.isStorage()) {
+            return false;
+        }
+        final State reported = nodeInfo.getReportedState().getState();
+        if (reported == State.INITIALIZING) {
+            return true; // Subject to init progress timeout
+        }
+        // Subject to the temporal maintenance period if the node would otherwise be stopping or down
+        return params.transitionTimes.get(nodeInfo.getNode().getType()) != 0
+                && (reported.oneOf("sd") || nodeIsConsideredTooUnstable(nodeInfo, params));
+    }
+
     private static void applyStorageSpecificStateTransforms(NodeInfo nodeInfo, Params params, NodeState reported,
                                                             NodeState wanted, NodeState baseline,
                                                             Map<Node, NodeStateReason> nodeStateReasons)
@@ -270,8 +318,13 @@ public class ClusterStateGenerator {
                 .withMinNodeRatioPerGroup(params.minNodeRatioPerGroup)
                 .withDistribution(params.cluster.getDistribution())
                 .build();
-        final Set<Integer> nodesToTakeDown = calc.nodesThatShouldBeDown(workingState);
+        takeDownStorageNodes(calc.nodesThatShouldBeDown(workingState), workingState, nodeStateReasons);
+    }
 
+    static void takeDownStorageNodes(final Set<Integer> nodesToTakeDown,
+                                     final ClusterState workingState,
+                                     final Map<Node, NodeStateReason> nodeStateReasons)
+    {
         for (Integer idx : nodesToTakeDown) {
             final Node node = storageNode(idx);
             final NodeState newState = new NodeState(NodeType.STORAGE, State.DOWN);
@@ -290,17 +343,18 @@ public class ClusterStateGenerator {
     // this will just have to start splitting out in the background before being allowed
     // to join the cluster.
 
-    private static int inferDistributionBitCount(final ContentCluster cluster,
-                                                 final ClusterState state,
-                                                 final Params params)
+    private static Optional<Integer> minUsedBitsOfAvailableStorageNodes(final ContentCluster cluster,
+                                                                        final ClusterState state)
     {
-        int bitCount = params.idealDistributionBits;
-        final Optional<Integer> minBits = cluster.getConfiguredNodes().values().stream()
+        return cluster.getConfiguredNodes().values().stream()
                 .map(configuredNode -> cluster.getNodeInfo(storageNode(configuredNode.index())))
                 .filter(node -> state.getNodeState(node.getNode()).getState().oneOf("iur"))
                 .map(nodeInfo -> nodeInfo.getReportedState().getMinUsedBits())
                 .min(Integer::compare);
+    }
 
+    private static int inferDistributionBitCount(final Optional<Integer> minBits, final Params params) {
+        int bitCount = params.idealDistributionBits;
         if (minBits.isPresent() && minBits.get() < bitCount) {
             bitCount = minBits.get();
         }
@@ -311,10 +365,10 @@ public class ClusterStateGenerator {
         return bitCount;
     }
 
-    private static boolean nodeStateIsConsideredAvailable(final NodeState ns) {
-        return (ns.getState() == State.UP
-                || ns.getState() == State.RETIRED
-                || ns.getState() == State.INITIALIZING);
+    static boolean nodeStateIsConsideredAvailable(final State state) {
+        return (state == State.UP
+                || state == State.RETIRED
+                || state == State.INITIALIZING);
     }
 
     private static long countAvailableNodesOfType(final NodeType type,
@@ -323,15 +377,14 @@ public class ClusterStateGenerator {
     {
         return cluster.getConfiguredNodes().values().stream()
                 .map(node -> state.getNodeState(new Node(type, node.index())))
-                .filter(ClusterStateGenerator::nodeStateIsConsideredAvailable)
+                .filter(ns -> nodeStateIsConsideredAvailable(ns.getState()))
                 .count();
     }
 
-    private static Optional<ClusterStateReason> clusterDownReason(final ClusterState state, final Params params) {
+    private static Optional<ClusterStateReason> clusterDownReason(final long upStorageCount,
+                                                                  final long upDistributorCount,
+                                                                  final Params params) {
         final ContentCluster cluster = params.cluster;
-
-        final long upStorageCount = countAvailableNodesOfType(NodeType.STORAGE, cluster, state);
-        final long upDistributorCount = countAvailableNodesOfType(NodeType.DISTRIBUTOR, cluster, state);
         // There's a 1-1 relationship between distributors and storage nodes, so don't need to
         // keep track of separate node counts for computing availability ratios.
         final long nodeCount = cluster.getConfiguredNodes().size();
@@ -63,6 +63,7 @@ public class FleetController implements NodeStateOrHostInfoChangeHandler, NodeAd
     private final StateChangeHandler stateChangeHandler;
     private final SystemStateBroadcaster systemStateBroadcaster;
     private final StateVersionTracker stateVersionTracker;
+    private final IncrementalClusterStateGenerator stateGenerator = new IncrementalClusterStateGenerator();
     private final StatusPageServerInterface statusPageServer;
     private final RpcServer rpcServer;
     private final DatabaseHandler database;
@@ -964,7 +965,7 @@ public class FleetController implements NodeStateOrHostInfoChangeHandler, NodeAd
         params.currentTimeInMilllis(timer.getCurrentTimeInMillis())
                 .cluster(cluster)
                 .lowestObservedDistributionBitCount(stateVersionTracker.getLowestObservedDistributionBits());
-        return ClusterStateGenerator.generatedStateFrom(params);
+        return stateGenerator.generatedStateFrom(params);
     }
 
     private void emitEventsForAlteredStateEdges(final ClusterStateBundle fromState,
@@ -106,6 +106,17 @@ class GroupAvailabilityCalculator {
         return root.isLeafGroup();
     }
 
+    /**
+     * Returns the indices of the nodes of the given group which should be implicitly taken down in the given state.
+     * Only the nodes of the group itself are considered, so this must be a leaf group of the distribution,
+     * and the distribution must be hierarchic.
+     */
+    Set<Integer> nodesInGroupThatShouldBeDown(ClusterState state, Group leafGroup) {
+        InsufficientAvailabilityGroupVisitor visitor = new InsufficientAvailabilityGroupVisitor(state);
+        visitor.visitGroup(leafGroup);
+        return visitor.implicitlyDownNodeIndices();
+    }
+
     public Set<Integer> nodesThatShouldBeDown(ClusterState state) {
         if (distribution == null) { // FIXME: for tests that don't set distribution properly!
             return Collections.emptySet();
@@ -0,0 +1,224 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.clustercontroller.core;
+
+import com.yahoo.vdslib.distribution.ConfiguredNode;
+import com.yahoo.vdslib.distribution.Distribution;
+import com.yahoo.vdslib.distribution.Group;
+import com.yahoo.vdslib.state.ClusterState;
+import com.yahoo.vdslib.state.Node;
+import com.yahoo.vdslib.state.NodeState;
+import com.yahoo.vdslib.state.NodeType;
+import com.yahoo.vdslib.state.State;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Generates the same cluster states as {@link ClusterStateGenerator}, but remembers the effective state of
+ * each node and the implicit takedowns of each leaf group between invocations, such that only the nodes
+ * whose inputs have changed, and the groups containing nodes whose effective state has changed, are recomputed.
+ *
+ * Node states which may change by time alone (initializing nodes and nodes in their maintenance grace
+ * period) are always recomputed. The cluster-wide state is always recomputed from the node states,
+ * as that is cheap compared to deriving the node states.
+ *
+ * This is not thread safe.
+ *
+ * @author agent
+ */
+class IncrementalClusterStateGenerator {
+
+    private final Map<Node, NodeEntry> nodes = new HashMap<>();
+    /** The effective states of all nodes, before group takedowns */
+    private ClusterState nodeStates = ClusterState.emptyState();
+    private final Map<Group, Set<Integer>> groupTakedowns = new IdentityHashMap<>();
+    private final Map<Integer, Group> leafGroupOfNode = new HashMap<>();
+
+    // The parameters the cached state is computed from
+    private int maxPrematureCrashes;
+    private int maxInitProgressTimeMs;
+    private Map<NodeType, Integer> transitionTimes = Collections.emptyMap();
+    private Distribution distribution = null;
+    private double minNodeRatioPerGroup;
+
+    AnnotatedClusterState generatedStateFrom(final ClusterStateGenerator.Params params) {
+        invalidateIfParametersChanged(params);
+
+        final Map<Node, NodeStateReason> nodeStateReasons = new HashMap<>();
+        final Set<Integer> changedStorageNodes = new HashSet<>();
+        boolean nodesAdded = false;
+        int nodeCount = 0;
+        for (final NodeInfo nodeInfo : params.cluster.getNodeInfo()) {
+            final Node node = nodeInfo.getNode();
+            nodeCount++;
+            NodeEntry entry = nodes.get(node);
+            if (entry == null || ! entry.isValidFor(nodeInfo)) {
+                final NodeEntry previous = entry;
+                entry = new NodeEntry(nodeInfo, params);
+                nodes.put(node, entry);
+                nodesAdded |= previous == null;
+                if ( ! nodesAdded && ! previous.hasSameEffectiveState(entry)) {
+                    nodeStates.setNodeState(node, entry.state.clone());
+                    if (nodeInfo.isStorage() && previous.state.getState() != entry.state.getState())
+                        changedStorageNodes.add(node.getIndex());
+                }
+            }
+            if (entry.reason != null)
+                nodeStateReasons.put(node, entry.reason);
+        }
+        if (nodesAdded || nodeCount != nodes.size()) // The set of nodes changed, which may change the state of any node
+            rebuildNodeStates(params.cluster);
+
+        final ClusterState workingState = nodeStates.clone();
+        final Set<Integer> takenDown = takeDownGroupsWithTooLowAvailability(workingState, nodeStateReasons, changedStorageNodes);
+
+        // Count from the node entries rather than looking up every node in the cluster and state
+        long upStorageCount = 0;
+        long upDistributorCount = 0;
+        int minUsedBits = Integer.MAX_VALUE;
+        for (NodeEntry entry : nodes.values()) {
+            final boolean storage = entry.node.getType() == NodeType.STORAGE;
+            final State state = storage && takenDown.contains(entry.node.getIndex()) ? State.DOWN : entry.state.getState();
+            if ( ! ClusterStateGenerator.nodeStateIsConsideredAvailable(state)) continue;
+            if (storage) {
+                upStorageCount++;
+                minUsedBits = Math.min(minUsedBits, entry.reportedState.getMinUsedBits());
+            }
+            else {
+                upDistributorCount++;
+            }
+        }
+        return ClusterStateGenerator.completeState(workingState, nodeStateReasons, params, upStorageCount, upDistributorCount,
+                                                   upStorageCount == 0 ? Optional.empty() : Optional.of(minUsedBits));
+    }
+
+    /** Recreates the node states from scratch, and forgets all nodes not in the given cluster */
+    private void rebuildNodeStates(ContentCluster cluster) {
+        final Set<Node> presentNodes = new HashSet<>();
+        nodeStates = ClusterState.emptyState();
+        for (final NodeInfo nodeInfo : cluster.getNodeInfo()) {
+            presentNodes.add(nodeInfo.getNode());
+            nodeStates.setNodeState(nodeInfo.getNode(), nodes.get(nodeInfo.getNode()).state.clone());
+        }
+        nodes.keySet().retainAll(presentNodes);
+        groupTakedowns.clear();
+    }
+
+    private void invalidateIfParametersChanged(final ClusterStateGenerator.Params params) {
+        if (params.maxPrematureCrashes != maxPrematureCrashes
+                || params.maxInitProgressTimeMs != maxInitProgressTimeMs
+                || ! params.transitionTimes.equals(transitionTimes))
+        {
+            maxPrematureCrashes = params.maxPrematureCrashes;
+            maxInitProgressTimeMs = params.maxInitProgressTimeMs;
+            transitionTimes = new HashMap<>(params.transitionTimes);
+            nodes.clear();
+            groupTakedowns.clear();
+        }
+        if (params.cluster.getDistribution() != distribution || params.minNodeRatioPerGroup != minNodeRatioPerGroup) {
+            distribution = params.cluster.getDistribution();
+            minNodeRatioPerGroup = params.minNodeRatioPerGroup;
+            groupTakedowns.clear();
+            leafGroupOfNode.clear();
+            if (isHierarchic(distribution)) {
+                for (Group leafGroup : LeafGroups.enumerateFrom(distribution.getRootGroup()))
+                    for (ConfiguredNode node : leafGroup.getNodes())
+                        leafGroupOfNode.put(node.index(), leafGroup);
+            }
+        }
+    }
+
+    /** Takes down the storage nodes of groups with too low availability, and returns the indices of those nodes */
+    private Set<Integer> takeDownGroupsWithTooLowAvailability(final ClusterState workingState,
+                                                              final Map<Node, NodeStateReason> nodeStateReasons,
+                                                              final Set<Integer> changedStorageNodes)
+    {
+        if ( ! isHierarchic(distribution)) return Collections.emptySet(); // Implicit group takedown only applies to hierarchic cluster setups
+
+        final GroupAvailabilityCalculator calc = new GroupAvailabilityCalculator.Builder()
+                .withMinNodeRatioPerGroup(minNodeRatioPerGroup)
+                .withDistribution(distribution)
+                .build();
+        if (groupTakedowns.isEmpty()) {
+            for (Group leafGroup : LeafGroups.enumerateFrom(distribution.getRootGroup()))
+                groupTakedowns.put(leafGroup, calc.nodesInGroupThatShouldBeDown(workingState, leafGroup));
+        }
+        else {
+            for (Integer index : changedStorageNodes) {
+                final Group leafGroup = leafGroupOfNode.get(index);
+                if (leafGroup != null)
+                    groupTakedowns.put(leafGroup, calc.nodesInGroupThatShouldBeDown(workingState, leafGroup));
+            }
+        }
+        final Set<Integer> takenDown = new HashSet<>();
+        for (Set<Integer> nodesToTakeDown : groupTakedowns.values())
+            takenDown.addAll(nodesToTakeDown);
+        ClusterStateGenerator.takeDownStorageNodes(takenDown, workingState, nodeStateReasons);
+        return takenDown;
+    }
+
+    private static boolean isHierarchic(Distribution distribution) {
+        return distribution != null && ! distribution.getRootGroup().isLeafGroup();
+    }
+
+    /** The effective state of a node, and the node info it was computed from */
+    private static class NodeEntry {
+
+        private final Node node;
+        private final NodeState reportedState;
+        private final NodeState wantedState;
+        private final int prematureCrashCount;
+        private final long startTimestamp;
+        private final long initProgressTime;
+        private final long transitionTime;
+        private final boolean unstableDuringInit;
+        private final boolean dependsOnTime;
+
+        final NodeState state;
+        final NodeStateReason reason;
+
+        NodeEntry(NodeInfo nodeInfo, ClusterStateGenerator.Params params) {
+            this.node = nodeInfo.getNode();
+            this.reportedState = nodeInfo.getReportedState().clone();
+            this.wantedState = nodeInfo.getWantedState().clone();
+            this.prematureCrashCount = nodeInfo.getPrematureCrashCount();
+            this.startTimestamp = nodeInfo.getStartTimestamp();
+            this.initProgressTime = nodeInfo.getInitProgressTime();
+            this.transitionTime = nodeInfo.getTransitionTime();
+            this.unstableDuringInit = nodeInfo.recentlyObservedUnstableDuringInit();
+            this.dependsOnTime = ClusterStateGenerator.effectiveNodeStateDependsOnTime(nodeInfo, params);
+
+            Map<Node, NodeStateReason> reasons = new HashMap<>(2);
+            this.state = ClusterStateGenerator.computeEffectiveNodeState(nodeInfo, params, reasons);
+            this.reason = reasons.get(nodeInfo.getNode());
+        }
+
+        /** Returns whether this is the effective state of the given node info at any time */
+        boolean isValidFor(NodeInfo nodeInfo) {
+            return ! dependsOnTime
+                   && sameState(reportedState, nodeInfo.getReportedState())
+                   && sameState(wantedState, nodeInfo.getWantedState())
+                   && prematureCrashCount == nodeInfo.getPrematureCrashCount()
+                   && startTimestamp == nodeInfo.getStartTimestamp()
+                   && initProgressTime == nodeInfo.getInitProgressTime()
+                   && transitionTime == nodeInfo.getTransitionTime()
+                   && unstableDuringInit == nodeInfo.recentlyObservedUnstableDuringInit();
+        }
+
+        boolean hasSameEffectiveState(NodeEntry other) {
+            return sameState(state, other.state);
+        }
+
+        /** Node state equality does not consider the description, but it is part of the effective state */
+        private static boolean sameState(NodeState a, NodeState b) {
+            return a.equals(b) && a.getDescription().equals(b.getDescription());
+        }
+
+    }
+
+}
@@ -0,0 +1,71 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.clustercontroller.core;
+
+import com.yahoo.vdslib.state.NodeState;
+import com.yahoo.vdslib.state.NodeType;
+import com.yahoo.vdslib.state.State;
+
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Compares full and incremental cluster state generation in large hierarchic clusters,
+ * where a single node changes state between each generation. Run manually.
+ *
+ * @author agent
+ */
+public class ClusterStateGeneratorBenchmark {
+
+    public void run() {
+        run(10, 10);
+        run(50, 10);
+        run(100, 20);
+    }
+
+    private void run(int groups, int nodesPerGroup) {
+        out(groups + " groups of " + nodesPerGroup + " nodes:");
+        IncrementalClusterStateGenerator incremental = new IncrementalClusterStateGenerator();
+        run("  full       ", groups, nodesPerGroup, ClusterStateGenerator::generatedStateFrom);
+        run("  incremental", groups, nodesPerGroup, incremental::generatedStateFrom);
+    }
+
+    private void run(String name, int groups, int nodesPerGroup,
+                     Function<ClusterStateGenerator.Params, AnnotatedClusterState> generator) {
+        ClusterFixture fixture = ClusterFixture.forHierarchicCluster(DistributionBuilder.withGroups(groups).eachWithNodeCount(nodesPerGroup))
+                                               .bringEntireClusterUp();
+        ClusterStateGenerator.Params params = fixture.generatorParams().minNodeRatioPerGroup(0.7).transitionTimes(5000);
+        Random random = new Random(42);
+
+        long result = 0;
+        for (int i = 0; i < 1000; i++) // Warm-up
+            result += generate(fixture, params, generator, random);
+
+        int generations = 10000;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < generations; i++)
+            result += generate(fixture, params, generator, random);
+        long endTime = System.nanoTime();
+        out(name + ": " + (endTime - startTime) / generations / 1000 + " us per generation" +
+            " (ignore this: " + result + ")"); // Make sure we are not fooled by optimization by creating an observable result
+    }
+
+    private long generate(ClusterFixture fixture, ClusterStateGenerator.Params params,
+                          Function<ClusterStateGenerator.Params, AnnotatedClusterState> generator, Random random) {
+        int index = random.nextInt(fixture.cluster.getConfiguredNodes().size());
+        State state = random.nextInt(10) == 0 ? State.DOWN : State.UP;
+        fixture.cluster.getNodeInfo(ClusterFixture.storageNode(index))
+                       .setReportedState(new NodeState(NodeType.STORAGE, state), fixture.timer.getCurrentTimeInMillis());
+        fixture.timer.advanceTime(10);
+        params.currentTimeInMilllis(fixture.timer.getCurrentTimeInMillis());
+        return generator.apply(params).getNodeStateReasons().size();
+    }
+
+    private void out(String string) {
+        System.out.println(string);
+    }
+
+    public static void main(String[] args) {
+        new ClusterStateGeneratorBenchmark().run();
+    }
+
+}
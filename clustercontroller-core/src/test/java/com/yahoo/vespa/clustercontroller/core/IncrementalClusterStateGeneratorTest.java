@@ -0,0 +1,109 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.clustercontroller.core;
+
+import com.yahoo.vdslib.state.NodeState;
+import com.yahoo.vdslib.state.NodeType;
+import com.yahoo.vdslib.state.State;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ */
+public class IncrementalClusterStateGeneratorTest {
+
+    private static final State[] storageStates = { State.UP, State.UP, State.UP, State.DOWN, State.STOPPING, State.INITIALIZING };
+    private static final State[] distributorStates = { State.UP, State.UP, State.DOWN, State.STOPPING, State.INITIALIZING };
+    private static final State[] storageWantedStates = { State.UP, State.UP, State.MAINTENANCE, State.DOWN, State.RETIRED };
+    private static final State[] distributorWantedStates = { State.UP, State.UP, State.DOWN };
+
+    @Test
+    public void incremental_generation_is_equivalent_to_full_generation() {
+        ClusterFixture fixture = ClusterFixture.forHierarchicCluster(DistributionBuilder.withGroups(4).eachWithNodeCount(5))
+                                               .bringEntireClusterUp();
+        ClusterStateGenerator.Params params = fixture.generatorParams()
+                .minNodeRatioPerGroup(0.6)
+                .transitionTimes(5000)
+                .maxPrematureCrashes(3)
+                .maxInitProgressTime(10000);
+        IncrementalClusterStateGenerator generator = new IncrementalClusterStateGenerator();
+        Random random = new Random(1234);
+        for (int step = 0; step < 3000; step++) {
+            makeRandomChange(fixture, params, random);
+            fixture.timer.advanceTime(random.nextInt(2000));
+            params.currentTimeInMilllis(fixture.timer.getCurrentTimeInMillis());
+            assertSameState("Step " + step, ClusterStateGenerator.generatedStateFrom(params), generator.generatedStateFrom(params));
+        }
+    }
+
+    @Test
+    public void description_only_changes_are_reflected_in_generated_state() {
+        ClusterFixture fixture = ClusterFixture.forFlatCluster(3).bringEntireClusterUp();
+        ClusterStateGenerator.Params params = fixture.generatorParams();
+        IncrementalClusterStateGenerator generator = new IncrementalClusterStateGenerator();
+
+        fixture.proposeStorageNodeWantedState(1, State.MAINTENANCE, "upgrading");
+        assertSameState("Initial", ClusterStateGenerator.generatedStateFrom(params), generator.generatedStateFrom(params));
+        fixture.proposeStorageNodeWantedState(1, State.MAINTENANCE, "rebooting");
+        AnnotatedClusterState state = generator.generatedStateFrom(params);
+        assertSameState("Changed description", ClusterStateGenerator.generatedStateFrom(params), state);
+        assertEquals("distributor:3 storage:3 .1.s:m .1.m:rebooting", state.toString(true));
+    }
+
+    @Test
+    public void parameter_changes_are_reflected_in_generated_state() {
+        ClusterFixture fixture = ClusterFixture.forHierarchicCluster(DistributionBuilder.withGroups(2).eachWithNodeCount(4))
+                                               .bringEntireClusterUp()
+                                               .reportStorageNodeState(1, State.DOWN);
+        fixture.cluster.getNodeInfo(ClusterFixture.storageNode(2)).setPrematureCrashCount(2);
+        ClusterStateGenerator.Params params = fixture.generatorParams();
+        IncrementalClusterStateGenerator generator = new IncrementalClusterStateGenerator();
+        assertEquals("distributor:8 storage:8 .1.s:d", generator.generatedStateFrom(params).toString());
+
+        params.minNodeRatioPerGroup(0.6).maxPrematureCrashes(1);
+        assertSameState("Changed parameters", ClusterStateGenerator.generatedStateFrom(params), generator.generatedStateFrom(params));
+        assertEquals("distributor:8 storage:8 .0.s:d .1.s:d .2.s:d .3.s:d", generator.generatedStateFrom(params).toString());
+    }
+
+    private static void makeRandomChange(ClusterFixture fixture, ClusterStateGenerator.Params params, Random random) {
+        int index = random.nextInt(fixture.cluster.getConfiguredNodes().size());
+        boolean storage = random.nextBoolean();
+        NodeInfo nodeInfo = fixture.cluster.getNodeInfo(storage ? ClusterFixture.storageNode(index)
+                                                                : ClusterFixture.distributorNode(index));
+        NodeType type = storage ? NodeType.STORAGE : NodeType.DISTRIBUTOR;
+        switch (random.nextInt(6)) {
+            case 0: case 1: case 2:
+                NodeState reported = new NodeState(type, pick(storage ? storageStates : distributorStates, random));
+                if (reported.getState() == State.INITIALIZING)
+                    reported.setInitProgress(random.nextDouble());
+                reported.setDescription("reported " + random.nextInt(3));
+                nodeInfo.setReportedState(reported, fixture.timer.getCurrentTimeInMillis());
+                break;
+            case 3:
+                NodeState wanted = new NodeState(type, pick(storage ? storageWantedStates : distributorWantedStates, random));
+                wanted.setDescription("wanted " + random.nextInt(3));
+                nodeInfo.setWantedState(wanted);
+                break;
+            case 4:
+                nodeInfo.setPrematureCrashCount(random.nextInt(5));
+                break;
+            case 5:
+                if (random.nextInt(10) == 0)
+                    params.minNodeRatioPerGroup(random.nextInt(3) * 0.3);
+                break;
+        }
+    }
+
+    private static State pick(State[] states, Random random) {
+        return states[random.nextInt(states.length)];
+    }
+
+    private static void assertSameState(String message, AnnotatedClusterState expected, AnnotatedClusterState actual) {
+        assertEquals(message, expected.toString(true), actual.toString(true));
+        assertEquals(message, expected, actual);
+    }
+
+}
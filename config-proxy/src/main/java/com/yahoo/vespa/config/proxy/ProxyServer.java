@@ -16,6 +16,7 @@ import com.yahoo.vespa.config.proxy.filedistribution.FileDistributionAndUrlDownl
 import com.yahoo.yolean.system.CatchSignals;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -79,7 +80,8 @@ public class ProxyServer implements Runnable {
         this.memoryCache = memoryCache;
         this.rpcServer = createRpcServer(spec);
         this.configClient = createClient(rpcServer, delayedResponses, source, timingValues, memoryCache, configClient);
-        this.fileDistributionAndUrlDownload = new FileDistributionAndUrlDownload(supervisor, source);
+        this.fileDistributionAndUrlDownload = new FileDistributionAndUrlDownload(supervisor, source,
+                                                                          Optional.ofNullable(spec).map(Spec::port));
     }
 
     public void run() {
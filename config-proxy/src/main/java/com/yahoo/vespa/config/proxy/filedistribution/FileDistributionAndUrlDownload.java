@@ -4,10 +4,14 @@ package com.yahoo.vespa.config.proxy.filedistribution;
 import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.config.subscription.ConfigSourceSet;
 import com.yahoo.jrt.Supervisor;
+import com.yahoo.net.HostName;
 import com.yahoo.vespa.config.JRTConnectionPool;
+import com.yahoo.vespa.filedistribution.FileChunkServer;
 import com.yahoo.vespa.filedistribution.FileDownloader;
+import com.yahoo.vespa.filedistribution.FileReferencePeerAuthorizer;
 
 import java.time.Duration;
+import java.util.Optional;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -20,13 +24,39 @@ import java.util.concurrent.TimeUnit;
 public class FileDistributionAndUrlDownload {
 
     private static final Duration delay = Duration.ofMinutes(1);
+    private static final String VESPA_FILE_DISTRIBUTION_PEER_TO_PEER = "VESPA_FILE_DISTRIBUTION_PEER_TO_PEER";
+
     private final FileDistributionRpcServer fileDistributionRpcServer;
     private final UrlDownloadRpcServer urlDownloadRpcServer;
+    private final FileChunkServer fileChunkServer;
+    private final FileReferencePeerAuthorizer peerAuthorizer;
     private final ScheduledExecutorService cleanupExecutor =
             new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("file references and downloads cleanup"));
 
     public FileDistributionAndUrlDownload(Supervisor supervisor, ConfigSourceSet source) {
-        fileDistributionRpcServer = new FileDistributionRpcServer(supervisor, new FileDownloader(new JRTConnectionPool(source)));
+        this(supervisor, source, Optional.empty());
+    }
+
+    /**
+     * @param port the port other hosts can reach this on, in which case downloaded file references are served
+     *             to, and downloaded from, other hosts of the same application if that is enabled
+     */
+    public FileDistributionAndUrlDownload(Supervisor supervisor, ConfigSourceSet source, Optional<Integer> port) {
+        JRTConnectionPool configServers = new JRTConnectionPool(source);
+        FileDownloader fileDownloader;
+        if (port.isPresent() && peerToPeer()) {
+            // Other hosts are only served the file references of their own application, as decided by the config server
+            peerAuthorizer = new FileReferencePeerAuthorizer(configServers);
+            fileChunkServer = new FileChunkServer(supervisor, FileChunkServer.filesIn(FileDownloader.defaultDownloadDirectory),
+                                                  peerAuthorizer::authorize);
+            fileDownloader = new FileDownloader(configServers, "tcp/" + HostName.getLocalhost() + ":" + port.get());
+        }
+        else {
+            peerAuthorizer = null;
+            fileChunkServer = null;
+            fileDownloader = new FileDownloader(configServers);
+        }
+        fileDistributionRpcServer = new FileDistributionRpcServer(supervisor, fileDownloader);
         urlDownloadRpcServer = new UrlDownloadRpcServer(supervisor);
         cleanupExecutor.scheduleAtFixedRate(new CachedFilesMaintainer(), delay.toSeconds(), delay.toSeconds(), TimeUnit.SECONDS);
     }
@@ -34,6 +64,10 @@ public class FileDistributionAndUrlDownload {
     public void close() {
         fileDistributionRpcServer.close();
         urlDownloadRpcServer.close();
+        if (fileChunkServer != null) {
+            fileChunkServer.close();
+            peerAuthorizer.close();
+        }
         cleanupExecutor.shutdownNow();
         try {
             if ( ! cleanupExecutor.awaitTermination(10, TimeUnit.SECONDS))
@@ -43,4 +77,11 @@ public class FileDistributionAndUrlDownload {
         }
     }
 
+    /** Returns whether file references should be downloaded from other hosts in addition to config servers */
+    private static boolean peerToPeer() {
+        String value = Optional.ofNullable(System.getenv(VESPA_FILE_DISTRIBUTION_PEER_TO_PEER))
+                               .orElse(System.getProperty(VESPA_FILE_DISTRIBUTION_PEER_TO_PEER, "false"));
+        return Boolean.parseBoolean(value);
+    }
+
 }
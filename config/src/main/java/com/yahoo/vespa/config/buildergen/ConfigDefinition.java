@@ -9,6 +9,7 @@ import com.yahoo.text.StringUtilities;
 
 import java.io.File;
 import java.io.StringReader;
+import java.util.List;
 
 /**
  * Represents a higher level functionality on a config definition to (in the future) hide the InnerCNode class.
@@ -30,6 +31,11 @@ public class ConfigDefinition {
         return cnode;
     }
 
+    /** Returns the lines of the definition file of this */
+    public List<String> getDefSchema() {
+        return List.of(defSchema);
+    }
+
     public ConfigDefinitionClass generateClass() {
         File tempDir = Files.createTempDir();
         DefParser parser = new DefParser(name, new StringReader(StringUtilities.implode(defSchema, "\n")));
@@ -0,0 +1,143 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.protocol;
+
+import com.yahoo.slime.ArrayInserter;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Injector;
+import com.yahoo.slime.Inserter;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.ObjectInserter;
+import com.yahoo.slime.ObjectTraverser;
+import com.yahoo.slime.Slime;
+import com.yahoo.slime.SlimeInserter;
+import com.yahoo.slime.Type;
+import com.yahoo.text.Utf8Array;
+import com.yahoo.vespa.config.ConfigPayload;
+
+/**
+ * A delta from one config payload to another, which can be sent instead of the full payload to clients
+ * which already have the first one. A delta is a Slime structure mirroring the target payload,
+ * where each value is one of
+ * <ul>
+ *   <li>nix: the value is the same as in the base payload</li>
+ *   <li>{"=": value}: the value is replaced by the given one</li>
+ *   <li>{"{": {name: delta, ...}}: an object with exactly these fields, in this order,
+ *       each a delta from the field of the same name in the base payload</li>
+ *   <li>{"[": [delta or count, ...]}: an array where each delta gives the next entry as a delta from the
+ *       entry at the same index in the base payload, and each count n gives the next n entries
+ *       as unchanged from the base payload</li>
+ * </ul>
+ * As deltas keep the field order of the target, encoding the result of applying a delta gives the
+ * exact bytes of the target payload, so clients can verify the result by its config md5.
+ *
+ * All payloads and deltas handled by this are uncompressed json.
+ *
+ * @author agent
+ */
+public class ConfigDelta {
+
+    private static final String replace = "=";
+    private static final String object = "{";
+    private static final String array = "[";
+
+    private static final Injector injector = new Injector();
+
+    private ConfigDelta() {}
+
+    /** Returns the delta which turns the given base payload into the given target payload */
+    public static Utf8Array between(Utf8Array base, Utf8Array target) {
+        Slime delta = new Slime();
+        write(decode(base).get(), decode(target).get(), new SlimeInserter(delta));
+        return encode(delta);
+    }
+
+    /**
+     * Returns the payload resulting from applying the given delta to the given base payload
+     *
+     * @throws IllegalArgumentException if the delta is not valid
+     */
+    public static Utf8Array apply(Utf8Array base, Utf8Array delta) {
+        Slime target = new Slime();
+        apply(decode(base).get(), decode(delta).get(), new SlimeInserter(target));
+        return encode(target);
+    }
+
+    private static void write(Inspector base, Inspector target, Inserter delta) {
+        if (base.valid() && base.equalTo(target)) {
+            delta.insertNIX();
+        }
+        else if (base.type() == Type.OBJECT && target.type() == Type.OBJECT) {
+            Cursor fields = delta.insertOBJECT().setObject(object);
+            target.traverse((ObjectTraverser) (name, value) -> write(base.field(name), value, new ObjectInserter(fields, name)));
+        }
+        else if (base.type() == Type.ARRAY && target.type() == Type.ARRAY) {
+            Cursor entries = delta.insertOBJECT().setArray(array);
+            int unchanged = 0;
+            for (int i = 0; i < target.entries(); i++) {
+                if (base.entry(i).valid() && base.entry(i).equalTo(target.entry(i))) {
+                    unchanged++;
+                    continue;
+                }
+                if (unchanged > 0)
+                    entries.addLong(unchanged);
+                unchanged = 0;
+                write(base.entry(i), target.entry(i), new ArrayInserter(entries));
+            }
+            if (unchanged > 0)
+                entries.addLong(unchanged);
+        }
+        else {
+            injector.inject(target, new ObjectInserter(delta.insertOBJECT(), replace));
+        }
+    }
+
+    private static void apply(Inspector base, Inspector delta, Inserter target) {
+        if (delta.type() == Type.NIX) {
+            copy(base, target);
+            return;
+        }
+
+        Inspector replacement = delta.field(replace);
+        Inspector fields = delta.field(object);
+        Inspector entries = delta.field(array);
+        if (replacement.valid()) {
+            injector.inject(replacement, target);
+        }
+        else if (fields.valid()) {
+            Cursor result = target.insertOBJECT();
+            fields.traverse((ObjectTraverser) (name, fieldDelta) -> apply(base.field(name), fieldDelta, new ObjectInserter(result, name)));
+        }
+        else if (entries.valid()) {
+            Cursor result = target.insertARRAY();
+            int index = 0;
+            for (int i = 0; i < entries.entries(); i++) {
+                Inspector entryDelta = entries.entry(i);
+                if (entryDelta.type() == Type.LONG) {
+                    for (long n = 0; n < entryDelta.asLong(); n++)
+                        copy(base.entry(index++), new ArrayInserter(result));
+                }
+                else {
+                    apply(base.entry(index++), entryDelta, new ArrayInserter(result));
+                }
+            }
+        }
+        else {
+            throw new IllegalArgumentException("Invalid config delta value: " + delta);
+        }
+    }
+
+    private static void copy(Inspector base, Inserter target) {
+        if ( ! base.valid())
+            throw new IllegalArgumentException("Config delta refers to a value which is not in the base payload");
+        injector.inject(base, target);
+    }
+
+    private static Slime decode(Utf8Array json) {
+        return ConfigPayload.fromUtf8Array(json).getSlime();
+    }
+
+    private static Utf8Array encode(Slime slime) {
+        return new ConfigPayload(slime).toUtf8Array(true);
+    }
+
+}
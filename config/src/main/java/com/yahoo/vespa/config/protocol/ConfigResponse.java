@@ -19,6 +19,11 @@ public interface ConfigResponse {
 
     Utf8Array getPayload();
 
+    /** Returns the payload of this compressed with the given compression, which may require compressing or decompressing it */
+    default Payload getPayload(CompressionType compression) {
+        return Payload.from(getPayload(), getCompressionInfo()).withCompression(compression);
+    }
+
     List<String> getLegacyPayload();
 
     long getGeneration();
@@ -23,6 +23,14 @@ import java.util.Optional;
  */
 public class JRTClientConfigRequestV3 extends SlimeClientConfigRequest {
 
+    /** Whether this client wants config deltas when it has a config to apply them to */
+    private final boolean acceptDeltas;
+
+    /** The uncompressed payload of the config this client has, with the md5 of this request, if known */
+    private final Optional<Utf8Array> deltaBase;
+
+    private Payload newPayload = null;
+
     protected JRTClientConfigRequestV3(ConfigKey<?> key,
                                        String hostname,
                                        DefContent defSchema,
@@ -32,7 +40,24 @@ public class JRTClientConfigRequestV3 extends SlimeClientConfigRequest {
                                        Trace trace,
                                        CompressionType compressionType,
                                        Optional<VespaVersion> vespaVersion) {
-        super(key, hostname, defSchema, configMd5, generation, timeout, trace, compressionType, vespaVersion);
+        this(key, hostname, defSchema, configMd5, generation, timeout, trace, compressionType, vespaVersion, false, Optional.empty());
+    }
+
+    protected JRTClientConfigRequestV3(ConfigKey<?> key,
+                                       String hostname,
+                                       DefContent defSchema,
+                                       String configMd5,
+                                       long generation,
+                                       long timeout,
+                                       Trace trace,
+                                       CompressionType compressionType,
+                                       Optional<VespaVersion> vespaVersion,
+                                       boolean acceptDeltas,
+                                       Optional<Utf8Array> deltaBase) {
+        super(key, hostname, defSchema, configMd5, generation, timeout, trace, compressionType, vespaVersion,
+              acceptDeltas ? Optional.of(deltaBase.isPresent()) : Optional.empty());
+        this.acceptDeltas = acceptDeltas;
+        this.deltaBase = acceptDeltas ? deltaBase : Optional.empty();
     }
 
     @Override
@@ -45,11 +70,48 @@ public class JRTClientConfigRequestV3 extends SlimeClientConfigRequest {
         return JRTMethods.checkV3ReturnTypes(request);
     }
 
+    /**
+     * Returns the full config payload of the response. If the server sent a {@link ConfigDelta} it is
+     * applied to the config of this request here, so callers never see deltas.
+     *
+     * @throws IllegalArgumentException if the response is a delta which cannot be applied to the config of this
+     *         request, or the result of applying it does not have the md5 of the response
+     */
     @Override
     public Payload getNewPayload() {
+        if (newPayload == null)
+            newPayload = resolveNewPayload();
+        return newPayload;
+    }
+
+    private Payload resolveNewPayload() {
         CompressionInfo compressionInfo = getResponseData().getCompressionInfo();
-        Utf8Array payload = new Utf8Array(request.returnValues().get(1).asData());
-        return Payload.from(payload, compressionInfo);
+        Payload payload = Payload.from(new Utf8Array(request.returnValues().get(1).asData()), compressionInfo);
+        Optional<String> responseDeltaBase = getResponseData().getResponseDeltaBase();
+        if ( ! responseDeltaBase.isPresent()) return payload;
+
+        if ( ! deltaBase.isPresent() || ! responseDeltaBase.get().equals(getRequestConfigMd5()))
+            throw new IllegalArgumentException("Received a config delta from config " + responseDeltaBase.get() +
+                                               " for " + getConfigKey() + ", but have config " + getRequestConfigMd5());
+        Utf8Array config = ConfigDelta.apply(deltaBase.get(), payload.withCompression(CompressionType.UNCOMPRESSED).getData());
+        String md5 = ConfigUtils.getMd5(config);
+        if ( ! md5.equals(getNewConfigMd5()))
+            throw new IllegalArgumentException("Applying config delta for " + getConfigKey() + " gave config " + md5 +
+                                               ", expected " + getNewConfigMd5());
+        return Payload.from(config);
+    }
+
+    /** Returns the payload the next request can receive deltas from, which must be the config of its md5 */
+    private Optional<Utf8Array> nextDeltaBase() {
+        if ( ! acceptDeltas || isError()) return deltaBase;
+        if (request.returnValues().size() < 2 || request.returnValues().get(1).asData().length == 0) // Unchanged config
+            return newConfMd5().equals(getRequestConfigMd5()) ? deltaBase : Optional.empty();
+        try {
+            return Optional.of(getNewPayload().withCompression(CompressionType.UNCOMPRESSED).getData());
+        }
+        catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
     }
 
     @Override
@@ -67,26 +129,43 @@ public class JRTClientConfigRequestV3 extends SlimeClientConfigRequest {
                 timeout,
                 Trace.createNew(),
                 requestData.getCompressionType(),
-                requestData.getVespaVersion());
+                requestData.getVespaVersion(),
+                acceptDeltas,
+                nextDeltaBase());
     }
 
     public static <T extends ConfigInstance> JRTClientConfigRequest createFromSub(JRTConfigSubscription<T> sub,
                                                                                   Trace trace,
                                                                                   CompressionType compressionType,
                                                                                   Optional<VespaVersion> vespaVersion) {
+        return createFromSub(sub, trace, compressionType, vespaVersion, false);
+    }
+
+    /**
+     * Creates a request from a subscription. When accepting deltas, the first request asks for the full config,
+     * as the subscription only has the config instance and not its payload, and later requests accept deltas
+     * from the config received in the previous response.
+     */
+    public static <T extends ConfigInstance> JRTClientConfigRequest createFromSub(JRTConfigSubscription<T> sub,
+                                                                                  Trace trace,
+                                                                                  CompressionType compressionType,
+                                                                                  Optional<VespaVersion> vespaVersion,
+                                                                                  boolean acceptDeltas) {
         String hostname = ConfigUtils.getCanonicalHostName();
         ConfigKey<T> key = sub.getKey();
         ConfigSubscription.ConfigState<T> configState = sub.getConfigState();
         T i = configState.getConfig();
-        return createWithParams(key,
-                sub.getDefContent(),
+        return new JRTClientConfigRequestV3(key,
                 hostname,
+                sub.getDefContent(),
                 i != null ? i.getConfigMd5() : "",
                 configState.getGeneration() != null ? configState.getGeneration() : 0L,
                 sub.timingValues().getSubscribeTimeout(),
                 trace,
                 compressionType,
-                vespaVersion);
+                vespaVersion,
+                acceptDeltas,
+                Optional.empty());
     }
 
 
@@ -95,16 +174,35 @@ public class JRTClientConfigRequestV3 extends SlimeClientConfigRequest {
                                                        Trace trace,
                                                        CompressionType compressionType,
                                                        Optional<VespaVersion> vespaVersion) {
+        return createFromRaw(config, serverTimeout, trace, compressionType, vespaVersion, false);
+    }
+
+    /** Creates a request from a raw config, which accepts deltas from the payload of that config if asked to */
+    public static JRTClientConfigRequest createFromRaw(RawConfig config,
+                                                       long serverTimeout,
+                                                       Trace trace,
+                                                       CompressionType compressionType,
+                                                       Optional<VespaVersion> vespaVersion,
+                                                       boolean acceptDeltas) {
         String hostname = ConfigUtils.getCanonicalHostName();
-        return createWithParams(config.getKey(),
-                DefContent.fromList(config.getDefContent()),
+        return new JRTClientConfigRequestV3(config.getKey(),
                 hostname,
+                DefContent.fromList(config.getDefContent()),
                 config.getConfigMd5(),
                 config.getGeneration(),
                 serverTimeout,
                 trace,
                 compressionType,
-                vespaVersion);
+                vespaVersion,
+                acceptDeltas,
+                acceptDeltas ? payloadOf(config) : Optional.empty());
+    }
+
+    /** Returns the uncompressed payload of the given config, if it has one which matches its md5 */
+    private static Optional<Utf8Array> payloadOf(RawConfig config) {
+        if (config.getPayload() == null || config.getConfigMd5().isEmpty()) return Optional.empty();
+        Utf8Array payload = config.getPayload().withCompression(CompressionType.UNCOMPRESSED).getData();
+        return ConfigUtils.getMd5(payload).equals(config.getConfigMd5()) ? Optional.of(payload) : Optional.empty();
     }
 
 
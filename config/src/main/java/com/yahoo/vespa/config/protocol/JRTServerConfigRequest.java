@@ -38,6 +38,24 @@ public interface JRTServerConfigRequest extends JRTConfigRequest, GetConfigReque
      */
     void addOkResponse(Payload payload, long generation, boolean internalRedeployment, String configMd5);
 
+    /**
+     * Signal that the request was handled, with a {@link ConfigDelta} from the config the client has,
+     * given by {@link #getRequestConfigMd5()}, instead of the full payload. Must only be used if
+     * {@link #acceptsDelta()} is true.
+     *
+     * @param delta the uncompressed delta from the config of the client to the config of the response
+     * @param generation the config generation of the response
+     * @param internalRedeployment whether the response was generated from an internal redeployment
+     * @param configMd5 the md5sum of the full config the delta leads to
+     */
+    void addOkDeltaResponse(Payload delta, long generation, boolean internalRedeployment, String configMd5);
+
+    /** Returns whether the client is able to receive deltas, either in response to this or later requests */
+    boolean supportsDelta();
+
+    /** Returns whether the client has the config given by {@link #getRequestConfigMd5()} and can apply deltas to it */
+    boolean acceptsDelta();
+
     /**
      * Get the current config md5 of the client config.
      *
@@ -16,6 +16,8 @@ import java.io.IOException;
  * * A metadata field containing json data describing config generation, md5 and compression info
  * * A data field containing compressed or uncompressed json config payload. This field can be empty if the payload
  *   has not changed since last request, triggering an optimization at the client where the previous payload is used instead.
+ *   If the client accepts deltas, it may instead contain a {@link ConfigDelta} from the config the client has, which
+ *   is signalled by the deltaBase metadata field holding the md5 of that config.
  *
  * The implementation of addOkResponse is optimized for doing as little copying of payload data as possible, ensuring
  * that we get a lower memory footprint.
@@ -34,6 +36,17 @@ public class JRTServerConfigRequestV3 extends SlimeServerConfigRequest {
 
     @Override
     public void addOkResponse(Payload payload, long generation, boolean internalRedeploy, String configMd5) {
+        addOkResponse(payload, generation, internalRedeploy, configMd5, false);
+    }
+
+    @Override
+    public void addOkDeltaResponse(Payload delta, long generation, boolean internalRedeploy, String configMd5) {
+        if ( ! acceptsDelta())
+            throw new IllegalStateException("Client does not accept config deltas: " + this);
+        addOkResponse(delta, generation, internalRedeploy, configMd5, true);
+    }
+
+    private void addOkResponse(Payload payload, long generation, boolean internalRedeploy, String configMd5, boolean isDelta) {
         this.internalRedeploy = internalRedeploy;
         boolean changedConfig = !configMd5.equals(getRequestConfigMd5());
         boolean changedConfigAndNewGeneration = changedConfig && ConfigUtils.isGenerationNewer(generation, getRequestGeneration());
@@ -46,6 +59,8 @@ public class JRTServerConfigRequestV3 extends SlimeServerConfigRequest {
             setResponseField(jsonGenerator, SlimeResponseData.RESPONSE_CONFIG_MD5, configMd5);
             setResponseField(jsonGenerator, SlimeResponseData.RESPONSE_CONFIG_GENERATION, generation);
             setResponseField(jsonGenerator, SlimeResponseData.RESPONSE_INTERNAL_REDEPLOY, internalRedeploy);
+            if (isDelta && changedConfigAndNewGeneration)
+                setResponseField(jsonGenerator, SlimeResponseData.RESPONSE_DELTA_BASE, getRequestConfigMd5());
             jsonGenerator.writeObjectFieldStart(SlimeResponseData.RESPONSE_COMPRESSION_INFO);
             if (responsePayload == null) {
                 throw new RuntimeException("Payload is null for ' " + this + ", not able to create response");
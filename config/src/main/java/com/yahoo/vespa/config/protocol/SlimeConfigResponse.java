@@ -12,6 +12,8 @@ import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class for serializing config responses based on {@link com.yahoo.slime.Slime} implementing the {@link ConfigResponse} interface.
@@ -27,6 +29,9 @@ public class SlimeConfigResponse implements ConfigResponse {
     private final boolean internalRedeploy;
     private final String configMd5;
 
+    /** The payload in each compression it has been requested in, such that each is only encoded once */
+    private final Map<CompressionType, Payload> payloads = new ConcurrentHashMap<>(2);
+
     public static SlimeConfigResponse fromConfigPayload(ConfigPayload payload, InnerCNode targetDef, long generation,
                                                         boolean internalRedeploy, String configMd5) {
         Utf8Array data = payload.toUtf8Array(true);
@@ -47,6 +52,7 @@ public class SlimeConfigResponse implements ConfigResponse {
         this.internalRedeploy = internalRedeploy;
         this.configMd5 = configMd5;
         this.compressionInfo = compressionInfo;
+        this.payloads.put(compressionInfo.getCompressionType(), Payload.from(payload, compressionInfo));
     }
 
     @Override
@@ -54,11 +60,16 @@ public class SlimeConfigResponse implements ConfigResponse {
         return payload;
     }
 
+    @Override
+    public Payload getPayload(CompressionType compression) {
+        return payloads.computeIfAbsent(compression, type -> Payload.from(payload, compressionInfo).withCompression(type));
+    }
+
     @Override
     public List<String> getLegacyPayload() {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         ConfigFileFormat format = new ConfigFileFormat(targetDef);
-        Payload v1payload = Payload.from(payload, compressionInfo).withCompression(CompressionType.UNCOMPRESSED);
+        Payload v1payload = getPayload(CompressionType.UNCOMPRESSED);
         try {
             ConfigPayload.fromUtf8Array(v1payload.getData()).serialize(baos, format);
             return Arrays.asList(baos.toString(StandardCharsets.UTF_8).split("\\n"));
@@ -86,14 +97,14 @@ public class SlimeConfigResponse implements ConfigResponse {
 
     @Override
     public void serialize(OutputStream os, CompressionType type) throws IOException {
-        os.write(Payload.from(payload, compressionInfo).withCompression(type).getData().getBytes());
+        os.write(getPayload(type).getData().getBytes());
     }
 
     @Override
     public String toString() {
         return "generation=" + generation +  "\n" +
                 "configmd5=" + configMd5 +  "\n" +
-                Payload.from(payload, compressionInfo).withCompression(CompressionType.UNCOMPRESSED);
+                getPayload(CompressionType.UNCOMPRESSED);
     }
 
     @Override
@@ -32,6 +32,7 @@ class SlimeRequestData {
     private static final String REQUEST_DEF_MD5 = "defMD5";
     private static final String REQUEST_COMPRESSION_TYPE = "compressionType";
     private static final String REQUEST_VESPA_VERSION = "vespaVersion";
+    private static final String REQUEST_ACCEPT_DELTA = "acceptDelta";
 
     private final Request request;
     private Slime data = null;
@@ -93,7 +94,8 @@ class SlimeRequestData {
                                Trace trace,
                                long protocolVersion,
                                CompressionType compressionType,
-                               Optional<VespaVersion> vespaVersion) {
+                               Optional<VespaVersion> vespaVersion,
+                               Optional<Boolean> acceptDelta) {
         Slime data = new Slime();
         Cursor request = data.setObject();
         request.setLong(REQUEST_VERSION, protocolVersion);
@@ -108,6 +110,7 @@ class SlimeRequestData {
         request.setLong(REQUEST_TIMEOUT, timeout);
         request.setString(REQUEST_COMPRESSION_TYPE, compressionType.name());
         vespaVersion.ifPresent(version -> request.setString(REQUEST_VESPA_VERSION, version.toString()));
+        acceptDelta.ifPresent(accept -> request.setBool(REQUEST_ACCEPT_DELTA, accept));
         trace.serialize(request.setObject(REQUEST_TRACE));
         return data;
     }
@@ -126,4 +129,13 @@ class SlimeRequestData {
         return versionString.isEmpty() ? Optional.empty() : Optional.of(VespaVersion.fromString(versionString));
     }
 
+    /**
+     * Returns whether the client can apply a {@link ConfigDelta} from the config it has instead of the full payload,
+     * or empty if the client does not use deltas at all
+     */
+    Optional<Boolean> getAcceptDelta() {
+        Inspector field = getRequestField(REQUEST_ACCEPT_DELTA);
+        return field.valid() ? Optional.of(field.asBool()) : Optional.empty();
+    }
+
 }
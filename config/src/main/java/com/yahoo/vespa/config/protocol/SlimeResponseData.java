@@ -7,6 +7,8 @@ import com.yahoo.slime.JsonDecoder;
 import com.yahoo.slime.Slime;
 import com.yahoo.text.Utf8;
 
+import java.util.Optional;
+
 /**
  * Contains response data for a slime response and methods for decoding the response data that
  * are common to all {@link Slime} based config requests.
@@ -26,6 +28,7 @@ class SlimeResponseData {
     static final String RESPONSE_CONFIG_GENERATION = "generation";
     static final String RESPONSE_INTERNAL_REDEPLOY = "internalRedeploy";
     static final String RESPONSE_COMPRESSION_INFO = "compressionInfo";
+    static final String RESPONSE_DELTA_BASE = "deltaBase";
 
     private final Request request;
     private Slime data = null;
@@ -73,4 +76,10 @@ class SlimeResponseData {
         return inspector.valid() && inspector.asBool();
     }
 
+    /** Returns the md5 of the config the payload is a {@link ConfigDelta} from, or empty if it is a full payload */
+    Optional<String> getResponseDeltaBase() {
+        Inspector inspector = getResponseField(RESPONSE_DELTA_BASE);
+        return inspector.valid() ? Optional.of(inspector.asString()) : Optional.empty();
+    }
+
 }
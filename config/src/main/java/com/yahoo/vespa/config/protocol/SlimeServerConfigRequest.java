@@ -71,7 +71,7 @@ abstract class SlimeServerConfigRequest implements JRTServerConfigRequest {
 
     @Override
     public Payload payloadFromResponse(ConfigResponse response) {
-        return Payload.from(response.getPayload(), response.getCompressionInfo());
+        return response.getPayload(getCompressionType());
     }
 
     private DefContent getSchema() {
@@ -109,6 +109,16 @@ abstract class SlimeServerConfigRequest implements JRTServerConfigRequest {
         return requestData.getRequestConfigMd5();
     }
 
+    @Override
+    public boolean supportsDelta() {
+        return requestData.getAcceptDelta().isPresent();
+    }
+
+    @Override
+    public boolean acceptsDelta() {
+        return requestData.getAcceptDelta().orElse(false) && ! getRequestConfigMd5().isEmpty();
+    }
+
     private void addErrorResponse(int errorCode) {
         addErrorResponse(errorCode, ErrorCode.getName(errorCode));
     }
@@ -0,0 +1,96 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.protocol;
+
+import com.yahoo.text.Utf8Array;
+import com.yahoo.vespa.config.ConfigPayload;
+import com.yahoo.vespa.config.util.ConfigUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author agent
+ */
+public class ConfigDeltaTest {
+
+    @Test
+    public void delta_of_changed_field_contains_only_that_field() {
+        Utf8Array base = json("{'a':1,'b':'foo','c':{'d':[1,2,3]}}");
+        Utf8Array target = json("{'a':1,'b':'bar','c':{'d':[1,2,3]}}");
+        Utf8Array delta = ConfigDelta.between(base, target);
+        assertEquals(json("{'{':{'a':null,'b':{'=':'bar'},'c':null}}").toString(), delta.toString());
+        assertApplies(base, target, delta);
+    }
+
+    @Test
+    public void identical_payloads_give_empty_delta() {
+        Utf8Array base = json("{'a':1,'b':[{'c':true}]}");
+        Utf8Array delta = ConfigDelta.between(base, base);
+        assertEquals("null", delta.toString());
+        assertApplies(base, base, delta);
+    }
+
+    @Test
+    public void added_removed_and_reordered_fields_are_reproduced_exactly() {
+        assertRoundtrip("{'a':1,'b':2,'c':3}", "{'c':3,'a':1,'d':4}");
+        assertRoundtrip("{'a':{'x':1,'y':2}}", "{'a':{'y':2}}");
+        assertRoundtrip("{'a':{'x':1}}", "{'a':'x'}");
+        assertRoundtrip("{}", "{'a':{'b':{'c':'d'}}}");
+    }
+
+    @Test
+    public void arrays_are_compared_by_index() {
+        assertRoundtrip("{'a':[1,2,3]}", "{'a':[1,5,3,4]}");
+        assertRoundtrip("{'a':[1,2,3]}", "{'a':[1]}");
+        assertRoundtrip("{'a':[{'b':1,'c':2},{'b':3}]}", "{'a':[{'b':1,'c':7},{'b':3},{'b':4}]}");
+        assertRoundtrip("{'a':[]}", "{'a':[[1],[2]]}");
+        assertRoundtrip("{'a':[1,2,3,4,5,6]}", "{'a':[1,2,0,4,5,6,7]}");
+    }
+
+    @Test
+    public void unchanged_array_entries_are_counted() {
+        Utf8Array base = json("{'a':[1,2,3,4,5]}");
+        Utf8Array target = json("{'a':[1,2,7,4,5]}");
+        Utf8Array delta = ConfigDelta.between(base, target);
+        assertEquals(json("{'{':{'a':{'[':[2,{'=':7},2]}}}").toString(), delta.toString());
+        assertApplies(base, target, delta);
+    }
+
+    @Test
+    public void values_of_all_types_are_reproduced_exactly() {
+        assertRoundtrip("{'s':'x','l':1,'d':1.5,'b':true}",
+                        "{'s':'\\u00e6\\u00f8\\u00e5','l':-9223372036854775808,'d':1.0E-10,'b':false}");
+    }
+
+    @Test
+    public void delta_is_rejected_when_base_does_not_match() {
+        Utf8Array delta = ConfigDelta.between(json("{'a':1,'b':2}"), json("{'a':1,'b':3}"));
+        try {
+            ConfigDelta.apply(json("{'b':2}"), delta);
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("not in the base payload"));
+        }
+    }
+
+    private static void assertRoundtrip(String base, String target) {
+        Utf8Array baseJson = json(base);
+        Utf8Array targetJson = json(target);
+        assertApplies(baseJson, targetJson, ConfigDelta.between(baseJson, targetJson));
+    }
+
+    private static void assertApplies(Utf8Array base, Utf8Array target, Utf8Array delta) {
+        Utf8Array result = ConfigDelta.apply(base, delta);
+        assertEquals(target.toString(), result.toString());
+        assertEquals(ConfigUtils.getMd5(target), ConfigUtils.getMd5(result));
+    }
+
+    /** Returns the given json with ' replaced by ", encoded the way config payloads are */
+    private static Utf8Array json(String json) {
+        return ConfigPayload.fromString(json.replace('\'', '"')).toUtf8Array(true);
+    }
+
+}
@@ -9,8 +9,10 @@ import com.yahoo.vespa.config.util.ConfigUtils;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Collections;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -78,4 +80,68 @@ public class JRTConfigRequestV3Test extends JRTConfigRequestBase {
         assertThat(clientReq.getNewPayload().withCompression(CompressionType.UNCOMPRESSED).getData().toString(), is("{}"));
         assertFalse(clientReq.responseIsInternalRedeploy());
     }
+
+    @Test
+    public void delta_responses_are_applied_by_the_client() {
+        Payload base = payload("{'myfield':'bar','list':[1,2,3],'other':{'a':'b'}}");
+        Payload target = payload("{'myfield':'baz','list':[1,2,3],'other':{'a':'b'}}");
+        String baseMd5 = ConfigUtils.getMd5(base.getData());
+        String targetMd5 = ConfigUtils.getMd5(target.getData());
+        RawConfig config = new RawConfig(new ConfigKey<>(defName, configId, defNamespace), defMd5, base, baseMd5,
+                                         currentGeneration, false, Collections.emptyList(), vespaVersion);
+
+        JRTClientConfigRequest client = JRTClientConfigRequestV3.createFromRaw(config, timeout, Trace.createNew(),
+                                                                               CompressionType.LZ4, vespaVersion, true);
+        JRTServerConfigRequest server = createReq(client.getRequest());
+        assertTrue(server.supportsDelta());
+        assertTrue(server.acceptsDelta());
+        Payload delta = Payload.from(ConfigDelta.between(base.getData(), target.getData()));
+        server.addOkDeltaResponse(delta, currentGeneration + 1, false, targetMd5);
+
+        assertTrue(client.validateResponse());
+        assertEquals(targetMd5, client.getNewConfigMd5());
+        assertEquals(target.getData().toString(),
+                     client.getNewPayload().withCompression(CompressionType.UNCOMPRESSED).getData().toString());
+
+        // The next request accepts deltas from the config just received
+        JRTClientConfigRequest next = client.nextRequest(timeout);
+        JRTServerConfigRequest nextServer = createReq(next.getRequest());
+        assertEquals(targetMd5, nextServer.getRequestConfigMd5());
+        assertTrue(nextServer.acceptsDelta());
+        nextServer.addOkDeltaResponse(Payload.from(ConfigDelta.between(target.getData(), base.getData())),
+                                      currentGeneration + 2, false, baseMd5);
+        assertEquals(base.getData().toString(),
+                     next.getNewPayload().withCompression(CompressionType.UNCOMPRESSED).getData().toString());
+    }
+
+    @Test
+    public void delta_is_not_accepted_without_a_config_to_apply_it_to() {
+        RawConfig config = new RawConfig(new ConfigKey<>(defName, configId, defNamespace), defMd5);
+        JRTServerConfigRequest server = createReq(JRTClientConfigRequestV3.createFromRaw(config, timeout, Trace.createNew(),
+                                                                                         CompressionType.LZ4, vespaVersion,
+                                                                                         true).getRequest());
+        assertTrue(server.supportsDelta());
+        assertFalse(server.acceptsDelta());
+        assertFalse(serverReq.supportsDelta());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void delta_giving_wrong_config_is_rejected() {
+        Payload base = payload("{'myfield':'bar'}");
+        RawConfig config = new RawConfig(new ConfigKey<>(defName, configId, defNamespace), defMd5, base,
+                                         ConfigUtils.getMd5(base.getData()), currentGeneration, false,
+                                         Collections.emptyList(), vespaVersion);
+        JRTClientConfigRequest client = JRTClientConfigRequestV3.createFromRaw(config, timeout, Trace.createNew(),
+                                                                               CompressionType.LZ4, vespaVersion, true);
+        JRTServerConfigRequest server = createReq(client.getRequest());
+        Payload target = payload("{'myfield':'baz'}");
+        server.addOkDeltaResponse(Payload.from(ConfigDelta.between(base.getData(), target.getData())),
+                                  currentGeneration + 1, false, "not-the-md5-of-the-target");
+        client.getNewPayload();
+    }
+
+    private static Payload payload(String json) {
+        return Payload.from(ConfigPayload.fromString(json.replace('\'', '"')));
+    }
+
 }
@@ -47,5 +47,6 @@ public interface GlobalComponentRegistry {
     StripedExecutor<TenantName> getZkWatcherExecutor();
     FlagSource getFlagSource();
     ExecutorService getZkCacheExecutor();
+    ExecutorService getConfigPrecomputeExecutor();
     SecretStore getSecretStore();
 }
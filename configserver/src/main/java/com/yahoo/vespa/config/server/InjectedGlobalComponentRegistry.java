@@ -52,6 +52,7 @@ public class InjectedGlobalComponentRegistry implements GlobalComponentRegistry
     private final SecretStore secretStore;
     private final StripedExecutor<TenantName> zkWatcherExecutor;
     private final ExecutorService zkCacheExecutor;
+    private final ExecutorService configPrecomputeExecutor;
 
     @SuppressWarnings("WeakerAccess")
     @Inject
@@ -88,6 +89,8 @@ public class InjectedGlobalComponentRegistry implements GlobalComponentRegistry
         this.secretStore = secretStore;
         this.zkWatcherExecutor = new StripedExecutor<>();
         this.zkCacheExecutor = Executors.newFixedThreadPool(1, ThreadFactoryFactory.getThreadFactory(TenantRepository.class.getName()));
+        this.configPrecomputeExecutor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+                                                                     ThreadFactoryFactory.getDaemonThreadFactory("config-precompute"));
     }
 
     @Override
@@ -142,6 +145,11 @@ public class InjectedGlobalComponentRegistry implements GlobalComponentRegistry
         return zkCacheExecutor;
     }
 
+    @Override
+    public ExecutorService getConfigPrecomputeExecutor() {
+        return configPrecomputeExecutor;
+    }
+
     @Override
     public SecretStore getSecretStore() {
         return secretStore;
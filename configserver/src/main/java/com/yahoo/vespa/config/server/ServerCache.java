@@ -8,7 +8,10 @@ import com.yahoo.vespa.config.buildergen.ConfigDefinition;
 import com.yahoo.vespa.config.protocol.ConfigResponse;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * Cache that holds configs and config definitions (builtin and user config definitions).
@@ -24,6 +27,8 @@ public class ServerCache {
     private final Map<ConfigCacheKey, String> md5Sums = new ConcurrentHashMap<>();
     private final Map<String, ConfigResponse> md5ToConfig = new ConcurrentHashMap<>();
 
+    /** Configs which are currently being resolved, by the first thread which requested them */
+    private final Map<ConfigCacheKey, CompletableFuture<ConfigResponse>> resolving = new ConcurrentHashMap<>();
 
     public ServerCache(ConfigDefinitionRepo builtinConfigDefinitions, ConfigDefinitionRepo userConfigDefinitions) {
         this.builtinConfigDefinitions = builtinConfigDefinitions;
@@ -46,6 +51,48 @@ public class ServerCache {
         return md5ToConfig.get(md5);
     }
 
+    /**
+     * Returns the config of the given key, resolving and caching it if it is not already cached.
+     * Concurrent requests for a config which is not cached only resolve it once: The first request
+     * resolves it, and the others wait for and return the same response, or exception.
+     */
+    public ConfigResponse computeIfAbsent(ConfigCacheKey key, Function<ConfigCacheKey, ConfigResponse> resolver) {
+        ConfigResponse config = get(key);
+        if (config != null) return config;
+
+        CompletableFuture<ConfigResponse> resolution = new CompletableFuture<>();
+        CompletableFuture<ConfigResponse> ongoingResolution = resolving.putIfAbsent(key, resolution);
+        if (ongoingResolution != null) return await(ongoingResolution);
+
+        try {
+            config = get(key); // Another resolution may have completed since the check above
+            if (config == null) {
+                config = resolver.apply(key);
+                put(key, config, config.getConfigMd5());
+            }
+            resolution.complete(config);
+            return config;
+        }
+        catch (RuntimeException e) {
+            resolution.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            resolving.remove(key, resolution);
+        }
+    }
+
+    private static ConfigResponse await(CompletableFuture<ConfigResponse> resolution) {
+        try {
+            return resolution.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -24,8 +24,14 @@ import com.yahoo.vespa.config.server.rpc.UncompressedConfigResponseFactory;
 import com.yahoo.vespa.config.server.tenant.TenantRepository;
 import com.yahoo.vespa.config.util.ConfigUtils;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A Vespa application for a specific version of Vespa. It holds data and metadata associated with
@@ -115,11 +121,23 @@ public class Application implements ModelResult {
                 if (logDebug()) {
                     debug("Found config " + cacheKey + " in cache");
                 }
-                metricUpdater.incrementProcTime(System.currentTimeMillis() - start);
-                return config;
             }
+            else {
+                config = cache.computeIfAbsent(cacheKey, __ -> createResponse(req, responseFactory));
+                metricUpdater.setCacheConfigElems(cache.configElems());
+                metricUpdater.setCacheChecksumElems(cache.checkSumElems());
+            }
+            metricUpdater.incrementProcTime(System.currentTimeMillis() - start);
+            return config;
         }
 
+        ConfigResponse configResponse = createResponse(req, responseFactory);
+        metricUpdater.incrementProcTime(System.currentTimeMillis() - start);
+        return configResponse;
+    }
+
+    private ConfigResponse createResponse(GetConfigRequest req, ConfigResponseFactory responseFactory) {
+        ConfigKey<?> configKey = req.getConfigKey();
         ConfigDefinition def = getTargetDef(req);
         if (def == null) {
             metricUpdater.incrementFailedRequests();
@@ -134,14 +152,58 @@ public class Application implements ModelResult {
             throw new ConfigurationRuntimeException("Unable to resolve config " + configKey);
         }
 
-        ConfigResponse configResponse = responseFactory.createResponse(payload, def.getCNode(), appGeneration, internalRedeploy);
-        metricUpdater.incrementProcTime(System.currentTimeMillis() - start);
-        if (useCache(req)) {
-            cache.put(cacheKey, configResponse, configResponse.getConfigMd5());
-            metricUpdater.setCacheConfigElems(cache.configElems());
-            metricUpdater.setCacheChecksumElems(cache.checkSumElems());
+        return responseFactory.createResponse(payload, def.getCNode(), appGeneration, internalRedeploy);
+    }
+
+    /**
+     * Builds and caches all configs produced by the model of this, using the given executor, such that they need
+     * not be built when they are first requested. Each config is cached under the def md5 which a request with the
+     * definition known by this carries, as computed by {@link #resolveConfig}. Configs which cannot be built are
+     * skipped, as requesting them will fail anyway.
+     *
+     * @return the sum of the time spent building configs of each config definition, in milliseconds
+     */
+    public Map<ConfigDefinitionKey, Long> precomputeConfigs(ConfigResponseFactory responseFactory, Executor executor) {
+        Map<ConfigDefinitionKey, LongAdder> buildTimes = new ConcurrentHashMap<>();
+        Map<ConfigDefinitionKey, String> defMd5s = new ConcurrentHashMap<>();
+        CompletableFuture.allOf(model.allConfigsProduced().stream()
+                                     .map(configKey -> CompletableFuture.runAsync(
+                                             () -> precomputeConfig(configKey, responseFactory, buildTimes, defMd5s), executor))
+                                     .toArray(CompletableFuture[]::new))
+                         .join();
+        metricUpdater.setCacheConfigElems(cache.configElems());
+        metricUpdater.setCacheChecksumElems(cache.checkSumElems());
+
+        Map<ConfigDefinitionKey, Long> result = new HashMap<>();
+        buildTimes.forEach((definitionKey, time) -> {
+            result.put(definitionKey, time.sum());
+            metricUpdater.setConfigPrecomputeTime(definitionKey, time.sum());
+        });
+        return result;
+    }
+
+    private void precomputeConfig(ConfigKey<?> configKey, ConfigResponseFactory responseFactory,
+                                  Map<ConfigDefinitionKey, LongAdder> buildTimes, Map<ConfigDefinitionKey, String> defMd5s) {
+        ConfigDefinitionKey definitionKey = new ConfigDefinitionKey(configKey.getName(), configKey.getNamespace());
+        ConfigDefinition def = cache.getDef(definitionKey);
+        if (def == null) return;
+
+        long start = System.currentTimeMillis();
+        try {
+            String defMd5 = defMd5s.computeIfAbsent(definitionKey, __ -> ConfigUtils.getDefMd5(def.getDefSchema()));
+            cache.computeIfAbsent(new ConfigCacheKey(configKey, defMd5), __ -> {
+                ConfigPayload payload = model.getConfig(configKey, def);
+                if (payload == null)
+                    throw new ConfigurationRuntimeException("Unable to resolve config " + configKey);
+                return responseFactory.createResponse(payload, def.getCNode(), appGeneration, internalRedeploy);
+            });
         }
-        return configResponse;
+        catch (RuntimeException e) {
+            if (logDebug()) {
+                debug("Could not precompute config " + configKey + ": " + e.getMessage());
+            }
+        }
+        buildTimes.computeIfAbsent(definitionKey, __ -> new LongAdder()).add(System.currentTimeMillis() - start);
     }
 
     private boolean useCache(GetConfigRequest request) {
@@ -0,0 +1,86 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.server.filedistribution;
+
+import com.yahoo.config.FileReference;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The hosts which have announced that they have downloaded a file reference and serve it to other hosts,
+ * and the peers of each file reference, which are the hosts that have been authorized to download it,
+ * and which hosts serving it may therefore serve it to.
+ * Only the most recently added sources and peers of the most recently added file references are kept.
+ *
+ * This is thread safe.
+ *
+ * @author agent
+ */
+public class FileReferenceSources {
+
+    private final int maxReferences;
+    private final int maxSourcesPerReference;
+    private final Map<FileReference, Set<String>> sources;
+    private final Map<FileReference, Set<String>> peers;
+
+    public FileReferenceSources() {
+        this(1000, 100);
+    }
+
+    FileReferenceSources(int maxReferences, int maxSourcesPerReference) {
+        this.maxReferences = maxReferences;
+        this.maxSourcesPerReference = maxSourcesPerReference;
+        this.sources = newReferenceMap();
+        this.peers = newReferenceMap();
+    }
+
+    /** Adds a source of the given file reference, given as a connection spec */
+    public synchronized void add(FileReference reference, String spec) {
+        add(sources, reference, spec);
+    }
+
+    /** Returns the known sources of the given file reference, most recently added last */
+    public synchronized List<String> of(FileReference reference) {
+        return list(sources, reference);
+    }
+
+    /** Adds a peer of the given file reference, given as an IP address */
+    public synchronized void addPeer(FileReference reference, String address) {
+        add(peers, reference, address);
+    }
+
+    /** Returns the known peers of the given file reference, most recently added last */
+    public synchronized List<String> peersOf(FileReference reference) {
+        return list(peers, reference);
+    }
+
+    private void add(Map<FileReference, Set<String>> hosts, FileReference reference, String host) {
+        Set<String> hostsOfReference = hosts.computeIfAbsent(reference, __ -> new LinkedHashSet<>());
+        hostsOfReference.remove(host); // Move to the end, as the most recent
+        hostsOfReference.add(host);
+        for (Iterator<String> i = hostsOfReference.iterator(); hostsOfReference.size() > maxSourcesPerReference; ) {
+            i.next();
+            i.remove();
+        }
+    }
+
+    private static List<String> list(Map<FileReference, Set<String>> hosts, FileReference reference) {
+        Set<String> hostsOfReference = hosts.get(reference);
+        return hostsOfReference == null ? List.of() : new ArrayList<>(hostsOfReference);
+    }
+
+    private Map<FileReference, Set<String>> newReferenceMap() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<FileReference, Set<String>> eldest) {
+                return size() > maxReferences;
+            }
+        };
+    }
+
+}
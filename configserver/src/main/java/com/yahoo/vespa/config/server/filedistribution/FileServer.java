@@ -41,6 +41,7 @@ public class FileServer {
     private final ExecutorService pushExecutor;
     private final ExecutorService pullExecutor;
     private final FileDownloader downloader;
+    private final FileReferenceSources sources = new FileReferenceSources();
 
     private enum FileApiErrorCodes {
         OK(0, "OK"),
@@ -97,6 +98,21 @@ public class FileServer {
         return root;
     }
 
+    /** Returns the file of the given file reference if this has it and it is a plain file, as opposed to a directory */
+    public Optional<File> plainFileOf(FileReference reference) {
+        try {
+            File file = root.getFile(reference);
+            return file.isFile() ? Optional.of(file) : Optional.empty();
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /** Returns the hosts which have announced that they serve file references to other hosts */
+    public FileReferenceSources sources() {
+        return sources;
+    }
+
     private boolean hasFile(FileReference reference) {
         try {
             return root.getFile(reference).exists();
@@ -15,6 +15,7 @@ import com.yahoo.config.provision.HostName;
 import com.yahoo.config.provision.TenantName;
 import com.yahoo.container.jdisc.secretstore.SecretStore;
 import com.yahoo.log.LogLevel;
+import com.yahoo.vespa.config.ConfigDefinitionKey;
 import com.yahoo.vespa.config.server.ConfigServerSpec;
 import com.yahoo.vespa.config.server.GlobalComponentRegistry;
 import com.yahoo.vespa.config.server.ServerCache;
@@ -24,6 +25,7 @@ import com.yahoo.vespa.config.server.deploy.ModelContextImpl;
 import com.yahoo.vespa.config.server.monitoring.MetricUpdater;
 import com.yahoo.vespa.config.server.monitoring.Metrics;
 import com.yahoo.vespa.config.server.provision.HostProvisionerProvider;
+import com.yahoo.vespa.config.server.rpc.ConfigResponseFactory;
 import com.yahoo.vespa.config.server.session.SessionZooKeeperClient;
 import com.yahoo.vespa.config.server.session.SilentDeployLogger;
 import com.yahoo.vespa.config.server.tenant.ContainerEndpointsCache;
@@ -31,13 +33,17 @@ import com.yahoo.vespa.config.server.tenant.EndpointCertificateRetriever;
 import com.yahoo.vespa.config.server.tenant.TenantRepository;
 import com.yahoo.vespa.config.server.tenant.EndpointCertificateMetadataStore;
 import com.yahoo.vespa.curator.Curator;
+import com.yahoo.vespa.flags.FetchVector;
 import com.yahoo.vespa.flags.FlagSource;
+import com.yahoo.vespa.flags.Flags;
 
 import java.net.URI;
 import java.time.Instant;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 /**
  * Builds activated versions of the right model versions
@@ -58,6 +64,7 @@ public class ActivatedModelsBuilder extends ModelsBuilder<Application> {
     private final DeployLogger logger;
     private final FlagSource flagSource;
     private final SecretStore secretStore;
+    private final Executor configPrecomputeExecutor;
 
     public ActivatedModelsBuilder(TenantName tenant,
                                   long appGeneration,
@@ -77,6 +84,7 @@ public class ActivatedModelsBuilder extends ModelsBuilder<Application> {
         this.logger = new SilentDeployLogger();
         this.flagSource = globalComponentRegistry.getFlagSource();
         this.secretStore = globalComponentRegistry.getSecretStore();
+        this.configPrecomputeExecutor = globalComponentRegistry.getConfigPrecomputeExecutor();
     }
 
     @Override
@@ -103,13 +111,31 @@ public class ActivatedModelsBuilder extends ModelsBuilder<Application> {
                 wantedNodeVespaVersion);
         MetricUpdater applicationMetricUpdater = metrics.getOrCreateMetricUpdater(Metrics.createDimensions(applicationId));
         ServerCache serverCache = new ServerCache(configDefinitionRepo, zkClient.getUserConfigDefinitions());
-        return new Application(modelFactory.createModel(modelContext),
-                               serverCache,
-                               appGeneration,
-                               applicationPackage.getMetaData().isInternalRedeploy(),
-                               modelFactory.version(),
-                               applicationMetricUpdater,
-                               applicationId);
+        Application application = new Application(modelFactory.createModel(modelContext),
+                                                  serverCache,
+                                                  appGeneration,
+                                                  applicationPackage.getMetaData().isInternalRedeploy(),
+                                                  modelFactory.version(),
+                                                  applicationMetricUpdater,
+                                                  applicationId);
+        if (Flags.PRECOMPUTE_CONFIGS.bindTo(flagSource)
+                                    .with(FetchVector.Dimension.APPLICATION_ID, applicationId.serializedForm()).value())
+            precomputeConfigs(application, applicationId, modelFactory.version());
+        return application;
+    }
+
+    private void precomputeConfigs(Application application, ApplicationId applicationId, Version version) {
+        long start = System.currentTimeMillis();
+        Map<ConfigDefinitionKey, Long> buildTimes = application.precomputeConfigs(ConfigResponseFactory.create(configserverConfig),
+                                                                                      configPrecomputeExecutor);
+        log.log(LogLevel.DEBUG, () -> String.format("Precomputed %d configs of %s for model version %s in %d ms. Slowest config definitions: %s",
+                                                    application.getCache().configElems(), applicationId, version,
+                                                    System.currentTimeMillis() - start,
+                                                    buildTimes.entrySet().stream()
+                                                              .sorted(Map.Entry.<ConfigDefinitionKey, Long>comparingByValue().reversed())
+                                                              .limit(5)
+                                                              .map(entry -> entry.getKey() + ": " + entry.getValue() + " ms")
+                                                              .collect(Collectors.joining(", "))));
     }
 
     private static <T> Optional<T> getForVersionOrLatest(Map<Version, T> map, Version version) {
@@ -2,9 +2,11 @@
 package com.yahoo.vespa.config.server.monitoring;
 
 import com.yahoo.jdisc.Metric;
+import com.yahoo.vespa.config.ConfigDefinitionKey;
 import com.yahoo.vespa.config.server.ServerCache;
 import com.yahoo.vespa.config.server.RequestHandler;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -33,6 +35,7 @@ public class MetricUpdater {
     private static final String METRIC_CACHE_CONFIG_CHECKSUMS = getMetricName("cacheChecksumElems");
     private static final String METRIC_DELAYED_RESPONSES = getMetricName("delayedResponses");
     private static final String METRIC_RPCSERVER_WORK_QUEUE_SIZE = getMetricName("rpcServerWorkQueueSize");
+    private static final String METRIC_CONFIG_PRECOMPUTE_TIME = getMetricName("configPrecomputeTime");
 
 
     private final Metrics metrics;
@@ -85,6 +88,19 @@ public class MetricUpdater {
         staticMetrics.put(METRIC_DELAYED_RESPONSES, elems);
     }
 
+    /**
+     * Sets the time spent building all configs of the given definition when the configs of an application were precomputed
+     *
+     * @param millis the sum of the time spent building each config of the definition, in milliseconds
+     */
+    public void setConfigPrecomputeTime(ConfigDefinitionKey definition, long millis) {
+        if (metrics == null) return;
+
+        Map<String, String> definitionDimensions = dimensions == null ? new LinkedHashMap<>() : new LinkedHashMap<>(dimensions);
+        definitionDimensions.put("configDefinition", definition.toString());
+        metrics.getMetric().set(METRIC_CONFIG_PRECOMPUTE_TIME, millis, createContext(metrics, definitionDimensions));
+    }
+
     private void setStaticMetric(String name, int size) {
         staticMetrics.put(name, size);
     }
@@ -0,0 +1,112 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.server.rpc;
+
+import com.yahoo.collections.Pair;
+import com.yahoo.text.Utf8Array;
+import com.yahoo.vespa.config.protocol.CompressionType;
+import com.yahoo.vespa.config.protocol.ConfigDelta;
+import com.yahoo.vespa.config.protocol.ConfigResponse;
+import com.yahoo.vespa.config.protocol.Payload;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Remembers the most recently served config payloads by their md5, and creates deltas from those to
+ * newer configs for clients which already have one of them. Both payloads and deltas are bounded
+ * by least recent use.
+ *
+ * A delta is only used if it is verified to recreate the exact target payload, and is considerably
+ * smaller than it, otherwise the full payload should be sent. Whether a delta should be used is
+ * remembered for each pair of configs, so it is computed at most once per pair as long as it is kept.
+ *
+ * This is thread safe.
+ *
+ * @author agent
+ */
+class ConfigDeltas {
+
+    /** Don't use a delta unless it is less than this fraction of the size of the full payload */
+    private static final double maxDeltaSizeFraction = 0.5;
+
+    private final long maxPayloadBytes;
+    private final int maxDeltas;
+
+    private final Map<String, Utf8Array> payloads = new LinkedHashMap<>(16, 0.75f, true);
+    private long payloadBytes = 0;
+    private final Map<Pair<String, String>, Optional<Payload>> deltas;
+
+    ConfigDeltas() {
+        this(64 * 1024 * 1024, 10000);
+    }
+
+    ConfigDeltas(long maxPayloadBytes, int maxDeltas) {
+        this.maxPayloadBytes = maxPayloadBytes;
+        this.maxDeltas = maxDeltas;
+        this.deltas = new LinkedHashMap<Pair<String, String>, Optional<Payload>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Pair<String, String>, Optional<Payload>> eldest) {
+                return size() > ConfigDeltas.this.maxDeltas;
+            }
+        };
+    }
+
+    /** Remembers the payload of the given response, such that deltas can be created from it later */
+    void served(ConfigResponse response) {
+        synchronized (payloads) {
+            if (payloads.get(response.getConfigMd5()) != null) return; // Marks it as recently used
+        }
+        Utf8Array payload = response.getPayload(CompressionType.UNCOMPRESSED).getData();
+        synchronized (payloads) {
+            if (payloads.put(response.getConfigMd5(), payload) == null)
+                payloadBytes += payload.getByteLength();
+            for (Iterator<Utf8Array> i = payloads.values().iterator(); payloadBytes > maxPayloadBytes && i.hasNext(); ) {
+                payloadBytes -= i.next().getByteLength();
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the uncompressed delta from the config with the given md5 to the config of the given response,
+     * or empty if the config with that md5 is not known, or a delta would not be worthwhile
+     */
+    Optional<Payload> deltaTo(ConfigResponse response, String baseMd5) {
+        if (baseMd5.equals(response.getConfigMd5())) return Optional.empty();
+        Pair<String, String> key = new Pair<>(baseMd5, response.getConfigMd5());
+        synchronized (deltas) {
+            Optional<Payload> delta = deltas.get(key);
+            if (delta != null) return delta;
+        }
+
+        Utf8Array base;
+        synchronized (payloads) {
+            base = payloads.get(baseMd5);
+        }
+        if (base == null) return Optional.empty(); // Don't remember this; we may get the base later
+
+        Optional<Payload> delta = createDelta(base, response.getPayload(CompressionType.UNCOMPRESSED).getData());
+        synchronized (deltas) {
+            deltas.put(key, delta);
+        }
+        return delta;
+    }
+
+    private static Optional<Payload> createDelta(Utf8Array base, Utf8Array target) {
+        Utf8Array delta = ConfigDelta.between(base, target);
+        if (delta.getByteLength() > target.getByteLength() * maxDeltaSizeFraction) return Optional.empty();
+        if ( ! Arrays.equals(ConfigDelta.apply(base, delta).getBytes(), target.getBytes())) return Optional.empty();
+        return Optional.of(Payload.from(delta));
+    }
+
+    /** Returns the number of payloads remembered by this */
+    int payloadCount() {
+        synchronized (payloads) {
+            return payloads.size();
+        }
+    }
+
+}
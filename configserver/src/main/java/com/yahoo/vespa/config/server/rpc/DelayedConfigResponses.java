@@ -13,15 +13,15 @@ import com.yahoo.config.provision.ApplicationId;
 import com.yahoo.vespa.config.server.tenant.TenantRepository;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 /**
@@ -29,21 +29,33 @@ import java.util.logging.Logger;
  * A delayed response is a response sent at request (server) timeout
  * for a config which has not changed since the request was initiated.
  *
+ * Pending responses are kept in a set per application, which is taken out in bulk when the config of that
+ * application changes, and in timer wheels which time out the responses. Each wheel is advanced one slot per
+ * tick by its own timer thread, so scheduling and cancelling a response is constant time, and never needs
+ * to touch a shared priority queue.
+ *
  * @author hmusum
  */
 public class DelayedConfigResponses {
     private static final Logger log = Logger.getLogger(DelayedConfigResponses.class.getName());
+
+    /** The resolution of delayed response timeouts */
+    static final long tickMillis = 10;
+
+    /** The number of slots in each timer wheel. Responses with longer timeouts stay in the wheel for several rounds */
+    private static final int wheelSize = 4096;
+
     private final RpcServer rpcServer;
 
     private final ScheduledExecutorService executorService;
+    private final TimerWheel[] wheels;
     private final boolean useJrtWatcher;
 
     private Map<ApplicationId, MetricUpdater> metrics = new ConcurrentHashMap<>();
     
-    /* Requests that resolve to config that has not changed are put on this queue. When reloading
-       config, all requests on this queue are reprocessed as if they were a new request */
-    private final Map<ApplicationId, BlockingQueue<DelayedConfigResponse>> delayedResponses =
-            new ConcurrentHashMap<>();
+    /* Requests that resolve to config that has not changed are put in these sets. When reloading
+       config, all requests in the set of the application are reprocessed as if they were a new request */
+    private final Map<ApplicationId, Set<DelayedConfigResponse>> delayedResponses = new ConcurrentHashMap<>();
             
     DelayedConfigResponses(RpcServer rpcServer, int numTimerThreads) {
         this(rpcServer, numTimerThreads, true);
@@ -52,39 +64,49 @@ public class DelayedConfigResponses {
     // Since JRT does not allow adding watcher for "fake" requests, we must be able to disable it for unit tests :(
     DelayedConfigResponses(RpcServer rpcServer, int numTimerThreads, boolean useJrtWatcher) {
         this.rpcServer = rpcServer;
-        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(numTimerThreads, ThreadFactoryFactory.getThreadFactory(DelayedConfigResponses.class.getName()));
-        executor.setRemoveOnCancelPolicy(true);
-        this.executorService = executor;
+        int numWheels = Math.max(1, numTimerThreads);
+        this.executorService = new ScheduledThreadPoolExecutor(numWheels, ThreadFactoryFactory.getThreadFactory(DelayedConfigResponses.class.getName()));
+        this.wheels = new TimerWheel[numWheels];
+        for (int i = 0; i < numWheels; i++) {
+            TimerWheel wheel = new TimerWheel();
+            wheels[i] = wheel;
+            executorService.scheduleAtFixedRate(wheel::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
         this.useJrtWatcher = useJrtWatcher;
     }
 
     List<DelayedConfigResponse> allDelayedResponses() {
         List<DelayedConfigResponse> responses = new ArrayList<>();
-        for (Map.Entry<ApplicationId, BlockingQueue<DelayedConfigResponse>> entry : delayedResponses.entrySet()) {
-            responses.addAll(entry.getValue());
+        for (Set<DelayedConfigResponse> responsesOfApplication : delayedResponses.values()) {
+            responses.addAll(responsesOfApplication);
         }
         return responses;
     }
 
     /**
-     * The run method of this class is run by a Timer when the timeout expires.
-     * The timer associated with this response must be cancelled first.
+     * A request waiting for its config to change, or to time out. Exactly one of timing out, config change
+     * and the client going away gets to respond to or drop the request; the rest find it already done.
      */
-    class DelayedConfigResponse implements Runnable, TargetWatcher {
+    class DelayedConfigResponse implements TargetWatcher {
 
         final JRTServerConfigRequest request;
-        private final BlockingQueue<DelayedConfigResponse> delayedResponsesQueue;
+        private final Set<DelayedConfigResponse> delayedResponsesOfApplication;
         private final ApplicationId app;
-        private ScheduledFuture<?> future;
+        private final AtomicBoolean done = new AtomicBoolean(false);
+
+        /** The wheel tick at which this times out, guarded by the wheel holding this */
+        private long timeoutTick;
 
-        DelayedConfigResponse(JRTServerConfigRequest req, BlockingQueue<DelayedConfigResponse> delayedResponsesQueue, ApplicationId app) {
+        DelayedConfigResponse(JRTServerConfigRequest req, Set<DelayedConfigResponse> delayedResponsesOfApplication, ApplicationId app) {
             this.request = req;
-            this.delayedResponsesQueue = delayedResponsesQueue;
+            this.delayedResponsesOfApplication = delayedResponsesOfApplication;
             this.app = app;
         }
 
-        @Override
-        public synchronized void run() {
+        /** Responds with the config as it is now, unless this is already done */
+        void timeout() {
+            if ( ! done.compareAndSet(false, true)) return;
+
             removeFromQueue();
             removeWatcher();
             rpcServer.addToRequestQueue(request, true, null);
@@ -94,10 +116,10 @@ public class DelayedConfigResponses {
         }
 
         /**
-         * Remove delayed response from its queue
+         * Remove delayed response from the responses of its application
          */
         private void removeFromQueue() {
-            delayedResponsesQueue.remove(this);
+            delayedResponsesOfApplication.remove(this);
         }
 
         JRTServerConfigRequest getRequest() {
@@ -115,23 +137,29 @@ public class DelayedConfigResponses {
             return TenantRepository.logPre(app);
         }
 
-        synchronized void cancelAndRemove() {
+        void cancelAndRemove() {
             removeFromQueue();
             cancel();
         }
 
-        synchronized boolean cancel() {
+        /**
+         * Prevents this from timing out. This is not removed from its timer wheel, but skipped when it comes up.
+         *
+         * @return whether this was cancelled by this call, i.e., was neither done nor cancelled already
+         */
+        boolean cancel() {
+            if ( ! done.compareAndSet(false, true)) return false;
+
             removeWatcher();
-            if (future == null) {
-                throw new IllegalStateException("Cannot cancel a task that has not been scheduled");
-            }
-            return future.cancel(false);
+            return true;
         }
 
-        synchronized void schedule(long delay) throws InterruptedException {
-            delayedResponsesQueue.put(this);
-            future = executorService.schedule(this, delay, TimeUnit.MILLISECONDS);
+        boolean isDone() { return done.get(); }
+
+        void schedule(long delay) {
+            delayedResponsesOfApplication.add(this);
             addWatcher();
+            wheels[Math.floorMod(System.identityHashCode(this), wheels.length)].add(this, delay);
         }
 
         /**
@@ -158,9 +186,67 @@ public class DelayedConfigResponses {
         }
     }
 
+    /**
+     * A hashed timer wheel: A ring of slots, each holding the responses which time out at a tick
+     * which maps to that slot. The wheel is advanced one slot per tick, timing out the responses
+     * in the new slot which are due at the current tick.
+     */
+    private static class TimerWheel {
+
+        private final List<DelayedConfigResponse>[] slots;
+        private long currentTick = 0;
+
+        @SuppressWarnings("unchecked")
+        TimerWheel() {
+            slots = new List[wheelSize];
+            for (int i = 0; i < wheelSize; i++)
+                slots[i] = new ArrayList<>();
+        }
+
+        synchronized void add(DelayedConfigResponse response, long delayMillis) {
+            response.timeoutTick = currentTick + Math.max(1, delayMillis / tickMillis);
+            slots[slotOf(response.timeoutTick)].add(response);
+        }
+
+        void tick() {
+            try {
+                for (DelayedConfigResponse response : advance())
+                    response.timeout();
+            }
+            catch (RuntimeException e) { // An exception would stop the scheduled ticking of this wheel
+                log.log(LogLevel.WARNING, "Failed timing out delayed config responses", e);
+            }
+        }
+
+        /** Advances this wheel one tick, and returns the responses which timed out, i.e. are due and not done */
+        private synchronized Collection<DelayedConfigResponse> advance() {
+            currentTick++;
+            List<DelayedConfigResponse> slot = slots[slotOf(currentTick)];
+            if (slot.isEmpty()) return List.of();
+
+            List<DelayedConfigResponse> timedOut = new ArrayList<>();
+            List<DelayedConfigResponse> remaining = new ArrayList<>();
+            for (DelayedConfigResponse response : slot) {
+                if (response.isDone()) continue; // Cancelled, or responded to after a config change
+
+                if (response.timeoutTick <= currentTick)
+                    timedOut.add(response);
+                else
+                    remaining.add(response);
+            }
+            slots[slotOf(currentTick)] = remaining;
+            return timedOut;
+        }
+
+        private static int slotOf(long tick) {
+            return (int) (tick % wheelSize);
+        }
+
+    }
+
     /**
      * Creates a DelayedConfigResponse object for taking care of requests that should
-     * not be responded to right away.  Puts the object on the delayedResponsesQueue.
+     * not be responded to right away, and adds it to the delayed responses of its application.
      *
      * NOTE: This method is called from multiple threads, so everything here needs to be
      * thread safe!
@@ -171,36 +257,24 @@ public class DelayedConfigResponses {
         if (request.isDelayedResponse()) {
             log.log(LogLevel.DEBUG, context.logPre()+"Request already delayed");
         } else {            
-            createQueueIfNotExists(context);
-            BlockingQueue<DelayedConfigResponse> delayedResponsesQueue = delayedResponses.get(context.applicationId());
-            DelayedConfigResponse response = new DelayedConfigResponse(request, delayedResponsesQueue, context.applicationId());
+            Set<DelayedConfigResponse> delayedResponsesOfApplication =
+                    delayedResponses.computeIfAbsent(context.applicationId(), __ -> ConcurrentHashMap.newKeySet());
+            DelayedConfigResponse response = new DelayedConfigResponse(request, delayedResponsesOfApplication, context.applicationId());
             request.setDelayedResponse(true);
-            try {
-                if (log.isLoggable(LogLevel.DEBUG)) {
-                    log.log(LogLevel.DEBUG, context.logPre()+"Putting on delayedRequests queue (" + delayedResponsesQueue.size() + " elements): " +
-                            response.getRequest().getShortDescription());
-                }
-                // Config will be resolved in the run() method of DelayedConfigResponse,
-                // when the timer expires or config is updated/reloaded.
-                response.schedule(Math.max(0, request.getTimeout()));
-                metricDelayedResponses(context.applicationId(), delayedResponsesQueue.size());
-            } catch (InterruptedException e) {
-                log.log(LogLevel.WARNING, context.logPre()+"Interrupted when putting on delayed requests queue.");
+            if (log.isLoggable(LogLevel.DEBUG)) {
+                log.log(LogLevel.DEBUG, context.logPre()+"Putting on delayedRequests queue (" + delayedResponsesOfApplication.size() + " elements): " +
+                        response.getRequest().getShortDescription());
             }
+            // Config will be resolved in the timeout() method of DelayedConfigResponse,
+            // when the timer expires or config is updated/reloaded.
+            response.schedule(Math.max(0, request.getTimeout()));
+            metricDelayedResponses(context.applicationId(), delayedResponsesOfApplication.size());
         }
     }
 
-    private synchronized void metricDelayedResponses(ApplicationId app, int elems) {
-        if ( ! metrics.containsKey(app)) {
-            metrics.put(app, rpcServer.metricUpdaterFactory().getOrCreateMetricUpdater(Metrics.createDimensions(app)));
-        }
-        metrics.get(app).setDelayedResponses(elems);
-    }
-
-    private synchronized void createQueueIfNotExists(GetConfigContext context) {
-        if ( ! delayedResponses.containsKey(context.applicationId())) {
-            delayedResponses.put(context.applicationId(), new LinkedBlockingQueue<>());
-        }
+    private void metricDelayedResponses(ApplicationId app, int elems) {
+        metrics.computeIfAbsent(app, __ -> rpcServer.metricUpdaterFactory().getOrCreateMetricUpdater(Metrics.createDimensions(app)))
+               .setDelayedResponses(elems);
     }
 
     void stop() {
@@ -208,16 +282,20 @@ public class DelayedConfigResponses {
     }
 
     /**
-     * Drains delayed responses queue and returns responses in an array
+     * Removes all delayed responses of the given application, and returns them.
+     * Responses delayed after this is called are kept until the next call, or until they time out.
      *
-     * @return and array of DelayedConfigResponse objects
+     * @return the DelayedConfigResponse objects of the application
      */
     List<DelayedConfigResponse> drainQueue(ApplicationId app) {
         ArrayList<DelayedConfigResponse> ret = new ArrayList<>();
-        
-        if (delayedResponses.containsKey(app)) {
-            BlockingQueue<DelayedConfigResponse> queue = delayedResponses.get(app);
-            queue.drainTo(ret);
+
+        Set<DelayedConfigResponse> responses = delayedResponses.get(app);
+        if (responses != null) {
+            for (DelayedConfigResponse response : responses) {
+                if (responses.remove(response))
+                    ret.add(response);
+            }
         }
         metrics.remove(app);
         return ret;
@@ -231,7 +309,7 @@ public class DelayedConfigResponses {
     int size() {
         int totalQueueSize = 0;
         int numQueues = 0;
-        for (Map.Entry<ApplicationId, BlockingQueue<DelayedConfigResponse>> e : delayedResponses.entrySet()) {
+        for (Map.Entry<ApplicationId, Set<DelayedConfigResponse>> e : delayedResponses.entrySet()) {
             numQueues++;
             totalQueueSize+=e.getValue().size();
         }
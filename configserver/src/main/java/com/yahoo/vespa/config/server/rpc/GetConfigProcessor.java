@@ -13,6 +13,7 @@ import com.yahoo.vespa.config.ErrorCode;
 import com.yahoo.vespa.config.UnknownConfigIdException;
 import com.yahoo.vespa.config.protocol.ConfigResponse;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
+import com.yahoo.vespa.config.protocol.Payload;
 import com.yahoo.vespa.config.protocol.SlimeConfigResponse;
 import com.yahoo.vespa.config.protocol.Trace;
 import com.yahoo.vespa.config.protocol.VespaVersion;
@@ -126,7 +127,7 @@ class GetConfigProcessor implements Runnable {
         // config == null is not an error, but indicates that the config will be returned later.
         if ((config != null) && (!config.hasEqualConfig(request) || config.hasNewerGeneration(request) || forceResponse)) {
             // debugLog(trace, "config response before encoding:" + config.toString());
-            request.addOkResponse(request.payloadFromResponse(config), config.getGeneration(), config.isInternalRedeploy(), config.getConfigMd5());
+            addOkResponse(request, config);
             if (logDebug(trace)) {
                 debugLog(trace, "return response: " + request.getShortDescription());
             }
@@ -139,6 +140,22 @@ class GetConfigProcessor implements Runnable {
         }
         return null;
     }
+
+    /** Responds with a delta from the config the client has if it accepts that, and the delta is worthwhile */
+    private void addOkResponse(JRTServerConfigRequest request, ConfigResponse config) {
+        if (request.supportsDelta()) {
+            ConfigDeltas deltas = rpcServer.configDeltas();
+            deltas.served(config);
+            Optional<Payload> delta = request.acceptsDelta() ? deltas.deltaTo(config, request.getRequestConfigMd5())
+                                                             : Optional.empty();
+            if (delta.isPresent()) {
+                request.addOkDeltaResponse(delta.get(), config.getGeneration(), config.isInternalRedeploy(), config.getConfigMd5());
+                return;
+            }
+        }
+        request.addOkResponse(request.payloadFromResponse(config), config.getGeneration(), config.isInternalRedeploy(), config.getConfigMd5());
+    }
+
     @Override
     public void run() {
         rpcServer.hostLivenessTracker().receivedRequestFrom(request.getClientHostName());
@@ -17,6 +17,7 @@ import com.yahoo.jrt.ListenFailedException;
 import com.yahoo.jrt.Method;
 import com.yahoo.jrt.Request;
 import com.yahoo.jrt.Spec;
+import com.yahoo.jrt.StringArray;
 import com.yahoo.jrt.StringValue;
 import com.yahoo.jrt.Supervisor;
 import com.yahoo.jrt.Target;
@@ -42,11 +43,16 @@ import com.yahoo.vespa.config.server.rpc.security.RpcAuthorizer;
 import com.yahoo.vespa.config.server.tenant.TenantHandlerProvider;
 import com.yahoo.vespa.config.server.tenant.TenantListener;
 import com.yahoo.vespa.config.server.tenant.TenantRepository;
+import com.yahoo.vespa.filedistribution.FileChunkServer;
 import com.yahoo.vespa.filedistribution.FileDownloader;
 import com.yahoo.vespa.filedistribution.FileReceiver;
 import com.yahoo.vespa.filedistribution.FileReferenceData;
 import com.yahoo.vespa.filedistribution.FileReferenceDownload;
+import com.yahoo.vespa.filedistribution.FileReferencePeerAuthorizer;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Collections;
@@ -91,6 +97,7 @@ public class RpcServer implements Runnable, ReloadListener, TenantListener {
     private static final Logger log = Logger.getLogger(RpcServer.class.getName());
 
     private final DelayedConfigResponses delayedConfigResponses;
+    private final ConfigDeltas configDeltas = new ConfigDeltas();
 
     private final HostRegistry<TenantName> hostRegistry;
     private final Map<TenantName, TenantHandlerProvider> tenantProviders = new ConcurrentHashMap<>();
@@ -104,6 +111,7 @@ public class RpcServer implements Runnable, ReloadListener, TenantListener {
 
     private final ThreadPoolExecutor executorService;
     private final FileDownloader downloader;
+    private final FileChunkServer fileChunkServer;
     private volatile boolean allTenantsLoaded = false;
     private boolean isRunning = false;
 
@@ -143,6 +151,7 @@ public class RpcServer implements Runnable, ReloadListener, TenantListener {
         this.fileServer = fileServer;
         this.rpcAuthorizer = rpcAuthorizer;
         downloader = fileServer.downloader();
+        fileChunkServer = new FileChunkServer(supervisor, fileServer::plainFileOf, rpcAuthorizer::authorizeFileRequest);
         handlerProvider.setInstance(this);
         setUpHandlers();
     }
@@ -202,6 +211,7 @@ public class RpcServer implements Runnable, ReloadListener, TenantListener {
             Thread.interrupted(); // Ignore and continue shutdown.
         }
         delayedConfigResponses.stop();
+        fileChunkServer.close();
         fileServer.close();
         supervisor.transport().shutdown().join();
         isRunning = false;
@@ -228,6 +238,19 @@ public class RpcServer implements Runnable, ReloadListener, TenantListener {
                                      .methodDesc("set which file references to download")
                                      .paramDesc(0, "file references", "file reference to download")
                                      .returnDesc(0, "ret", "0 if success, 1 otherwise"));
+        getSupervisor().addMethod(new Method("filedistribution.getFileReferenceSources", "s", "S", this::getFileReferenceSources)
+                                     .methodDesc("get the other hosts which serve a file reference")
+                                     .paramDesc(0, "filereference", "file reference")
+                                     .returnDesc(0, "sources", "connection specs of the hosts serving the file reference"));
+        getSupervisor().addMethod(new Method(FileReferencePeerAuthorizer.GET_PEERS_METHOD, "s", "S", this::getFileReferencePeers)
+                                     .methodDesc("get the hosts which are allowed to download a file reference from other hosts")
+                                     .paramDesc(0, "filereference", "file reference")
+                                     .returnDesc(0, "peers", "IP addresses of the hosts allowed to download the file reference"));
+        getSupervisor().addMethod(new Method("filedistribution.addFileReferenceSource", "ss", "i", this::addFileReferenceSource)
+                                     .methodDesc("announce that a host serves a file reference to other hosts")
+                                     .paramDesc(0, "filereference", "file reference")
+                                     .paramDesc(1, "source", "connection spec of the host serving the file reference")
+                                     .returnDesc(0, "ret", "0 if success"));
     }
 
     private ApplicationState getState(ApplicationId id) {
@@ -568,7 +591,69 @@ public class RpcServer implements Runnable, ReloadListener, TenantListener {
                 });
     }
 
+    private void getFileReferenceSources(Request request) {
+        request.detach();
+        rpcAuthorizer.authorizeFileRequest(request)
+                .thenRun(() -> {
+                    FileReference fileReference = new FileReference(request.parameters().get(0).asString());
+                    // The requesting host is authorized to download this, so hosts serving it may serve it to this
+                    peerAddressOf(request.target()).ifPresent(address -> fileServer.sources().addPeer(fileReference, address));
+                    request.returnValues().add(new StringArray(fileServer.sources().of(fileReference).toArray(new String[0])));
+                    request.returnRequest();
+                });
+    }
+
+    private void getFileReferencePeers(Request request) {
+        request.detach();
+        rpcAuthorizer.authorizeFileRequest(request)
+                .thenRun(() -> {
+                    FileReference fileReference = new FileReference(request.parameters().get(0).asString());
+                    request.returnValues().add(new StringArray(fileServer.sources().peersOf(fileReference).toArray(new String[0])));
+                    request.returnRequest();
+                });
+    }
+
+    private void addFileReferenceSource(Request request) {
+        request.detach();
+        rpcAuthorizer.authorizeFileRequest(request)
+                .thenRunAsync(() -> { // not in the authorizer thread, as resolving the source may block
+                    String source = request.parameters().get(1).asString();
+                    if ( ! isSpecOfPeer(source, request.target())) {
+                        request.setError(com.yahoo.jrt.ErrorCode.WRONG_PARAMS,
+                                         "Source '" + source + "' is not on the host making the request");
+                        request.returnRequest();
+                        return;
+                    }
+                    FileReference fileReference = new FileReference(request.parameters().get(0).asString());
+                    fileServer.sources().add(fileReference, source);
+                    peerAddressOf(request.target()).ifPresent(address -> fileServer.sources().addPeer(fileReference, address));
+                    request.returnValues().add(new Int32Value(0));
+                    request.returnRequest();
+                }, executorService);
+    }
+
+    /** Returns the IP address of the host at the other end of the given target, if known */
+    private static Optional<String> peerAddressOf(Target target) {
+        return target.getPeerAddress().map(address -> address.getAddress().getHostAddress());
+    }
+
+    /** Returns whether the given connection spec is on the host at the other end of the given target */
+    static boolean isSpecOfPeer(String spec, Target target) {
+        Spec parsed = new Spec(spec);
+        Optional<InetSocketAddress> peer = target.getPeerAddress();
+        if (parsed.malformed() || parsed.host() == null || peer.isEmpty()) return false;
+        try {
+            return Stream.of(InetAddress.getAllByName(parsed.host())).anyMatch(peer.get().getAddress()::equals);
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
     HostLivenessTracker hostLivenessTracker() {
         return hostLivenessTracker;
     }
+
+    ConfigDeltas configDeltas() {
+        return configDeltas;
+    }
 }
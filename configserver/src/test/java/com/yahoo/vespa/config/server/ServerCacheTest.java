@@ -11,10 +11,20 @@ import com.yahoo.vespa.config.protocol.SlimeConfigResponse;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author Ulf Lilleengen
@@ -76,4 +86,57 @@ public class ServerCacheTest {
     public void testThatCacheWorksWithDifferentKeySameMd5() {
         assertTrue(cache.get(fooBarCacheKey) == cache.get(bazQuuxCacheKey));
     }
+
+    @Test
+    public void testThatConcurrentMissesResolveConfigOnce() throws Exception {
+        ConfigCacheKey key = new ConfigCacheKey(new ConfigKey<>("foo", "id3", "bar"), defMd5);
+        ConfigResponse response = SlimeConfigResponse.fromConfigPayload(ConfigPayload.empty(), def.getCNode(), 2, false, "md5_3");
+        AtomicInteger resolutions = new AtomicInteger();
+        CountDownLatch resolving = new CountDownLatch(1);
+        CountDownLatch allWaiting = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ConfigResponse>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.computeIfAbsent(key, __ -> {
+                resolutions.incrementAndGet();
+                resolving.countDown();
+                try {
+                    allWaiting.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return response;
+            })));
+            resolving.await();
+            for (int i = 0; i < 3; i++)
+                results.add(executor.submit(() -> cache.computeIfAbsent(key, __ -> {
+                    resolutions.incrementAndGet();
+                    return response;
+                })));
+            Thread.sleep(100); // Let the other requests start waiting for the ongoing resolution
+            allWaiting.countDown();
+
+            for (Future<ConfigResponse> result : results)
+                assertTrue(result.get(10, TimeUnit.SECONDS) == response);
+            assertThat(resolutions.get(), is(1));
+            assertTrue(cache.get(key) == response);
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testThatFailedResolutionIsNotCached() {
+        ConfigCacheKey key = new ConfigCacheKey(new ConfigKey<>("foo", "id3", "bar"), defMd5);
+        try {
+            cache.computeIfAbsent(key, __ -> { throw new IllegalArgumentException("no such config"); });
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("no such config"));
+        }
+        ConfigResponse response = SlimeConfigResponse.fromConfigPayload(ConfigPayload.empty(), def.getCNode(), 2, false, "md5_3");
+        assertTrue(cache.computeIfAbsent(key, __ -> response) == response);
+    }
 }
@@ -12,6 +12,7 @@ import com.yahoo.config.provision.InstanceName;
 import com.yahoo.config.provision.TenantName;
 import com.yahoo.component.Version;
 import com.yahoo.jrt.Request;
+import com.yahoo.vespa.config.ConfigCacheKey;
 import com.yahoo.vespa.config.ConfigDefinitionKey;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.GetConfigRequest;
@@ -28,6 +29,7 @@ import com.yahoo.vespa.config.server.UnknownConfigDefinitionException;
 import com.yahoo.vespa.config.server.UserConfigDefinitionRepo;
 import com.yahoo.vespa.config.server.monitoring.MetricUpdater;
 import com.yahoo.vespa.config.server.monitoring.Metrics;
+import com.yahoo.vespa.config.server.rpc.UncompressedConfigResponseFactory;
 import com.yahoo.vespa.model.VespaModel;
 import org.junit.Before;
 import org.junit.Test;
@@ -36,10 +38,15 @@ import org.xml.sax.SAXException;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -138,9 +145,43 @@ public class ApplicationTest {
         assertTrue(response == cached_response);
     }
 
+    @Test
+    public void require_that_configs_can_be_precomputed() {
+        ConfigDefinitionKey slobroksDefinition = new ConfigDefinitionKey(SlobroksConfig.CONFIG_DEF_NAME, SlobroksConfig.CONFIG_DEF_NAMESPACE);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Map<ConfigDefinitionKey, Long> buildTimes;
+        try {
+            buildTimes = handler.precomputeConfigs(new UncompressedConfigResponseFactory(), executor);
+        }
+        finally {
+            executor.shutdown();
+        }
+        assertTrue(buildTimes.containsKey(slobroksDefinition));
+        assertFalse("No definition for this in the cache",
+                    buildTimes.containsKey(new ConfigDefinitionKey(ModelConfig.CONFIG_DEF_NAME, ModelConfig.CONFIG_DEF_NAMESPACE)));
+
+        int slobroksConfigs = 0;
+        for (ConfigKey<?> key : handler.allConfigsProduced()) {
+            if ( ! new ConfigDefinitionKey(key.getName(), key.getNamespace()).equals(slobroksDefinition)) continue;
+            ConfigResponse precomputed = handler.getCache().get(new ConfigCacheKey(key, SlobroksConfig.CONFIG_DEF_MD5));
+            assertNotNull(key + " is cached", precomputed);
+            // Requests with and without the def md5 are served the precomputed config
+            assertSame(precomputed, handler.resolveConfig(createRequest(key.getName(), key.getConfigId(), key.getNamespace(),
+                                                                        SlobroksConfig.CONFIG_DEF_MD5, emptySchema)));
+            assertSame(precomputed, handler.resolveConfig(createRequest(key.getName(), key.getConfigId(), key.getNamespace(),
+                                                                        "", SlobroksConfig.CONFIG_DEF_SCHEMA)));
+            slobroksConfigs++;
+        }
+        assertTrue(slobroksConfigs > 0);
+    }
+
     private static GetConfigRequest createRequest(String name, String namespace, String defMd5, String[] schema) {
+        return createRequest(name, "admin/model", namespace, defMd5, schema);
+    }
+
+    private static GetConfigRequest createRequest(String name, String configId, String namespace, String defMd5, String[] schema) {
         Request request = JRTClientConfigRequestV3.
-                createWithParams(new ConfigKey<>(name, "admin/model", namespace, defMd5, null), DefContent.fromArray(schema),
+                createWithParams(new ConfigKey<>(name, configId, namespace, defMd5, null), DefContent.fromArray(schema),
                                  "fromHost", "", 0, 100, Trace.createDummy(), CompressionType.UNCOMPRESSED,
                                  Optional.empty()).getRequest();
         return JRTServerConfigRequestV3.createFromRequest(request);
@@ -0,0 +1,53 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.server.filedistribution;
+
+import com.yahoo.config.FileReference;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ */
+public class FileReferenceSourcesTest {
+
+    @Test
+    public void most_recently_added_sources_are_kept() {
+        FileReferenceSources sources = new FileReferenceSources(2, 2);
+        FileReference a = new FileReference("a");
+        FileReference b = new FileReference("b");
+        FileReference c = new FileReference("c");
+
+        sources.add(a, "tcp/host1:19090");
+        sources.add(a, "tcp/host2:19090");
+        sources.add(a, "tcp/host1:19090");
+        assertEquals(List.of("tcp/host2:19090", "tcp/host1:19090"), sources.of(a));
+        sources.add(a, "tcp/host3:19090");
+        assertEquals(List.of("tcp/host1:19090", "tcp/host3:19090"), sources.of(a));
+
+        sources.add(b, "tcp/host1:19090");
+        sources.add(a, "tcp/host4:19090");
+        sources.add(c, "tcp/host1:19090");
+        assertEquals(List.of(), sources.of(b));
+        assertEquals(List.of("tcp/host3:19090", "tcp/host4:19090"), sources.of(a));
+        assertEquals(List.of("tcp/host1:19090"), sources.of(c));
+    }
+
+    @Test
+    public void peers_are_kept_separately_from_sources() {
+        FileReferenceSources sources = new FileReferenceSources(2, 2);
+        FileReference a = new FileReference("a");
+        FileReference b = new FileReference("b");
+
+        sources.addPeer(a, "10.0.0.1");
+        sources.addPeer(a, "10.0.0.2");
+        sources.addPeer(a, "10.0.0.3");
+        sources.add(b, "tcp/host1:19090");
+        assertEquals(List.of("10.0.0.2", "10.0.0.3"), sources.peersOf(a));
+        assertEquals(List.of(), sources.of(a));
+        assertEquals(List.of(), sources.peersOf(b));
+    }
+
+}
@@ -0,0 +1,78 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.server.rpc;
+
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Slime;
+import com.yahoo.text.Utf8Array;
+import com.yahoo.vespa.config.ConfigPayload;
+import com.yahoo.vespa.config.protocol.CompressionType;
+import com.yahoo.vespa.config.protocol.ConfigDelta;
+import com.yahoo.vespa.config.protocol.ConfigResponse;
+import com.yahoo.vespa.config.protocol.Payload;
+import com.yahoo.vespa.config.protocol.SlimeConfigResponse;
+import com.yahoo.vespa.config.util.ConfigUtils;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class ConfigDeltasTest {
+
+    @Test
+    public void deltas_are_created_from_served_configs() {
+        ConfigDeltas deltas = new ConfigDeltas();
+        ConfigResponse base = response(100, "foo");
+        ConfigResponse target = response(100, "bar");
+
+        assertFalse("Unknown base", deltas.deltaTo(target, base.getConfigMd5()).isPresent());
+        deltas.served(base);
+        Optional<Payload> delta = deltas.deltaTo(target, base.getConfigMd5());
+        assertTrue(delta.isPresent());
+        assertTrue(delta.get().getData().getByteLength() < target.getPayload(CompressionType.UNCOMPRESSED).getData().getByteLength() / 10);
+        assertEquals(target.getPayload(CompressionType.UNCOMPRESSED).getData().toString(),
+                     ConfigDelta.apply(base.getPayload(CompressionType.UNCOMPRESSED).getData(), delta.get().getData()).toString());
+        assertFalse("No delta to the same config", deltas.deltaTo(base, base.getConfigMd5()).isPresent());
+    }
+
+    @Test
+    public void delta_is_not_used_when_most_of_the_config_changes() {
+        ConfigDeltas deltas = new ConfigDeltas();
+        ConfigResponse base = response(3, "foo");
+        ConfigResponse target = response(3, "bar", "baz");
+        deltas.served(base);
+        assertFalse(deltas.deltaTo(target, base.getConfigMd5()).isPresent());
+    }
+
+    @Test
+    public void least_recently_served_configs_are_forgotten() {
+        ConfigResponse first = response(100, "first");
+        long size = first.getPayload(CompressionType.UNCOMPRESSED).getData().getByteLength();
+        ConfigDeltas deltas = new ConfigDeltas(size * 2 + 10, 10);
+        deltas.served(first);
+        deltas.served(response(100, "second"));
+        deltas.served(first);
+        deltas.served(response(100, "third"));
+        assertEquals(2, deltas.payloadCount());
+        assertTrue("Most recently used is kept", deltas.deltaTo(response(100, "fourth"), first.getConfigMd5()).isPresent());
+    }
+
+    /** Returns a response with an array of the given size, where the last entries are the given values */
+    private static ConfigResponse response(int size, String ... lastValues) {
+        Slime slime = new Slime();
+        Cursor array = slime.setObject().setArray("values");
+        for (int i = 0; i < size - lastValues.length; i++)
+            array.addString("value " + i);
+        for (String value : lastValues)
+            array.addString(value);
+        ConfigPayload payload = new ConfigPayload(slime);
+        Utf8Array data = payload.toUtf8Array(true);
+        return SlimeConfigResponse.fromConfigPayload(payload, null, 1, false, ConfigUtils.getMd5(data));
+    }
+
+}
@@ -80,6 +80,28 @@ public class DelayedConfigResponseTest {
         assertThat(rpc.latestRequest, is(req));
     }
 
+    @Test
+    public void testDrainedResponsesAreNotRespondedToAtTimeout() throws IOException {
+        MockRpc rpc = new MockRpc(13337, temporaryFolder.newFolder());
+        DelayedConfigResponses responses = new DelayedConfigResponses(rpc, 2, false);
+        GetConfigContext context = GetConfigContext.testContext(ApplicationId.defaultId());
+        JRTServerConfigRequest drained = createRequest("foo", "md5", "myid", "mymd5", 3, 100, "bar");
+        JRTServerConfigRequest other = createRequest("baz", "md5", "myid", "mymd5", 3, 200, "bar");
+        responses.delayResponse(drained, context);
+        responses.delayResponse(other, GetConfigContext.testContext(ApplicationId.global()));
+
+        List<DelayedConfigResponses.DelayedConfigResponse> drainedResponses = responses.drainQueue(ApplicationId.defaultId());
+        assertThat(drainedResponses.size(), is(1));
+        assertTrue(drainedResponses.get(0).cancel());
+        assertFalse(drainedResponses.get(0).cancel());
+        assertTrue(responses.drainQueue(ApplicationId.defaultId()).isEmpty());
+
+        rpc.waitUntilSet(Duration.ofSeconds(5));
+        assertThat(rpc.latestRequest, is(other));
+        assertThat(responses.size(), is(0));
+        responses.stop();
+    }
+
     private JRTServerConfigRequest createRequest(String configName, String defMd5, String configId, String md5, long generation, long timeout, String namespace) {
         Request request = JRTClientConfigRequestV3.
                 createWithParams(new ConfigKey<>(configName, configId, namespace, defMd5, null), DefContent.fromList(Collections.emptyList()),
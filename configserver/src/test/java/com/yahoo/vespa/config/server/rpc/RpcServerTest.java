@@ -12,6 +12,7 @@ import com.yahoo.config.model.test.MockApplicationPackage;
 import com.yahoo.config.provision.TenantName;
 import com.yahoo.component.Version;
 import com.yahoo.jrt.Request;
+import com.yahoo.jrt.StringValue;
 import com.yahoo.config.provision.ApplicationId;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.ConfigPayload;
@@ -29,6 +30,7 @@ import com.yahoo.vespa.config.server.ServerCache;
 import com.yahoo.vespa.config.server.application.Application;
 import com.yahoo.vespa.config.server.monitoring.MetricUpdater;
 import com.yahoo.vespa.config.util.ConfigUtils;
+import com.yahoo.vespa.filedistribution.FileReferencePeerAuthorizer;
 
 import com.yahoo.vespa.model.VespaModel;
 import org.junit.Rule;
@@ -55,6 +57,7 @@ public class RpcServerTest {
     public void testRpcServer() throws IOException, SAXException, InterruptedException {
         try (RpcTester tester = new RpcTester(temporaryFolder)) {
             testPrintStatistics(tester);
+            testFileReferenceSources(tester);
             testGetConfig(tester);
             testEnabled(tester);
             testApplicationNotLoadedErrorWhenAppDeleted(tester);
@@ -177,6 +180,32 @@ public class RpcServerTest {
         assertThat(req.returnValues().get(0).asString(), is("Delayed responses queue size: 0"));
     }
 
+    private void testFileReferenceSources(RpcTester tester) {
+        Request add = new Request("filedistribution.addFileReferenceSource");
+        add.parameters().add(new StringValue("ref-a"));
+        add.parameters().add(new StringValue("tcp/localhost:19090"));
+        tester.performRequest(add);
+        assertFalse(add.errorMessage(), add.isError());
+
+        Request addOtherHost = new Request("filedistribution.addFileReferenceSource");
+        addOtherHost.parameters().add(new StringValue("ref-a"));
+        addOtherHost.parameters().add(new StringValue("tcp/10.255.255.1:19090"));
+        tester.performRequest(addOtherHost);
+        assertTrue("Hosts can only announce themselves as sources", addOtherHost.isError());
+
+        Request get = new Request("filedistribution.getFileReferenceSources");
+        get.parameters().add(new StringValue("ref-a"));
+        tester.performRequest(get);
+        assertFalse(get.errorMessage(), get.isError());
+        assertArrayEquals(new String[] { "tcp/localhost:19090" }, get.returnValues().get(0).asStringArray());
+
+        Request getPeers = new Request(FileReferencePeerAuthorizer.GET_PEERS_METHOD);
+        getPeers.parameters().add(new StringValue("ref-a"));
+        tester.performRequest(getPeers);
+        assertFalse(getPeers.errorMessage(), getPeers.isError());
+        assertArrayEquals("The requesting host is a peer", new String[] { "127.0.0.1" }, getPeers.returnValues().get(0).asStringArray());
+    }
+
     private JRTClientConfigRequest createRequest(RawConfig config) {
         return JRTClientConfigRequestV3.createFromRaw(config, 120_000, Trace.createDummy(), CompressionType.UNCOMPRESSED, Optional.empty());
     }
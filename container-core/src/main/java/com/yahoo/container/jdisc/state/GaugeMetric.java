@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.container.jdisc.state;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,6 +12,10 @@ import com.yahoo.collections.Tuple2;
  * measured at a point in time. This metric value contains some additional information about the distribution
  * of this gauge value in the time interval this metric is for.
  *
+ * A gauge may also have a sketch of the distribution of its values, from which its percentiles are computed
+ * unless they are given explicitly. Unlike percentiles, sketches are merged when gauges are added, and are
+ * exported by the state and metrics packets handlers, so consumers can merge them too.
+ *
  * @author Simon Thoresen Hult
  */
 public final class GaugeMetric extends MetricValue {
@@ -21,14 +26,20 @@ public final class GaugeMetric extends MetricValue {
     private double sum;
     private long count;
     private Optional<List<Tuple2<String, Double>>> percentiles;
+    private Optional<QuantileSketch> sketch;
+
+    /** The percentiles computed from a sketch */
+    private static final int[] sketchPercentiles = { 50, 90, 95, 99 };
 
-    private GaugeMetric(double last, double max, double min, double sum, long count, Optional<List<Tuple2<String, Double>>> percentiles) {
+    private GaugeMetric(double last, double max, double min, double sum, long count,
+                        Optional<List<Tuple2<String, Double>>> percentiles, Optional<QuantileSketch> sketch) {
         this.last = last;
         this.max = max;
         this.min = min;
         this.sum = sum;
         this.count = count;
         this.percentiles = percentiles;
+        this.sketch = sketch;
     }
 
     @Override
@@ -43,6 +54,7 @@ public final class GaugeMetric extends MetricValue {
         }
         sum += dval;
         ++count;
+        sketch.ifPresent(sketch -> sketch.add(dval));
     }
 
     @Override
@@ -57,6 +69,12 @@ public final class GaugeMetric extends MetricValue {
         }
         sum += rhs.sum;
         count += rhs.count;
+        if (rhs.sketch.isPresent()) {
+            if (sketch.isEmpty())
+                sketch = Optional.of(rhs.sketch.get().copy());
+            else
+                sketch.get().add(rhs.sketch.get());
+        }
     }
 
     /**
@@ -103,9 +121,22 @@ public final class GaugeMetric extends MetricValue {
         return count;
     }
 
-    /** Returns the 95th percentile value for this time interval */
+    /**
+     * Returns the percentiles of this for this time interval, as pairs of percentile name and value,
+     * or empty if neither percentiles nor a sketch is known
+     */
     public Optional<List<Tuple2<String, Double>>> getPercentiles() {
-        return percentiles;
+        if (percentiles.isPresent() || sketch.isEmpty()) return percentiles;
+
+        List<Tuple2<String, Double>> percentiles = new ArrayList<>(sketchPercentiles.length);
+        for (int percentile : sketchPercentiles)
+            percentiles.add(new Tuple2<>(String.valueOf(percentile), sketch.get().quantile(percentile / 100.0)));
+        return Optional.of(percentiles);
+    }
+
+    /** Returns the sketch of the distribution of values of this in this time interval, if this has one */
+    public Optional<QuantileSketch> getSketch() {
+        return sketch;
     }
 
     /**
@@ -119,20 +150,34 @@ public final class GaugeMetric extends MetricValue {
      */
     public GaugeMetric newWithPreservedLastValue() {
         // min/max set to enforce update of these values on first call to add()
-        return new GaugeMetric(last, Double.MIN_VALUE, Double.MAX_VALUE, 0, 0, Optional.empty());
+        return new GaugeMetric(last, Double.MIN_VALUE, Double.MAX_VALUE, 0, 0, Optional.empty(), Optional.empty());
     }
 
     public static GaugeMetric newSingleValue(Number val) {
         double dval = val.doubleValue();
-        return new GaugeMetric(dval, dval, dval, dval, 1, Optional.empty());
+        return new GaugeMetric(dval, dval, dval, dval, 1, Optional.empty(), Optional.empty());
     }
 
     public static GaugeMetric newInstance(double last, double max, double min, double sum, long count) {
-        return new GaugeMetric(last, max, min, sum, count, Optional.empty());
+        return new GaugeMetric(last, max, min, sum, count, Optional.empty(), Optional.empty());
     }
 
     public static GaugeMetric newInstance(double last, double max, double min, double sum, long count, Optional<List<Tuple2<String, Double>>> percentiles) {
-        return new GaugeMetric(last, max, min, sum, count, percentiles);
+        return new GaugeMetric(last, max, min, sum, count, percentiles, Optional.empty());
+    }
+
+    /** Returns a new gauge with the given sketch of its values, which is owned by the returned gauge */
+    public static GaugeMetric newInstance(double last, double max, double min, double sum, long count, QuantileSketch sketch) {
+        return new GaugeMetric(last, max, min, sum, count, Optional.empty(), Optional.of(sketch));
+    }
+
+    /**
+     * Returns a new gauge with the given percentiles, and the given sketch of its values, which is owned by the returned gauge.
+     * The given percentiles are used instead of those computed from the sketch.
+     */
+    public static GaugeMetric newInstance(double last, double max, double min, double sum, long count,
+                                          List<Tuple2<String, Double>> percentiles, QuantileSketch sketch) {
+        return new GaugeMetric(last, max, min, sum, count, Optional.of(percentiles), Optional.of(sketch));
     }
 
 }
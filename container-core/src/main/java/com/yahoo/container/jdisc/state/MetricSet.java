@@ -52,7 +52,7 @@ public final class MetricSet implements Iterable<Map.Entry<String, MetricValue>>
         }
     }
 
-    private void add(String key, MetricValue value) {
+    void add(String key, MetricValue value) {
         MetricValue existingValue = data.get(key);
 
         if (existingValue == null) {
@@ -32,6 +32,7 @@ import static com.yahoo.container.jdisc.state.StateHandler.getSnapshotPreprocess
  * This handler outputs metrics in a json-like format, consisting of a series of metrics packets.
  * Each packet is a json object but there is no outer array or object that wraps the packets.
  * To reduce the amount of output, a packet contains all metrics that share the same set of dimensions.
+ * Gauges which have a {@link QuantileSketch} of their values also have it in the sketches object of the packet.
  *
  * This handler is not set up by default, but can be added to the applications's services configuration.
  *
@@ -49,6 +50,7 @@ public class MetricsPacketsHandler extends AbstractRequestHandler {
     static final String STATUS_MSG_KEY  = "status_msg";
     static final String METRICS_KEY     = "metrics";
     static final String DIMENSIONS_KEY  = "dimensions";
+    static final String SKETCHES_KEY    = "sketches";
 
     static final String PACKET_SEPARATOR = "\n\n";
 
@@ -184,6 +186,7 @@ public class MetricsPacketsHandler extends AbstractRequestHandler {
 
     private void addMetrics(MetricSet metricSet, JSONObjectWithLegibleException packet) throws JSONException {
         JSONObjectWithLegibleException metrics = new JSONObjectWithLegibleException();
+        JSONObjectWithLegibleException sketches = new JSONObjectWithLegibleException();
         packet.put(METRICS_KEY, metrics);
         for (Map.Entry<String, MetricValue> metric : metricSet) {
             String name = metric.getKey();
@@ -200,10 +203,16 @@ public class MetricsPacketsHandler extends AbstractRequestHandler {
                         metrics.put(name + "." + prefixAndValue.first + "percentile", prefixAndValue.second.doubleValue());
                     }
                 }
+                if (gauge.getSketch().isPresent()) {
+                    sketches.put(name, gauge.getSketch().get().toJson());
+                }
             } else {
                 throw new UnsupportedOperationException("Unknown metric class: " + value.getClass().getName());
             }
         }
+        if (sketches.length() > 0) {
+            packet.put(SKETCHES_KEY, sketches);
+        }
     }
 
 }
@@ -0,0 +1,188 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.jdisc.state;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+
+/**
+ * A mergeable sketch of the distribution of a set of values, from which quantiles can be estimated
+ * with a bounded relative error.
+ *
+ * Values are counted in buckets with exponentially increasing bounds, such that each bucket covers values
+ * within the relative accuracy of this of each other. Buckets are only allocated for the range of values
+ * actually added, and sketches are merged by adding the counts of their buckets.
+ *
+ * Values smaller than the smallest distinguishable value, including zero and all negative values,
+ * are counted as zero. Values larger than the largest distinguishable value are counted in the highest bucket.
+ *
+ * Sketches are exported as JSON by the state and metrics packets handlers, so that consumers can merge
+ * the sketches of several services or nodes, which is not possible with percentiles.
+ *
+ * This is not thread safe.
+ *
+ * @author agent
+ */
+public final class QuantileSketch {
+
+    /** The max relative difference between a quantile returned by this and the actual value */
+    public static final double relativeAccuracy = 0.01;
+
+    private static final double gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+    private static final double logGamma = Math.log(gamma);
+
+    static final double minValue = 1e-9;
+    static final double maxValue = 1e12;
+    static final int minIndex = index(minValue);
+    static final int maxIndex = index(maxValue);
+
+    /** The index of values which count as zero */
+    static final int zeroIndex = minIndex - 1;
+
+    /** The count of the bucket of index offset + i at position i */
+    private long[] counts;
+    private int offset;
+    private long zeroCount;
+    private long count;
+
+    public QuantileSketch() {
+        this(0, new long[0], 0);
+    }
+
+    QuantileSketch(int offset, long[] counts, long zeroCount) {
+        this.offset = offset;
+        this.counts = counts;
+        this.zeroCount = zeroCount;
+        this.count = zeroCount + Arrays.stream(counts).sum();
+    }
+
+    /** Adds a value to this */
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    /** Adds the given number of occurrences of a value to this */
+    public void add(double value, long occurrences) {
+        if (occurrences <= 0) return;
+        int index = indexOf(value);
+        if (index == zeroIndex) {
+            zeroCount += occurrences;
+        }
+        else {
+            includeIndex(index);
+            counts[index - offset] += occurrences;
+        }
+        count += occurrences;
+    }
+
+    /** Adds all the values in the given sketch to this */
+    public void add(QuantileSketch other) {
+        if (other.counts.length > 0) {
+            includeIndex(other.offset);
+            includeIndex(other.offset + other.counts.length - 1);
+            for (int i = 0; i < other.counts.length; i++)
+                counts[other.offset + i - offset] += other.counts[i];
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    /** Returns the number of values in this */
+    public long count() { return count; }
+
+    /**
+     * Returns an estimate of the value at the given quantile in this, or 0 if this is empty.
+     *
+     * @param quantile the quantile, between 0 and 1
+     */
+    public double quantile(double quantile) {
+        if (quantile < 0 || quantile > 1) throw new IllegalArgumentException("Quantile must be in [0, 1], not " + quantile);
+        if (count == 0) return 0;
+
+        long rank = (long)(quantile * (count - 1));
+        if (rank < zeroCount) return 0;
+        long seen = zeroCount;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank)
+                return valueOf(offset + i);
+        }
+        return valueOf(offset + counts.length - 1);
+    }
+
+    /** Returns a copy of this, which is independent of this */
+    public QuantileSketch copy() {
+        return new QuantileSketch(offset, counts.clone(), zeroCount);
+    }
+
+    /**
+     * Returns this as JSON, on the form
+     * <code>{ "relativeAccuracy": 0.01, "zeroCount": 1, "offset": 1234, "counts": [ 3, 0, 2 ] }</code>,
+     * where counts holds the number of values in the buckets with index offset, offset + 1, and so on.
+     */
+    public JSONObject toJson() throws JSONException {
+        JSONArray jsonCounts = new JSONArray();
+        for (long bucketCount : counts)
+            jsonCounts.put(bucketCount);
+        return new JSONObject().put("relativeAccuracy", relativeAccuracy)
+                               .put("zeroCount", zeroCount)
+                               .put("offset", offset)
+                               .put("counts", jsonCounts);
+    }
+
+    /**
+     * Returns the sketch represented by the given JSON, as produced by {@link #toJson}
+     *
+     * @throws IllegalArgumentException if the JSON is a sketch with a different relative accuracy than this
+     */
+    public static QuantileSketch fromJson(JSONObject json) throws JSONException {
+        if (json.getDouble("relativeAccuracy") != relativeAccuracy)
+            throw new IllegalArgumentException("Cannot read a sketch with relative accuracy " + json.getDouble("relativeAccuracy") +
+                                               ", expected " + relativeAccuracy);
+        JSONArray jsonCounts = json.getJSONArray("counts");
+        long[] counts = new long[jsonCounts.length()];
+        for (int i = 0; i < counts.length; i++)
+            counts[i] = jsonCounts.getLong(i);
+        return new QuantileSketch(json.getInt("offset"), counts, json.getLong("zeroCount"));
+    }
+
+    /** Returns the index of the bucket of the given value, or zeroIndex if it counts as zero */
+    static int indexOf(double value) {
+        if ( ! (value >= minValue)) return zeroIndex; // Also handles NaN
+        return Math.min(index(value), maxIndex);
+    }
+
+    /** Returns the value representing the bucket of the given index, which is within the relative accuracy of all its values */
+    static double valueOf(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    private static int index(double value) {
+        return (int)Math.ceil(Math.log(value) / logGamma);
+    }
+
+    /** Grows the buckets of this to include the given index */
+    private void includeIndex(int index) {
+        if (counts.length == 0) {
+            offset = index;
+            counts = new long[1];
+        }
+        else if (index < offset) {
+            long[] grown = new long[counts.length + offset - index];
+            System.arraycopy(counts, 0, grown, offset - index, counts.length);
+            counts = grown;
+            offset = index;
+        }
+        else if (index >= offset + counts.length) {
+            counts = Arrays.copyOf(counts, index - offset + 1);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "quantile sketch of " + count + " values";
+    }
+
+}
@@ -251,6 +251,9 @@ public class StateHandler extends AbstractRequestHandler {
                     }
                 }
                 jsonTuple.put("values", valueFields);
+                if (gauge.getSketch().isPresent()) {
+                    jsonTuple.put("sketch", gauge.getSketch().get().toJson());
+                }
             } else {
                 throw new UnsupportedOperationException(tuple.val.getClass().getName());
             }
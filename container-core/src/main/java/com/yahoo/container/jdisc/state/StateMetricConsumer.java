@@ -4,47 +4,396 @@ package com.yahoo.container.jdisc.state;
 import com.yahoo.jdisc.Metric;
 import com.yahoo.jdisc.application.MetricConsumer;
 
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
 
 /**
+ * A metric consumer which accumulates the metrics written by one thread. jDisc hands out a consumer per thread,
+ * so this is written to by a single thread, and read by the state monitor when it takes a snapshot.
+ *
+ * Each metric name and set of dimensions is resolved to a handle the first time it is written. The handle
+ * holds the running totals of the metric in primitive fields, which are updated without locking or allocating.
+ * Snapshots report the difference between the current totals and those reported in the previous snapshot.
+ * Gauges which are configured as histograms also count their values in the buckets of a {@link QuantileSketch}.
+ *
+ * Handles which are not written to for a while are removed at snapshot time, so metrics with dimensions which
+ * are no longer used do not accumulate: Counts are removed after one snapshot without writes, and gauges, whose
+ * last value is reported until then, after {@link #maxIdleGaugeSnapshots}. Later writes to the metric create a new
+ * handle. A write which looked up a handle just before it was removed may still update it, so a removed handle is
+ * kept, and its remaining writes reported, until the writer has completed an operation which started after the removal.
+ *
  * @author Simon Thoresen Hult
  */
 final class StateMetricConsumer implements MetricConsumer {
 
+    private final static Logger log = Logger.getLogger(StateMetricConsumer.class.getName());
+
     final static Metric.Context NULL_CONTEXT = StateMetricContext.newInstance(null);
-    private final Object lock = new Object();
-    private MetricSnapshot metricSnapshot = new MetricSnapshot();
+
+    /** The number of consecutive snapshots without writes after which a gauge is removed */
+    final static int maxIdleGaugeSnapshots = 12;
+
+    /** The names of the gauges which should record the distribution of their values */
+    private final Set<String> histograms;
+
+    /** The handle of each metric name, by dimensions. Handles are added by the writing thread, and removed by snapshots */
+    private final Map<MetricDimensions, Map<String, Handle>> handles = new ConcurrentHashMap<>();
+
+    /** All handles of this, including those replaced since the last snapshot */
+    private final Queue<Handle> allHandles = new ConcurrentLinkedQueue<>();
+
+    /** The number of writes completed by the writing thread, which tells snapshots when removed handles are unused */
+    private final AtomicLong operations = new AtomicLong();
+
+    /** The number of snapshots taken of this, which tells the writer when to start over on min and max values */
+    private volatile long interval = 0;
+
+    StateMetricConsumer() {
+        this(Set.of());
+    }
+
+    StateMetricConsumer(Set<String> histograms) {
+        this.histograms = histograms;
+    }
 
     @Override
     public void set(String key, Number val, Metric.Context ctx) {
-        synchronized (lock) {
-            metricSnapshot.set(dimensionsOrDefault(ctx), key, val);
+        Handle handle = handle(dimensionsOrDefault(ctx), key);
+        if ( ! (handle instanceof GaugeHandle))
+            handle = replace(handle, new GaugeHandle(handle.dimensions, key, histograms.contains(key)));
+        ((GaugeHandle)handle).set(val.doubleValue(), interval);
+        operations.setRelease(operations.getPlain() + 1);
+    }
+
+    @Override
+    public void add(String key, Number val, Metric.Context ctx) {
+        Handle handle = handle(dimensionsOrDefault(ctx), key);
+        if ( ! (handle instanceof CountHandle))
+            handle = replace(handle, new CountHandle(handle.dimensions, key));
+        ((CountHandle)handle).add(val.longValue());
+        operations.setRelease(operations.getPlain() + 1);
+    }
+
+    @Override
+    public Metric.Context createContext(Map<String, ?> properties) {
+        return StateMetricContext.newInstance(properties);
+    }
+
+    /**
+     * Adds the metrics written since the last call to this to the given snapshot.
+     * This is called by the state monitor thread, concurrently with writes to this.
+     */
+    void snapshotTo(MetricSnapshot snapshot) {
+        for (Iterator<Handle> i = allHandles.iterator(); i.hasNext(); ) {
+            Handle handle = i.next();
+            if (handle.replaced) {
+                i.remove();
+                continue;
+            }
+            if (handle.removedAtOperation >= 0) { // Report only writes which raced with the removal
+                boolean unused = operations.get() > handle.removedAtOperation + 1; // Read before the values of the handle
+                MetricValue value = handle.snapshot();
+                if (value != null)
+                    snapshot.metricSet(handle.dimensions).add(handle.name, value);
+                if (unused)
+                    i.remove();
+                continue;
+            }
+            MetricValue value = handle.snapshot();
+            if (value != null) {
+                handle.idleSnapshots = 0;
+            }
+            else if (++handle.idleSnapshots >= handle.maxIdleSnapshots()) {
+                remove(handle);
+            }
+            else {
+                value = handle.idleValue();
+            }
+            if (value != null)
+                snapshot.metricSet(handle.dimensions).add(handle.name, value);
         }
+        interval++;
+    }
+
+    /** Removes the given handle from the handles of this, such that the next write to its metric creates a new one */
+    private void remove(Handle handle) {
+        handles.computeIfPresent(handle.dimensions, (__, handlesOfDimensions) -> {
+            handlesOfDimensions.remove(handle.name, handle);
+            return handlesOfDimensions.isEmpty() ? null : handlesOfDimensions;
+        });
+        // An operation in progress may still write to the handle, but the one after it will not find it
+        handle.removedAtOperation = operations.get();
+    }
+
+    /** Returns the number of metrics this currently has a handle for */
+    int metricCount() {
+        return handles.values().stream().mapToInt(Map::size).sum();
     }
 
     private MetricDimensions dimensionsOrDefault(Metric.Context ctx) {
         return (MetricDimensions)(ctx != null ? ctx : NULL_CONTEXT);
     }
 
-    @Override
-    public void add(String key, Number val, Metric.Context ctx) {
-        synchronized (lock) {
-            metricSnapshot.add(dimensionsOrDefault(ctx), key, val);
+    /** Returns the handle of the given metric, or an empty handle of no type if it has none */
+    private Handle handle(MetricDimensions dimensions, String name) {
+        Map<String, Handle> handlesOfDimensions = handles.get(dimensions);
+        Handle handle = handlesOfDimensions != null ? handlesOfDimensions.get(name) : null;
+        return handle != null ? handle : new Handle(dimensions, name);
+    }
+
+    private Handle replace(Handle handle, Handle replacement) {
+        if (handle.getClass() != Handle.class) {
+            log.info("Resetting metric '" + handle.name + "' as it changed type. " +
+                     "If you see this outside of deployment changes it means you incorrectly call both set() and add() " +
+                     "on the same metric");
+            handle.replaced = true;
         }
+        // Atomic with removal of the handles of these dimensions, so the replacement is not added to a discarded map
+        handles.compute(replacement.dimensions, (__, handlesOfDimensions) -> {
+            if (handlesOfDimensions == null)
+                handlesOfDimensions = new ConcurrentHashMap<>();
+            handlesOfDimensions.put(replacement.name, replacement);
+            return handlesOfDimensions;
+        });
+        allHandles.add(replacement);
+        return replacement;
     }
 
-    @Override
-    public Metric.Context createContext(Map<String, ?> properties) {
-        return StateMetricContext.newInstance(properties);
+    /**
+     * The running totals of a metric with a given name and set of dimensions. These are updated with plain
+     * reads and release writes, as the writing thread is the only writer, while the snapshotting thread reads them.
+     */
+    private static class Handle {
+
+        final MetricDimensions dimensions;
+        final String name;
+
+        /** Set when this is replaced by a handle of another type, after which it is discarded */
+        volatile boolean replaced = false;
+
+        // Only accessed by the snapshotting thread
+        /** The number of consecutive snapshots without writes to this */
+        int idleSnapshots = 0;
+        /** The number of operations completed by the writer when this was removed for being idle, or -1 if it is not */
+        long removedAtOperation = -1;
+
+        Handle(MetricDimensions dimensions, String name) {
+            this.dimensions = dimensions;
+            this.name = name;
+        }
+
+        /** Returns the value of this since the last snapshot, or null if this was not written since then */
+        MetricValue snapshot() { return null; }
+
+        /** Returns the value to report for this when it was not written since the last snapshot, if any */
+        MetricValue idleValue() { return null; }
+
+        /** Returns the number of consecutive snapshots without writes after which this is removed */
+        int maxIdleSnapshots() { return 1; }
+
+    }
+
+    private static final class CountHandle extends Handle {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong writes = new AtomicLong();
+
+        // Only accessed by the snapshotting thread
+        private long reportedCount = 0;
+        private long reportedWrites = 0;
+
+        CountHandle(MetricDimensions dimensions, String name) {
+            super(dimensions, name);
+        }
+
+        void add(long value) {
+            count.setRelease(count.getPlain() + value);
+            writes.setRelease(writes.getPlain() + 1);
+        }
+
+        /** Counts are not carried over to the next snapshot, so this is removed when it has no writes */
+        @Override
+        MetricValue snapshot() {
+            long writes = this.writes.getAcquire();
+            long count = this.count.getAcquire();
+            if (writes == reportedWrites && count == reportedCount) return null;
+
+            MetricValue value = CountMetric.newInstance(count - reportedCount);
+            reportedWrites = writes;
+            reportedCount = count;
+            return value;
+        }
+
+    }
+
+    private static final class GaugeHandle extends Handle {
+
+        // Doubles are stored as their raw long bits
+        private final AtomicLong last = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong(bits(0));
+        private final AtomicLong count = new AtomicLong();
+
+        /** The min and max of the values set in snapshot interval minMaxInterval */
+        private final AtomicLong min = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+        private long minMaxInterval = -1; // Only accessed by the writing thread
+
+        // Only accessed by the snapshotting thread
+        private double reportedSum = 0;
+        private long reportedCount = 0;
+
+        private final SketchRecorder sketch;
+
+        GaugeHandle(MetricDimensions dimensions, String name, boolean histogram) {
+            super(dimensions, name);
+            this.sketch = histogram ? new SketchRecorder() : null;
+        }
+
+        void set(double value, long interval) {
+            last.setRelease(bits(value));
+            sum.setRelease(bits(value(sum.getPlain()) + value));
+            if (interval != minMaxInterval) {
+                min.setRelease(bits(value));
+                max.setRelease(bits(value));
+                minMaxInterval = interval;
+            }
+            else if (value < value(min.getPlain())) {
+                min.setRelease(bits(value));
+            }
+            else if (value > value(max.getPlain())) {
+                max.setRelease(bits(value));
+            }
+            if (sketch != null)
+                sketch.add(value);
+            count.setRelease(count.getPlain() + 1);
+        }
+
+        /**
+         * Values set while a snapshot is taken are always included in the sum and count, but may be missing
+         * from the min and max.
+         */
+        @Override
+        MetricValue snapshot() {
+            long count = this.count.getAcquire();
+            double sum = value(this.sum.getAcquire());
+            double last = value(this.last.getAcquire());
+            if (count == reportedCount) return null;
+
+            MetricValue value = sketch == null
+                                ? GaugeMetric.newInstance(last,
+                                                          value(max.getAcquire()),
+                                                          value(min.getAcquire()),
+                                                          sum - reportedSum,
+                                                          count - reportedCount)
+                                : GaugeMetric.newInstance(last,
+                                                          value(max.getAcquire()),
+                                                          value(min.getAcquire()),
+                                                          sum - reportedSum,
+                                                          count - reportedCount,
+                                                          sketch.snapshot());
+            reportedSum = sum;
+            reportedCount = count;
+            return value;
+        }
+
+        /** The last value of a gauge is carried over to the next snapshot, until the gauge is removed */
+        @Override
+        MetricValue idleValue() {
+            // Don't let the min and max of an earlier interval affect the aggregate
+            return GaugeMetric.newInstance(value(last.getAcquire()), Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0, 0);
+        }
+
+        @Override
+        int maxIdleSnapshots() { return maxIdleGaugeSnapshots; }
+
+        private static long bits(double value) { return Double.doubleToRawLongBits(value); }
+
+        private static double value(long bits) { return Double.longBitsToDouble(bits); }
+
     }
 
-    MetricSnapshot createSnapshot() {
-        MetricSnapshot metricSnapshot;
-        synchronized (lock) {
-            metricSnapshot = this.metricSnapshot;
-            this.metricSnapshot = this.metricSnapshot.createSnapshot();
+    /** Running counts of values in the buckets of a quantile sketch, updated like the totals of handles */
+    private static final class SketchRecorder {
+
+        private volatile Buckets buckets = new Buckets(0, new AtomicLongArray(0));
+        private final AtomicLong zeroCount = new AtomicLong();
+
+        // Only accessed by the snapshotting thread
+        private Buckets reportedBuckets = buckets;
+        private long[] reportedCounts = new long[0];
+        private long reportedZeroCount = 0;
+
+        void add(double value) {
+            int index = QuantileSketch.indexOf(value);
+            if (index == QuantileSketch.zeroIndex) {
+                zeroCount.setRelease(zeroCount.getPlain() + 1);
+                return;
+            }
+            Buckets buckets = this.buckets;
+            if ( ! buckets.includes(index))
+                this.buckets = buckets = buckets.including(index);
+            buckets.counts.setRelease(index - buckets.offset, buckets.counts.getPlain(index - buckets.offset) + 1);
+        }
+
+        /** Returns a sketch of the values added since the last snapshot */
+        QuantileSketch snapshot() {
+            Buckets buckets = this.buckets;
+            long[] counts = new long[buckets.counts.length()];
+            for (int i = 0; i < counts.length; i++)
+                counts[i] = buckets.counts.getAcquire(i);
+            long zeroCount = this.zeroCount.getAcquire();
+
+            // Buckets only grow, so the reported buckets are a subrange of the current ones
+            long[] added = counts.clone();
+            for (int i = 0; i < reportedCounts.length; i++)
+                added[reportedBuckets.offset - buckets.offset + i] -= reportedCounts[i];
+            QuantileSketch sketch = new QuantileSketch(buckets.offset, added, zeroCount - reportedZeroCount);
+
+            reportedBuckets = buckets;
+            reportedCounts = counts;
+            reportedZeroCount = zeroCount;
+            return sketch;
         }
-        return metricSnapshot;
+
+    }
+
+    /** The counts of a contiguous range of sketch buckets, starting at the bucket with index offset */
+    private static final class Buckets {
+
+        /** Extra buckets to allocate on each side when growing, to avoid growing again for nearby values */
+        private static final int slack = 16;
+
+        final int offset;
+        final AtomicLongArray counts;
+
+        Buckets(int offset, AtomicLongArray counts) {
+            this.offset = offset;
+            this.counts = counts;
+        }
+
+        boolean includes(int index) {
+            return index >= offset && index < offset + counts.length();
+        }
+
+        /** Returns a copy of this which also includes the given index. Must only be called by the writing thread */
+        Buckets including(int index) {
+            int start = counts.length() == 0 ? index : Math.min(offset, index);
+            int end = counts.length() == 0 ? index + 1 : Math.max(offset + counts.length(), index + 1);
+            start = Math.max(start - slack, QuantileSketch.minIndex);
+            end = Math.min(end + slack, QuantileSketch.maxIndex + 1);
+            AtomicLongArray grown = new AtomicLongArray(end - start);
+            for (int i = 0; i < counts.length(); i++)
+                grown.setPlain(offset - start + i, counts.getPlain(i));
+            return new Buckets(start, grown);
+        }
+
     }
 
 }
@@ -10,6 +10,7 @@ import com.yahoo.jdisc.core.SystemTimer;
 import com.yahoo.log.LogLevel;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ThreadFactory;
@@ -33,6 +34,7 @@ public class StateMonitor extends AbstractComponent {
     private final Thread thread;
     private final Timer timer;
     private final long snapshotIntervalMs;
+    private final Set<String> histograms;
     private volatile long lastSnapshotTimeMs;
     private volatile MetricSnapshot snapshot;
     private volatile Status status;
@@ -57,13 +59,14 @@ public class StateMonitor extends AbstractComponent {
         this.snapshotIntervalMs = (long)(config.snapshot_interval() * TimeUnit.SECONDS.toMillis(1));
         this.lastSnapshotTimeMs = timer.currentTimeMillis();
         this.status = Status.valueOf(config.initialStatus());
+        this.histograms = Set.copyOf(config.histograms());
         thread = threadFactory.newThread(this::run);
         thread.start();
     }
 
     /** Returns a metric consumer for jDisc which will write metrics back to this */
     public MetricConsumer newMetricConsumer() {
-        StateMetricConsumer consumer = new StateMetricConsumer();
+        StateMetricConsumer consumer = new StateMetricConsumer(histograms);
         consumers.add(consumer);
         return consumer;
     }
@@ -112,7 +115,7 @@ public class StateMonitor extends AbstractComponent {
     private MetricSnapshot createSnapshot(long fromMillis, long toMillis) {
         MetricSnapshot snapshot = new MetricSnapshot(fromMillis, toMillis, TimeUnit.MILLISECONDS);
         for (StateMetricConsumer consumer : consumers) {
-            snapshot.add(consumer.createSnapshot());
+            consumer.snapshotTo(snapshot);
         }
         updateNames(snapshot);
         return snapshot;
@@ -4,6 +4,7 @@ package com.yahoo.container.jdisc.state;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yahoo.jdisc.Metric;
+import org.json.JSONObject;
 import org.junit.Test;
 
 import java.util.ArrayList;
@@ -14,11 +15,13 @@ import static com.yahoo.container.jdisc.state.MetricsPacketsHandler.APPLICATION_
 import static com.yahoo.container.jdisc.state.MetricsPacketsHandler.DIMENSIONS_KEY;
 import static com.yahoo.container.jdisc.state.MetricsPacketsHandler.METRICS_KEY;
 import static com.yahoo.container.jdisc.state.MetricsPacketsHandler.PACKET_SEPARATOR;
+import static com.yahoo.container.jdisc.state.MetricsPacketsHandler.SKETCHES_KEY;
 import static com.yahoo.container.jdisc.state.MetricsPacketsHandler.STATUS_CODE_KEY;
 import static com.yahoo.container.jdisc.state.MetricsPacketsHandler.STATUS_MSG_KEY;
 import static com.yahoo.container.jdisc.state.MetricsPacketsHandler.TIMESTAMP_KEY;
 import static com.yahoo.container.jdisc.state.StateHandlerTestBase.SNAPSHOT_INTERVAL;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -122,6 +125,29 @@ public class MetricsPacketsHandlerTest extends StateHandlerTestBase {
         assertEquals(3, packets.size());
     }
     
+    @Test
+    public void gauge_sketches_are_included_in_the_packet() throws Exception {
+        metric.set("gauge", 1, null);
+        for (int i = 1; i <= 100; i++)
+            metric.set(HISTOGRAM_METRIC, i, null);
+        List<JsonNode> packets = incrementTimeAndGetJsonPackets();
+        assertEquals(2, packets.size());
+
+        JsonNode packet = packets.get(1);
+        assertTrue(packet.get(METRICS_KEY).has(HISTOGRAM_METRIC + ".95percentile"));
+        JsonNode sketches = packet.get(SKETCHES_KEY);
+        assertEquals(packet.toString(), 1, sketches.size());
+        QuantileSketch sketch = QuantileSketch.fromJson(new JSONObject(sketches.get(HISTOGRAM_METRIC).toString()));
+        assertEquals(100, sketch.count());
+    }
+
+    @Test
+    public void packets_without_sketches_have_no_sketches_object() throws Exception {
+        metric.set("gauge", 1, null);
+        List<JsonNode> packets = incrementTimeAndGetJsonPackets();
+        assertFalse(packets.get(1).has(SKETCHES_KEY));
+    }
+
     private List<JsonNode> incrementTimeAndGetJsonPackets() throws Exception {
         incrementCurrentTimeAndAssertSnapshot(SNAPSHOT_INTERVAL);
         String response = requestAsString("http://localhost/metrics-packets");
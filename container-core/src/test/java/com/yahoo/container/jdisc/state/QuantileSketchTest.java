@@ -0,0 +1,97 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.jdisc.state;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ */
+public class QuantileSketchTest {
+
+    @Test
+    public void quantiles_are_within_relative_accuracy() {
+        Random random = new Random(1);
+        double[] values = new double[100_000];
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(random.nextGaussian() * 3); // Spans many orders of magnitude
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, sketch.count());
+        for (double quantile : new double[] { 0, 0.01, 0.5, 0.9, 0.95, 0.99, 0.999, 1 }) {
+            double expected = values[(int)(quantile * (values.length - 1))];
+            assertEquals("Quantile " + quantile, expected, sketch.quantile(quantile), expected * QuantileSketch.relativeAccuracy);
+        }
+    }
+
+    @Test
+    public void merged_sketch_equals_sketch_of_all_values() {
+        QuantileSketch all = new QuantileSketch();
+        QuantileSketch low = new QuantileSketch();
+        QuantileSketch high = new QuantileSketch();
+        for (int i = 1; i <= 1000; i++) {
+            all.add(i);
+            all.add(i * 1000.0);
+            low.add(i);
+            high.add(i * 1000.0);
+        }
+
+        QuantileSketch merged = high.copy();
+        merged.add(low);
+        assertEquals(all.count(), merged.count());
+        for (double quantile = 0; quantile <= 1; quantile += 0.05)
+            assertEquals(all.quantile(quantile), merged.quantile(quantile), 0);
+        assertEquals(1000, high.count());
+    }
+
+    @Test
+    public void sketches_are_equal_after_json_round_trip() throws JSONException {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(0);
+        for (int i = 1; i <= 1000; i++)
+            sketch.add(i * 0.37);
+
+        QuantileSketch read = QuantileSketch.fromJson(new JSONObject(sketch.toJson().toString()));
+        assertEquals(sketch.count(), read.count());
+        for (double quantile = 0; quantile <= 1; quantile += 0.05)
+            assertEquals(sketch.quantile(quantile), read.quantile(quantile), 0);
+        assertEquals(0, QuantileSketch.fromJson(new QuantileSketch().toJson()).count());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sketches_with_another_accuracy_are_not_read() throws JSONException {
+        QuantileSketch.fromJson(new QuantileSketch().toJson().put("relativeAccuracy", 0.02));
+    }
+
+    @Test
+    public void small_and_negative_values_count_as_zero() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(0);
+        sketch.add(-5);
+        sketch.add(Double.NaN);
+        sketch.add(1e-12);
+        sketch.add(7, 4);
+        assertEquals(8, sketch.count());
+        assertEquals(0, sketch.quantile(0.4), 0);
+        assertEquals(7, sketch.quantile(0.6), 7 * QuantileSketch.relativeAccuracy);
+        assertEquals(0, new QuantileSketch().quantile(0.5), 0);
+    }
+
+    @Test
+    public void huge_values_are_counted_in_the_highest_bucket() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(1);
+        sketch.add(Double.POSITIVE_INFINITY);
+        assertEquals(QuantileSketch.maxValue, sketch.quantile(1), QuantileSketch.maxValue * QuantileSketch.relativeAccuracy);
+    }
+
+}
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.yahoo.component.Vtag;
 import com.yahoo.jdisc.Metric;
 import com.yahoo.vespa.defaults.Defaults;
+import org.json.JSONObject;
 import org.junit.Test;
 
 import java.util.Collections;
@@ -256,6 +257,22 @@ public class StateHandlerTest extends StateHandlerTestBase {
         assertEquals(json.toString(), 0, metricValues.get("count").asInt());
     }
 
+    @Test
+    public void gaugeSketchesAreExported() throws Exception {
+        for (int i = 1; i <= 100; i++)
+            metric.set(HISTOGRAM_METRIC, i, null);
+        incrementCurrentTimeAndAssertSnapshot(SNAPSHOT_INTERVAL);
+        JsonNode json = requestAsJson("http://localhost/state/v1/all");
+        JsonNode metricValues = getFirstMetricValueNode(json);
+        assertEquals(json.toString(), 95, metricValues.get("95percentile").asDouble(), 95 * QuantileSketch.relativeAccuracy);
+
+        JsonNode sketchJson = json.get("metrics").get("values").get(0).get("sketch");
+        assertTrue(json.toString(), sketchJson != null);
+        QuantileSketch sketch = QuantileSketch.fromJson(new JSONObject(sketchJson.toString()));
+        assertEquals(100, sketch.count());
+        assertEquals(metricValues.get("95percentile").asDouble(), sketch.quantile(0.95), 0);
+    }
+
     private JsonNode getFirstMetricValueNode(JsonNode root) {
         assertEquals(root.toString(), 1, root.get("metrics").get("values").size());
         JsonNode metricValues = root.get("metrics").get("values").get(0).get("values");
@@ -39,6 +39,8 @@ public class StateHandlerTestBase {
     final static long SNAPSHOT_INTERVAL = TimeUnit.SECONDS.toMillis(300);
     final static long META_GENERATION = 69;
     static final String APPLICATION_NAME = "state-handler-test-base";
+    /** A gauge which records a sketch of its values */
+    static final String HISTOGRAM_METRIC = "latency";
     TestDriver driver;
     StateMonitor monitor;
     Metric metric;
@@ -57,7 +59,8 @@ public class StateHandlerTestBase {
         HealthMonitorConfig healthMonitorConfig =
                 new HealthMonitorConfig(
                         new HealthMonitorConfig.Builder()
-                                .snapshot_interval(TimeUnit.MILLISECONDS.toSeconds(SNAPSHOT_INTERVAL)));
+                                .snapshot_interval(TimeUnit.MILLISECONDS.toSeconds(SNAPSHOT_INTERVAL))
+                                .histograms(HISTOGRAM_METRIC));
         ThreadFactory threadFactory = ignored -> mock(Thread.class);
         this.monitor = new StateMonitor(healthMonitorConfig, timer, threadFactory);
         builder.guiceModules().install(new AbstractModule() {
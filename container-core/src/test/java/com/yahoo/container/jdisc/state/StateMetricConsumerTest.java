@@ -0,0 +1,223 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.jdisc.state;
+
+import com.yahoo.collections.Tuple2;
+import com.yahoo.jdisc.Metric;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class StateMetricConsumerTest {
+
+    private final StateMetricConsumer consumer = new StateMetricConsumer();
+
+    @Test
+    public void counts_are_summed_and_not_carried_over() {
+        Metric.Context context = consumer.createContext(Map.of("dim", "a"));
+        consumer.add("foo", 1, context);
+        consumer.add("foo", 2, consumer.createContext(Map.of("dim", "a")));
+        consumer.add("foo", 4, null);
+
+        MetricSnapshot snapshot = snapshot();
+        assertEquals(3, ((CountMetric)metric(snapshot, context, "foo")).getCount());
+        assertEquals(4, ((CountMetric)metric(snapshot, null, "foo")).getCount());
+
+        assertFalse(snapshot().iterator().hasNext());
+
+        consumer.add("foo", 0, context);
+        assertEquals(0, ((CountMetric)metric(snapshot(), context, "foo")).getCount());
+    }
+
+    @Test
+    public void gauges_are_aggregated_and_last_value_carried_over() {
+        consumer.set("bar", 4, null);
+        consumer.set("bar", 7, null);
+        consumer.set("bar", 2, null);
+
+        GaugeMetric gauge = (GaugeMetric)metric(snapshot(), null, "bar");
+        assertEquals(2, gauge.getLast(), 0);
+        assertEquals(7, gauge.getMax(), 0);
+        assertEquals(2, gauge.getMin(), 0);
+        assertEquals(13, gauge.getSum(), 0);
+        assertEquals(3, gauge.getCount());
+
+        gauge = (GaugeMetric)metric(snapshot(), null, "bar");
+        assertEquals(2, gauge.getLast(), 0);
+        assertEquals(2, gauge.getMax(), 0);
+        assertEquals(2, gauge.getMin(), 0);
+        assertEquals(0, gauge.getCount());
+
+        consumer.set("bar", -1, null);
+        gauge = (GaugeMetric)metric(snapshot(), null, "bar");
+        assertEquals(-1, gauge.getMax(), 0);
+        assertEquals(-1, gauge.getMin(), 0);
+    }
+
+    @Test
+    public void configured_gauges_record_the_distribution_of_values_in_each_interval() {
+        StateMetricConsumer consumer = new StateMetricConsumer(Set.of("latency"));
+        StateMetricConsumer other = new StateMetricConsumer(Set.of("latency"));
+        for (int i = 1; i <= 100; i++) {
+            consumer.set("latency", i, null);
+            consumer.set("size", i, null);
+            other.set("latency", i + 100, null);
+        }
+
+        MetricSnapshot snapshot = new MetricSnapshot();
+        consumer.snapshotTo(snapshot);
+        other.snapshotTo(snapshot);
+        GaugeMetric latency = (GaugeMetric)metric(snapshot, null, "latency");
+        assertEquals(200, latency.getSketch().get().count());
+        assertPercentiles(List.of(100.0, 180.0, 190.0, 198.0), latency.getPercentiles().get());
+        assertTrue(((GaugeMetric)metric(snapshot, null, "size")).getPercentiles().isEmpty());
+
+        consumer.set("latency", 1000, null);
+        latency = (GaugeMetric)metric(snapshot(consumer), null, "latency");
+        assertEquals(1, latency.getSketch().get().count());
+        assertEquals(1000, latency.getSketch().get().quantile(0.5), 1000 * QuantileSketch.relativeAccuracy);
+
+        latency = (GaugeMetric)metric(snapshot(consumer), null, "latency");
+        assertTrue(latency.getSketch().isEmpty());
+    }
+
+    @Test
+    public void metric_is_reset_when_changing_type() {
+        consumer.add("foo", 1, null);
+        consumer.add("foo", 2, null);
+        consumer.set("foo", 9, null);
+        assertEquals(9, ((GaugeMetric)metric(snapshot(), null, "foo")).getLast(), 0);
+
+        consumer.set("foo", 9, null);
+        consumer.add("foo", 1, null);
+        consumer.add("foo", 2, null);
+        assertEquals(3, ((CountMetric)metric(snapshot(), null, "foo")).getCount());
+        assertFalse(snapshot().iterator().hasNext());
+    }
+
+    @Test
+    public void counts_are_removed_after_a_snapshot_without_writes() {
+        for (int i = 0; i < 100; i++)
+            consumer.add("foo", 1, consumer.createContext(Map.of("dim", "d" + i)));
+        assertEquals(100, consumer.metricCount());
+        snapshot();
+        assertEquals(100, consumer.metricCount());
+
+        assertFalse(snapshot().iterator().hasNext());
+        assertEquals(0, consumer.metricCount());
+
+        consumer.add("foo", 2, null);
+        assertEquals(2, ((CountMetric)metric(snapshot(), null, "foo")).getCount());
+    }
+
+    @Test
+    public void gauges_are_removed_after_a_number_of_snapshots_without_writes() {
+        consumer.set("bar", 3, null);
+        assertEquals(1, ((GaugeMetric)metric(snapshot(), null, "bar")).getCount());
+        for (int i = 1; i < StateMetricConsumer.maxIdleGaugeSnapshots; i++)
+            assertEquals(3, ((GaugeMetric)metric(snapshot(), null, "bar")).getLast(), 0);
+        assertEquals(1, consumer.metricCount());
+
+        assertFalse(snapshot().iterator().hasNext());
+        assertEquals(0, consumer.metricCount());
+
+        consumer.set("bar", 5, null);
+        GaugeMetric gauge = (GaugeMetric)metric(snapshot(), null, "bar");
+        assertEquals(5, gauge.getMin(), 0);
+        assertEquals(1, gauge.getCount());
+    }
+
+    @Test
+    public void no_writes_are_lost_when_taking_snapshots_concurrently() throws InterruptedException {
+        assertNoWritesAreLost(1);
+    }
+
+    @Test
+    public void no_writes_are_lost_when_removing_idle_metrics_concurrently() throws InterruptedException {
+        assertNoWritesAreLost(10);
+    }
+
+    /**
+     * Writes from several threads while taking snapshots. Each writer moves on to the next of the given number of
+     * dimension sets every 1000 writes, leaving the previous ones idle.
+     */
+    private static void assertNoWritesAreLost(int dimensionSets) throws InterruptedException {
+        int writers = 4;
+        int writesPerWriter = 200_000;
+        List<StateMetricConsumer> consumers = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(writers);
+        for (int i = 0; i < writers; i++) {
+            StateMetricConsumer consumer = new StateMetricConsumer();
+            consumers.add(consumer);
+            int writer = i;
+            threads.add(new Thread(() -> {
+                Metric.Context context = null;
+                for (int j = 0; j < writesPerWriter; j++) {
+                    if (j % 1000 == 0)
+                        context = consumer.createContext(Map.of("dim", "d" + writer % 2, "set", "s" + (j / 1000) % dimensionSets));
+                    consumer.add("count", 1, context);
+                    consumer.set("gauge", j, context);
+                }
+                done.countDown();
+            }));
+        }
+        threads.forEach(Thread::start);
+
+        long counted = 0;
+        long gauged = 0;
+        boolean finished = false;
+        for (int remaining = 2; remaining > 0; ) { // Finish with two snapshots, to include writes to removed metrics
+            finished = finished || done.await(1, TimeUnit.MILLISECONDS);
+            if (finished) remaining--;
+            MetricSnapshot snapshot = new MetricSnapshot();
+            consumers.forEach(consumer -> consumer.snapshotTo(snapshot));
+            for (Map.Entry<MetricDimensions, MetricSet> metrics : snapshot) {
+                CountMetric count = (CountMetric)metrics.getValue().get("count");
+                if (count != null) counted += count.getCount();
+                GaugeMetric gauge = (GaugeMetric)metrics.getValue().get("gauge");
+                if (gauge != null) gauged += gauge.getCount();
+            }
+        }
+        assertEquals(writers * writesPerWriter, counted);
+        assertEquals(writers * writesPerWriter, gauged);
+    }
+
+    private MetricSnapshot snapshot() {
+        return snapshot(consumer);
+    }
+
+    private static MetricSnapshot snapshot(StateMetricConsumer consumer) {
+        MetricSnapshot snapshot = new MetricSnapshot();
+        consumer.snapshotTo(snapshot);
+        return snapshot;
+    }
+
+    /** Asserts that the 50, 90, 95 and 99 percentiles are within the accuracy of the sketch of the given values */
+    private static void assertPercentiles(List<Double> expected, List<Tuple2<String, Double>> percentiles) {
+        assertEquals(List.of("50", "90", "95", "99"), percentiles.stream().map(percentile -> percentile.first).collect(Collectors.toList()));
+        for (int i = 0; i < expected.size(); i++)
+            assertEquals(expected.get(i), percentiles.get(i).second, expected.get(i) * QuantileSketch.relativeAccuracy);
+    }
+
+    private static MetricValue metric(MetricSnapshot snapshot, Metric.Context context, String name) {
+        MetricDimensions dimensions = (MetricDimensions)(context != null ? context : StateMetricConsumer.NULL_CONTEXT);
+        for (Map.Entry<MetricDimensions, MetricSet> metrics : snapshot)
+            if (metrics.getKey().equals(dimensions))
+                return metrics.getValue().get(name);
+        throw new AssertionError("Metric " + name + " not found");
+    }
+
+}
@@ -0,0 +1,35 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.docproc;
+
+import java.util.List;
+
+/**
+ * <p>A document processor which processes multiple processings in one call, such that it can amortize
+ * the cost of per-call work, like calling an external service, over many documents.</p>
+ *
+ * <p>When processings are processed together by {@link DocprocExecutor#process(List, java.util.function.BiConsumer)},
+ * this is called once with all the processings which have reached it at the same time.
+ * When a processing is processed alone, this is called with just that processing.
+ * The document processing handler processes operations together when batching is configured for the chain.</p>
+ *
+ * <p>An exception thrown from this fails all the processings passed to the call.</p>
+ *
+ * @author agent
+ */
+public abstract class BatchDocumentProcessor extends DocumentProcessor {
+
+    /**
+     * Processes a list of processings. The implementing document processor is free to modify,
+     * replace or delete elements in the list of operations inside each processing.
+     *
+     * @param processings the processings to process
+     * @return the outcome of each of the processings, in the same order as the given processings
+     */
+    public abstract List<Progress> process(List<Processing> processings);
+
+    @Override
+    public final Progress process(Processing processing) {
+        return process(List.of(processing)).get(0);
+    }
+
+}
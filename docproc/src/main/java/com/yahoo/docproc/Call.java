@@ -166,6 +166,37 @@ public class Call implements Cloneable {
         }
     }
 
+    /**
+     * Calls the BatchDocumentProcessor of this call with multiple processings.
+     *
+     * @param processings the Processing objects to use
+     * @return the progress of each processing, in the same order as the given processings
+     * @throws IllegalStateException if the processor of this is not a {@link BatchDocumentProcessor}
+     */
+    public List<DocumentProcessor.Progress> call(List<Processing> processings) {
+        if ( ! (processor instanceof BatchDocumentProcessor))
+            throw new IllegalStateException("Can not call " + processor + " with multiple processings as it is not a " +
+                                            "batch document processor");
+        try {
+            int numDocs = 0;
+            for (Processing processing : processings) {
+                numDocs += processing.getDocumentOperations().size();
+                schemaMapProcessing(processing);
+            }
+            long startTime = SystemTimer.INSTANCE.milliTime();
+            List<DocumentProcessor.Progress> retval = ((BatchDocumentProcessor)processor).process(processings);
+            incrementProcTime(SystemTimer.INSTANCE.milliTime() - startTime);
+            incrementDocs(numDocs);
+            if (retval.size() != processings.size())
+                throw new IllegalStateException(processor + " returned " + retval.size() + " progresses for " +
+                                                processings.size() + " processings");
+            return retval;
+        } finally {
+            for (Processing processing : processings)
+                unwrapSchemaMapping(processing);
+        }
+    }
+
     public String toString() {
         return "call to class " + processor.getClass().getName() + " (id: " + getDocumentProcessorId() + ")";
     }
@@ -9,7 +9,10 @@ import com.yahoo.log.LogLevel;
 import com.yahoo.statistics.Counter;
 import com.yahoo.text.Utf8;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
 import java.util.logging.Logger;
 
 /**
@@ -131,6 +134,116 @@ public class DocprocExecutor {
         return progress;
     }
 
+    /**
+     * Processes the given processings together through the CallStack of this executor. The processings take
+     * one step through their call stacks at the time, and each {@link BatchDocumentProcessor} is called once with
+     * all the processings which reach it in the same step. Other processors are called with one processing at the time,
+     * as by {@link #process(Processing)}.
+     *
+     * @param processings the processings to process. The CallStack of each Processing will be set to a clone of the CallStack of this executor, iff. it is currently null.
+     * @param failureHandler called with each processing for which a document processor threw an exception, and the exception.
+     *                       Such processings are not processed further, and their progress is FAILED. An exception thrown
+     *                       by a batch document processor is passed to this for each processing of the batch.
+     * @return the progress of each processing, in the same order as the given processings.
+     *         Processings which are LATER are not done and must be reprocessed later.
+     * @see com.yahoo.docproc.BatchDocumentProcessor
+     */
+    public List<DocumentProcessor.Progress> process(List<Processing> processings,
+                                                   BiConsumer<Processing, RuntimeException> failureHandler) {
+        List<DocumentProcessor.Progress> progresses = new ArrayList<>(processings.size());
+        List<Integer> active = new ArrayList<>(processings.size());
+        for (int i = 0; i < processings.size(); i++) {
+            Processing processing = processings.get(i);
+            processing.setServiceName(getName());
+            if (processing.callStack() == null) {
+                processing.setCallStack(new CallStack(getCallStack()));
+            }
+            incrementNumDocsProcessed(processing);
+            progresses.add(DocumentProcessor.Progress.DONE);
+            active.add(i);
+        }
+
+        while ( ! active.isEmpty()) {
+            List<Step> steps = new ArrayList<>();
+            for (int index : active) {
+                Call call = processings.get(index).callStack().pop();
+                if (call == null) continue; // No more processors - done
+                stepOf(call, steps).add(call, index);
+            }
+
+            active = new ArrayList<>();
+            for (Step step : steps) {
+                List<DocumentProcessor.Progress> stepProgresses;
+                try {
+                    stepProgresses = step.call(processings);
+                } catch (RuntimeException e) {
+                    for (int index : step.indexes) {
+                        progresses.set(index, DocumentProcessor.Progress.FAILED);
+                        failureHandler.accept(processings.get(index), e);
+                    }
+                    continue;
+                }
+
+                for (int i = 0; i < step.indexes.size(); i++) {
+                    int index = step.indexes.get(i);
+                    Processing processing = processings.get(index);
+                    DocumentProcessor.Progress progress = stepProgresses.get(i);
+                    if (log.isLoggable(LogLevel.SPAM)) {
+                        logProgress(processing, progress, step.calls.get(i));
+                    }
+                    progresses.set(index, progress);
+                    if (DocumentProcessor.Progress.LATER.equals(progress)) {
+                        processing.callStack().addNext(step.calls.get(i));
+                    } else if (DocumentProcessor.Progress.DONE.equals(progress)) {
+                        active.add(index);
+                    }
+                }
+            }
+            Collections.sort(active);
+        }
+        return progresses;
+    }
+
+    /** Returns the step calling the batch processor of the given call, or a new step added to the given steps */
+    private static Step stepOf(Call call, List<Step> steps) {
+        if (call.getDocumentProcessor() instanceof BatchDocumentProcessor) {
+            for (Step step : steps) {
+                if (step.processor() == call.getDocumentProcessor()) return step;
+            }
+        }
+        Step step = new Step();
+        steps.add(step);
+        return step;
+    }
+
+    /** The calls to one document processor in a step of processing multiple processings */
+    private static class Step {
+
+        final List<Call> calls = new ArrayList<>();
+        final List<Integer> indexes = new ArrayList<>();
+
+        void add(Call call, int index) {
+            calls.add(call);
+            indexes.add(index);
+        }
+
+        DocumentProcessor processor() {
+            return calls.get(0).getDocumentProcessor();
+        }
+
+        List<DocumentProcessor.Progress> call(List<Processing> processings) {
+            if ( ! (processor() instanceof BatchDocumentProcessor)) {
+                return List.of(calls.get(0).call(processings.get(indexes.get(0))));
+            }
+            List<Processing> stepProcessings = new ArrayList<>(indexes.size());
+            for (int index : indexes) {
+                stepProcessings.add(processings.get(index));
+            }
+            return calls.get(0).call(stepProcessings);
+        }
+
+    }
+
     private void logProgress(Processing processing, DocumentProcessor.Progress progress, Call call) {
         StringBuilder message = new StringBuilder();
         boolean first = true;
@@ -37,12 +37,12 @@ class DocprocThreadManager {
     boolean isAboveLimit() {
         return (bytesFinished.get() - bytesStarted.get() > maxConcurrentByteSize);
     }
-    void beforeExecute(DocumentProcessingTask task) {
-        bytesStarted.getAndAdd(task.getApproxSize());
+    void beforeExecute(int approxSize) {
+        bytesStarted.getAndAdd(approxSize);
     }
 
-    void afterExecute(DocumentProcessingTask task) {
-        bytesFinished.getAndAdd(task.getApproxSize());
+    void afterExecute(int approxSize) {
+        bytesFinished.getAndAdd(approxSize);
     }
     void shutdown() {
     }
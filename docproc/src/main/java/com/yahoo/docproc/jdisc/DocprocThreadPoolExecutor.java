@@ -2,10 +2,15 @@
 package com.yahoo.docproc.jdisc;
 
 import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.concurrent.SystemTimer;
+import com.yahoo.docproc.jdisc.metric.NullMetric;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.log.LogLevel;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
@@ -16,27 +21,73 @@ import java.util.logging.Logger;
 public class DocprocThreadPoolExecutor extends ThreadPoolExecutor {
 
     private static Logger log = Logger.getLogger(DocprocThreadPoolExecutor.class.getName());
+
+    private final static String METRIC_NAME_QUEUE_WAIT_TIME = "docproc.queue_wait_time";
+    private final static String METRIC_NAME_QUEUE_SIZE = "docproc.queue_size";
+
+    /** Orders tasks and batches of tasks by priority, then by deadline, such that expiring operations are run first */
+    static final Comparator<Runnable> executionOrder = Comparator.comparing(DocprocThreadPoolExecutor::firstTaskOf);
+
     private DocprocThreadManager threadManager;
+    private final Metric metric;
 
     public DocprocThreadPoolExecutor(int maxNumThreads, BlockingQueue<Runnable> queue, DocprocThreadManager threadMgr) {
+        this(maxNumThreads, queue, threadMgr, new NullMetric());
+    }
+
+    public DocprocThreadPoolExecutor(int maxNumThreads, BlockingQueue<Runnable> queue, DocprocThreadManager threadMgr,
+                                     Metric metric) {
         super((maxNumThreads > 0) ? maxNumThreads : Runtime.getRuntime().availableProcessors(),
               (maxNumThreads > 0) ? maxNumThreads : 2048,
               1, TimeUnit.SECONDS,
               queue,
               new DaemonThreadFactory("docproc-"));
         this.threadManager = threadMgr;
+        this.metric = metric;
         allowCoreThreadTimeOut(false);
         log.log(LogLevel.DEBUG, "Created docproc thread pool with " + super.getCorePoolSize() + " worker threads.");
     }
 
+    /** Returns a queue which orders tasks by {@link #executionOrder} */
+    static BlockingQueue<Runnable> createPriorityQueue() {
+        return new PriorityBlockingQueue<>(64, executionOrder);
+    }
+
+    @Override
+    public void execute(Runnable runnable) {
+        long now = SystemTimer.INSTANCE.milliTime();
+        if (runnable instanceof DocumentProcessingBatch) {
+            ((DocumentProcessingBatch) runnable).getTasks().forEach(task -> task.setQueuedAt(now));
+        } else {
+            ((DocumentProcessingTask) runnable).setQueuedAt(now);
+        }
+        super.execute(runnable);
+    }
+
     @Override
     protected void beforeExecute(Thread thread, Runnable runnable) {
-        threadManager.beforeExecute((DocumentProcessingTask) runnable);
+        threadManager.beforeExecute(approxSizeOf(runnable));
+        metric.set(METRIC_NAME_QUEUE_WAIT_TIME, SystemTimer.INSTANCE.milliTime() - firstTaskOf(runnable).getQueuedAt(), null);
+        metric.set(METRIC_NAME_QUEUE_SIZE, getQueue().size(), null);
     }
 
     @Override
     protected void afterExecute(Runnable runnable, Throwable throwable) {
-        threadManager.afterExecute((DocumentProcessingTask) runnable);
+        threadManager.afterExecute(approxSizeOf(runnable));
+    }
+
+    private static int approxSizeOf(Runnable runnable) {
+        if (runnable instanceof DocumentProcessingBatch) {
+            return ((DocumentProcessingBatch) runnable).getApproxSize();
+        }
+        return ((DocumentProcessingTask) runnable).getApproxSize();
+    }
+
+    private static DocumentProcessingTask firstTaskOf(Runnable runnable) {
+        if (runnable instanceof DocumentProcessingBatch) {
+            return ((DocumentProcessingBatch) runnable).getFirstTask();
+        }
+        return (DocumentProcessingTask) runnable;
     }
 
     @Override
@@ -0,0 +1,103 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.docproc.jdisc;
+
+import com.yahoo.docproc.DocprocService;
+import com.yahoo.docproc.DocumentProcessor;
+import com.yahoo.docproc.Processing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Processes the operations of multiple requests to the same chain together, such that each
+ * {@link com.yahoo.docproc.BatchDocumentProcessor} in the chain is called once with all of them.
+ * Each request is still replied to on its own, exactly as if it was processed by its own task,
+ * and requests with operations which must be processed later are resubmitted as their own task.
+ *
+ * @author agent
+ */
+class DocumentProcessingBatch implements Runnable {
+
+    private final List<DocumentProcessingTask> tasks;
+    private final DocprocService service;
+    private final DocumentProcessingTask firstTask;
+
+    DocumentProcessingBatch(List<DocumentProcessingTask> tasks, DocprocService service) {
+        this.tasks = List.copyOf(tasks);
+        this.service = service;
+        this.firstTask = Collections.min(this.tasks);
+    }
+
+    @Override
+    public void run() {
+        try {
+            List<DocumentProcessingTask> processingTasks = new ArrayList<>(tasks.size());
+            List<Processing> processings = new ArrayList<>(tasks.size());
+            List<DocumentProcessingTask> owners = new ArrayList<>(tasks.size());
+            for (DocumentProcessingTask task : tasks) {
+                if ( ! task.addProcessings()) continue;
+                List<Processing> taskProcessings = task.takeProcessings();
+                if ( ! taskProcessings.isEmpty() && task.failIfExpired(taskProcessings.get(0))) continue;
+
+                processingTasks.add(task);
+                for (Processing processing : taskProcessings) {
+                    processings.add(processing);
+                    owners.add(task);
+                }
+            }
+
+            Map<Processing, RuntimeException> exceptions = new IdentityHashMap<>();
+            List<DocumentProcessor.Progress> progresses = service.getExecutor().process(processings, exceptions::put);
+
+            Set<DocumentProcessingTask> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (int i = 0; i < processings.size(); i++) {
+                DocumentProcessingTask task = owners.get(i);
+                if (failed.contains(task)) continue;
+
+                Processing processing = processings.get(i);
+                RuntimeException exception = exceptions.get(processing);
+                if (exception != null) {
+                    task.fail(processing, exception);
+                    failed.add(task);
+                } else if ( ! task.addProgress(processing, progresses.get(i))) {
+                    failed.add(task);
+                }
+            }
+
+            for (DocumentProcessingTask task : processingTasks) {
+                if ( ! failed.contains(task)) {
+                    task.submitIfLater(task.complete());
+                }
+            }
+        } catch (Error error) {
+            DocumentProcessingTask.halt(error);
+        }
+    }
+
+    List<DocumentProcessingTask> getTasks() {
+        return tasks;
+    }
+
+    /** Returns the task of this which would be executed first if the tasks were queued separately */
+    DocumentProcessingTask getFirstTask() {
+        return firstTask;
+    }
+
+    int getApproxSize() {
+        int size = 0;
+        for (DocumentProcessingTask task : tasks) {
+            size += task.getApproxSize();
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessingBatch{tasks=" + tasks + '}';
+    }
+
+}
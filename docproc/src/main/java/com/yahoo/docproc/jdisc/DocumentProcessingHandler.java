@@ -12,6 +12,8 @@ import com.yahoo.container.core.ChainsConfig;
 import com.yahoo.container.core.document.ContainerDocumentConfig;
 import com.yahoo.container.jdisc.ContainerMbusConfig;
 import com.yahoo.docproc.AbstractConcreteDocumentFactory;
+import com.yahoo.docproc.BatchDocumentProcessor;
+import com.yahoo.docproc.Call;
 import com.yahoo.docproc.CallStack;
 import com.yahoo.docproc.DocprocService;
 import com.yahoo.docproc.DocumentProcessor;
@@ -29,9 +31,13 @@ import com.yahoo.messagebus.jdisc.MbusRequest;
 import com.yahoo.processing.execution.chain.ChainRegistry;
 import com.yahoo.statistics.Statistics;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.TimerTask;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.SynchronousQueue;
@@ -57,6 +63,9 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
             new ScheduledThreadPoolExecutor(2, new DaemonThreadFactory("docproc-later-"));
     private ContainerDocumentConfig containerDocConfig;
     private final DocumentTypeManager documentTypeManager;
+    private final int maxBatchSize;
+    private final long maxBatchDelayMs;
+    private final Map<String, Batcher> batchers = new ConcurrentHashMap<>();
 
     public DocumentProcessingHandler(ComponentRegistry<DocprocService> docprocServiceRegistry,
                                      ComponentRegistry<DocumentProcessor> documentProcessorComponentRegistry,
@@ -64,8 +73,11 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
                                      DocprocThreadPoolExecutor threadPool, DocumentTypeManager documentTypeManager,
                                      ChainsModel chainsModel, SchemaMap schemaMap, Statistics statistics,
                                      Metric metric,
-                                     ContainerDocumentConfig containerDocConfig) {
+                                     ContainerDocumentConfig containerDocConfig,
+                                     int maxBatchSize, long maxBatchDelayMs) {
         this.docprocServiceRegistry = docprocServiceRegistry;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelayMs = maxBatchDelayMs;
         this.docFactoryRegistry = docFactoryRegistry;
         this.threadPool = threadPool;
         this.containerDocConfig = containerDocConfig;
@@ -97,16 +109,19 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
                                            chooseQueueType(params.getMaxNumThreads()),
                                            new DocprocThreadManager(params.getMaxConcurrentFactor(),
                                                                     params.getDocumentExpansionFactor(),
-                                                                    params.getContainerCoreMemoryMb())),
+                                                                    params.getContainerCoreMemoryMb()),
+                                           params.getMetric()),
              params.getDocumentTypeManager(), params.getChainsModel(), params.getSchemaMap(),
              params.getStatisticsManager(),
              params.getMetric(),
-             params.getContainerDocConfig());
+             params.getContainerDocConfig(),
+             params.getMaxBatchSize(),
+             params.getMaxBatchDelayMs());
     }
 
     private static BlockingQueue<Runnable> chooseQueueType(int maxNumThreads) {
         return (maxNumThreads > 0)
-                ? new LinkedBlockingQueue<>()
+                ? DocprocThreadPoolExecutor.createPriorityQueue()
                 : new SynchronousQueue<>();
     }
 
@@ -131,7 +146,9 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
                      .setChainsModel(buildFromConfig(chainsConfig)).setSchemaMap(configureMapping(mappingConfig))
                      .setStatisticsManager(manager)
                      .setMetric(metric)
-                     .setContainerDocumentConfig(containerDocConfig));
+                     .setContainerDocumentConfig(containerDocConfig)
+                     .setMaxBatchSize(docprocConfig.maxbatchsize())
+                     .setMaxBatchDelayMs(docprocConfig.maxbatchdelayms()));
     }
 
     @Override
@@ -192,8 +209,18 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
             return null;
         }
 
+        if (requestContext.hasExpired()) {
+            requestContext.processingFailed(RequestContext.ErrorCode.ERROR_TIMEOUT, "Time is up.");
+            return null;
+        }
+
         DocumentProcessingTask task = new DocumentProcessingTask(requestContext, this, service);
-        submit(task);
+        Batcher batcher = batchers.computeIfAbsent(service.getName(), name -> new Batcher(service));
+        if (batcher.isBatching()) {
+            batcher.add(task);
+        } else {
+            submit(task);
+        }
         return null;
     }
 
@@ -209,6 +236,18 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
         }
     }
 
+    private void submit(DocumentProcessingBatch batch) {
+        if (threadPool.isAboveLimit()) {
+            batch.getTasks().forEach(DocumentProcessingTask::queueFull);
+        } else {
+            try {
+                threadPool.execute(batch);
+            } catch (RejectedExecutionException ree) {
+                batch.getTasks().forEach(DocumentProcessingTask::queueFull);
+            }
+        }
+    }
+
     void submit(DocumentProcessingTask task, long delay) {
         LaterTimerTask timerTask = new LaterTimerTask(task, delay);
         laterExecutor.schedule(timerTask, delay, TimeUnit.MILLISECONDS);
@@ -231,6 +270,64 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
         }
     }
 
+    /**
+     * Gathers the tasks to a chain containing batch document processors into batches, which are submitted
+     * when they have reached the max batch size, or the max batch delay has passed since the first task was added.
+     */
+    private class Batcher {
+
+        private final DocprocService service;
+        private final boolean batching;
+        private List<DocumentProcessingTask> pending = new ArrayList<>();
+
+        private Batcher(DocprocService service) {
+            this.service = service;
+            this.batching = maxBatchSize > 1 && hasBatchProcessor(service.getExecutor().getCallStack());
+        }
+
+        /** Returns whether tasks to this chain should be batched */
+        boolean isBatching() { return batching; }
+
+        void add(DocumentProcessingTask task) {
+            List<DocumentProcessingTask> full = null;
+            synchronized (this) {
+                pending.add(task);
+                if (pending.size() >= maxBatchSize) {
+                    full = takePending();
+                } else if (pending.size() == 1) {
+                    List<DocumentProcessingTask> batch = pending;
+                    laterExecutor.schedule(() -> submitIfPending(batch), maxBatchDelayMs, TimeUnit.MILLISECONDS);
+                }
+            }
+            if (full != null) {
+                submit(new DocumentProcessingBatch(full, service));
+            }
+        }
+
+        /** Submits the given batch unless it was already submitted when it became full */
+        private void submitIfPending(List<DocumentProcessingTask> batch) {
+            synchronized (this) {
+                if (pending != batch) return;
+                takePending();
+            }
+            submit(new DocumentProcessingBatch(batch, service));
+        }
+
+        private List<DocumentProcessingTask> takePending() {
+            List<DocumentProcessingTask> taken = pending;
+            pending = new ArrayList<>();
+            return taken;
+        }
+
+        private boolean hasBatchProcessor(CallStack callStack) {
+            for (Iterator<Call> i = callStack.iterator(); i.hasNext(); ) {
+                if (i.next().getDocumentProcessor() instanceof BatchDocumentProcessor) return true;
+            }
+            return false;
+        }
+
+    }
+
     public DocumentTypeManager getDocumentTypeManager() {
         return documentTypeManager;
     }
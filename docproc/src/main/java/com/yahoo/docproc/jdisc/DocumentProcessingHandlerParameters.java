@@ -27,6 +27,8 @@ public class DocumentProcessingHandlerParameters {
     private Statistics statisticsManager = Statistics.nullImplementation;
     private Metric metric = new NullMetric();
     private ContainerDocumentConfig containerDocConfig;
+    private int maxBatchSize = 1;
+    private long maxBatchDelayMs = 10;
 
     public DocumentProcessingHandlerParameters() {
     }
@@ -152,4 +154,32 @@ public class DocumentProcessingHandlerParameters {
         return containerDocConfig;
     }
 
+    /**
+     * Returns the max number of operations to process together in chains containing batch document processors.
+     *
+     * @return the max number of operations to process together, where 1 means no batching.
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public DocumentProcessingHandlerParameters setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    /**
+     * Returns the max time to wait for more operations to process together with those already received.
+     *
+     * @return the max batch delay in milliseconds.
+     */
+    public long getMaxBatchDelayMs() {
+        return maxBatchDelayMs;
+    }
+
+    public DocumentProcessingHandlerParameters setMaxBatchDelayMs(long maxBatchDelayMs) {
+        this.maxBatchDelayMs = maxBatchDelayMs;
+        return this;
+    }
+
 }
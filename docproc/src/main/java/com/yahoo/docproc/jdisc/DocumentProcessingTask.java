@@ -29,6 +29,7 @@ public class DocumentProcessingTask implements Comparable<DocumentProcessingTask
     private static Logger log = Logger.getLogger(DocumentProcessingTask.class.getName());
     private final List<Processing> processings = new ArrayList<>();
     private final List<Processing> processingsDone = new ArrayList<>();
+    private final List<Tuple2<DocumentProcessor.Progress, Processing>> later = new ArrayList<>();
 
     private final DocumentProcessingHandler docprocHandler;
     private RequestContext requestContext;
@@ -36,6 +37,7 @@ public class DocumentProcessingTask implements Comparable<DocumentProcessingTask
     private final static AtomicLong seq = new AtomicLong();
     private final long seqNum;
     private final DocprocService service;
+    private volatile long queuedAt;
 
     public DocumentProcessingTask(RequestContext requestContext, DocumentProcessingHandler docprocHandler,
                                   DocprocService service) {
@@ -48,30 +50,51 @@ public class DocumentProcessingTask implements Comparable<DocumentProcessingTask
     @Override
     public void run() {
         try {
-            try {
-                processings.addAll(requestContext.getProcessings());
-            } catch (Exception e) {
-                //deserialization failed:
-                log.log(LogLevel.WARNING, "Deserialization of message failed.", e);
-                requestContext.processingFailed(e);
-                return;
-            }
+            if ( ! addProcessings()) return;
 
             DocprocExecutor executor = service.getExecutor();
             DocumentProcessor.Progress progress = process(executor);
-
-            if (DocumentProcessor.Progress.LATER.equals(progress) && !processings.isEmpty()) {
-                DocumentProcessor.LaterProgress laterProgress = (DocumentProcessor.LaterProgress) progress;
-                docprocHandler.submit(this, laterProgress.getDelay());
-            }
+            submitIfLater(progress);
         } catch (Error error) {
-            try {
-                log.log(LogLevel.FATAL, Exceptions.toMessageString(error), error);
-            } catch (Throwable t) {
-                // do nothing
-            } finally {
-                Runtime.getRuntime().halt(1);
-            }
+            halt(error);
+        }
+    }
+
+    static void halt(Error error) {
+        try {
+            log.log(LogLevel.FATAL, Exceptions.toMessageString(error), error);
+        } catch (Throwable t) {
+            // do nothing
+        } finally {
+            Runtime.getRuntime().halt(1);
+        }
+    }
+
+    /** Adds the processings of the request of this, or fails the request and returns false if this fails */
+    boolean addProcessings() {
+        try {
+            processings.addAll(requestContext.getProcessings());
+            return true;
+        } catch (Exception e) {
+            //deserialization failed:
+            log.log(LogLevel.WARNING, "Deserialization of message failed.", e);
+            requestContext.processingFailed(e);
+            return false;
+        }
+    }
+
+    /** Removes and returns the processings of this which are not yet processed */
+    List<Processing> takeProcessings() {
+        List<Processing> taken = new ArrayList<>(processings);
+        processings.clear();
+        return taken;
+    }
+
+    /** Submits this to be run again after the delay of the given progress, if it is LATER */
+    void submitIfLater(DocumentProcessor.Progress progress) {
+        if (DocumentProcessor.Progress.LATER.equals(progress) && !processings.isEmpty()) {
+            DocumentProcessor.LaterProgress laterProgress = (DocumentProcessor.LaterProgress) progress;
+            docprocHandler.submit(this, laterProgress.getDelay());
         }
     }
 
@@ -82,60 +105,89 @@ public class DocumentProcessingTask implements Comparable<DocumentProcessingTask
      */
     private DocumentProcessor.Progress process(DocprocExecutor executor) {
         Iterator<Processing> iterator = processings.iterator();
-        List<Tuple2<DocumentProcessor.Progress, Processing>> later = new ArrayList<>();
         while (iterator.hasNext()) {
             Processing processing = iterator.next();
             iterator.remove();
-            if (requestContext.hasExpired()) {
-                DocumentProcessor.Progress progress = DocumentProcessor.Progress.FAILED;
-                final String location;
-                if (processing != null) {
-                    final CallStack callStack = processing.callStack();
-                    if (callStack != null) {
-                        final Call lastPopped = callStack.getLastPopped();
-                        if (lastPopped != null) {
-                            location = lastPopped.toString();
-                        } else {
-                            location = "empty call stack or no processors popped";
-                        }
-                    } else {
-                        location = "no call stack";
-                    }
-                } else {
-                    location = "no processing instance";
-                }
-                String errorMsg = processing + " failed, " + location;
-                log.log(Level.FINE, "Time is up for '" + errorMsg + "'.");
-                requestContext.processingFailed(RequestContext.ErrorCode.ERROR_PROCESSING_FAILURE, "Time is up.");
-                return progress;
+            if (failIfExpired(processing)) {
+                return DocumentProcessor.Progress.FAILED;
             }
 
             DocumentProcessor.Progress progress = DocumentProcessor.Progress.FAILED;
             try {
                 progress = executor.process(processing);
             } catch (Exception e) {
-                logProcessingFailure(processing, e);
-                requestContext.processingFailed(e);
+                fail(processing, e);
                 return progress;
             }
 
-            if (DocumentProcessor.Progress.LATER.equals(progress)) {
-                later.add(new Tuple2<>(progress, processing));
-            } else if (DocumentProcessor.Progress.DONE.equals(progress)) {
-                processingsDone.add(processing);
-            } else if (DocumentProcessor.Progress.FAILED.equals(progress)) {
-                logProcessingFailure(processing, null);
-                requestContext.processingFailed(RequestContext.ErrorCode.ERROR_PROCESSING_FAILURE,
-                        progress.getReason().orElse("Document processing failed."));
-                return progress;
-            } else if (DocumentProcessor.Progress.PERMANENT_FAILURE.equals(progress)) {
-                logProcessingFailure(processing, null);
-                requestContext.processingFailed(RequestContext.ErrorCode.ERROR_PROCESSING_FAILURE,
-                        progress.getReason().orElse("Document processing failed."));
+            if ( ! addProgress(processing, progress)) {
                 return progress;
             }
         }
+        return complete();
+    }
+
+    /** Fails the request of this and returns true if it has expired */
+    boolean failIfExpired(Processing processing) {
+        if ( ! requestContext.hasExpired()) return false;
+
+        final String location;
+        if (processing != null) {
+            final CallStack callStack = processing.callStack();
+            if (callStack != null) {
+                final Call lastPopped = callStack.getLastPopped();
+                if (lastPopped != null) {
+                    location = lastPopped.toString();
+                } else {
+                    location = "empty call stack or no processors popped";
+                }
+            } else {
+                location = "no call stack";
+            }
+        } else {
+            location = "no processing instance";
+        }
+        String errorMsg = processing + " failed, " + location;
+        log.log(Level.FINE, "Time is up for '" + errorMsg + "'.");
+        requestContext.processingFailed(RequestContext.ErrorCode.ERROR_TIMEOUT, "Time is up.");
+        return true;
+    }
+
+    /** Fails the request of this because processing the given processing threw the given exception */
+    void fail(Processing processing, Exception exception) {
+        logProcessingFailure(processing, exception);
+        requestContext.processingFailed(exception);
+    }
 
+    /**
+     * Adds the progress of processing one of the processings of this.
+     *
+     * @return false if the progress failed the request of this, such that the remaining processings should be dropped
+     */
+    boolean addProgress(Processing processing, DocumentProcessor.Progress progress) {
+        if (DocumentProcessor.Progress.LATER.equals(progress)) {
+            later.add(new Tuple2<>(progress, processing));
+        } else if (DocumentProcessor.Progress.DONE.equals(progress)) {
+            processingsDone.add(processing);
+        } else if (DocumentProcessor.Progress.FAILED.equals(progress)) {
+            logProcessingFailure(processing, null);
+            requestContext.processingFailed(RequestContext.ErrorCode.ERROR_PROCESSING_FAILURE,
+                    progress.getReason().orElse("Document processing failed."));
+            return false;
+        } else if (DocumentProcessor.Progress.PERMANENT_FAILURE.equals(progress)) {
+            logProcessingFailure(processing, null);
+            requestContext.processingFailed(RequestContext.ErrorCode.ERROR_PROCESSING_FAILURE,
+                    progress.getReason().orElse("Document processing failed."));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Completes a run of this after the progress of all its processings is added: Replies to the request if all
+     * are done, and otherwise returns the shortest LATER progress of the processings which are to be processed again.
+     */
+    DocumentProcessor.Progress complete() {
         // Processings that have FAILED will have made this method terminate by now.
         // We now have successful Processings in 'processingsDone' and
         // the ones that have returned LATER in 'later'.
@@ -154,6 +206,7 @@ public class DocumentProcessingTask implements Comparable<DocumentProcessingTask
                     shortestDelay = (DocumentProcessor.LaterProgress) tuple.first;
                 }
             }
+            later.clear();
             return shortestDelay;
         } else {
             requestContext.processingDone(processingsDone);
@@ -168,12 +221,14 @@ public class DocumentProcessingTask implements Comparable<DocumentProcessingTask
                                         ". Will be automatically resent.");
     }
 
+    /** Orders tasks by priority, then by earliest deadline, then by the order they were created */
     public int compareTo(DocumentProcessingTask other) {
-        int ourPriority = requestContext.getPriority();
-        int otherPriority = other.requestContext.getPriority();
-        int res = (ourPriority == otherPriority) ? 0 : ((ourPriority < otherPriority) ? -1 : 1);
+        int res = Integer.compare(requestContext.getPriority(), other.requestContext.getPriority());
         if (res == 0) {
-            res = (seqNum == other.seqNum) ? 0 : ((seqNum < other.seqNum) ? -1 : 1);
+            res = Long.compare(requestContext.getDeadline(), other.requestContext.getDeadline());
+        }
+        if (res == 0) {
+            res = Long.compare(seqNum, other.seqNum);
         }
         return res;
     }
@@ -196,6 +251,15 @@ public class DocumentProcessingTask implements Comparable<DocumentProcessingTask
         return seqNum;
     }
 
+    /** Sets the time this was queued for execution, in milliseconds */
+    void setQueuedAt(long queuedAt) {
+        this.queuedAt = queuedAt;
+    }
+
+    long getQueuedAt() {
+        return queuedAt;
+    }
+
     private static void logProcessingFailure(Processing processing, Exception exception) {
         //LOGGING ONLY:
         String errorMsg = processing + " failed at " + processing.callStack().getLastPopped();
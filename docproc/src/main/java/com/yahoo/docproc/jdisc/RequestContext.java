@@ -34,6 +34,12 @@ public interface RequestContext {
     /** Returns whether this request has timed out */
     default boolean hasExpired() { return false;}
 
+    /**
+     * Returns the time when this request times out, in milliseconds by
+     * {@link com.yahoo.concurrent.SystemTimer#milliTime()}, or Long.MAX_VALUE if it does not time out
+     */
+    default long getDeadline() { return Long.MAX_VALUE; }
+
     void skip();
 
     enum ErrorCode {
@@ -42,7 +48,8 @@ public interface RequestContext {
         ERROR_ABORTED(Response.Status.TEMPORARY_REDIRECT, DocumentProtocol.ERROR_ABORTED),
         ERROR_BUSY(Response.Status.TEMPORARY_REDIRECT, DocumentProtocol.ERROR_BUSY),
         //fatal:
-        ERROR_PROCESSING_FAILURE(Response.Status.INTERNAL_SERVER_ERROR, DocumentProtocol.ERROR_PROCESSING_FAILURE);
+        ERROR_PROCESSING_FAILURE(Response.Status.INTERNAL_SERVER_ERROR, DocumentProtocol.ERROR_PROCESSING_FAILURE),
+        ERROR_TIMEOUT(Response.Status.GATEWAY_TIMEOUT, com.yahoo.messagebus.ErrorCode.TIMEOUT);
 
 
         private int discStatus;
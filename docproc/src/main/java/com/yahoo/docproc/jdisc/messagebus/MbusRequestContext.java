@@ -178,6 +178,11 @@ public class MbusRequestContext implements RequestContext, ResponseHandler {
         return requestMsg.isExpired();
     }
 
+    @Override
+    public long getDeadline() {
+        return requestMsg.getTimeReceived() + requestMsg.getTimeRemaining();
+    }
+
     @Override
     public ContentChannel handleResponse(Response response) {
         if (responded.getAndSet(true)) {
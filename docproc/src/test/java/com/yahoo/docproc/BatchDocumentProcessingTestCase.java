@@ -0,0 +1,174 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.docproc;
+
+import com.yahoo.document.DataType;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.datatypes.StringFieldValue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class BatchDocumentProcessingTestCase {
+
+    private final DocumentType type;
+
+    public BatchDocumentProcessingTestCase() {
+        type = new DocumentType("test");
+        type.addField("title", DataType.STRING);
+    }
+
+    @Test
+    public void testBatchProcessorsAreCalledOnceForAllProcessings() {
+        CountingProcessor first = new CountingProcessor(null);
+        RecordingBatchProcessor batch = new RecordingBatchProcessor();
+        CountingProcessor last = new CountingProcessor("crash");
+        DocprocExecutor executor = new DocprocExecutor("batch", new CallStack().addLast(first).addLast(batch).addLast(last));
+
+        List<Processing> processings = List.of(processing("ok1"), processing("later"), processing("fail"),
+                                               processing("ok2"), processing("crash"), processing("ok3"));
+        Map<Processing, RuntimeException> exceptions = new IdentityHashMap<>();
+        List<DocumentProcessor.Progress> progresses = executor.process(processings, exceptions::put);
+
+        assertEquals(List.of(DocumentProcessor.Progress.DONE, DocumentProcessor.Progress.LATER,
+                             DocumentProcessor.Progress.FAILED, DocumentProcessor.Progress.DONE,
+                             DocumentProcessor.Progress.FAILED, DocumentProcessor.Progress.DONE),
+                     progresses);
+        assertEquals(1, exceptions.size());
+        assertEquals("crash", exceptions.get(processings.get(4)).getMessage());
+        assertEquals(6, first.calls.get());
+        assertEquals(List.of(6), batch.batchSizes);
+        assertEquals(4, last.calls.get());
+        assertEquals("processed", title(processings.get(0)));
+        assertEquals("processed", title(processings.get(3)));
+
+        // The processing which should be processed later continues from the batch processor
+        List<DocumentProcessor.Progress> laterProgress = executor.process(List.of(processings.get(1)), exceptions::put);
+        assertEquals(List.of(DocumentProcessor.Progress.DONE), laterProgress);
+        assertEquals(6, first.calls.get());
+        assertEquals(List.of(6, 1), batch.batchSizes);
+        assertEquals(5, last.calls.get());
+    }
+
+    @Test
+    public void testExceptionFromBatchProcessorFailsAllItsProcessings() {
+        RecordingBatchProcessor batch = new RecordingBatchProcessor();
+        CountingProcessor last = new CountingProcessor(null);
+        DocprocExecutor executor = new DocprocExecutor("batch", new CallStack().addLast(batch).addLast(last));
+
+        List<Processing> processings = List.of(processing("ok1"), processing("throw"), processing("ok2"));
+        Map<Processing, RuntimeException> exceptions = new IdentityHashMap<>();
+        List<DocumentProcessor.Progress> progresses = executor.process(processings, exceptions::put);
+
+        assertEquals(List.of(DocumentProcessor.Progress.FAILED, DocumentProcessor.Progress.FAILED,
+                             DocumentProcessor.Progress.FAILED),
+                     progresses);
+        assertEquals(3, exceptions.size());
+        assertSame(exceptions.get(processings.get(0)), exceptions.get(processings.get(2)));
+        assertEquals(0, last.calls.get());
+        assertNull(title(processings.get(0)));
+    }
+
+    @Test
+    public void testBatchProcessorCanProcessSingleProcessings() {
+        RecordingBatchProcessor batch = new RecordingBatchProcessor();
+        DocprocExecutor executor = new DocprocExecutor("batch", new CallStack().addLast(batch));
+
+        Processing processing = processing("ok");
+        assertEquals(DocumentProcessor.Progress.DONE, executor.process(processing));
+        assertEquals(List.of(1), batch.batchSizes);
+        assertEquals("processed", title(processing));
+    }
+
+    @Test
+    public void testWrongNumberOfProgressesFailsTheBatch() {
+        DocprocExecutor executor = new DocprocExecutor("batch", new CallStack().addLast(new BatchDocumentProcessor() {
+            @Override
+            public List<Progress> process(List<Processing> processings) {
+                return List.of(Progress.DONE);
+            }
+        }));
+
+        Map<Processing, RuntimeException> exceptions = new IdentityHashMap<>();
+        executor.process(List.of(processing("a"), processing("b")), exceptions::put);
+        assertEquals(2, exceptions.size());
+        assertTrue(exceptions.values().iterator().next() instanceof IllegalStateException);
+    }
+
+    private Processing processing(String name) {
+        return Processing.of(new DocumentPut(type, new DocumentId("id:ns:test::" + name)));
+    }
+
+    private static String title(Processing processing) {
+        DocumentPut put = (DocumentPut)processing.getDocumentOperations().get(0);
+        StringFieldValue title = (StringFieldValue)put.getDocument().getFieldValue("title");
+        return title == null ? null : title.getString();
+    }
+
+    private static String name(Processing processing) {
+        return processing.getDocumentOperations().get(0).getId().getScheme().getNamespaceSpecific();
+    }
+
+    private static class CountingProcessor extends DocumentProcessor {
+
+        final AtomicInteger calls = new AtomicInteger();
+        private final String crashOn;
+
+        CountingProcessor(String crashOn) {
+            this.crashOn = crashOn;
+        }
+
+        @Override
+        public Progress process(Processing processing) {
+            calls.incrementAndGet();
+            if (name(processing).equals(crashOn))
+                throw new IllegalArgumentException("crash");
+            return Progress.DONE;
+        }
+
+    }
+
+    private static class RecordingBatchProcessor extends BatchDocumentProcessor {
+
+        final List<Integer> batchSizes = new ArrayList<>();
+        private boolean laterReturned = false;
+
+        @Override
+        public List<Progress> process(List<Processing> processings) {
+            batchSizes.add(processings.size());
+            List<Progress> progresses = new ArrayList<>();
+            for (Processing processing : processings) {
+                if (name(processing).equals("throw"))
+                    throw new IllegalStateException("throw");
+            }
+            for (Processing processing : processings) {
+                if (name(processing).equals("later") && ! laterReturned) {
+                    laterReturned = true;
+                    progresses.add(Progress.LATER);
+                } else if (name(processing).equals("fail")) {
+                    progresses.add(Progress.FAILED);
+                } else {
+                    DocumentPut put = (DocumentPut)processing.getDocumentOperations().get(0);
+                    put.getDocument().setFieldValue("title", new StringFieldValue("processed"));
+                    progresses.add(Progress.DONE);
+                }
+            }
+            return progresses;
+        }
+
+    }
+
+}
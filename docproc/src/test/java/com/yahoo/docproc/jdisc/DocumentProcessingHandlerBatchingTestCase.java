@@ -0,0 +1,96 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.docproc.jdisc;
+
+import com.yahoo.collections.Pair;
+import com.yahoo.docproc.BatchDocumentProcessor;
+import com.yahoo.docproc.CallStack;
+import com.yahoo.docproc.Processing;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
+import com.yahoo.messagebus.Message;
+import com.yahoo.messagebus.Reply;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class DocumentProcessingHandlerBatchingTestCase extends DocumentProcessingHandlerTestBase {
+
+    private final DocumentType type;
+    private final RecordingBatchProcessor processor = new RecordingBatchProcessor();
+
+    public DocumentProcessingHandlerBatchingTestCase() {
+        type = new DocumentType("batched");
+        type.addField("title", DataType.STRING);
+    }
+
+    @Test
+    public void testPutsAreProcessedInOneBatch() throws InterruptedException {
+        for (int i = 0; i < 3; i++)
+            assertTrue(sendMessage("batching", new PutDocumentMessage(new DocumentPut(new Document(type, "id:ns:batched::" + i)))));
+
+        for (int i = 0; i < 3; i++) {
+            Message message = remoteServer.awaitMessage(60, TimeUnit.SECONDS);
+            assertNotNull(message);
+            Document document = ((PutDocumentMessage)message).getDocumentPut().getDocument();
+            assertEquals(new StringFieldValue("processed"), document.getFieldValue("title"));
+            remoteServer.ackMessage(message);
+        }
+        for (int i = 0; i < 3; i++) {
+            Reply reply = driver.client().awaitReply(60, TimeUnit.SECONDS);
+            assertNotNull(reply);
+            assertFalse(reply.hasErrors());
+        }
+        assertEquals(List.of(3), processor.batchSizes);
+    }
+
+    @Override
+    protected List<Pair<String, CallStack>> getCallStacks() {
+        List<Pair<String, CallStack>> stacks = new ArrayList<>();
+        stacks.add(new Pair<>("batching", new CallStack().addLast(processor)));
+        return stacks;
+    }
+
+    @Override
+    protected DocumentProcessingHandlerParameters getParameters() {
+        return new DocumentProcessingHandlerParameters().setMaxBatchSize(3).setMaxBatchDelayMs(60 * 1000);
+    }
+
+    @Override
+    protected DocumentType getType() {
+        return type;
+    }
+
+    private static class RecordingBatchProcessor extends BatchDocumentProcessor {
+
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public List<Progress> process(List<Processing> processings) {
+            batchSizes.add(processings.size());
+            List<Progress> progresses = new ArrayList<>();
+            for (Processing processing : processings) {
+                DocumentPut put = (DocumentPut)processing.getDocumentOperations().get(0);
+                put.getDocument().setFieldValue("title", new StringFieldValue("processed"));
+                progresses.add(Progress.DONE);
+            }
+            return progresses;
+        }
+
+    }
+
+}
@@ -0,0 +1,181 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.docproc.jdisc;
+
+import com.yahoo.collections.Pair;
+import com.yahoo.concurrent.SystemTimer;
+import com.yahoo.docproc.CallStack;
+import com.yahoo.docproc.DocumentProcessor;
+import com.yahoo.docproc.Processing;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.Field;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.jdisc.Response;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import com.yahoo.jdisc.handler.ContentChannel;
+import com.yahoo.jdisc.handler.ResponseHandler;
+import com.yahoo.messagebus.ErrorCode;
+import com.yahoo.messagebus.Message;
+import com.yahoo.messagebus.Reply;
+import com.yahoo.messagebus.jdisc.MbusRequest;
+import com.yahoo.messagebus.jdisc.MbusResponse;
+import org.junit.Test;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the handling of requests before they are processed: rejecting expired requests, and queue metrics.
+ *
+ * @author agent
+ */
+public class DocumentProcessingHandlerQueueingTestCase extends DocumentProcessingHandlerTestBase {
+
+    private final DocumentType type;
+    private final AtomicInteger processed = new AtomicInteger();
+    private final RecordingMetric metric = new RecordingMetric();
+
+    public DocumentProcessingHandlerQueueingTestCase() {
+        type = new DocumentType("music");
+        type.addField(new Field("title", DataType.STRING));
+    }
+
+    @Test
+    public void requests_which_have_expired_on_arrival_are_replied_to_with_timeout_without_processing() throws InterruptedException {
+        PutDocumentMessage message = new PutDocumentMessage(new DocumentPut(document()));
+        message.setTimeReceived(SystemTimer.INSTANCE.milliTime() - 2000);
+        message.setTimeRemaining(1000);
+        assertTrue(message.isExpired());
+
+        ResponseCollector responses = new ResponseCollector();
+        MbusRequest request = new MbusRequest(driver.parent(), URI.create("mbus://remotehost/chain.queueing"), message);
+        try {
+            handler.handleRequest(request, responses);
+        }
+        finally {
+            request.release();
+        }
+
+        Response response = responses.poll();
+        assertNotNull(response);
+        assertEquals(Response.Status.GATEWAY_TIMEOUT, response.getStatus());
+        Reply reply = ((MbusResponse)response).getReply();
+        assertEquals(1, reply.getNumErrors());
+        assertEquals(ErrorCode.TIMEOUT, reply.getError(0).getCode());
+        assertEquals("Time is up.", reply.getError(0).getMessage());
+        assertEquals(0, processed.get());
+        assertFalse("Expired requests are not queued", metric.values.containsKey("docproc.queue_wait_time"));
+    }
+
+    @Test
+    public void queue_wait_time_and_size_are_reported_when_tasks_start() throws InterruptedException {
+        assertTrue(sendMessage("queueing", new PutDocumentMessage(new DocumentPut(document()))));
+
+        Message forwarded = remoteServer.awaitMessage(60, TimeUnit.SECONDS);
+        assertNotNull(forwarded);
+        remoteServer.ackMessage(forwarded);
+        Reply reply = driver.client().awaitReply(60, TimeUnit.SECONDS);
+        assertNotNull(reply);
+        assertFalse(reply.hasErrors());
+
+        assertEquals(1, processed.get());
+        assertTrue(metric.values.get("docproc.queue_wait_time").longValue() >= 0);
+        assertEquals(0, metric.values.get("docproc.queue_size").intValue());
+    }
+
+    private Document document() {
+        Document document = new Document(type, "id:ns:music::1");
+        document.setFieldValue("title", new StringFieldValue("Blue Monday"));
+        return document;
+    }
+
+    @Override
+    protected DocumentProcessingHandlerParameters getParameters() {
+        return new DocumentProcessingHandlerParameters().setMaxNumThreads(1).setMetric(metric);
+    }
+
+    @Override
+    protected List<Pair<String, CallStack>> getCallStacks() {
+        CallStack stack = new CallStack();
+        stack.addLast(new CountingProcessor());
+        return List.of(new Pair<>("queueing", stack));
+    }
+
+    @Override
+    protected DocumentType getType() {
+        return type;
+    }
+
+    private class CountingProcessor extends DocumentProcessor {
+
+        @Override
+        public Progress process(Processing processing) {
+            processed.incrementAndGet();
+            return Progress.DONE;
+        }
+
+    }
+
+    /** Records the last value set for each metric */
+    private static class RecordingMetric implements Metric {
+
+        final Map<String, Number> values = new ConcurrentHashMap<>();
+
+        @Override
+        public void set(String key, Number val, Context ctx) {
+            values.put(key, val);
+        }
+
+        @Override
+        public void add(String key, Number val, Context ctx) {
+        }
+
+        @Override
+        public Context createContext(Map<String, ?> properties) {
+            return null;
+        }
+
+    }
+
+    private static class ResponseCollector implements ResponseHandler {
+
+        private final BlockingQueue<Response> responses = new ArrayBlockingQueue<>(1);
+
+        @Override
+        public ContentChannel handleResponse(Response response) {
+            responses.add(response);
+            return new ContentChannel() {
+                @Override
+                public void write(ByteBuffer buf, CompletionHandler handler) {
+                    if (handler != null) handler.completed();
+                }
+                @Override
+                public void close(CompletionHandler handler) {
+                    if (handler != null) handler.completed();
+                }
+            };
+        }
+
+        Response poll() throws InterruptedException {
+            return responses.poll(60, TimeUnit.SECONDS);
+        }
+
+    }
+
+}
@@ -63,7 +63,7 @@ public abstract class DocumentProcessingHandlerTestBase {
         handler = new DocumentProcessingHandler(registry,
                 new ComponentRegistry<>(),
                 new ComponentRegistry<>(),
-                new DocumentProcessingHandlerParameters().
+                getParameters().
                         setDocumentTypeManager(documentTypeManager).
                         setContainerDocumentConfig(new ContainerDocumentConfig(new ContainerDocumentConfig.Builder())));
         builder.serverBindings().bind("mbus://*/*", handler);
@@ -118,6 +118,11 @@ public abstract class DocumentProcessingHandlerTestBase {
 
     protected abstract List<Pair<String, CallStack>> getCallStacks();
 
+    /** Returns the parameters of the handler, to which the document type manager and container config are added */
+    protected DocumentProcessingHandlerParameters getParameters() {
+        return new DocumentProcessingHandlerParameters();
+    }
+
     protected abstract DocumentType getType();
 
     public boolean sendMessage(String destinationChainName, DocumentMessage msg) {
@@ -69,17 +69,53 @@ public class DocumentProcessingTaskPrioritizationTestCase {
         assertThat(queue.poll(), nullValue());
     }
 
+    @Test
+    public void deadlinePrioritization() {
+        Queue<Runnable> queue = DocprocThreadPoolExecutor.createPriorityQueue();
+
+        DocumentProcessingTask late = new TestDocumentProcessingTask(DocumentProtocol.Priority.NORMAL_1, 3000);
+        DocumentProcessingTask early = new TestDocumentProcessingTask(DocumentProtocol.Priority.NORMAL_1, 1000);
+        DocumentProcessingTask noDeadline = new TestDocumentProcessingTask(DocumentProtocol.Priority.NORMAL_1);
+        DocumentProcessingTask high = new TestDocumentProcessingTask(DocumentProtocol.Priority.HIGH_1, 5000);
+        DocumentProcessingTask batchedLate = new TestDocumentProcessingTask(DocumentProtocol.Priority.NORMAL_1, 4000);
+        DocumentProcessingTask batchedEarly = new TestDocumentProcessingTask(DocumentProtocol.Priority.NORMAL_1, 2000);
+        DocumentProcessingBatch batch = new DocumentProcessingBatch(List.of(batchedLate, batchedEarly), null);
+
+        queue.add(noDeadline);
+        queue.add(late);
+        queue.add(batch);
+        queue.add(early);
+        queue.add(high);
+
+        assertThat(queue.poll(), sameInstance(high));
+        assertThat(queue.poll(), sameInstance(early));
+        assertThat(queue.poll(), sameInstance(batch));
+        assertThat(queue.poll(), sameInstance(late));
+        assertThat(queue.poll(), sameInstance(noDeadline));
+        assertThat(queue.poll(), nullValue());
+    }
+
     private class TestDocumentProcessingTask extends DocumentProcessingTask {
         private TestDocumentProcessingTask(DocumentProtocol.Priority priority) {
-            super(new TestRequestContext(priority), null, null);
+            this(priority, Long.MAX_VALUE);
+        }
+        private TestDocumentProcessingTask(DocumentProtocol.Priority priority, long deadline) {
+            super(new TestRequestContext(priority, deadline), null, null);
         }
     }
 
     private class TestRequestContext implements RequestContext {
         private final DocumentProtocol.Priority priority;
+        private final long deadline;
 
-        public TestRequestContext(DocumentProtocol.Priority priority) {
+        public TestRequestContext(DocumentProtocol.Priority priority, long deadline) {
             this.priority = priority;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public long getDeadline() {
+            return deadline;
         }
 
         @Override
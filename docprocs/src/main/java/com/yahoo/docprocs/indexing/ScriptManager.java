@@ -6,7 +6,9 @@ import com.yahoo.document.DocumentTypeManager;
 import com.yahoo.language.Linguistics;
 import com.yahoo.log.LogLevel;
 import com.yahoo.vespa.configdefinition.IlscriptsConfig;
+import com.yahoo.vespa.indexinglanguage.ExpressionCompiler;
 import com.yahoo.vespa.indexinglanguage.ScriptParserContext;
+import com.yahoo.vespa.indexinglanguage.expressions.Expression;
 import com.yahoo.vespa.indexinglanguage.expressions.InputExpression;
 import com.yahoo.vespa.indexinglanguage.expressions.ScriptExpression;
 import com.yahoo.vespa.indexinglanguage.expressions.StatementExpression;
@@ -77,9 +79,11 @@ public class ScriptManager {
         ScriptParserContext parserContext = new ScriptParserContext(linguistics);
         parserContext.getAnnotatorConfig().setMaxTermOccurrences(config.maxtermoccurrences());
         parserContext.getAnnotatorConfig().setMaxTokenLength(config.fieldmatchmaxlength());
+        parserContext.getAnnotatorConfig().setParallelSegmentLength(config.parallelsegmentlength());
 
         for (IlscriptsConfig.Ilscript ilscript : config.ilscript()) {
-            InputExpression.FieldPathOptimizer fieldPathOptimizer = new InputExpression.FieldPathOptimizer(docTypeMgr.getDocumentType(ilscript.doctype()));
+            DocumentType documentType = docTypeMgr.getDocumentType(ilscript.doctype());
+            InputExpression.FieldPathOptimizer fieldPathOptimizer = new InputExpression.FieldPathOptimizer(documentType);
             List<StatementExpression> expressions = new ArrayList<>(ilscript.content().size());
             Map<String, DocumentScript> fieldScripts = new HashMap<>(ilscript.content().size());
             for (String content : ilscript.content()) {
@@ -111,7 +115,8 @@ public class ScriptManager {
 
             ScriptExpression script = new ScriptExpression(expressions);
             script.select(fieldPathOptimizer, fieldPathOptimizer);
-            fieldScripts.put(FULL, new DocumentScript(ilscript.doctype(), ilscript.docfield(),script));
+            Expression compiledScript = new ExpressionCompiler(documentType).convert(script);
+            fieldScripts.put(FULL, new DocumentScript(ilscript.doctype(), ilscript.docfield(), compiledScript));
             documentFieldScripts.put(ilscript.doctype(), Collections.unmodifiableMap(fieldScripts));
         }
         return Collections.unmodifiableMap(documentFieldScripts);
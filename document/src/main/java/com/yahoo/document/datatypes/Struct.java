@@ -9,6 +9,7 @@ import com.yahoo.document.PositionDataType;
 import com.yahoo.document.StructDataType;
 import com.yahoo.document.serialization.FieldReader;
 import com.yahoo.document.serialization.FieldWriter;
+import com.yahoo.document.serialization.LazyStructFields;
 import com.yahoo.document.serialization.XmlSerializationHelper;
 import com.yahoo.document.serialization.XmlStream;
 import com.yahoo.vespa.objects.Ids;
@@ -30,19 +31,71 @@ public class Struct extends StructuredFieldValue {
     private Hashlet<Integer, FieldValue> values = new Hashlet<>();
     private int [] order = null;
 
+    /** The values of fields which are not deserialized yet, or null if all values are deserialized */
+    private LazyStructFields lazyFields = null;
+
     private int version;
 
     private int [] getInOrder() {
         if (order == null) {
-            order = new int[values.size()];
+            order = new int[getFieldCount()];
             for (int i = 0; i < values.size(); i++) {
                 order[i] = values.key(i);
             }
+            for (int i = 0; lazyFields != null && i < lazyFields.size(); i++) {
+                order[values.size() + i] = lazyFields.fieldId(i);
+            }
             Arrays.sort(order);
         }
         return order;
     }
 
+    /** Deserializes the value of the given field if it is not deserialized yet */
+    private void deserializeLazyField(int fieldId) {
+        if (lazyFields == null || ! lazyFields.contains(fieldId)) return;
+
+        Field field = getDataType().getField(fieldId);
+        values.put(fieldId, lazyFields.deserialize(field));
+        if (lazyFields.isEmpty()) {
+            lazyFields = null;
+        }
+    }
+
+    /** Deserializes all fields which are not deserialized yet */
+    private void deserializeLazyFields() {
+        while (lazyFields != null) {
+            deserializeLazyField(lazyFields.fieldId(0));
+        }
+    }
+
+    /**
+     * Adds field values which are deserialized on first access. This is used by deserializers in lazy mode.
+     * Any current values of the same fields are replaced.
+     */
+    public void addLazyFields(LazyStructFields fields) {
+        if (fields.isEmpty()) return;
+
+        for (int i = 0; i < fields.size(); i++) {
+            if (values.getIndexOfKey(fields.fieldId(i)) >= 0) {
+                removeFieldValue(getDataType().getField(fields.fieldId(i)));
+            }
+        }
+        if (lazyFields == null) {
+            lazyFields = fields;
+        } else {
+            lazyFields.addAll(fields);
+        }
+        invalidateOrder();
+    }
+
+    /**
+     * Returns the values of fields which are not yet deserialized, or null if all are deserialized.
+     * Fields which are still serialized have never been accessed, so their serialized form can be reused as-is.
+     */
+    public LazyStructFields getLazyFields() {
+        return lazyFields;
+    }
+
     private void invalidateOrder() {
         order = null;
     }
@@ -89,6 +142,7 @@ public class Struct extends StructuredFieldValue {
     @Override
     public Struct clone() {
         Struct struct = (Struct) super.clone();
+        struct.lazyFields = lazyFields != null ? lazyFields.copy() : null;
         struct.values = new Hashlet<>();
         struct.values.reserve(values.size());
         for (int i = 0; i < values.size(); i++) {
@@ -100,6 +154,7 @@ public class Struct extends StructuredFieldValue {
     @Override
     public void clear() {
         values = new Hashlet<>();
+        lazyFields = null;
         invalidateOrder();
     }
 
@@ -127,6 +182,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public FieldValue getFieldValue(Field field) {
+        deserializeLazyField(field.getId());
         return values.get(field.getId());
     }
 
@@ -138,7 +194,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public int getFieldCount() {
-        return values.size();
+        return values.size() + (lazyFields != null ? lazyFields.size() : 0);
     }
 
     @Override
@@ -164,6 +220,12 @@ public class Struct extends StructuredFieldValue {
                     "Inconsistent field: " + field);
         }
 
+        if (lazyFields != null) {
+            lazyFields.remove(field.getId());
+            if (lazyFields.isEmpty()) {
+                lazyFields = null;
+            }
+        }
         int index = values.getIndexOfKey(field.getId());
         if (index == -1) {
             values.put(field.getId(), value);
@@ -175,6 +237,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public FieldValue removeFieldValue(Field field) {
+        deserializeLazyField(field.getId());
         FieldValue found = values.get(field.getId());
         if (found != null) {
             Hashlet<Integer, FieldValue> copy = new Hashlet<>();
@@ -223,11 +286,14 @@ public class Struct extends StructuredFieldValue {
         if (!super.equals(o)) return false;
 
         Struct struct = (Struct) o;
+        deserializeLazyFields();
+        struct.deserializeLazyFields();
         return values.equals(struct.values);
     }
 
     @Override
     public int hashCode() {
+        deserializeLazyFields();
         int result = super.hashCode();
         result = 31 * result + values.hashCode();
         return result;
@@ -240,7 +306,7 @@ public class Struct extends StructuredFieldValue {
         int [] increasing = getInOrder();
         for (int i = 0; i < increasing.length; i++) {
             int id = increasing[i];
-            retVal.append(getDataType().getField(id)).append("=").append(values.get(id)).append(", ");
+            retVal.append(getDataType().getField(id)).append("=").append(getFieldValue(getDataType().getField(id))).append(", ");
         }
         return retVal.toString();
     }
@@ -257,7 +323,7 @@ public class Struct extends StructuredFieldValue {
             return cmp;
         }
         Struct rhs = (Struct)obj;
-        cmp = values.size() - rhs.values.size();
+        cmp = getFieldCount() - rhs.getFieldCount();
         if (cmp != 0) {
             return cmp;
         }
@@ -298,6 +364,7 @@ public class Struct extends StructuredFieldValue {
         }
 
         public FieldValue getValue() {
+            deserializeLazyField(id);
             return values.get(id);
         }
 
@@ -306,6 +373,7 @@ public class Struct extends StructuredFieldValue {
                 throw new NullPointerException("Null values in Struct not supported, use removeFieldValue() to remove value instead.");
             }
 
+            deserializeLazyField(id);
             int index = values.getIndexOfKey(id);
             FieldValue retVal = null;
             if (index == -1) {
@@ -335,7 +403,7 @@ public class Struct extends StructuredFieldValue {
     private class FieldSet extends AbstractSet<Map.Entry<Field, FieldValue>> {
         @Override
         public int size() {
-            return values.size();
+            return getFieldCount();
         }
 
         @Override
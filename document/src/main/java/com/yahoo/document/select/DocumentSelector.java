@@ -7,6 +7,7 @@ import com.yahoo.document.select.parser.SelectInput;
 import com.yahoo.document.select.parser.SelectParser;
 import com.yahoo.document.select.parser.TokenMgrException;
 import com.yahoo.document.select.rule.ExpressionNode;
+import com.yahoo.document.select.rule.SelectionCompiler;
 
 /**
  * <p>A document selector is a filter which accepts or rejects documents
@@ -21,6 +22,9 @@ public class DocumentSelector {
 
     private ExpressionNode expression;
 
+    /** The compiled form of the expression, used to evaluate whether documents are accepted */
+    private final ExpressionNode compiled;
+
     /**
      * Creates a document selector from a Document Selection Language string
      *
@@ -40,6 +44,7 @@ public class DocumentSelector {
             throw (ParseException)t.initCause(e instanceof ParseException ?
                                               new ParseException(input.formatException(e.getMessage())) : e);
         }
+        compiled = SelectionCompiler.compile(expression);
     }
 
     /**
@@ -61,7 +66,7 @@ public class DocumentSelector {
      * @throws RuntimeException if the evaluation enters an illegal state
      */
     public Result accepts(Context context) {
-        return Result.toResult(expression.evaluate(context));
+        return Result.toResult(compiled.evaluate(context));
     }
 
     /**
@@ -7,6 +7,7 @@ import com.yahoo.document.Document;
 import com.yahoo.document.DocumentGet;
 import com.yahoo.document.DocumentPut;
 import com.yahoo.document.DocumentRemove;
+import com.yahoo.document.DocumentType;
 import com.yahoo.document.DocumentUpdate;
 import com.yahoo.document.FieldPath;
 import com.yahoo.document.datatypes.FieldPathIteratorHandler;
@@ -19,6 +20,7 @@ import com.yahoo.document.select.Visitor;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * @author Simon Thoresen Hult
@@ -132,9 +134,17 @@ public class AttributeNode implements ExpressionNode {
     }
 
     private static Object evaluateFieldPath(String fieldPth, Object value) {
+        return evaluateFieldPath(value, type -> type.buildFieldPath(fieldPth));
+    }
+
+    /**
+     * Evaluates a field path over the given value, using the given function to resolve the field path
+     * of the type of a document.
+     */
+    static Object evaluateFieldPath(Object value, Function<DocumentType, FieldPath> fieldPathResolver) {
         if (value instanceof DocumentPut) {
             final Document doc = ((DocumentPut) value).getDocument();
-            FieldPath fieldPath = doc.getDataType().buildFieldPath(fieldPth);
+            FieldPath fieldPath = fieldPathResolver.apply(doc.getDataType());
             IteratorHandler handler = new IteratorHandler();
             doc.iterateNested(fieldPath, 0, handler);
             if (handler.values.isEmpty()) {
@@ -151,7 +161,7 @@ public class AttributeNode implements ExpressionNode {
         return Result.FALSE;
     }
 
-    private static Object evaluateFunction(String function, Object value) {
+    static Object evaluateFunction(String function, Object value) {
         if (value instanceof VariableValueList) {
             VariableValueList retVal = new VariableValueList();
 
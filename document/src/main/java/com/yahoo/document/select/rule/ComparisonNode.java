@@ -26,6 +26,9 @@ public class ComparisonNode implements ExpressionNode {
     // The operator string for this.
     private String operator;
 
+    // The last regular expression compiled by this, reused as long as the operator and pattern string are unchanged.
+    private volatile CompiledPattern lastPattern = null;
+
     /**
      * Constructs a new comparison node.
      *
@@ -300,11 +303,25 @@ public class ComparisonNode implements ExpressionNode {
     private Result evaluateString(Object lhs, Object rhs) {
         String left = "" + lhs; // Allows null objects to evaluate to string.
         String right = "" + rhs;
-        if (operator.equals("=~")) {
-            return Result.toResult(Pattern.compile(right).matcher(left).find());
-        } else {
-            return Result.toResult(Pattern.compile(globToRegex(right)).matcher(left).find());
+        return Result.toResult(getPattern(right).matcher(left).find());
+    }
+
+    /**
+     * Returns the compiled regular expression of the given right hand side of a regex or glob comparison.
+     * This is typically a literal, so the compiled pattern of the last evaluation is reused when it matches.
+     *
+     * @param right The right hand side of the comparison.
+     * @return The compiled pattern.
+     */
+    private Pattern getPattern(String right) {
+        String operator = this.operator;
+        CompiledPattern pattern = lastPattern;
+        if (pattern == null || ! pattern.operator.equals(operator) || ! pattern.source.equals(right)) {
+            pattern = new CompiledPattern(operator, right,
+                                          Pattern.compile(operator.equals("=~") ? right : globToRegex(right)));
+            lastPattern = pattern;
         }
+        return pattern.pattern;
     }
 
     /**
@@ -363,4 +380,19 @@ public class ComparisonNode implements ExpressionNode {
     public String toString() {
         return lhs + " " + operator + " " + rhs;
     }
+
+    private static final class CompiledPattern {
+
+        private final String operator;
+        private final String source;
+        private final Pattern pattern;
+
+        CompiledPattern(String operator, String source, Pattern pattern) {
+            this.operator = operator;
+            this.source = source;
+            this.pattern = pattern;
+        }
+
+    }
+
 }
@@ -0,0 +1,144 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.select.rule;
+
+import com.yahoo.document.BucketIdFactory;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.FieldPath;
+import com.yahoo.document.select.BucketSet;
+import com.yahoo.document.select.Context;
+import com.yahoo.document.select.Visitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * An attribute node where the chain of field path and function items is split into steps once, and where
+ * each field path is resolved once per document type instead of once per evaluation.
+ *
+ * @author agent
+ */
+final class CompiledAttributeNode implements ExpressionNode {
+
+    private final AttributeNode source;
+    private final ExpressionNode value;
+    private final Step[] steps;
+
+    CompiledAttributeNode(AttributeNode source, ExpressionNode value) {
+        this.source = source;
+        this.value = value;
+        this.steps = toSteps(source);
+    }
+
+    @Override
+    public Object evaluate(Context context) {
+        Object obj = value.evaluate(context);
+        for (Step step : steps) {
+            if (obj == null) {
+                throw new IllegalStateException("Can not invoke '" + step.item + "' on '" + step.position +
+                                                "' because that term evaluated to null.");
+            }
+            obj = step.apply(obj);
+        }
+        return obj;
+    }
+
+    @Override
+    public BucketSet getBucketSet(BucketIdFactory factory) {
+        return source.getBucketSet(factory);
+    }
+
+    @Override
+    public void accept(Visitor visitor) {
+        source.accept(visitor);
+    }
+
+    @Override
+    public String toString() {
+        return source.toString();
+    }
+
+    /**
+     * Splits the items of the given node into steps, each consisting of a (possibly empty) field path followed by
+     * an optional function. The value can only become null at the start of a step, so this is where it is checked.
+     */
+    private static Step[] toSteps(AttributeNode node) {
+        List<Step> steps = new ArrayList<>();
+        StringBuilder pos = new StringBuilder(node.getValue().toString());
+        StringBuilder path = new StringBuilder();
+        AttributeNode.Item first = null;
+        String firstPosition = null;
+        for (AttributeNode.Item item : node.getItems()) {
+            if (first == null) {
+                first = item;
+                firstPosition = pos.toString();
+            }
+            if (item.getType() != AttributeNode.Item.FUNCTION) {
+                if (path.length() > 0) {
+                    path.append(".");
+                }
+                path.append(item.getName());
+            } else {
+                steps.add(new Step(first, firstPosition, path.length() > 0 ? path.toString() : null, item.getName()));
+                path = new StringBuilder();
+                first = null;
+            }
+            pos.append(".").append(item);
+        }
+        if (path.length() > 0) {
+            steps.add(new Step(first, firstPosition, path.toString(), null));
+        }
+        return steps.toArray(new Step[0]);
+    }
+
+    private static final class Step {
+
+        private final AttributeNode.Item item;
+        private final String position;
+        private final String fieldPath;
+        private final String function;
+        private final Function<DocumentType, FieldPath> resolver = this::resolve;
+        private volatile ResolvedFieldPath resolved = null;
+
+        Step(AttributeNode.Item item, String position, String fieldPath, String function) {
+            this.item = item;
+            this.position = position;
+            this.fieldPath = fieldPath;
+            this.function = function;
+        }
+
+        Object apply(Object obj) {
+            if (fieldPath != null) {
+                obj = AttributeNode.evaluateFieldPath(obj, resolver);
+            }
+            if (function != null) {
+                obj = AttributeNode.evaluateFunction(function, obj);
+            }
+            return obj;
+        }
+
+        private FieldPath resolve(DocumentType type) {
+            ResolvedFieldPath resolved = this.resolved;
+            if (resolved == null || resolved.type != type) {
+                resolved = new ResolvedFieldPath(type, type.buildFieldPath(fieldPath));
+                this.resolved = resolved;
+            }
+            return resolved.fieldPath;
+        }
+
+    }
+
+    /** A field path resolved for a particular document type */
+    private static final class ResolvedFieldPath {
+
+        private final DocumentType type;
+        private final FieldPath fieldPath;
+
+        ResolvedFieldPath(DocumentType type, FieldPath fieldPath) {
+            this.type = type;
+            this.fieldPath = fieldPath;
+        }
+
+    }
+
+}
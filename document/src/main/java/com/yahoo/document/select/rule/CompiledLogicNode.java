@@ -0,0 +1,87 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.select.rule;
+
+import com.yahoo.document.BucketIdFactory;
+import com.yahoo.document.select.BucketSet;
+import com.yahoo.document.select.Context;
+import com.yahoo.document.select.ResultList;
+import com.yahoo.document.select.Visitor;
+
+import java.util.List;
+
+/**
+ * A chain of operands combined by the same logical operator, evaluated left to right
+ * with the same short-circuiting as {@link LogicNode}, but without a stack of intermediate items.
+ *
+ * @author agent
+ */
+final class CompiledLogicNode implements ExpressionNode {
+
+    private final ExpressionNode source;
+    private final int operator;
+    private final ExpressionNode[] operands;
+
+    /**
+     * Creates a compiled chain of operands.
+     *
+     * @param source the node this is compiled from, used for visitation and string representation
+     * @param operator {@link LogicNode#AND} or {@link LogicNode#OR}
+     * @param operands the (non-empty) list of operands to combine
+     */
+    CompiledLogicNode(ExpressionNode source, int operator, List<ExpressionNode> operands) {
+        if (operator != LogicNode.AND && operator != LogicNode.OR)
+            throw new IllegalArgumentException("Logical operator " + operator + " not supported.");
+        if (operands.isEmpty())
+            throw new IllegalArgumentException("A logical expression must have at least one operand.");
+        this.source = source;
+        this.operator = operator;
+        this.operands = operands.toArray(new ExpressionNode[0]);
+    }
+
+    @Override
+    public Object evaluate(Context context) {
+        ResultList result = ResultList.toResultList(operands[0].evaluate(context));
+        for (int i = 1; i < operands.length; i++) {
+            LazyOperand next = new LazyOperand(operands[i], context);
+            result = operator == LogicNode.AND ? result.combineAND(next) : result.combineOR(next);
+        }
+        return result;
+    }
+
+    @Override
+    public BucketSet getBucketSet(BucketIdFactory factory) {
+        return source.getBucketSet(factory);
+    }
+
+    @Override
+    public void accept(Visitor visitor) {
+        source.accept(visitor);
+    }
+
+    @Override
+    public String toString() {
+        return source.toString();
+    }
+
+    private static final class LazyOperand implements ResultList.LazyResultList {
+
+        private final ExpressionNode node;
+        private final Context context;
+        private ResultList result = null;
+
+        LazyOperand(ExpressionNode node, Context context) {
+            this.node = node;
+            this.context = context;
+        }
+
+        @Override
+        public ResultList getResult() {
+            if (result == null) {
+                result = ResultList.toResultList(node.evaluate(context));
+            }
+            return result;
+        }
+
+    }
+
+}
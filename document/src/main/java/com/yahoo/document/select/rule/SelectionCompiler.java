@@ -0,0 +1,209 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.select.rule;
+
+import com.yahoo.document.select.Context;
+import com.yahoo.document.select.Result;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Compiles a parsed document selection into an equivalent expression tree which is cheaper to evaluate:
+ *
+ * <ul>
+ *     <li>Sub-expressions consisting only of literals are folded into a single literal.</li>
+ *     <li>Logical expressions are turned into flat chains of operands of the same operator, where
+ *         constant operands are removed (or decide the entire chain), and cheap operands which cannot fail
+ *         (document type checks and document id comparisons) are evaluated before the others.</li>
+ *     <li>Attribute field paths are split into steps once, and resolved once per document type.</li>
+ * </ul>
+ *
+ * The compiled expression evaluates to the same result as the source expression, except that it may avoid
+ * evaluating (and failing on) operands which cannot change the result. Operands are never reordered
+ * when the selection uses field path variables, as the variable bindings of the result would then change.
+ * The returned tree is meant for evaluation only; use the source expression for visitation and printing.
+ *
+ * @author agent
+ */
+public class SelectionCompiler {
+
+    /** The cost of operands which must stay in their original position relative to each other */
+    private static final int notReorderableCost = Integer.MAX_VALUE;
+
+    private final boolean reorder;
+
+    private SelectionCompiler(ExpressionNode root) {
+        this.reorder = ! usesVariables(root);
+    }
+
+    /** Returns a compiled version of the given expression. This never returns null. */
+    public static ExpressionNode compile(ExpressionNode expression) {
+        return new SelectionCompiler(expression).compileNode(expression);
+    }
+
+    private ExpressionNode compileNode(ExpressionNode node) {
+        if (node instanceof EmbracedNode)
+            return compileNode(((EmbracedNode)node).getNode());
+        if (node instanceof LogicNode)
+            return compileLogic((LogicNode)node);
+        if (node instanceof NegationNode)
+            return compileNegation((NegationNode)node);
+        if (node instanceof ComparisonNode)
+            return compileComparison((ComparisonNode)node);
+        if (node instanceof ArithmeticNode)
+            return compileArithmetic((ArithmeticNode)node);
+        if (node instanceof AttributeNode)
+            return new CompiledAttributeNode((AttributeNode)node, compileNode(((AttributeNode)node).getValue()));
+        return node; // Leaf nodes
+    }
+
+    private ExpressionNode compileLogic(LogicNode node) {
+        // AND has precedence over OR, so this is an OR chain of AND chains
+        List<ExpressionNode> disjunction = new ArrayList<>();
+        LogicNode conjunction = null;
+        for (LogicNode.NodeItem item : node.getItems()) {
+            if (item.getOperator() != LogicNode.AND) {
+                if (conjunction != null)
+                    disjunction.add(compileChain(conjunction, LogicNode.AND));
+                conjunction = new LogicNode();
+            }
+            conjunction.add(conjunction.getItems().isEmpty() ? null : "and", item.getNode());
+        }
+        if (conjunction != null)
+            disjunction.add(compileChain(conjunction, LogicNode.AND));
+
+        if (disjunction.size() == 1) return disjunction.get(0);
+        LogicNode source = new LogicNode();
+        for (ExpressionNode operand : disjunction)
+            source.add(source.getItems().isEmpty() ? null : "or", operand);
+        return compileOperands(source, LogicNode.OR, disjunction);
+    }
+
+    /** Compiles a chain where all operators are the given one */
+    private ExpressionNode compileChain(LogicNode chain, int operator) {
+        if (chain.getItems().size() == 1) return compileNode(chain.getItems().get(0).getNode());
+        List<ExpressionNode> operands = new ArrayList<>();
+        for (LogicNode.NodeItem item : chain.getItems())
+            operands.add(compileNode(item.getNode()));
+        return compileOperands(chain, operator, operands);
+    }
+
+    private ExpressionNode compileOperands(ExpressionNode source, int operator, List<ExpressionNode> operands) {
+        if ( ! reorder) return new CompiledLogicNode(source, operator, operands);
+
+        Result identity = operator == LogicNode.AND ? Result.TRUE : Result.FALSE;
+        Result absorbing = operator == LogicNode.AND ? Result.FALSE : Result.TRUE;
+        List<ExpressionNode> remaining = new ArrayList<>();
+        for (ExpressionNode operand : operands) {
+            if (operand instanceof LiteralNode) {
+                Result value = Result.toResult(((LiteralNode)operand).getValue());
+                if (value == absorbing) return new LiteralNode(absorbing);
+                if (value == identity) continue;
+            }
+            remaining.add(operand);
+        }
+        if (remaining.isEmpty()) return new LiteralNode(identity);
+
+        // Stable, so operands of equal cost keep their order, and expensive operands are never reordered
+        remaining.sort(Comparator.comparingInt(SelectionCompiler::reorderingCost));
+        return new CompiledLogicNode(source, operator, remaining);
+    }
+
+    private ExpressionNode compileNegation(NegationNode node) {
+        ExpressionNode operand = compileNode(node.getNode());
+        if (operand instanceof LiteralNode)
+            return new LiteralNode(Result.invert(Result.toResult(((LiteralNode)operand).getValue())));
+        return new NegationNode(operand);
+    }
+
+    private ExpressionNode compileComparison(ComparisonNode node) {
+        ExpressionNode lhs = compileNode(node.getLHS());
+        ExpressionNode rhs = compileNode(node.getRHS());
+        ComparisonNode compiled = new ComparisonNode(lhs, node.getOperator(), rhs);
+        if (lhs instanceof LiteralNode && rhs instanceof LiteralNode)
+            return fold(compiled, Result::toResult);
+        return compiled;
+    }
+
+    private ExpressionNode compileArithmetic(ArithmeticNode node) {
+        ArithmeticNode compiled = new ArithmeticNode();
+        boolean constant = true;
+        for (ArithmeticNode.NodeItem item : node.getItems()) {
+            ExpressionNode operand = compileNode(item.getNode());
+            constant &= operand instanceof LiteralNode;
+            compiled.add(item.getOperator() == ArithmeticNode.NOP ? null : compiled.operatorToString(item.getOperator()),
+                         operand);
+        }
+        return constant ? fold(compiled, Function.identity()) : compiled;
+    }
+
+    /**
+     * Evaluates the given node, which must not depend on the context, into a literal, or returns the node as-is
+     * if it fails, such that the failure happens when it is evaluated instead.
+     */
+    private static ExpressionNode fold(ExpressionNode node, Function<Object, Object> converter) {
+        try {
+            return new LiteralNode(converter.apply(node.evaluate(new Context(null))));
+        }
+        catch (RuntimeException e) {
+            return node;
+        }
+    }
+
+    /**
+     * Returns the cost of evaluating the given compiled operand if it is cheap and cannot fail,
+     * such that it may be moved in front of other operands, and {@link #notReorderableCost} otherwise.
+     */
+    private static int reorderingCost(ExpressionNode node) {
+        if (node instanceof LiteralNode) return 0;
+        if (node instanceof DocumentNode) return 1;
+        if (node instanceof NegationNode) return reorderingCost(((NegationNode)node).getNode());
+        if (node instanceof ComparisonNode) {
+            ComparisonNode comparison = (ComparisonNode)node;
+            if (isSafeIdComparison(comparison.getLHS(), comparison.getOperator(), comparison.getRHS()) ||
+                isSafeIdComparison(comparison.getRHS(), comparison.getOperator(), comparison.getLHS()))
+                return 2;
+        }
+        return notReorderableCost;
+    }
+
+    /** Returns whether this is an equality comparison of an id field which is always present with a literal */
+    private static boolean isSafeIdComparison(ExpressionNode id, String operator, ExpressionNode literal) {
+        if ( ! (id instanceof IdNode) || ! (literal instanceof LiteralNode)) return false;
+        if ( ! operator.equals("==") && ! operator.equals("!=")) return false;
+        String field = ((IdNode)id).getField();
+        return field == null ||
+               field.equalsIgnoreCase("scheme") ||
+               field.equalsIgnoreCase("namespace") ||
+               field.equalsIgnoreCase("specific");
+    }
+
+    /** Returns whether this expression contains any field path variables */
+    private static boolean usesVariables(ExpressionNode node) {
+        if (node instanceof EmbracedNode)
+            return usesVariables(((EmbracedNode)node).getNode());
+        if (node instanceof NegationNode)
+            return usesVariables(((NegationNode)node).getNode());
+        if (node instanceof ComparisonNode)
+            return usesVariables(((ComparisonNode)node).getLHS()) || usesVariables(((ComparisonNode)node).getRHS());
+        if (node instanceof LogicNode) {
+            for (LogicNode.NodeItem item : ((LogicNode)node).getItems())
+                if (usesVariables(item.getNode())) return true;
+            return false;
+        }
+        if (node instanceof ArithmeticNode) {
+            for (ArithmeticNode.NodeItem item : ((ArithmeticNode)node).getItems())
+                if (usesVariables(item.getNode())) return true;
+            return false;
+        }
+        if (node instanceof AttributeNode) {
+            for (AttributeNode.Item item : ((AttributeNode)node).getItems())
+                if (item.getName().contains("$")) return true;
+            return usesVariables(((AttributeNode)node).getValue());
+        }
+        return node instanceof VariableNode;
+    }
+
+}
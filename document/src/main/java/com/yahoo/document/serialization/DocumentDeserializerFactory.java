@@ -19,6 +19,20 @@ public class DocumentDeserializerFactory {
         return new VespaDocumentDeserializerHead(manager, buf);
     }
 
+    /**
+     * Creates a de-serializer for the current head document format which keeps the field values of documents
+     * serialized until each is first accessed. Fields which are never accessed are written back verbatim
+     * if the document is serialized again, which makes this suitable for documents which are passed through
+     * after looking at a few fields, e.g by routing or document processing.
+     * The message bus protocol does not use this; callers must opt in, and must not let multiple threads
+     * read a lazily deserialized document concurrently.
+     */
+    public static DocumentDeserializer createLazyHead(DocumentTypeManager manager, GrowableByteBuffer buf) {
+        VespaDocumentDeserializerHead deserializer = new VespaDocumentDeserializerHead(manager, buf);
+        deserializer.setLazyDocumentFields(true);
+        return deserializer;
+    }
+
     /**
      * Creates a de-serializer for the 6.x document format.
      * This format is an extension of the 4.2 format.
@@ -0,0 +1,138 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.Field;
+import com.yahoo.document.datatypes.FieldValue;
+import com.yahoo.io.GrowableByteBuffer;
+
+import java.util.Arrays;
+
+/**
+ * The still serialized values of fields in a struct which was read by a deserializer in lazy mode
+ * (see {@link DocumentDeserializerFactory#createLazyHead}). A field value is deserialized when it is first
+ * accessed, and fields which are never accessed are written back verbatim when the struct is serialized.
+ *
+ * This is owned by a single struct, and is not thread safe.
+ *
+ * @author agent
+ */
+public final class LazyStructFields {
+
+    private final DocumentTypeManager manager;
+
+    private int size = 0;
+    private int[] fieldIds;
+    private byte[][] buffers;
+    private int[] offsets;
+    private int[] lengths;
+
+    LazyStructFields(DocumentTypeManager manager, int capacity) {
+        this.manager = manager;
+        this.fieldIds = new int[capacity];
+        this.buffers = new byte[capacity][];
+        this.offsets = new int[capacity];
+        this.lengths = new int[capacity];
+    }
+
+    private LazyStructFields(LazyStructFields other) {
+        this.manager = other.manager;
+        this.size = other.size;
+        this.fieldIds = Arrays.copyOf(other.fieldIds, other.size);
+        this.buffers = Arrays.copyOf(other.buffers, other.size); // The buffers themselves are never modified
+        this.offsets = Arrays.copyOf(other.offsets, other.size);
+        this.lengths = Arrays.copyOf(other.lengths, other.size);
+    }
+
+    /** Adds the serialized value of a field, stored in the given slice of the given (uncompressed) buffer */
+    void add(int fieldId, byte[] buffer, int offset, int length) {
+        int index = indexOf(fieldId);
+        if (index < 0) {
+            if (size == fieldIds.length) grow();
+            index = size++;
+        }
+        fieldIds[index] = fieldId;
+        buffers[index] = buffer;
+        offsets[index] = offset;
+        lengths[index] = length;
+    }
+
+    /** Adds all the fields of the given instance to this, replacing any existing serialized values of the same fields */
+    public void addAll(LazyStructFields other) {
+        for (int i = 0; i < other.size; i++)
+            add(other.fieldIds[i], other.buffers[i], other.offsets[i], other.lengths[i]);
+    }
+
+    /** Returns the number of fields which are still serialized */
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    /** Returns the id of the field at the given index, where 0 &lt;= index &lt; size() */
+    public int fieldId(int index) { return fieldIds[index]; }
+
+    /** Returns whether the given field is still serialized in this */
+    public boolean contains(int fieldId) {
+        return indexOf(fieldId) >= 0;
+    }
+
+    /**
+     * Deserializes the value of the given field and removes it from this.
+     *
+     * @return the deserialized value, or null if this does not contain the field
+     */
+    public FieldValue deserialize(Field field) {
+        int index = indexOf(field.getId());
+        if (index < 0) return null;
+
+        VespaDocumentDeserializer6 deserializer =
+                new VespaDocumentDeserializerHead(manager, GrowableByteBuffer.wrap(buffers[index], offsets[index], lengths[index]));
+        FieldValue value = field.getDataType().createFieldValue();
+        value.deserialize(field, deserializer);
+        removeAt(index);
+        return value;
+    }
+
+    /** Removes the serialized value of the given field from this, if present */
+    public void remove(int fieldId) {
+        int index = indexOf(fieldId);
+        if (index >= 0)
+            removeAt(index);
+    }
+
+    /** Writes the serialized value of the given field verbatim to the given buffer, which must be present in this */
+    void write(int fieldId, GrowableByteBuffer buffer) {
+        int index = indexOf(fieldId);
+        if (index < 0) throw new IllegalArgumentException("Field " + fieldId + " is not serialized");
+        buffer.put(buffers[index], offsets[index], lengths[index]);
+    }
+
+    /** Returns a copy of this which can be modified independently of it */
+    public LazyStructFields copy() {
+        return new LazyStructFields(this);
+    }
+
+    private int indexOf(int fieldId) {
+        for (int i = 0; i < size; i++)
+            if (fieldIds[i] == fieldId) return i;
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        int last = --size;
+        fieldIds[index] = fieldIds[last];
+        buffers[index] = buffers[last];
+        offsets[index] = offsets[last];
+        lengths[index] = lengths[last];
+        buffers[last] = null;
+    }
+
+    private void grow() {
+        int capacity = Math.max(4, fieldIds.length * 2);
+        fieldIds = Arrays.copyOf(fieldIds, capacity);
+        buffers = Arrays.copyOf(buffers, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+    }
+
+}
@@ -87,6 +87,7 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
     private List<SpanNode> spanNodes;
     private List<Annotation> annotations;
     private int[] stringPositions;
+    private boolean lazyDocumentFields = false;
 
     VespaDocumentDeserializer6(DocumentTypeManager manager, GrowableByteBuffer buf) {
         super(buf);
@@ -94,6 +95,15 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
         this.version = Document.SERIALIZED_VERSION;
     }
 
+    /**
+     * Sets whether the field values of documents should be kept serialized until they are accessed.
+     * This saves deserialization, and serialization of untouched fields, when only a few fields of
+     * each document are accessed, at the cost of keeping the serialized data of untouched fields in memory.
+     */
+    void setLazyDocumentFields(boolean lazyDocumentFields) {
+        this.lazyDocumentFields = lazyDocumentFields;
+    }
+
     final public DocumentTypeManager getDocumentTypeManager() { return manager; }
 
     public void read(Document document) {
@@ -367,6 +377,11 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
         // set position in original buffer to after data
         position(position() + dataSize);
 
+        if (lazyDocumentFields && version == Document.SERIALIZED_VERSION) {
+            readHeaderBodyLazily(primary, alternate, fieldIdsAndLengths, destination);
+            return;
+        }
+
         // for a while: deserialize from this buffer instead:
         buf = GrowableByteBuffer.wrap(destination);
 
@@ -398,6 +413,27 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
         buf = bigBuf;
     }
 
+    /** Adds the fields in the given uncompressed data to the given structs without deserializing them */
+    private void readHeaderBodyLazily(Struct primary, Struct alternate,
+                                      List<Tuple2<Integer, Long>> fieldIdsAndLengths, byte[] data) {
+        LazyStructFields primaryFields = new LazyStructFields(manager, fieldIdsAndLengths.size());
+        LazyStructFields alternateFields = new LazyStructFields(manager, 0);
+        StructDataType priType = primary.getDataType();
+        StructDataType altType = alternate.getDataType();
+        int offset = 0;
+        for (Tuple2<Integer, Long> fieldIdAndLength : fieldIdsAndLengths) {
+            int length = fieldIdAndLength.second.intValue();
+            if (priType.getField(fieldIdAndLength.first) != null) {
+                primaryFields.add(fieldIdAndLength.first, data, offset, length);
+            } else if (altType.getField(fieldIdAndLength.first) != null) {
+                alternateFields.add(fieldIdAndLength.first, data, offset, length);
+            }
+            offset += length;
+        }
+        primary.addLazyFields(primaryFields);
+        alternate.addLazyFields(alternateFields);
+    }
+
     public void read(FieldBase field, StructuredFieldValue value) {
         throw new IllegalArgumentException("read not implemented yet.");
     }
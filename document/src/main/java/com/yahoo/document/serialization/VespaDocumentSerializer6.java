@@ -338,10 +338,15 @@ public class VespaDocumentSerializer6 extends BufferSerializer implements Docume
         List<Integer> fieldIds = new LinkedList<>();
         List<java.lang.Integer> fieldLengths = new LinkedList<>();
 
+        LazyStructFields lazyFields = s.getLazyFields();
         for (Map.Entry<Field, FieldValue> value : s.getFields()) {
 
             int startPos = buffer.position();
-            value.getValue().serialize(value.getKey(), this);
+            if (lazyFields != null && lazyFields.contains(value.getKey().getId())) {
+                lazyFields.write(value.getKey().getId(), buffer); // Never accessed, so it is unchanged
+            } else {
+                value.getValue().serialize(value.getKey(), this);
+            }
 
             fieldLengths.add(buffer.position() - startPos);
             fieldIds.add(value.getKey().getId());
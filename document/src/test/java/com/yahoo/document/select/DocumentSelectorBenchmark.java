@@ -0,0 +1,89 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.select;
+
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.select.parser.ParseException;
+import com.yahoo.document.select.parser.SelectInput;
+import com.yahoo.document.select.parser.SelectParser;
+import com.yahoo.document.select.rule.ExpressionNode;
+import com.yahoo.document.select.rule.SelectionCompiler;
+
+/**
+ * Compares evaluation of document selections by the parsed expression tree with evaluation of the compiled tree.
+ * Run manually.
+ *
+ * @author agent
+ */
+public class DocumentSelectorBenchmark {
+
+    private static final String[] selections = {
+            "music.year > 1990 and music.title = \"*love*\" and music",
+            "music.genre.lowercase() == \"rock\" or music.genre.lowercase() == \"pop\" or id.namespace == \"archive\"",
+            "(music.year - 1900) % 10 == 0 and music.title =~ \"^[A-M]\" and not book",
+            "music.year + 10 > 2000 and (music.title =~ \"(?i)night\" or true) and id.specific != \"excluded\""
+    };
+
+    public void run() throws ParseException {
+        DocumentPut[] documents = createDocuments(1000);
+        for (String selection : selections) {
+            ExpressionNode parsed = new SelectParser(new SelectInput(selection)).expression();
+            ExpressionNode compiled = SelectionCompiler.compile(parsed);
+            out("Selection: " + selection);
+            run("  interpreted", parsed, documents);
+            run("  compiled   ", compiled, documents);
+        }
+    }
+
+    private void run(String name, ExpressionNode expression, DocumentPut[] documents) {
+        long result = 0;
+        for (int i = 0; i < 100; i++) // Warm-up
+            result += evaluate(expression, documents);
+
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++)
+            result += evaluate(expression, documents);
+        long endTime = System.currentTimeMillis();
+        out(name + ": " + (endTime - startTime) + " ms for " + documents.length + " documents 1.000 times" +
+            " (ignore this: " + result + ")"); // Make sure we are not fooled by optimization by creating an observable result
+    }
+
+    private int evaluate(ExpressionNode expression, DocumentPut[] documents) {
+        int accepted = 0;
+        for (DocumentPut document : documents) {
+            if (Result.toResult(expression.evaluate(new Context(document))) == Result.TRUE)
+                accepted++;
+        }
+        return accepted;
+    }
+
+    private DocumentPut[] createDocuments(int count) {
+        DocumentType type = new DocumentType("music");
+        type.addField("title", DataType.STRING);
+        type.addField("genre", DataType.STRING);
+        type.addField("year", DataType.INT);
+        String[] genres = { "Rock", "Pop", "Jazz", "Classical" };
+        String[] words = { "Love", "night", "Highway", "blue", "Moon", "lovers" };
+
+        DocumentPut[] documents = new DocumentPut[count];
+        for (int i = 0; i < count; i++) {
+            Document document = new Document(type, "id:" + (i % 7 == 0 ? "archive" : "ns") + ":music::" + i);
+            document.setFieldValue("title", words[i % words.length] + " " + words[(i / 3) % words.length]);
+            document.setFieldValue("genre", genres[i % genres.length]);
+            document.setFieldValue("year", 1950 + i % 70);
+            documents[i] = new DocumentPut(document);
+        }
+        return documents;
+    }
+
+    private void out(String string) {
+        System.out.println(string);
+    }
+
+    public static void main(String[] args) throws ParseException {
+        new DocumentSelectorBenchmark().run();
+    }
+
+}
@@ -0,0 +1,119 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.select;
+
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentOperation;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentRemove;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentUpdate;
+import com.yahoo.document.datatypes.Array;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.select.parser.ParseException;
+import com.yahoo.document.select.parser.SelectInput;
+import com.yahoo.document.select.parser.SelectParser;
+import com.yahoo.document.select.rule.ExpressionNode;
+import com.yahoo.document.select.rule.LiteralNode;
+import com.yahoo.document.select.rule.SelectionCompiler;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class SelectionCompilerTestCase {
+
+    private static final DocumentType type = new DocumentType("test");
+    static {
+        type.addField("hint", DataType.INT);
+        type.addField("hstring", DataType.STRING);
+        type.addField("tags", DataType.getArray(DataType.STRING));
+    }
+
+    @Test
+    public void testConstantFolding() throws ParseException {
+        assertConstant(Result.TRUE, "1 + 2 * 3 > 6");
+        assertConstant(Result.FALSE, "\"foo\" =~ \"^b\"");
+        assertConstant(Result.TRUE, "\"foo\" = \"f*\"");
+        assertConstant(Result.FALSE, "not (3 > 2)");
+        assertConstant(Result.FALSE, "test.hint > 0 and (1 > 2)");
+        assertConstant(Result.TRUE, "test.hint > 0 or true");
+        assertConstant(Result.TRUE, "true and (2 > 1)");
+        assertConstant(Result.FALSE, "false or false");
+    }
+
+    @Test
+    public void testCompiledSelectionIsEquivalentToSource() throws ParseException {
+        List<String> selections = Arrays.asList("test",
+                                                "music",
+                                                "test.hint > 10 and test",
+                                                "test.hint > 10 and test and true",
+                                                "test and test.hint + 1 > 10 or id.namespace == \"other\"",
+                                                "test.hint == 5 or test.hint == 13 and id.specific == \"a\"",
+                                                "test.hstring = \"fo*\" and not music",
+                                                "test.hstring =~ \"^b.r$\" or test.hstring.lowercase() == \"foo\"",
+                                                "test.tags == \"b\" and id.scheme == \"id\"",
+                                                "test.tags[$x] == \"b\" and test",
+                                                "(test.hint > 10 or music) and (test.hstring == \"foo\" or false)");
+        List<DocumentOperation> operations = Arrays.asList(createPut("id:ns:test::a", 5, "foo", "a", "b"),
+                                                           createPut("id:ns:test::b", 13, "bar"),
+                                                           createPut("id:other:test::c", 24, "BAZ", "c"),
+                                                           new DocumentUpdate(type, new DocumentId("id:ns:test::a")),
+                                                           new DocumentRemove(new DocumentId("id:ns:test::a")),
+                                                           new DocumentRemove(new DocumentId("id:ns:music::a")));
+        for (String selection : selections) {
+            ExpressionNode source = parse(selection);
+            ExpressionNode compiled = SelectionCompiler.compile(source);
+            for (DocumentOperation operation : operations) {
+                assertEquals("Evaluating '" + selection + "' over " + operation.getId(),
+                             Result.toResult(source.evaluate(new Context(operation))),
+                             Result.toResult(compiled.evaluate(new Context(operation))));
+            }
+        }
+    }
+
+    @Test
+    public void testCompiledSelectionSkipsOperandsWhichCannotChangeTheResult() throws ParseException {
+        DocumentPut put = createPut("id:ns:test::a", 5, null);
+        // test.hstring.lowercase() fails on documents without hstring, but the document type check decides first
+        assertEquals(Result.FALSE, new DocumentSelector("test.hstring.lowercase() == \"foo\" and music").accepts(put));
+    }
+
+    @Test
+    public void testSelectorStringIsNotChangedByCompilation() throws ParseException {
+        String selection = "(test.hint > 1 + 2) and (music or true)";
+        assertEquals(selection, new DocumentSelector(selection).toString());
+    }
+
+    private static void assertConstant(Result expected, String selection) throws ParseException {
+        ExpressionNode compiled = SelectionCompiler.compile(parse(selection));
+        assertTrue("'" + selection + "' is compiled to a literal", compiled instanceof LiteralNode);
+        assertEquals(expected, Result.toResult(((LiteralNode)compiled).getValue()));
+    }
+
+    private static ExpressionNode parse(String selection) throws ParseException {
+        return new SelectParser(new SelectInput(selection)).expression();
+    }
+
+    private static DocumentPut createPut(String id, int hint, String hstring, String ... tags) {
+        Document document = new Document(type, id);
+        document.setFieldValue("hint", hint);
+        if (hstring != null)
+            document.setFieldValue("hstring", hstring);
+        if (tags.length > 0) {
+            Array<StringFieldValue> array = new Array<>(type.getField("tags").getDataType());
+            for (String tag : tags)
+                array.add(new StringFieldValue(tag));
+            document.setFieldValue("tags", array);
+        }
+        return new DocumentPut(document);
+    }
+
+}
@@ -20,6 +20,7 @@ import com.yahoo.io.GrowableByteBuffer;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -66,7 +67,7 @@ public class VespaDocumentSerializerTestCase {
         final StructDataType nestedType;
         final MapDataType mapType;
 
-        CompressionFixture() {
+        CompressionFixture(Field ... additionalFields) {
             docType = new DocumentType("map_of_structs");
             docType.getHeaderType().setCompressionConfig(new CompressionConfig(CompressionType.LZ4));
 
@@ -75,6 +76,8 @@ public class VespaDocumentSerializerTestCase {
 
             mapType = new MapDataType(DataType.STRING, nestedType);
             docType.addField(new Field("map", mapType));
+            for (Field field : additionalFields)
+                docType.addField(field);
 
             manager = new DocumentTypeManager();
             manager.registerDocumentType(docType);
@@ -129,4 +132,81 @@ public class VespaDocumentSerializerTestCase {
         // rounded up to 4096 bytes.
         assertTrue(buf.remaining() < 4096);
     }
+
+    private static Document lazilyDeserialized(GrowableByteBuffer buf, DocumentTypeManager manager) {
+        return new Document(DocumentDeserializerFactory.createLazyHead(manager, buf));
+    }
+
+    private static byte[] serializedBytes(Document doc) {
+        GrowableByteBuffer buf = CompressionFixture.asSerialized(doc);
+        byte[] bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+        return bytes;
+    }
+
+    private static Document createLazyFixtureDocument(CompressionFixture fixture) {
+        Document doc = new Document(fixture.docType, "id:foo:map_of_structs::flarn");
+        Struct nested = new Struct(fixture.nestedType);
+        nested.setFieldValue("str", new StringFieldValue(CompressionFixture.COMPRESSABLE_STRING));
+        MapFieldValue<StringFieldValue, Struct> map = new MapFieldValue<StringFieldValue, Struct>(fixture.mapType);
+        map.put(new StringFieldValue("foo"), nested);
+        map.put(new StringFieldValue("bar"), nested);
+        doc.setFieldValue("map", map);
+        doc.setFieldValue("title", new StringFieldValue("a title"));
+        return doc;
+    }
+
+    @Test
+    public void lazily_deserialized_document_is_equal_to_original() {
+        CompressionFixture fixture = new CompressionFixture(new Field("title", DataType.STRING));
+        Document doc = createLazyFixtureDocument(fixture);
+
+        Document lazy = lazilyDeserialized(CompressionFixture.asSerialized(doc), fixture.manager);
+        assertEquals(2, lazy.getFieldCount());
+        assertEquals(new StringFieldValue("a title"), lazy.getFieldValue("title"));
+        assertEquals(doc, lazy);
+    }
+
+    @Test
+    public void untouched_fields_of_lazily_deserialized_document_are_serialized_verbatim() {
+        CompressionFixture fixture = new CompressionFixture(new Field("title", DataType.STRING));
+        Document doc = createLazyFixtureDocument(fixture);
+        byte[] original = serializedBytes(doc);
+
+        Document lazy = lazilyDeserialized(GrowableByteBuffer.wrap(original), fixture.manager);
+        assertEquals(new StringFieldValue("a title"), lazy.getFieldValue("title")); // Deserializes only this field
+        assertArrayEquals(original, serializedBytes(lazy));
+        assertEquals(doc, fixture.roundtripSerialize(lazy));
+    }
+
+    @Test
+    public void modified_fields_of_lazily_deserialized_document_are_serialized() {
+        CompressionFixture fixture = new CompressionFixture(new Field("title", DataType.STRING));
+        Document doc = createLazyFixtureDocument(fixture);
+
+        Document lazy = lazilyDeserialized(CompressionFixture.asSerialized(doc), fixture.manager);
+        lazy.setFieldValue("title", new StringFieldValue("another title"));
+        Document result = fixture.roundtripSerialize(lazy);
+        assertEquals(new StringFieldValue("another title"), result.getFieldValue("title"));
+        assertEquals(doc.getFieldValue("map"), result.getFieldValue("map"));
+
+        lazy.removeFieldValue("map");
+        result = fixture.roundtripSerialize(lazy);
+        assertEquals(1, result.getFieldCount());
+        assertEquals(new StringFieldValue("another title"), result.getFieldValue("title"));
+    }
+
+    @Test
+    public void clone_of_lazily_deserialized_document_is_independent() {
+        CompressionFixture fixture = new CompressionFixture(new Field("title", DataType.STRING));
+        Document doc = createLazyFixtureDocument(fixture);
+
+        Document lazy = lazilyDeserialized(CompressionFixture.asSerialized(doc), fixture.manager);
+        Document clone = lazy.clone();
+        clone.setFieldValue("title", new StringFieldValue("another title"));
+        assertEquals(new StringFieldValue("a title"), lazy.getFieldValue("title"));
+        assertEquals(new StringFieldValue("another title"), clone.getFieldValue("title"));
+        assertEquals(doc.getFieldValue("map"), clone.getFieldValue("map"));
+    }
+
 }
@@ -7,6 +7,7 @@ import com.yahoo.document.select.BucketSelector;
 import com.yahoo.document.select.parser.ParseException;
 import com.yahoo.log.LogLevel;
 
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -76,17 +77,37 @@ public class VisitorIterator {
 
     /**
      * Provides a bucket source that encompasses the entire range available
-     * through a given value of distribution bits
+     * through a given value of distribution bits, or a single slice of it.
+     *
+     * Slice <i>k</i> of <i>n</i> covers the fraction [k/n, (k+1)/n) of the bucket
+     * key space, i.e. a contiguous range of bucket positions in iteration order.
+     * The number of slices is a power of two, so slice boundaries coincide with
+     * bucket boundaries, and slices are disjoint, whenever there are at least as
+     * many buckets as slices. With fewer buckets, e.g. before the distribution bit
+     * count of the cluster is known, each slice covers the one bucket containing it.
+     * A bucket is never left out by all slices, also not across distribution bit
+     * changes, since each slice scales its range along with its bucket cursor.
      */
     protected static class DistributionRangeBucketSource implements BucketSource {
         private boolean flushActive = false;
         private int distributionBitCount;
+        private final int slices;
+        private final int sliceId;
         // Wouldn't need this if this were a non-static class, but do it for
         // the sake of keeping things identical in Java and C++
         private ProgressToken progressToken;
 
         public DistributionRangeBucketSource(int distributionBitCount,
                                              ProgressToken progress) {
+            this(distributionBitCount, progress, 1, 0);
+        }
+
+        public DistributionRangeBucketSource(int distributionBitCount,
+                                             ProgressToken progress,
+                                             int slices, int sliceId) {
+            validateSlicing(slices, sliceId);
+            this.slices = slices;
+            this.sliceId = sliceId;
             progressToken = progress;
 
             // New progress token (could also be empty, in which this is a
@@ -143,6 +164,7 @@ public class VisitorIterator {
                 }
                 progressToken.setFinishedBucketCount(progressToken.getBucketCursor() -
                         progressToken.getPendingBucketCount());
+                skipToSlice();
             } else {
                 assert(progressToken.getBucketCursor() == progressToken.getTotalBucketCount());
             }
@@ -151,9 +173,11 @@ public class VisitorIterator {
         }
 
         protected boolean isLosslessResetPossible() {
-            // #pending must be equal to cursor, i.e. all buckets ever fetched
-            // must be located in the set of pending
-            if (progressToken.getPendingBucketCount() != progressToken.getBucketCursor()) {
+            // #pending must be equal to the number of buckets fetched from this
+            // slice, i.e. all buckets ever fetched must be located in the set of pending
+            int bits = progressToken.getDistributionBitCount();
+            long fetched = Math.min(progressToken.getBucketCursor(), getSliceEnd(bits)) - getSliceStart(bits);
+            if (progressToken.getPendingBucketCount() != fetched) {
                 return false;
             }
             // Check if all pending buckets have a progress of 0
@@ -203,6 +227,7 @@ public class VisitorIterator {
                 assert(p.getActiveBucketCount() == 0);
                 p.clearAllBuckets();
                 p.setBucketCursor(0);
+                p.setFinishedBucketCount(0);
                 return;
             }
 
@@ -292,7 +317,7 @@ public class VisitorIterator {
         }
 
         public boolean hasNext() {
-            return progressToken.getBucketCursor() < (1L << distributionBitCount);
+            return progressToken.getBucketCursor() < getSliceEnd(distributionBitCount);
         }
 
         public boolean shouldYield() {
@@ -315,6 +340,7 @@ public class VisitorIterator {
             long key = ProgressToken.makeNthBucketKey(currentPosition, distributionBitCount);
             ++currentPosition;
             progressToken.setBucketCursor(currentPosition);
+            skipToSlice();
             return new BucketProgress(
                     new BucketId(ProgressToken.keyToBucketId(key)),
                     new BucketId());
@@ -373,10 +399,46 @@ public class VisitorIterator {
                 progressToken.setDistributionBitCount(distributionBitCount);
 
                 correctTruncatedBucketCursor();
+                skipToSlice();
                 progressToken.setInconsistentState(false);
             }
         }
 
+        /** Returns the position of the first bucket overlapping this slice, at the given number of distribution bits */
+        long getSliceStart(int distributionBits) {
+            long total = 1L << distributionBits;
+            // Equal to floor(sliceId * total / slices), but without overflowing
+            return (total / slices) * sliceId + (total % slices) * sliceId / slices;
+        }
+
+        /** Returns the position after the last bucket overlapping this slice, at the given number of distribution bits */
+        long getSliceEnd(int distributionBits) {
+            long total = 1L << distributionBits;
+            // Equal to ceil((sliceId + 1) * total / slices), but without overflowing
+            return (total / slices) * (sliceId + 1) + ((total % slices) * (sliceId + 1) + slices - 1) / slices;
+        }
+
+        /**
+         * Moves the bucket cursor past the buckets which are not part of this slice, counting them
+         * as finished. This is a no-op when the entire bucket space is visited.
+         */
+        private void skipToSlice() {
+            long cursor = progressToken.getBucketCursor();
+            long skipTo = cursor;
+            if (cursor < getSliceStart(distributionBitCount))
+                skipTo = getSliceStart(distributionBitCount);
+            else if (cursor >= getSliceEnd(distributionBitCount))
+                skipTo = getTotalBucketCount();
+            if (skipTo <= cursor) return;
+
+            progressToken.setBucketCursor(skipTo);
+            progressToken.setFinishedBucketCount(progressToken.getFinishedBucketCount() + skipTo - cursor);
+            if (log.isLoggable(LogLevel.SPAM)) {
+                log.log(LogLevel.SPAM, "Skipped range bucket cursor from " + cursor + " to " + skipTo +
+                        " for slice " + sliceId + " of " + slices);
+            }
+        }
+
         public void update(BucketId superbucket, BucketId progress,
                            ProgressToken token) {
             progressToken.updateProgress(superbucket, progress);
@@ -754,6 +816,30 @@ public class VisitorIterator {
             BucketIdFactory idFactory,
             int distributionBitCount,
             ProgressToken progress) throws ParseException {
+        return createFromDocumentSelection(documentSelection, idFactory, distributionBitCount, progress, 1, 0);
+    }
+
+    /**
+     * Create a new <code>VisitorIterator</code> instance which iterates over a single slice of the
+     * buckets matched by the given document selection. Iterators created with the same selection and
+     * slice count, and every slice id from 0 to <code>slices - 1</code>, together cover all the matched
+     * buckets, so these may be run in parallel, each with its own {@link ProgressToken}.
+     * A progress token must always be resumed with the same slicing as it was created with.
+     *
+     * @param slices the number of slices to split the buckets into, which must be a power of two
+     * @param sliceId the slice to iterate over, in the range [0, slices)
+     * @see #createFromDocumentSelection(String, BucketIdFactory, int, ProgressToken)
+     * @throws ParseException if <code>documentSelection</code> fails to properly parse
+     * @throws IllegalArgumentException if the slice parameters are invalid
+     */
+    public static VisitorIterator createFromDocumentSelection(
+            String documentSelection,
+            BucketIdFactory idFactory,
+            int distributionBitCount,
+            ProgressToken progress,
+            int slices,
+            int sliceId) throws ParseException {
+        validateSlicing(slices, sliceId);
         BucketSelector bucketSel = new BucketSelector(idFactory);
         Set<BucketId> rawBuckets = bucketSel.getBucketList(documentSelection);
         BucketSource src;
@@ -763,15 +849,39 @@ public class VisitorIterator {
         // bit-based range source
         if (rawBuckets == null) {
             // Range source
-            src = new DistributionRangeBucketSource(distributionBitCount, progress);
+            src = new DistributionRangeBucketSource(distributionBitCount, progress, slices, sliceId);
         } else {
             // Explicit source
-            src = new ExplicitBucketSource(rawBuckets, distributionBitCount, progress);
+            src = new ExplicitBucketSource(selectSlice(rawBuckets, slices, sliceId), distributionBitCount, progress);
         }
 
         return new VisitorIterator(progress, src);
     }
 
+    /** Returns every slices'th bucket, in iteration order, starting at the sliceId'th */
+    private static Set<BucketId> selectSlice(Set<BucketId> buckets, int slices, int sliceId) {
+        if (slices == 1) return buckets;
+
+        TreeMap<ProgressToken.BucketKeyWrapper, BucketId> ordered = new TreeMap<>();
+        for (BucketId bucket : buckets)
+            ordered.put(new ProgressToken.BucketKeyWrapper(ProgressToken.bucketToKey(bucket.getId())), bucket);
+        Set<BucketId> slice = new HashSet<>();
+        int index = 0;
+        for (BucketId bucket : ordered.values()) {
+            if (index++ % slices == sliceId)
+                slice.add(bucket);
+        }
+        return slice;
+    }
+
+    /** Throws IllegalArgumentException unless slices is a power of two, and sliceId is in the range [0, slices) */
+    static void validateSlicing(int slices, int sliceId) {
+        if (slices < 1 || Integer.bitCount(slices) != 1)
+            throw new IllegalArgumentException("Number of slices must be a positive power of two, but was " + slices);
+        if (sliceId < 0 || sliceId >= slices)
+            throw new IllegalArgumentException("Slice id must be in the range [0, " + slices + "), but was " + sliceId);
+    }
+
     /**
      * Create a new <code>VisitorIterator</code> instance based on the given
      * set of buckets. This is supported for internal use only, and is required
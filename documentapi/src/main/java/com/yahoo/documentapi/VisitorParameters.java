@@ -49,6 +49,8 @@ public class VisitorParameters extends Parameters {
     private int traceLevel = 0;
     private ThrottlePolicy throttlePolicy = null;
     private boolean skipBucketsOnFatalErrors = false;
+    private int slices = 1;
+    private int sliceId = 0;
 
     // Advanced parameter, only for internal use.
     Set<BucketId> bucketsToVisit = null;
@@ -100,6 +102,7 @@ public class VisitorParameters extends Parameters {
                 params.getDynamicMaxBucketsIncreaseFactor());
         setTraceLevel(params.getTraceLevel());
         skipBucketsOnFatalErrors(params.skipBucketsOnFatalErrors());
+        slice(params.getSlices(), params.getSliceId());
     }
 
     // Get functions
@@ -330,6 +333,29 @@ public class VisitorParameters extends Parameters {
 
     public void skipBucketsOnFatalErrors(boolean skipBucketsOnFatalErrors) { this.skipBucketsOnFatalErrors = skipBucketsOnFatalErrors; }
 
+    /**
+     * Sets this to visit only a single slice of the buckets matched by the document selection.
+     * Visiting with the same parameters and each slice id from 0 to <code>slices - 1</code> covers
+     * the same documents as visiting without slicing, so slices may be visited in parallel, in separate
+     * sessions or processes, each with its own progress token which must be resumed with the same slicing.
+     * The number of slices must be a power of two, and visiting fails if the cluster has fewer buckets than slices,
+     * i.e. if 2<sup>distribution bits</sup> is less than the number of slices, as slices would then overlap.
+     *
+     * @param slices the number of slices to split the buckets into, a power of two, or 1 (the default) to visit all buckets
+     * @param sliceId the slice to visit, in the range [0, slices)
+     */
+    public void slice(int slices, int sliceId) {
+        VisitorIterator.validateSlicing(slices, sliceId);
+        this.slices = slices;
+        this.sliceId = sliceId;
+    }
+
+    /** @return The number of slices the buckets to visit are split into. */
+    public int getSlices() { return slices; }
+
+    /** @return The slice of the buckets to visit, in the range [0, getSlices()). */
+    public int getSliceId() { return sliceId; }
+
     /**
      * Set whether or not max buckets per visitor value should be dynamically
      * increased when using orderdoc and visitors do not return at least half
@@ -378,6 +404,9 @@ public class VisitorParameters extends Parameters {
         sb.append("  Max total hits:     ").append(maxTotalHits).append('\n');
         sb.append("  Max buckets:        ").append(maxBucketsPerVisitor).append('\n');
         sb.append("  Priority:           ").append(getPriority().toString()).append('\n');
+        if (slices > 1) {
+            sb.append("  Slice:              ").append(sliceId).append(" of ").append(slices).append('\n');
+        }
         if (dynamicallyIncreaseMaxBucketsPerVisitor) {
             sb.append("  Dynamically increasing max buckets per visitor\n");
             sb.append("  Increase factor:    ")
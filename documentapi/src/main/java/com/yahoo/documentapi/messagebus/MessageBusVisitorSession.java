@@ -572,7 +572,9 @@ public class MessageBusVisitorSession implements VisitorSession {
                     params.getDocumentSelection(),
                     bucketIdFactory,
                     1,
-                    progressToken);
+                    progressToken,
+                    params.getSlices(),
+                    params.getSliceId());
         } else {
             if (log.isLoggable(LogLevel.DEBUG)) {
                 log.log(LogLevel.DEBUG, "parameters specify explicit bucket set " +
@@ -1054,6 +1056,14 @@ public class MessageBusVisitorSession implements VisitorSession {
         try {
             ClusterState newState = new ClusterState(reply.getSystemState());
             int stateBits = newState.getDistributionBitCount();
+            if (params.getSlices() > (1L << stateBits)) {
+                // Slices would overlap, as each would have to visit a bucket containing other slices
+                String message = "Cannot visit " + params.getSlices() + " slices of a cluster with " + stateBits +
+                                 " distribution bits, as it has fewer buckets than slices";
+                reportVisitorError(message);
+                transitionTo(new StateDescription(State.FAILED, message));
+                return;
+            }
             if (stateBits != progress.getIterator().getDistributionBitCount()) {
                 log.log(LogLevel.DEBUG, "System state changed; now at " +
                         stateBits + " distribution bits");
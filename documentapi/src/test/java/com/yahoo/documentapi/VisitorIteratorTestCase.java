@@ -6,7 +6,9 @@ import com.yahoo.document.BucketId;
 import com.yahoo.document.BucketIdFactory;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -1557,6 +1559,125 @@ public class VisitorIteratorTestCase {
         assertTrue(caughtIt);
     }
 
+    @Test
+    public void testSlicedRangeIterationVisitsEachBucketOnce() throws ParseException {
+        BucketIdFactory idFactory = new BucketIdFactory();
+        for (int slices : new int[] { 1, 2, 4, 16 }) {
+            Set<BucketId> visited = new TreeSet<>();
+            for (int sliceId = 0; sliceId < slices; sliceId++) {
+                ProgressToken p = new ProgressToken();
+                VisitorIterator iter = VisitorIterator.createFromDocumentSelection(
+                        "id.group != \"yahoo.com\"", idFactory, 4, p, slices, sliceId);
+                int sliceSize = 0;
+                while (iter.hasNext()) {
+                    BucketId bucket = iter.getNext().getSuperbucket();
+                    assertTrue("Bucket " + bucket + " is visited once", visited.add(bucket));
+                    iter.update(bucket, ProgressToken.FINISHED_BUCKET);
+                    sliceSize++;
+                }
+                assertEquals(16 / slices, sliceSize);
+                assertTrue(iter.isDone());
+                assertTrue(p.isFinished());
+                assertEquals(0, iter.getRemainingBucketCount());
+            }
+            assertEquals(16, visited.size());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSliceCountWhichIsNotAPowerOfTwoIsRejected() throws ParseException {
+        VisitorIterator.createFromDocumentSelection(
+                "id.group != \"yahoo.com\"", new BucketIdFactory(), 4, new ProgressToken(), 3, 0);
+    }
+
+    @Test
+    public void testSlicedRangeIterationAcrossDistributionBitChanges() throws ParseException {
+        BucketIdFactory idFactory = new BucketIdFactory();
+        List<BucketId> visited = new ArrayList<>();
+        for (int sliceId = 0; sliceId < 4; sliceId++) {
+            ProgressToken p = new ProgressToken();
+            VisitorIterator iter = VisitorIterator.createFromDocumentSelection(
+                    "id.group != \"yahoo.com\"", idFactory, 4, p, 4, sliceId);
+            // Slices change distribution bits at different points of their progress
+            for (int i = 0; i < sliceId; i++) {
+                BucketId bucket = iter.getNext().getSuperbucket();
+                visited.add(bucket);
+                iter.update(bucket, ProgressToken.FINISHED_BUCKET);
+            }
+            iter.setDistributionBitCount(sliceId % 2 == 0 ? 6 : 3);
+            while (iter.hasNext()) {
+                BucketId bucket = iter.getNext().getSuperbucket();
+                visited.add(bucket);
+                iter.update(bucket, ProgressToken.FINISHED_BUCKET);
+            }
+            assertTrue(iter.isDone());
+            assertTrue(p.isFinished());
+        }
+        for (long i = 0; i < 64; i++) {
+            BucketId bucket = new BucketId(ProgressToken.keyToBucketId(ProgressToken.makeNthBucketKey(i, 6)));
+            assertTrue("Bucket " + bucket + " is visited", visited.stream().anyMatch(v -> v.contains(bucket)));
+        }
+    }
+
+    @Test
+    public void testSlicedRangeIterationCanBeResumed() throws ParseException {
+        BucketIdFactory idFactory = new BucketIdFactory();
+        Set<BucketId> visited = new TreeSet<>();
+        ProgressToken p = new ProgressToken();
+        VisitorIterator iter = VisitorIterator.createFromDocumentSelection(
+                "id.group != \"yahoo.com\"", idFactory, 8, p, 4, 2);
+        for (int i = 0; i < 10; i++) {
+            BucketId bucket = iter.getNext().getSuperbucket();
+            visited.add(bucket);
+            iter.update(bucket, ProgressToken.FINISHED_BUCKET);
+        }
+        BucketId unfinished = iter.getNext().getSuperbucket();
+        iter.update(unfinished, new BucketId());
+
+        ProgressToken resumed = new ProgressToken(p.serialize());
+        iter = VisitorIterator.createFromDocumentSelection(
+                "id.group != \"yahoo.com\"", idFactory, 8, resumed, 4, 2);
+        assertEquals(unfinished, iter.getNext().getSuperbucket());
+        iter.update(unfinished, ProgressToken.FINISHED_BUCKET);
+        visited.add(unfinished);
+        while (iter.hasNext()) {
+            BucketId bucket = iter.getNext().getSuperbucket();
+            assertTrue(visited.add(bucket));
+            iter.update(bucket, ProgressToken.FINISHED_BUCKET);
+        }
+        assertTrue(resumed.isFinished());
+        assertEquals(64, visited.size());
+        for (BucketId bucket : visited) {
+            long position = ProgressToken.bucketToKey(bucket.getId()) >>> (64 - 8);
+            assertTrue(position >= 128 && position < 192);
+        }
+    }
+
+    @Test
+    public void testSlicedExplicitIterationVisitsEachBucketOnce() throws ParseException {
+        BucketIdFactory idFactory = new BucketIdFactory();
+        String selection = "id.user == 1234 or id.user == 6789 or id.user == 8009 or id.user == 42 or id.user == 7";
+        Set<BucketId> visited = new TreeSet<>();
+        for (int sliceId = 0; sliceId < 2; sliceId++) {
+            ProgressToken p = new ProgressToken();
+            VisitorIterator iter = VisitorIterator.createFromDocumentSelection(selection, idFactory, 16, p, 2, sliceId);
+            assertEquals(sliceId == 0 ? 3 : 2, p.getTotalBucketCount());
+            while (iter.hasNext()) {
+                BucketId bucket = iter.getNext().getSuperbucket();
+                assertTrue(visited.add(bucket));
+                iter.update(bucket, ProgressToken.FINISHED_BUCKET);
+            }
+            assertTrue(p.isFinished());
+        }
+        assertEquals(5, visited.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSliceIdIsRejected() throws ParseException {
+        VisitorIterator.createFromDocumentSelection(
+                "id.group != \"yahoo.com\"", new BucketIdFactory(), 4, new ProgressToken(), 4, 4);
+    }
+
     @Test
     public void testBinaryProgressSerialization() {
         String input = "VDS bucket progress file (48.828125% completed)\n" +
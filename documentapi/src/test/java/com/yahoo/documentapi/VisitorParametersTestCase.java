@@ -37,6 +37,7 @@ public class VisitorParametersTestCase {
         params.setDynamicallyIncreaseMaxBucketsPerVisitor(true);
         params.setDynamicMaxBucketsIncreaseFactor(2.5f);
         params.skipBucketsOnFatalErrors(true);
+        params.slice(4, 3);
 
         return params;
     }
@@ -73,6 +74,8 @@ public class VisitorParametersTestCase {
         assertEquals(true, copy.getDynamicallyIncreaseMaxBucketsPerVisitor());
         assertEquals(2.5f, copy.getDynamicMaxBucketsIncreaseFactor(), 0.0001);
         assertEquals(true, copy.skipBucketsOnFatalErrors());
+        assertEquals(4, copy.getSlices());
+        assertEquals(3, copy.getSliceId());
 
         // Test local data handler copy
         VisitorParameters params2 = new VisitorParameters("");
@@ -105,6 +108,7 @@ public class VisitorParametersTestCase {
                 "  Max total hits:     777\n" +
                 "  Max buckets:        55\n" +
                 "  Priority:           HIGHEST\n" +
+                "  Slice:              3 of 4\n" +
                 "  Dynamically increasing max buckets per visitor\n" +
                 "  Increase factor:    2.5\n" +
                 ")",
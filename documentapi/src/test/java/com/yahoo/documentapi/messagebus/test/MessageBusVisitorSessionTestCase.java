@@ -857,6 +857,53 @@ public class MessageBusVisitorSessionTestCase {
         assertTrue(visitorSession.isDone());
     }
 
+    @Test
+    public void testVisitSlice() {
+        MockSender sender = new MockSender();
+        MockReceiver receiver = new MockReceiver();
+        sender.setMaxPending(1000);
+        MockAsyncTaskExecutor executor = new MockAsyncTaskExecutor();
+        VisitorParameters params = createVisitorParameters("");
+        params.slice(2, 1);
+        MessageBusVisitorSession visitorSession = createVisitorSession(
+                sender, receiver, executor, params);
+
+        visitorSession.start();
+        executor.expectAndProcessTasks(1);
+        // Only the second half of the bucket space belongs to this slice
+        assertEquals(1, sender.getMessageCount());
+        assertEquals("CreateVisitorMessage(buckets=[\n" +
+                "BucketId(0x0400000000000001)\n" +
+                "BucketId(0x0000000000000000)\n" +
+                "]\n)",
+                replyToCreateVisitor(sender, ProgressToken.FINISHED_BUCKET));
+
+        executor.expectAndProcessTasks(1); // Reply task
+        executor.expectNoTasks(); // Visiting complete
+
+        assertTrue(visitorSession.isDone());
+    }
+
+    @Test
+    public void testFailVisitingWhenClusterHasFewerBucketsThanSlices() {
+        VisitorParameters params = createVisitorParameters("");
+        params.slice(4, 1);
+        MockComponents mc = createDefaultMock(params);
+        mc.visitorSession.start();
+        mc.controlHandler.resetMock();
+        mc.executor.expectAndProcessTasks(1);
+        replyWrongDistributionToCreateVisitor(mc.sender, "version:2 storage:100 distributor:100 bits:1");
+        mc.executor.expectAndProcessTasks(1); // WDR reply
+        mc.executor.expectNoTasks();
+        assertEquals(0, mc.sender.getMessageCount());
+        assertTrue(mc.visitorSession.isDone());
+
+        String message = "Cannot visit 4 slices of a cluster with 1 distribution bits, as it has fewer buckets than slices";
+        assertEquals("onVisitorError : " + message + "\n" +
+                     "onDone : FAILURE - '" + message + "'\n",
+                     mc.controlHandler.toString());
+    }
+
     @Test
     public void testWrongDistributionAdjustsDistributionBits() {
         MockSender sender = new MockSender();
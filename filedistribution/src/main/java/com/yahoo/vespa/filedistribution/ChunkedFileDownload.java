@@ -0,0 +1,280 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.config.FileReference;
+import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.Int64Value;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.log.LogLevel;
+import com.yahoo.vespa.config.Connection;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Downloads a file reference in chunks from several sources in parallel, each of which is a config server
+ * or another host which has the file reference and serves it with a {@link FileChunkServer}.
+ * The size and hash of the file are decided by the first source, and only other sources which agree with it
+ * are used. The hash of the assembled file is verified before it is moved into the download directory.
+ *
+ * Chunks which fail to download are retried from other sources. Sources which fail repeatedly are not
+ * used for the rest of the download, and the download fails if no sources remain.
+ *
+ * @author agent
+ */
+class ChunkedFileDownload {
+
+    private final static Logger log = Logger.getLogger(ChunkedFileDownload.class.getName());
+
+    static final int defaultChunkSize = 1024 * 1024;
+    private static final double metaTimeout = 10;
+    private static final double chunkTimeout = 60;
+    private static final int maxFailuresPerSource = 3;
+
+    private final FileReference reference;
+    private final List<Connection> sources;
+    private final File downloadDirectory;
+    private final File tmpDirectory;
+    private final int chunkSize;
+    private final int parallelism;
+    private final BiConsumer<FileReference, Double> progress;
+    private final Set<Connection> failedSources = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param sources the sources to download from, of which the first decides the content to download
+     * @param progress receives the fraction downloaded so far after each chunk
+     */
+    ChunkedFileDownload(FileReference reference, List<Connection> sources, File downloadDirectory, File tmpDirectory,
+                        int chunkSize, int parallelism, BiConsumer<FileReference, Double> progress) {
+        if (chunkSize <= 0 || chunkSize > FileChunkServer.maxChunkSize)
+            throw new IllegalArgumentException("Chunk size must be between 1 and " + FileChunkServer.maxChunkSize + ", not " + chunkSize);
+        this.reference = reference;
+        this.sources = List.copyOf(sources);
+        this.downloadDirectory = downloadDirectory;
+        this.tmpDirectory = tmpDirectory;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.progress = progress;
+    }
+
+    /**
+     * Downloads the file reference, and returns the downloaded file, or empty if it could not be downloaded
+     * this way before the given deadline
+     */
+    Optional<File> download(Instant deadline) {
+        if ( ! Instant.now().isBefore(deadline)) return Optional.empty();
+        List<Optional<Meta>> metas = metasFrom(sources, deadline);
+        Optional<Meta> meta = metas.get(0);
+        if (meta.isEmpty()) {
+            failedSources.add(sources.get(0));
+            return Optional.empty();
+        }
+        List<Source> usable = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < sources.size(); i++) {
+            Connection connection = sources.get(i);
+            if (metas.get(i).isEmpty())
+                failedSources.add(connection);
+            else if (meta.equals(metas.get(i)))
+                usable.add(new Source(connection, deadline));
+            else
+                log.log(LogLevel.INFO, "Not downloading '" + reference.value() + "' from " + connection.getAddress() +
+                                       " as its content differs from that of " + sources.get(0).getAddress());
+        }
+        return download(meta.get(), usable, deadline);
+    }
+
+    /** Returns the sources which did not have the file reference, or failed while downloading it */
+    List<Connection> failedSources() {
+        return List.copyOf(failedSources);
+    }
+
+    private Optional<File> download(Meta meta, List<Source> usable, Instant deadline) {
+        FileReceiver.Session session = new FileReceiver.Session(downloadDirectory, tmpDirectory, 0, reference,
+                                                                FileReferenceData.Type.file, meta.filename, meta.size);
+        Queue<Long> chunks = new ConcurrentLinkedQueue<>();
+        for (long offset = 0; offset < meta.size; offset += chunkSize)
+            chunks.add(offset);
+        AtomicLong received = new AtomicLong();
+        AtomicInteger nextSource = new AtomicInteger();
+
+        int workers = Math.max(1, Math.min(Math.min(parallelism, usable.size() * 2), chunks.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(workers, new DaemonThreadFactory("chunked download of " + reference.value()));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++)
+                futures.add(executor.submit(() -> downloadChunks(meta, session, chunks, usable, nextSource, received, deadline)));
+            for (Future<?> future : futures)
+                future.get();
+
+            if (received.get() != meta.size)
+                throw new IllegalStateException("Downloaded " + received.get() + " of " + meta.size +
+                                                " bytes before all sources failed or the deadline passed");
+            File file = session.close(meta.xxhash);
+            log.log(LogLevel.DEBUG, () -> "Downloaded '" + reference.value() + "' of " + meta.size + " bytes in chunks from " +
+                                          usable.stream().map(Source::toString).collect(Collectors.joining(", ")));
+            return Optional.of(file);
+        }
+        catch (Exception e) {
+            log.log(LogLevel.INFO, "Failed downloading '" + reference.value() + "' in chunks: " + e.getMessage());
+            session.abort();
+            return Optional.empty();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void downloadChunks(Meta meta, FileReceiver.Session session, Queue<Long> chunks, List<Source> usable,
+                                AtomicInteger nextSource, AtomicLong received, Instant deadline) {
+        Long offset;
+        while ((offset = chunks.poll()) != null) {
+            Source[] current = usable.toArray(new Source[0]); // as other workers may remove sources concurrently
+            if (current.length == 0 || ! Instant.now().isBefore(deadline)) return;
+            Source source = current[Math.floorMod(nextSource.getAndIncrement(), current.length)];
+            int length = (int) Math.min(chunkSize, meta.size - offset);
+            Optional<byte[]> chunk = source.chunk(offset, length);
+            if (chunk.isPresent()) {
+                session.addPartAt(offset, chunk.get());
+                progress.accept(reference, (double) received.addAndGet(length) / meta.size);
+            }
+            else {
+                chunks.add(offset);
+                if ( ! Instant.now().isBefore(deadline)) return; // which is not the fault of the source
+                if (source.failures.incrementAndGet() >= maxFailuresPerSource && usable.remove(source)) {
+                    log.log(LogLevel.INFO, "Not downloading more chunks of '" + reference.value() + "' from " + source);
+                    failedSources.add(source.connection);
+                }
+            }
+        }
+    }
+
+    /** Returns the metadata of the file reference from each of the given sources, in parallel */
+    private List<Optional<Meta>> metasFrom(List<Connection> sources, Instant deadline) {
+        ExecutorService executor = Executors.newFixedThreadPool(sources.size(), new DaemonThreadFactory("file meta of " + reference.value()));
+        try {
+            List<Future<Optional<Meta>>> futures = new ArrayList<>();
+            for (Connection connection : sources)
+                futures.add(executor.submit(() -> metaFrom(connection, deadline)));
+            List<Optional<Meta>> metas = new ArrayList<>();
+            for (Future<Optional<Meta>> future : futures) {
+                try {
+                    metas.add(future.get());
+                }
+                catch (Exception e) {
+                    metas.add(Optional.empty());
+                }
+            }
+            return metas;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Optional<Meta> metaFrom(Connection connection, Instant deadline) {
+        double timeout = timeoutBefore(deadline, metaTimeout);
+        if (timeout <= 0) return Optional.empty();
+        Request request = new Request(FileChunkServer.GET_META_METHOD);
+        request.parameters().add(new StringValue(reference.value()));
+        connection.invokeSync(request, timeout);
+        if (request.isError() || ! request.checkReturnTypes("issll") || request.returnValues().get(0).asInt32() != 0) {
+            log.log(LogLevel.DEBUG, () -> "'" + reference.value() + "' is not available in chunks from " + connection.getAddress() +
+                                          (request.isError() ? ": " + request.errorMessage() : ""));
+            return Optional.empty();
+        }
+        return Optional.of(new Meta(request.returnValues().get(1).asString(),
+                                    request.returnValues().get(3).asInt64(),
+                                    request.returnValues().get(4).asInt64()));
+    }
+
+    /** Returns the given timeout in seconds, or the time left until the given deadline if that is less */
+    private static double timeoutBefore(Instant deadline, double timeout) {
+        return Math.min(timeout, Duration.between(Instant.now(), deadline).toMillis() / 1000.0);
+    }
+
+    /** A source of chunks, with the number of bytes it has provided, and the number of times it has failed */
+    private class Source {
+
+        private final Connection connection;
+        private final Instant deadline;
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicInteger failures = new AtomicInteger();
+
+        Source(Connection connection, Instant deadline) {
+            this.connection = connection;
+            this.deadline = deadline;
+        }
+
+        Optional<byte[]> chunk(long offset, int length) {
+            double timeout = timeoutBefore(deadline, chunkTimeout);
+            if (timeout <= 0) return Optional.empty();
+            Request request = new Request(FileChunkServer.GET_CHUNK_METHOD);
+            request.parameters().add(new StringValue(reference.value()));
+            request.parameters().add(new Int64Value(offset));
+            request.parameters().add(new Int32Value(length));
+            connection.invokeSync(request, timeout);
+            if (request.isError() || ! request.checkReturnTypes("ix") || request.returnValues().get(0).asInt32() != 0
+                || request.returnValues().get(1).asData().length != length) {
+                log.log(LogLevel.DEBUG, () -> "Failed getting chunk at " + offset + " of '" + reference.value() + "' from " +
+                                              connection.getAddress() + (request.isError() ? ": " + request.errorMessage() : ""));
+                return Optional.empty();
+            }
+            bytes.addAndGet(length);
+            return Optional.of(request.returnValues().get(1).asData());
+        }
+
+        @Override
+        public String toString() {
+            return connection.getAddress() + " (" + bytes.get() + " bytes)";
+        }
+
+    }
+
+    private static class Meta {
+
+        final String filename;
+        final long size;
+        final long xxhash;
+
+        Meta(String filename, long size, long xxhash) {
+            this.filename = filename;
+            this.size = size;
+            this.xxhash = xxhash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof Meta)) return false;
+            Meta other = (Meta) o;
+            return filename.equals(other.filename) && size == other.size && xxhash == other.xxhash;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filename, size, xxhash);
+        }
+
+    }
+
+}
@@ -0,0 +1,193 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.config.FileReference;
+import com.yahoo.jrt.DataValue;
+import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.Int64Value;
+import com.yahoo.jrt.Method;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.jrt.Supervisor;
+import com.yahoo.log.LogLevel;
+import net.jpountz.xxhash.StreamingXXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Serves metadata and arbitrary chunks of the file references held by this host, such that other hosts
+ * can download a file reference from several hosts in parallel, see {@link ChunkedFileDownload}.
+ * Only file references which are plain files are served, as the content of compressed file references
+ * is created when serving them and is therefore not the same on all hosts.
+ *
+ * @author agent
+ */
+public class FileChunkServer {
+
+    private final static Logger log = Logger.getLogger(FileChunkServer.class.getName());
+
+    public final static String GET_META_METHOD = "filedistribution.getFileMeta";
+    public final static String GET_CHUNK_METHOD = "filedistribution.getFileChunk";
+    static final int maxChunkSize = 8 * 1024 * 1024;
+    private static final int maxMetas = 1000;
+
+    private final Function<FileReference, Optional<File>> files;
+    private final Function<Request, CompletableFuture<Void>> authorizer;
+    private final ExecutorService executor =
+            Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()),
+                                         new DaemonThreadFactory("file chunk server"));
+    /** The metadata of the most recently served files, which is valid as long as the file is unchanged */
+    private final Map<File, FileMeta> metas = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, FileMeta> eldest) {
+            return size() > maxMetas;
+        }
+    });
+
+    /**
+     * Creates a file chunk server and registers its methods in the given supervisor
+     *
+     * @param files returns the plain file of a file reference, or empty if this does not have it as a plain file
+     * @param authorizer returns a future which completes normally if the given request should be served, and which
+     *                   otherwise fails, after returning the request with an error
+     */
+    public FileChunkServer(Supervisor supervisor, Function<FileReference, Optional<File>> files,
+                           Function<Request, CompletableFuture<Void>> authorizer) {
+        this.files = files;
+        this.authorizer = authorizer;
+        supervisor.addMethod(new Method(GET_META_METHOD, "s", "issll", this::getFileMeta)
+                                     .methodDesc("get metadata of a file reference which can be downloaded in chunks")
+                                     .paramDesc(0, "filereference", "file reference")
+                                     .returnDesc(0, "ret", "0 if success, 1 if the file reference is not available")
+                                     .returnDesc(1, "filename", "filename")
+                                     .returnDesc(2, "type", "'file'")
+                                     .returnDesc(3, "filelength", "length in bytes of file")
+                                     .returnDesc(4, "xxhash", "xxhash64 of the file content"));
+        supervisor.addMethod(new Method(GET_CHUNK_METHOD, "sli", "ix", this::getFileChunk)
+                                     .methodDesc("get a chunk of a file reference")
+                                     .paramDesc(0, "filereference", "file reference")
+                                     .paramDesc(1, "offset", "offset in bytes of the chunk in the file")
+                                     .paramDesc(2, "length", "length in bytes of the chunk, at most 8Mb")
+                                     .returnDesc(0, "ret", "0 if success, 1 if the file reference is not available")
+                                     .returnDesc(1, "data", "bytes in this chunk"));
+    }
+
+    /** Returns a function giving the plain file of file references stored in the given directory */
+    public static Function<FileReference, Optional<File>> filesIn(File directory) {
+        return reference -> {
+            File[] files = new File(directory, reference.value()).listFiles();
+            if (files == null || files.length != 1 || ! files[0].isFile()) return Optional.empty();
+            return Optional.of(files[0]);
+        };
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void getFileMeta(Request request) {
+        request.detach();
+        authorizer.apply(request).thenRunAsync(() -> {
+            FileReference reference = new FileReference(request.parameters().get(0).asString());
+            Optional<FileMeta> meta = files.apply(reference).flatMap(this::metaOf);
+            request.returnValues().add(new Int32Value(meta.isPresent() ? 0 : 1));
+            request.returnValues().add(new StringValue(meta.map(m -> m.filename).orElse("")));
+            request.returnValues().add(new StringValue(FileReferenceData.Type.file.name()));
+            request.returnValues().add(new Int64Value(meta.map(m -> m.size).orElse(0L)));
+            request.returnValues().add(new Int64Value(meta.map(m -> m.xxhash).orElse(0L)));
+            request.returnRequest();
+        }, executor);
+    }
+
+    private void getFileChunk(Request request) {
+        request.detach();
+        authorizer.apply(request).thenRunAsync(() -> {
+            FileReference reference = new FileReference(request.parameters().get(0).asString());
+            long offset = request.parameters().get(1).asInt64();
+            int length = request.parameters().get(2).asInt32();
+            Optional<byte[]> chunk = files.apply(reference).flatMap(file -> read(file, offset, length));
+            request.returnValues().add(new Int32Value(chunk.isPresent() ? 0 : 1));
+            request.returnValues().add(new DataValue(chunk.orElse(new byte[0])));
+            request.returnRequest();
+        }, executor);
+    }
+
+    private Optional<FileMeta> metaOf(File file) {
+        FileMeta meta = metas.get(file);
+        if (meta != null && meta.isValidFor(file)) return Optional.of(meta);
+        try {
+            meta = new FileMeta(file);
+            metas.put(file, meta);
+            return Optional.of(meta);
+        }
+        catch (IOException e) {
+            log.log(LogLevel.WARNING, "Failed reading '" + file + "': " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<byte[]> read(File file, long offset, int length) {
+        if (offset < 0 || length < 0 || length > maxChunkSize) return Optional.empty();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (offset + length > channel.size()) return Optional.empty();
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) return Optional.empty();
+            }
+            return Optional.of(buffer.array());
+        }
+        catch (IOException e) {
+            log.log(LogLevel.WARNING, "Failed reading chunk of '" + file + "': " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static class FileMeta {
+
+        final String filename;
+        final long size;
+        final long lastModified;
+        final long xxhash;
+
+        FileMeta(File file) throws IOException {
+            this.filename = file.getName();
+            this.size = file.length();
+            this.lastModified = file.lastModified();
+            this.xxhash = xxhashOf(file);
+        }
+
+        boolean isValidFor(File file) {
+            return size == file.length() && lastModified == file.lastModified();
+        }
+
+    }
+
+    /** Returns the xxhash64 of the content of the given file, as used when transferring files */
+    static long xxhashOf(File file) throws IOException {
+        StreamingXXHash64 hasher = XXHashFactory.fastestInstance().newStreamingHash64(0);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(0x100000);
+            while (channel.read(buffer) > 0) {
+                hasher.update(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+        }
+        return hasher.getValue();
+    }
+
+}
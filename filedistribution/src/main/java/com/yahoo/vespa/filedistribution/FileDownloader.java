@@ -37,10 +37,24 @@ public class FileDownloader {
         this(connectionPool, defaultDownloadDirectory , defaultDownloadDirectory , Duration.ofMinutes(15), Duration.ofSeconds(10));
     }
 
+    /**
+     * Creates a file downloader which also downloads file references from other hosts, and tells the config server
+     * that other hosts can download from this, at the given spec, once it has downloaded a file reference
+     */
+    public FileDownloader(ConnectionPool connectionPool, String peerSpec) {
+        this(connectionPool, defaultDownloadDirectory , defaultDownloadDirectory , Duration.ofMinutes(15), Duration.ofSeconds(10), Optional.of(peerSpec));
+    }
+
     FileDownloader(ConnectionPool connectionPool, File downloadDirectory, File tmpDirectory, Duration timeout, Duration sleepBetweenRetries) {
+        this(connectionPool, downloadDirectory, tmpDirectory, timeout, sleepBetweenRetries, Optional.empty());
+    }
+
+    FileDownloader(ConnectionPool connectionPool, File downloadDirectory, File tmpDirectory, Duration timeout,
+                   Duration sleepBetweenRetries, Optional<String> peerSpec) {
         this.downloadDirectory = downloadDirectory;
         this.timeout = timeout;
-        this.fileReferenceDownloader = new FileReferenceDownloader(downloadDirectory, tmpDirectory, connectionPool, timeout, sleepBetweenRetries);
+        this.fileReferenceDownloader = new FileReferenceDownloader(downloadDirectory, tmpDirectory, connectionPool,
+                                                                   timeout, sleepBetweenRetries, peerSpec);
     }
 
     public Optional<File> getFile(FileReference fileReference) {
@@ -14,6 +14,8 @@ import net.jpountz.xxhash.XXHashFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
@@ -57,6 +59,8 @@ public class FileReceiver {
         private long currentFileSize;
         private long currentPartId;
         private long currentHash;
+        /** Whether parts have been written at given offsets, such that the hash must be computed from the file */
+        private boolean positional = false;
         private final File fileReferenceDir;
         private final File tmpDir;
         private final File inprogressFile;
@@ -105,8 +109,43 @@ public class FileReceiver {
             hasher.update(part, 0, part.length);
         }
 
+        /** Writes a part at the given offset in the file. Parts added this way may be added in any order, by any thread. */
+        void addPartAt(long offset, byte [] part) {
+            if (offset < 0 || fileSize < offset + part.length) {
+                throw new IllegalStateException("Received part at " + offset + " of " + part.length + " bytes would extend the file to " +
+                                                (offset + part.length) + ", but " + fileSize + " is max.");
+            }
+            try (FileChannel channel = FileChannel.open(inprogressFile.toPath(), StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(part);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, offset + buffer.position());
+                }
+            } catch (IOException e) {
+                log.log(LogLevel.ERROR, "Failed writing to file(" + inprogressFile.toPath() + "): " + e.getMessage(), e);
+                throw new RuntimeException("Failed writing to file(" + inprogressFile.toPath() + "): ", e);
+            }
+            synchronized (this) {
+                currentFileSize += part.length;
+                positional = true;
+            }
+        }
+
+        /** Deletes the file received so far */
+        void abort() {
+            deleteFileOrDirectory(inprogressFile);
+        }
+
         File close(long hash) {
-            if (hasher.getValue() != hash) {
+            if (positional) {
+                try {
+                    currentHash = FileChunkServer.xxhashOf(inprogressFile);
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed reading " + inprogressFile + " to verify its content", e);
+                }
+            } else {
+                currentHash = hasher.getValue();
+            }
+            if (currentHash != hash) {
                 throw new RuntimeException("xxhash from content (" + currentHash + ") is not equal to xxhash in request (" + hash + ")");
             }
             File file = new File(fileReferenceDir, fileName);
@@ -145,7 +184,7 @@ public class FileReceiver {
             return file;
         }
 
-        double percentageReceived() {
+        synchronized double percentageReceived() {
             return (double)currentFileSize/(double)fileSize;
         }
     }
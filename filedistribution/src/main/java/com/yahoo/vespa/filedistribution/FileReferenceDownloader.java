@@ -11,13 +11,19 @@ import com.yahoo.jrt.StringValue;
 import com.yahoo.log.LogLevel;
 import com.yahoo.vespa.config.Connection;
 import com.yahoo.vespa.config.ConnectionPool;
+import com.yahoo.vespa.config.JRTConnection;
 
 import java.io.File;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -35,6 +41,10 @@ public class FileReferenceDownloader {
 
     private final static Logger log = Logger.getLogger(FileReferenceDownloader.class.getName());
     private final static Duration rpcTimeout = Duration.ofSeconds(10);
+    /** The max number of other hosts to download a file reference from in addition to the config server */
+    private final static int maxPeers = 8;
+    /** How long to avoid downloading from other hosts which have failed */
+    private final static Duration failedPeerExpiry = Duration.ofMinutes(10);
 
     private final ExecutorService downloadExecutor =
             Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new DaemonThreadFactory("filereference downloader"));
@@ -43,11 +53,25 @@ public class FileReferenceDownloader {
     private final Map<FileReference, Double> downloadStatus = new HashMap<>();  // between 0 and 1
     private final Duration downloadTimeout;
     private final Duration sleepBetweenRetries;
+    private final File downloadDirectory;
+    private final File tmpDirectory;
+    /** The spec of this host, if it serves downloaded file references to other hosts, which then also download from each other */
+    private final Optional<String> peerSpec;
+    /** The specs of the other hosts which have failed recently, with the time to stop avoiding them */
+    private final Map<String, Instant> failedPeers = new ConcurrentHashMap<>();
 
     FileReferenceDownloader(File downloadDirectory, File tmpDirectory, ConnectionPool connectionPool, Duration timeout, Duration sleepBetweenRetries) {
+        this(downloadDirectory, tmpDirectory, connectionPool, timeout, sleepBetweenRetries, Optional.empty());
+    }
+
+    FileReferenceDownloader(File downloadDirectory, File tmpDirectory, ConnectionPool connectionPool, Duration timeout,
+                            Duration sleepBetweenRetries, Optional<String> peerSpec) {
         this.connectionPool = connectionPool;
         this.downloadTimeout = timeout;
         this.sleepBetweenRetries = sleepBetweenRetries;
+        this.downloadDirectory = downloadDirectory;
+        this.tmpDirectory = tmpDirectory;
+        this.peerSpec = peerSpec;
         // Needed to receive RPC calls receiveFile* from server after asking for files
         new FileReceiver(connectionPool.getSupervisor(), this, downloadDirectory, tmpDirectory);
     }
@@ -55,6 +79,14 @@ public class FileReferenceDownloader {
     private void startDownload(Duration timeout, FileReferenceDownload fileReferenceDownload) {
         FileReference fileReference = fileReferenceDownload.fileReference();
         long end = System.currentTimeMillis() + timeout.toMillis();
+        if (peerSpec.isPresent()) {
+            Optional<File> file = downloadFromPeers(fileReference, Instant.ofEpochMilli(end));
+            if (file.isPresent()) {
+                completedDownloading(fileReference, file.get());
+                return;
+            }
+        }
+
         boolean downloadStarted = false;
         int retryCount = 0;
         while ((System.currentTimeMillis() < end) && !downloadStarted) {
@@ -94,6 +126,8 @@ public class FileReferenceDownloader {
                 downloadStatus.put(fileReference, 1.0);
                 downloads.remove(fileReference);
                 download.future().set(Optional.of(file));
+                if (peerSpec.isPresent())
+                    downloadExecutor.submit(() -> announceSource(fileReference));
             } else {
                 log.log(LogLevel.DEBUG, () -> "Received '" + fileReference + "', which was not requested. Can be ignored if happening during upgrades/restarts");
             }
@@ -134,6 +168,67 @@ public class FileReferenceDownloader {
         }
     }
 
+    /**
+     * Downloads the given file reference in chunks from the config server and the other hosts which have it,
+     * if it is a plain file. Returns empty if it could not be downloaded this way before the given deadline.
+     * Other hosts which fail are not downloaded from again until some time has passed.
+     */
+    private Optional<File> downloadFromPeers(FileReference fileReference, Instant deadline) {
+        Connection configServer = connectionPool.getCurrent();
+        Instant now = Instant.now();
+        failedPeers.values().removeIf(expiry -> expiry.isBefore(now));
+        List<JRTConnection> peers = new ArrayList<>();
+        for (String spec : sourcesOf(fileReference, configServer)) {
+            if (spec.equals(peerSpec.get()) || failedPeers.containsKey(spec) || peers.size() >= maxPeers) continue;
+            peers.add(new JRTConnection(spec, connectionPool.getSupervisor()));
+        }
+        List<Connection> sources = new ArrayList<>();
+        sources.add(configServer);
+        sources.addAll(peers);
+        ChunkedFileDownload download = new ChunkedFileDownload(fileReference, sources, downloadDirectory, tmpDirectory,
+                                                               ChunkedFileDownload.defaultChunkSize, 2 * sources.size(),
+                                                               this::setDownloadStatus);
+        try {
+            return download.download(deadline);
+        }
+        finally {
+            for (Connection failed : download.failedSources()) {
+                if (failed == configServer) continue;
+                log.log(LogLevel.DEBUG, () -> "Not downloading from " + failed.getAddress() + " for " + failedPeerExpiry);
+                failedPeers.put(failed.getAddress(), now.plus(failedPeerExpiry));
+            }
+
+            peers.forEach(peer -> peer.getTarget().close());
+        }
+    }
+
+    /** Returns the specs of the other hosts which have the given file reference, in random order */
+    private List<String> sourcesOf(FileReference fileReference, Connection configServer) {
+        Request request = new Request("filedistribution.getFileReferenceSources");
+        request.parameters().add(new StringValue(fileReference.value()));
+        execute(request, configServer);
+        if (request.isError() || ! request.checkReturnTypes("S")) {
+            log.log(LogLevel.DEBUG, () -> "Could not get sources of '" + fileReference.value() + "' from " + configServer.getAddress() +
+                                          (request.isError() ? ": " + request.errorMessage() : ""));
+            return List.of();
+        }
+        List<String> sources = new ArrayList<>(List.of(request.returnValues().get(0).asStringArray()));
+        Collections.shuffle(sources);
+        return sources;
+    }
+
+    /** Tells the config server that other hosts may download the given file reference from this */
+    private void announceSource(FileReference fileReference) {
+        Connection connection = connectionPool.getCurrent();
+        Request request = new Request("filedistribution.addFileReferenceSource");
+        request.parameters().add(new StringValue(fileReference.value()));
+        request.parameters().add(new StringValue(peerSpec.get()));
+        execute(request, connection);
+        if (request.isError())
+            log.log(LogLevel.DEBUG, () -> "Failed announcing '" + fileReference.value() + "' at " + connection.getAddress() +
+                                          ": " + request.errorMessage());
+    }
+
     boolean isDownloading(FileReference fileReference) {
         synchronized (downloads) {
             return downloads.containsKey(fileReference);
@@ -0,0 +1,131 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.config.FileReference;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.log.LogLevel;
+import com.yahoo.vespa.config.Connection;
+import com.yahoo.vespa.config.ConnectionPool;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * Authorizes requests from other hosts for file references held by this host, for a {@link FileChunkServer}.
+ * A host is only served a file reference if it is one of the peers of that file reference according to the
+ * config server, i.e., a host which the config server has authorized to download the file reference, which
+ * means it belongs to the application owning it. The peers of each file reference are cached for a while,
+ * and fetched again when an unknown host asks for it.
+ *
+ * A request which is not authorized is returned with an error, and the returned future then fails.
+ *
+ * @author agent
+ */
+public class FileReferencePeerAuthorizer {
+
+    private final static Logger log = Logger.getLogger(FileReferencePeerAuthorizer.class.getName());
+
+    public final static String GET_PEERS_METHOD = "filedistribution.getFileReferencePeers";
+    /** The error code of unauthorized requests, the same as config servers use */
+    public final static int UNAUTHORIZED = 0x20001;
+
+    private final static Duration rpcTimeout = Duration.ofSeconds(10);
+    private final static int maxCachedReferences = 1000;
+
+    private final ConnectionPool configServers;
+    private final Clock clock;
+    private final Duration minRefreshInterval;
+    private final ExecutorService executor =
+            Executors.newFixedThreadPool(2, new DaemonThreadFactory("file reference peer authorizer"));
+    /** The peers of the most recently requested file references, with the time they were fetched */
+    private final Map<FileReference, Peers> peers = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<FileReference, Peers> eldest) {
+            return size() > maxCachedReferences;
+        }
+    });
+
+    public FileReferencePeerAuthorizer(ConnectionPool configServers) {
+        this(configServers, Clock.systemUTC(), Duration.ofSeconds(10));
+    }
+
+    FileReferencePeerAuthorizer(ConnectionPool configServers, Clock clock, Duration minRefreshInterval) {
+        this.configServers = configServers;
+        this.clock = clock;
+        this.minRefreshInterval = minRefreshInterval;
+    }
+
+    /** Returns a future which completes normally if the given request for a file reference should be served */
+    public CompletableFuture<Void> authorize(Request request) {
+        return CompletableFuture.runAsync(() -> {
+            FileReference reference = new FileReference(request.parameters().get(0).asString());
+            Optional<String> peer = request.target().getPeerAddress().map(InetSocketAddress::getAddress).map(InetAddress::getHostAddress);
+            if (peer.isEmpty() || ! isPeer(reference, peer.get())) {
+                String message = "Peer " + peer.orElse("with unknown address") + " is not allowed to access file reference " + reference.value();
+                log.log(LogLevel.DEBUG, message);
+                request.setError(UNAUTHORIZED, message);
+                request.returnRequest();
+                throw new SecurityException(message); // Fail the future, such that the request is not served
+            }
+        }, executor);
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private boolean isPeer(FileReference reference, String address) {
+        Peers cached = peers.get(reference);
+        if (cached != null && cached.addresses.contains(address)) return true;
+        if (cached != null && cached.fetched.plus(minRefreshInterval).isAfter(clock.instant())) return false;
+
+        Optional<Set<String>> fetched = fetchPeersOf(reference);
+        if (fetched.isEmpty()) return false;
+        peers.put(reference, new Peers(fetched.get(), clock.instant()));
+        return fetched.get().contains(address);
+    }
+
+    /** Returns the addresses of the peers of the given file reference, or empty if they could not be fetched */
+    private Optional<Set<String>> fetchPeersOf(FileReference reference) {
+        Connection connection = configServers.getCurrent();
+        Request request = new Request(GET_PEERS_METHOD);
+        request.parameters().add(new StringValue(reference.value()));
+        connection.invokeSync(request, (double) rpcTimeout.getSeconds());
+        if (request.isError() || ! request.checkReturnTypes("S")) {
+            log.log(LogLevel.DEBUG, () -> "Could not get peers of '" + reference.value() + "' from " + connection.getAddress() +
+                                          (request.isError() ? ": " + request.errorMessage() : ""));
+            if (request.isError())
+                configServers.setError(connection, request.errorCode());
+            return Optional.empty();
+        }
+        return Optional.of(Set.copyOf(Arrays.asList(request.returnValues().get(0).asStringArray())));
+    }
+
+    private static class Peers {
+
+        final Set<String> addresses;
+        final Instant fetched;
+
+        Peers(Set<String> addresses, Instant fetched) {
+            this.addresses = addresses;
+            this.fetched = fetched;
+        }
+
+    }
+
+}
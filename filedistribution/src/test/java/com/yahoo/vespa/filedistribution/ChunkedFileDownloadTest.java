@@ -0,0 +1,235 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.config.FileReference;
+import com.yahoo.io.IOUtils;
+import com.yahoo.jrt.Acceptor;
+import com.yahoo.jrt.ListenFailedException;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.RequestWaiter;
+import com.yahoo.jrt.Spec;
+import com.yahoo.jrt.Supervisor;
+import com.yahoo.jrt.Transport;
+import com.yahoo.vespa.config.Connection;
+import com.yahoo.vespa.config.JRTConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class ChunkedFileDownloadTest {
+
+    private static final FileReference reference = new FileReference("ref-a");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<Server> servers = new ArrayList<>();
+    private final Supervisor client = new Supervisor(new Transport());
+    private final Map<FileReference, Double> progress = new ConcurrentHashMap<>();
+    private File downloadDir;
+    private File tmpDir;
+
+    @Before
+    public void setup() throws IOException {
+        downloadDir = temporaryFolder.newFolder("download");
+        tmpDir = temporaryFolder.newFolder("tmp");
+    }
+
+    @After
+    public void shutdown() {
+        servers.forEach(Server::close);
+        client.transport().shutdown().join();
+    }
+
+    @Test
+    public void file_is_downloaded_in_chunks_from_all_sources() throws IOException {
+        byte[] content = content(100_000);
+        List<Connection> sources = List.of(serving(content, "myfile").connection(),
+                                           serving(content, "myfile").connection(),
+                                           serving(content, "myfile").connection());
+
+        Optional<File> file = download(sources, 1000).download(deadline());
+        assertTrue(file.isPresent());
+        assertEquals(new File(new File(downloadDir, reference.value()), "myfile"), file.get());
+        assertArrayEquals(content, Files.readAllBytes(file.get().toPath()));
+        assertEquals(1.0, progress.get(reference), 1e-9);
+        for (Server server : servers)
+            assertTrue("Chunks are downloaded from all sources", server.chunks.get() > 0);
+    }
+
+    @Test
+    public void sources_with_other_content_or_without_the_file_are_not_used() throws IOException {
+        byte[] content = content(10_000);
+        byte[] other = content(10_000);
+        other[42]++;
+        Server different = serving(other, "myfile");
+        List<Connection> sources = List.of(serving(content, "myfile").connection(),
+                                           new Server(__ -> Optional.empty()).connection(),
+                                           different.connection());
+
+        Optional<File> file = download(sources, 1000).download(deadline());
+        assertTrue(file.isPresent());
+        assertArrayEquals(content, Files.readAllBytes(file.get().toPath()));
+        assertEquals(0, different.chunks.get());
+    }
+
+    @Test
+    public void download_fails_without_sources_having_the_file() {
+        assertFalse(download(List.of(new Server(__ -> Optional.empty()).connection()), 1000).download(deadline()).isPresent());
+        assertEquals(0, tmpDir.list().length);
+    }
+
+    @Test
+    public void download_of_file_changed_while_downloading_fails_verification() throws IOException {
+        File original = write(content(10_000), "myfile");
+        byte[] changedContent = content(10_000);
+        changedContent[0]++;
+        File changed = write(changedContent, "myfile");
+        AtomicInteger requests = new AtomicInteger();
+        Server server = new Server(__ -> Optional.of(requests.getAndIncrement() == 0 ? original : changed));
+
+        assertFalse(download(List.of(server.connection()), 1000).download(deadline()).isPresent());
+        assertFalse(new File(downloadDir, reference.value()).exists());
+        assertEquals(0, tmpDir.list().length);
+    }
+
+    @Test
+    public void download_fails_if_the_first_source_does_not_have_the_file() throws IOException {
+        Connection first = new Server(__ -> Optional.empty()).connection();
+        Server other = serving(content(10_000), "myfile");
+        ChunkedFileDownload download = download(List.of(first, other.connection()), 1000);
+
+        assertFalse(download.download(deadline()).isPresent());
+        assertEquals(List.of(first), download.failedSources());
+        assertEquals(0, other.chunks.get());
+    }
+
+    @Test
+    public void failing_source_is_dropped() throws IOException {
+        byte[] content = content(100_000);
+        File file = write(content, "myfile");
+        AtomicInteger requests = new AtomicInteger();
+        // Serves the metadata, but none of the chunks
+        Connection failing = new Server(__ -> Optional.of(requests.getAndIncrement() == 0 ? file : new File(file + ".gone"))).connection();
+        ChunkedFileDownload download = download(List.of(serving(content, "myfile").connection(), failing), 1000);
+
+        Optional<File> downloaded = download.download(deadline());
+        assertTrue(downloaded.isPresent());
+        assertArrayEquals(content, Files.readAllBytes(downloaded.get().toPath()));
+        assertEquals(List.of(failing), download.failedSources());
+    }
+
+    @Test
+    public void nothing_is_downloaded_after_the_deadline() throws IOException {
+        Server server = serving(content(10_000), "myfile");
+        ChunkedFileDownload download = download(List.of(server.connection()), 1000);
+
+        assertFalse(download.download(Instant.now()).isPresent());
+        assertEquals(0, server.chunks.get());
+        assertEquals(0, tmpDir.list().length);
+    }
+
+    private static Instant deadline() {
+        return Instant.now().plusSeconds(60);
+    }
+
+    private ChunkedFileDownload download(List<Connection> sources, int chunkSize) {
+        return new ChunkedFileDownload(reference, sources, downloadDir, tmpDir, chunkSize, 4, progress::put);
+    }
+
+    private Server serving(byte[] content, String filename) throws IOException {
+        File file = write(content, filename);
+        return new Server(__ -> Optional.of(file));
+    }
+
+    private File write(byte[] content, String filename) throws IOException {
+        File directory = new File(temporaryFolder.newFolder(), reference.value());
+        assertTrue(directory.mkdir());
+        File file = new File(directory, filename);
+        IOUtils.writeFile(file, content);
+        return file;
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    /** A host serving chunks, which counts the chunks requested from it */
+    private class Server {
+
+        private final Supervisor supervisor = new Supervisor(new Transport());
+        private final Acceptor acceptor;
+        private final FileChunkServer chunkServer;
+        private final AtomicInteger chunks = new AtomicInteger();
+
+        Server(Function<FileReference, Optional<File>> files) {
+            chunkServer = new FileChunkServer(supervisor, files, request -> CompletableFuture.completedFuture(null));
+            try {
+                acceptor = supervisor.listen(new Spec(0));
+            } catch (ListenFailedException e) {
+                throw new RuntimeException(e);
+            }
+            servers.add(this);
+        }
+
+        Connection connection() {
+            Connection connection = new JRTConnection("tcp/localhost:" + acceptor.port(), client);
+            return new Connection() {
+                @Override
+                public void invokeAsync(Request request, double jrtTimeout, RequestWaiter requestWaiter) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void invokeSync(Request request, double jrtTimeout) {
+                    if (request.methodName().equals(FileChunkServer.GET_CHUNK_METHOD))
+                        chunks.incrementAndGet();
+                    connection.invokeSync(request, jrtTimeout);
+                }
+
+                @Override
+                public void setError(int errorCode) { connection.setError(errorCode); }
+
+                @Override
+                public void setSuccess() { connection.setSuccess(); }
+
+                @Override
+                public String getAddress() { return connection.getAddress(); }
+            };
+        }
+
+        void close() {
+            chunkServer.close();
+            acceptor.shutdown().join();
+            supervisor.transport().shutdown().join();
+        }
+
+    }
+
+}
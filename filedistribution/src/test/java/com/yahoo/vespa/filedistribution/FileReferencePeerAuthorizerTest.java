@@ -0,0 +1,161 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.config.FileReference;
+import com.yahoo.io.IOUtils;
+import com.yahoo.jrt.Acceptor;
+import com.yahoo.jrt.ListenFailedException;
+import com.yahoo.jrt.Method;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.Spec;
+import com.yahoo.jrt.StringArray;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.jrt.Supervisor;
+import com.yahoo.jrt.Target;
+import com.yahoo.jrt.Transport;
+import com.yahoo.vespa.config.JRTConnectionPool;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class FileReferencePeerAuthorizerTest {
+
+    private static final FileReference reference = new FileReference("ref-a");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<String> peers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger peerRequests = new AtomicInteger();
+    private final List<Runnable> closers = new ArrayList<>();
+    private final Supervisor client = new Supervisor(new Transport());
+
+    @After
+    public void shutdown() {
+        closers.forEach(Runnable::run);
+        client.transport().shutdown().join();
+    }
+
+    @Test
+    public void peers_of_the_file_reference_are_served() throws IOException {
+        peers.add("127.0.0.1");
+        Request request = getFileMeta(serving(Duration.ofMinutes(1)));
+        assertFalse(request.errorMessage(), request.isError());
+        assertEquals(0, request.returnValues().get(0).asInt32());
+        assertEquals("myfile", request.returnValues().get(1).asString());
+    }
+
+    @Test
+    public void other_hosts_are_refused() throws IOException {
+        peers.add("10.0.0.1");
+        Request request = getFileMeta(serving(Duration.ofMinutes(1)));
+        assertTrue(request.isError());
+        assertEquals(FileReferencePeerAuthorizer.UNAUTHORIZED, request.errorCode());
+        assertEquals(0, request.returnValues().size());
+    }
+
+    @Test
+    public void all_hosts_are_refused_when_peers_are_unavailable() throws IOException {
+        peers.add("127.0.0.1");
+        Spec server = serving(new JRTConnectionPool(List.of("tcp/localhost:1")), Duration.ofMinutes(1));
+        Request request = getFileMeta(server);
+        assertTrue(request.isError());
+        assertEquals(FileReferencePeerAuthorizer.UNAUTHORIZED, request.errorCode());
+    }
+
+    @Test
+    public void peers_are_cached_until_an_unknown_host_asks_after_the_refresh_interval() throws IOException {
+        Spec cachingServer = serving(Duration.ofMinutes(1));
+        assertTrue(getFileMeta(cachingServer).isError());
+        peers.add("127.0.0.1");
+        assertTrue("Peers are not fetched again within the refresh interval", getFileMeta(cachingServer).isError());
+        assertEquals(1, peerRequests.get());
+
+        Spec refreshingServer = serving(Duration.ZERO);
+        assertFalse(getFileMeta(refreshingServer).isError());
+        assertFalse(getFileMeta(refreshingServer).isError());
+        assertEquals("Known peers are served without fetching peers again", 2, peerRequests.get());
+    }
+
+    /** Returns the spec of a host serving the file reference to peers, as given by a config server */
+    private Spec serving(Duration minRefreshInterval) throws IOException {
+        return serving(new JRTConnectionPool(List.of(configServer().toString())), minRefreshInterval);
+    }
+
+    private Spec serving(JRTConnectionPool configServers, Duration minRefreshInterval) throws IOException {
+        File directory = new File(temporaryFolder.newFolder(), reference.value());
+        assertTrue(directory.mkdir());
+        File file = new File(directory, "myfile");
+        IOUtils.writeFile(file, "content", false);
+
+        FileReferencePeerAuthorizer authorizer = new FileReferencePeerAuthorizer(configServers, Clock.systemUTC(), minRefreshInterval);
+        Supervisor supervisor = new Supervisor(new Transport());
+        FileChunkServer chunkServer = new FileChunkServer(supervisor, __ -> Optional.of(file), authorizer::authorize);
+        Acceptor acceptor = listen(supervisor);
+        closers.add(() -> {
+            chunkServer.close();
+            authorizer.close();
+            acceptor.shutdown().join();
+            supervisor.transport().shutdown().join();
+            configServers.close();
+        });
+        return new Spec("127.0.0.1", acceptor.port()); // The address of peers which the config server gives
+    }
+
+    /** Returns the spec of a config server which gives the current peers */
+    private Spec configServer() {
+        Supervisor supervisor = new Supervisor(new Transport());
+        supervisor.addMethod(new Method(FileReferencePeerAuthorizer.GET_PEERS_METHOD, "s", "S", request -> {
+            peerRequests.incrementAndGet();
+            request.returnValues().add(new StringArray(reference.value().equals(request.parameters().get(0).asString())
+                                                               ? peers.toArray(new String[0])
+                                                               : new String[0]));
+        }));
+        Acceptor acceptor = listen(supervisor);
+        closers.add(() -> {
+            acceptor.shutdown().join();
+            supervisor.transport().shutdown().join();
+        });
+        return new Spec("localhost", acceptor.port());
+    }
+
+    private Request getFileMeta(Spec server) {
+        Target target = client.connect(server);
+        try {
+            Request request = new Request(FileChunkServer.GET_META_METHOD);
+            request.parameters().add(new StringValue(reference.value()));
+            target.invokeSync(request, 60);
+            return request;
+        }
+        finally {
+            target.close();
+        }
+    }
+
+    private static Acceptor listen(Supervisor supervisor) {
+        try {
+            return supervisor.listen(new Spec(0));
+        } catch (ListenFailedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
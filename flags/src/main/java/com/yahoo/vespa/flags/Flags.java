@@ -114,6 +114,13 @@ public class Flags {
             "scheduled evenly distributed in the 1x-2x range (and naturally guaranteed at the 2x boundary).",
             "Takes effect on next run of NodeRebooter");
 
+    public static final UnboundBooleanFlag PRECOMPUTE_CONFIGS = defineFeatureFlag(
+            "precompute-configs", false,
+            "Whether the config server should build all configs of an application when loading it, before it is activated, " +
+            "instead of when each config is first requested",
+            "Takes effect on the next activation of the application",
+            APPLICATION_ID);
+
     public static final UnboundBooleanFlag ENABLE_DYNAMIC_PROVISIONING = defineFeatureFlag(
             "enable-dynamic-provisioning", false,
             "Provision a new docker host when we otherwise can't allocate a docker node",
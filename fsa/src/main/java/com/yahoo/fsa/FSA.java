@@ -14,6 +14,7 @@ import java.nio.CharBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.NoSuchElementException;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -70,24 +71,74 @@ public class FSA implements Closeable {
         }
 
         public void delta(char chr){
+            if (fsa.utf8 && ! Character.isSurrogate(chr)) {
+                deltaUtf8(fsa.map(), chr);
+                return;
+            }
             CharBuffer chrbuf = CharBuffer.allocate(1);
             chrbuf.put(0,chr);
-            ByteBuffer buf = fsa.encode(chrbuf);
-            Maps m = fsa.map();
-            while(state >0 && buf.position()<buf.limit()){
-                delta(m, buf.get());
-            }
+            delta(fsa.encode(chrbuf));
         }
 
         /** Jumps ahead by string */
         public void delta(String string){
-            ByteBuffer buf = fsa.encode(string);
+            delta((CharSequence)string);
+        }
+
+        /** Jumps ahead by the given characters. This does not allocate if the charset of the fsa is utf-8. */
+        public void delta(CharSequence chars) {
+            if ( ! fsa.utf8) {
+                delta(fsa.encode(CharBuffer.wrap(chars)));
+                return;
+            }
+            Maps m = fsa.map();
+            for (int i = 0; state > 0 && i < chars.length(); i++) {
+                char c = chars.charAt(i);
+                if ( ! Character.isSurrogate(c)) {
+                    deltaUtf8(m, c);
+                }
+                else if (Character.isHighSurrogate(c) && i + 1 < chars.length() && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                    int code = Character.toCodePoint(c, chars.charAt(++i));
+                    delta(m, (byte)(0xf0 | code >> 18));
+                    delta(m, (byte)(0x80 | code >> 12 & 0x3f));
+                    delta(m, (byte)(0x80 | code >> 6 & 0x3f));
+                    delta(m, (byte)(0x80 | code & 0x3f));
+                }
+                else { // unpaired surrogate, encoded as the replacement byte, like the charset encoder does
+                    delta(m, (byte)'?');
+                }
+            }
+        }
+
+        /** Jumps ahead by the given bytes, which must be encoded in the charset of the fsa */
+        public void delta(byte[] bytes, int offset, int length) {
+            Maps m = fsa.map();
+            for (int i = offset; state > 0 && i < offset + length; i++)
+                delta(m, bytes[i]);
+        }
+
+        private void delta(ByteBuffer buf) {
             Maps m = fsa.map();
             while (state >0 && buf.position()<buf.limit()){
                 delta(m, buf.get());
             }
         }
 
+        private void deltaUtf8(Maps m, char c) {
+            if (c < 0x80) {
+                delta(m, (byte)c);
+            }
+            else if (c < 0x800) {
+                delta(m, (byte)(0xc0 | c >> 6));
+                delta(m, (byte)(0x80 | c & 0x3f));
+            }
+            else {
+                delta(m, (byte)(0xe0 | c >> 12));
+                delta(m, (byte)(0x80 | c >> 6 & 0x3f));
+                delta(m, (byte)(0x80 | c & 0x3f));
+            }
+        }
+
         /**
          * Jumps ahead by string if that puts us into a valid state, does nothing otherwise
          *
@@ -158,6 +209,44 @@ public class FSA implements Closeable {
             return fsa.data(state);
         }
 
+        /**
+         * Moves to the state reached from the start state by the given key, without allocating
+         * if the charset of the fsa is utf-8. This state can then be used to access the data and hash of the key.
+         *
+         * @return whether the key is accepted by the fsa
+         */
+        public boolean find(CharSequence key) {
+            start();
+            delta(key);
+            return isFinal();
+        }
+
+        /**
+         * Moves to the state reached from the start state by the given key bytes, without allocating.
+         * This state can then be used to access the data and hash of the key.
+         *
+         * @return whether the key is accepted by the fsa
+         */
+        public boolean find(byte[] key, int offset, int length) {
+            start();
+            delta(key, offset, length);
+            return isFinal();
+        }
+
+        /** Returns the length of the data of this state, or -1 if this is not a final state */
+        public int dataLength() {
+            return fsa.dataLength(state);
+        }
+
+        /**
+         * Copies the data of this state into the given array, which must have room for it.
+         *
+         * @return the length of the data copied, or -1 if this is not a final state
+         */
+        public int copyData(byte[] destination, int offset) {
+            return fsa.copyData(state, destination, offset);
+        }
+
         public boolean hasPerfectHash(){
             return fsa.hasPerfectHash();
         }
@@ -451,6 +540,7 @@ public class FSA implements Closeable {
     }
     private final boolean _ok;
     private final Charset _charset;
+    private final boolean utf8;
     private final AtomicReference<Maps> maps = new AtomicReference<>();
 
 
@@ -515,6 +605,7 @@ public class FSA implements Closeable {
     private FSA(FileInputStream file, String charsetname, boolean closeInput) {
         try {
             _charset = Charset.forName(charsetname);
+            utf8 = _charset.equals(StandardCharsets.UTF_8);
             maps.set(new Maps(file));
             _ok=true;
         }
@@ -602,26 +693,43 @@ public class FSA implements Closeable {
     protected ByteBuffer data(int state) {
         Maps m = maps.get();
         if(_ok && m.isFinal(state)){
-            int offset = m._state_tab.getInt(4*(state+255));
-            int length;
-            if(m.h_data_type()==1){
-                length = m.h_fixed_data_size();
-            }
-            else{
-                length = m._data.getInt(offset);
-                offset += 4;
-            }
-            ByteBuffer meta = ByteBuffer.allocate(length);
+            ByteBuffer meta = ByteBuffer.allocate(dataLength(m, state));
             meta.order(ByteOrder.LITTLE_ENDIAN);
-            byte[] dst = meta.array();
-            for (int i = 0; i < length; ++i) {
-                dst[i] = m._data.get(i + offset);
-            }
+            copyData(m, state, meta.array(), 0);
             return meta;
         }
         return null;
     }
 
+    /** Returns the length of the data of the given state, or -1 if it is not final */
+    private int dataLength(int state) {
+        Maps m = maps.get();
+        if ( ! _ok || ! m.isFinal(state)) return -1;
+        return dataLength(m, state);
+    }
+
+    /** Copies the data of the given state into the given array and returns its length, or -1 if the state is not final */
+    private int copyData(int state, byte[] destination, int offset) {
+        Maps m = maps.get();
+        if ( ! _ok || ! m.isFinal(state)) return -1;
+        return copyData(m, state, destination, offset);
+    }
+
+    private int dataLength(Maps m, int state) {
+        if (m.h_data_type() == 1) return m.h_fixed_data_size();
+        return m._data.getInt(m._state_tab.getInt(4 * (state + 255)));
+    }
+
+    private int copyData(Maps m, int state, byte[] destination, int destinationOffset) {
+        int offset = m._state_tab.getInt(4 * (state + 255));
+        int length = dataLength(m, state);
+        if (m.h_data_type() != 1)
+            offset += 4;
+        for (int i = 0; i < length; ++i)
+            destination[destinationOffset + i] = m._data.get(i + offset);
+        return length;
+    }
+
     /**
      * Retrieves data for the given state using the underlying fsa data buffer.
      * @param state The fsa state to retrieve data from.
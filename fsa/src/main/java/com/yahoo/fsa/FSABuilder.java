@@ -0,0 +1,464 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.fsa;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a minimal finite-state automaton from keys added in sorted order, and writes it in the
+ * binary format read by {@link FSA} and the C++ fsa library, the same as produced by makefsa.
+ * <p>
+ * Keys must be added in strictly increasing order of their (unsigned) bytes. Each key may have some data,
+ * which is returned by {@link FSA.State#data} when the key is looked up. If all data items have the same size,
+ * the automaton stores them as fixed size items.
+ * <p>
+ * The automaton is minimized while keys are added, so the memory used by the builder is proportional to the
+ * size of the resulting automaton rather than the size of the input. The written automaton is loaded
+ * by memory mapping it with {@link FSA}, so it does not take up heap memory when in use.
+ * <p>
+ * This is not multithread safe.
+ *
+ * @author agent
+ */
+public final class FSABuilder {
+
+    private static final int MAGIC = 0x79832469;
+    private static final int VERSION = 2000001;
+    private static final int HEADER_SIZE = 256;
+    private static final int FINAL_SYMBOL = 0xff;
+    private static final int DATA_VARIABLE = 0;
+    private static final int DATA_FIXED = 1;
+
+    /** The number of cells before the last packed state to start looking for free cells, as in the C++ packer */
+    private static final int BACKCHECK = 255;
+
+    private final Charset charset;
+
+    private boolean perfectHash = true;
+    private int serial = 0;
+
+    /** The unfrozen states along the last added key, where the state at index i is reached after i bytes */
+    private final List<Node> path = new ArrayList<>();
+    private byte[] previousKey = null;
+    private int keyCount = 0;
+    private boolean finished = false;
+
+    /** The frozen states, where each state is added after all the states it has transitions to */
+    private final List<Node> states = new ArrayList<>();
+    private final Map<Node, Node> register = new HashMap<>();
+
+    private final List<byte[]> dataItems = new ArrayList<>();
+    private final Map<ByteBuffer, Integer> dataIndexes = new HashMap<>();
+
+    /** Creates a builder which encodes string keys and data as utf-8 */
+    public FSABuilder() {
+        this("utf-8");
+    }
+
+    /** Creates a builder which encodes string keys and data using the given character encoding */
+    public FSABuilder(String charsetName) {
+        this.charset = Charset.forName(charsetName);
+        path.add(new Node());
+    }
+
+    /** Sets whether to add a perfect hash to the automaton, such that {@link FSA.State#hash} is the index of a key. Default is true. */
+    public FSABuilder perfectHash(boolean perfectHash) {
+        this.perfectHash = perfectHash;
+        return this;
+    }
+
+    /** Sets the serial number written to the automaton header. Default is 0. */
+    public FSABuilder serial(int serial) {
+        this.serial = serial;
+        return this;
+    }
+
+    /** Adds a key without data. Returns this for chaining. */
+    public FSABuilder add(String key) {
+        return add(key.getBytes(charset), new byte[0]);
+    }
+
+    /**
+     * Adds a key with string data. As with makefsa -t, the data is terminated by a '\0',
+     * which is removed by {@link FSA.State#dataString}. Returns this for chaining.
+     */
+    public FSABuilder add(String key, String data) {
+        byte[] dataBytes = data.getBytes(charset);
+        return add(key.getBytes(charset), Arrays.copyOf(dataBytes, dataBytes.length + 1));
+    }
+
+    /**
+     * Adds a key with the given data. Returns this for chaining.
+     *
+     * @param key the bytes of the key, which must be non-empty, must not contain the bytes 0x00 or 0xff,
+     *            and must be larger than the previously added key
+     * @param data the data of this key, which may be empty
+     * @throws IllegalArgumentException if the key is not valid, or not added in sorted order
+     * @throws IllegalStateException if this has already been written
+     */
+    public FSABuilder add(byte[] key, byte[] data) {
+        if (finished) throw new IllegalStateException("Cannot add keys to an automaton which is already written");
+        validate(key);
+
+        int prefixLength = previousKey == null ? 0 : Arrays.mismatch(previousKey, key);
+        freezeDownTo(prefixLength);
+        for (int i = prefixLength; i < key.length; i++) {
+            Node state = new Node();
+            path.get(i).add(key[i], state);
+            path.add(state);
+        }
+        path.get(key.length).data = dataIndex(data);
+
+        previousKey = key.clone();
+        keyCount++;
+        return this;
+    }
+
+    /** Returns the number of keys added to this */
+    public int size() { return keyCount; }
+
+    /** Writes the automaton to the given file. No more keys can be added after this. */
+    public void write(String filename) {
+        try (OutputStream out = new FileOutputStream(filename)) {
+            write(out);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Could not write FSA file '" + filename + "'", e);
+        }
+    }
+
+    /** Writes the automaton to the given stream, which is not closed. No more keys can be added after this. */
+    public void write(OutputStream out) throws IOException {
+        finish();
+        Packed packed = new Packed();
+
+        Output output = new Output(new BufferedOutputStream(out, 1 << 16));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(packed.checksum());
+        output.writeInt(packed.size);
+        output.writeInt(packed.start);
+        output.writeInt(packed.data.length);
+        output.writeInt(packed.dataType);
+        output.writeInt(packed.fixedDataSize);
+        output.writeInt(packed.hashes != null ? 1 : 0);
+        output.writeInt(serial);
+        for (int i = 40; i < HEADER_SIZE; i += 4)
+            output.writeInt(0);
+        output.write(packed.symbols, packed.size);
+        output.writeInts(packed.transitions, packed.size);
+        output.write(packed.data, packed.data.length);
+        if (packed.hashes != null)
+            output.writeInts(packed.hashes, packed.size);
+        output.flush();
+    }
+
+    private void validate(byte[] key) {
+        if (key.length == 0) throw new IllegalArgumentException("FSA keys cannot be empty");
+        for (byte b : key) {
+            if (b == 0 || b == (byte)FINAL_SYMBOL)
+                throw new IllegalArgumentException("FSA keys cannot contain the bytes 0x00 or 0xff, but got '" +
+                                                   new String(key, charset) + "'");
+        }
+        if (previousKey != null && Arrays.compareUnsigned(previousKey, key) >= 0)
+            throw new IllegalArgumentException("FSA keys must be added in sorted order without duplicates, but '" +
+                                               new String(key, charset) + "' was added after '" +
+                                               new String(previousKey, charset) + "'");
+    }
+
+    private int dataIndex(byte[] data) {
+        return dataIndexes.computeIfAbsent(ByteBuffer.wrap(data.clone()), buffer -> {
+            dataItems.add(buffer.array());
+            return dataItems.size() - 1;
+        });
+    }
+
+    /** Replaces the states on the path deeper than the given depth by equivalent frozen states */
+    private void freezeDownTo(int depth) {
+        for (int i = path.size() - 1; i > depth; i--) {
+            Node state = path.remove(i);
+            path.get(i - 1).replaceLastTarget(freeze(state));
+        }
+    }
+
+    private Node freeze(Node state) {
+        state.freeze();
+        Node existing = register.putIfAbsent(state, state);
+        if (existing != null) return existing;
+        state.id = states.size();
+        states.add(state);
+        return state;
+    }
+
+    private void finish() {
+        if (finished) return;
+        freezeDownTo(0);
+        Node start = path.get(0);
+        start.freeze();
+        start.id = states.size();
+        states.add(start);
+        register.clear();
+        finished = true;
+    }
+
+    /** The tables of the automaton, with states packed into overlapping cells as done by the C++ packer */
+    private class Packed {
+
+        final int start;
+        final int size;
+        final byte[] symbols;
+        final int[] transitions;
+        final int[] hashes;
+        final byte[] data;
+        final int dataType;
+        final int fixedDataSize;
+
+        private byte[] cellSymbols = new byte[1 << 16];
+        private boolean[] used = new boolean[1 << 16];
+        private int lastPacked = 0;
+
+        /** For used cells, a cell before or at the next unused cell. Most cells are used, so they are skipped through this */
+        private int[] skip = new int[1 << 16];
+
+        Packed() {
+            boolean fixedSize = isFixedSize();
+            dataType = fixedSize ? DATA_FIXED : DATA_VARIABLE;
+            fixedDataSize = fixedSize ? dataItems.get(0).length : 0;
+            int[] dataOffsets = new int[dataItems.size()];
+            data = packData(fixedSize, dataOffsets);
+
+            for (Node state : states)
+                state.cell = pack(state);
+            start = states.get(states.size() - 1).cell;
+            size = lastPacked + 256;
+            symbols = Arrays.copyOf(cellSymbols, size);
+
+            transitions = new int[size];
+            for (Node state : states) {
+                for (int i = 0; i < state.count; i++)
+                    transitions[state.cell + (state.symbols[i] & 0xff)] = state.targets[i].cell;
+                if (state.data >= 0)
+                    transitions[state.cell + FINAL_SYMBOL] = dataOffsets[state.data];
+            }
+            hashes = perfectHash ? perfectHashes() : null;
+        }
+
+        private boolean isFixedSize() {
+            if (dataItems.isEmpty()) return false;
+            int size = dataItems.get(0).length;
+            for (byte[] item : dataItems)
+                if (item.length != size) return false;
+            return true;
+        }
+
+        /** Returns the data items laid out as in the data table, and sets the offset of each item in it */
+        private byte[] packData(boolean fixedSize, int[] offsets) {
+            int headerSize = fixedSize ? 0 : 4;
+            ByteBuffer buffer = ByteBuffer.allocate(dataItems.stream().mapToInt(item -> item.length + headerSize).sum());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = buffer.position();
+                byte[] item = dataItems.get(i);
+                if ( ! fixedSize)
+                    buffer.putInt(item.length);
+                buffer.put(item);
+            }
+            return buffer.array();
+        }
+
+        /** Returns the first free cell at which all the transitions of the given state fit, and claims it */
+        private int pack(Node state) {
+            int cell = nextUnused(lastPacked > BACKCHECK ? lastPacked - BACKCHECK : 1);
+            while ( ! fits(state, cell))
+                cell = nextUnused(cell + 1);
+            used[cell] = true;
+            skip[cell] = cell + 1;
+            for (int i = 0; i < state.count; i++)
+                cellSymbols[cell + (state.symbols[i] & 0xff)] = state.symbols[i];
+            if (state.data >= 0)
+                cellSymbols[cell + FINAL_SYMBOL] = (byte)FINAL_SYMBOL;
+            lastPacked = Math.max(lastPacked, cell);
+            return cell;
+        }
+
+        /** Returns the first cell at or after the given one which is not used as a state */
+        private int nextUnused(int cell) {
+            int next = cell;
+            while (used[next])
+                next = skip[next];
+            while (used[cell] && skip[cell] != next) { // shorten the path for the next lookup
+                int following = skip[cell];
+                skip[cell] = next;
+                cell = following;
+            }
+            return next;
+        }
+
+        private boolean fits(Node state, int cell) {
+            if (cell + 256 >= used.length) {
+                used = Arrays.copyOf(used, used.length * 2);
+                skip = Arrays.copyOf(skip, skip.length * 2);
+                cellSymbols = Arrays.copyOf(cellSymbols, cellSymbols.length * 2);
+            }
+            for (int i = 0; i < state.count; i++)
+                if (cellSymbols[cell + (state.symbols[i] & 0xff)] != 0) return false;
+            return state.data < 0 || cellSymbols[cell + FINAL_SYMBOL] == 0;
+        }
+
+        /**
+         * Returns the hash increment of each transition, which is the number of keys ordered before
+         * the transition among the keys accepted from its state.
+         */
+        private int[] perfectHashes() {
+            int[] hashes = new int[size];
+            for (Node state : states) { // targets before their sources
+                int count = state.data >= 0 ? 1 : 0;
+                for (int i = 0; i < state.count; i++) {
+                    hashes[state.cell + (state.symbols[i] & 0xff)] = count;
+                    count += state.targets[i].keyCount;
+                }
+                state.keyCount = count;
+            }
+            return hashes;
+        }
+
+        /** Returns the checksum of the tables, computed as in the C++ fsa library */
+        int checksum() {
+            int checksum = checksum(symbols, size);
+            for (int i = 0; i < size; i++)
+                checksum += transitions[i];
+            checksum += checksum(data, data.length);
+            if (hashes != null) {
+                for (int i = 0; i < size; i++)
+                    checksum += hashes[i];
+            }
+            return checksum;
+        }
+
+        private int checksum(byte[] bytes, int length) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length).order(ByteOrder.LITTLE_ENDIAN);
+            int checksum = 0;
+            int words = length >> 2;
+            for (int i = 0; i < words; i++)
+                checksum += buffer.getInt(i * 4);
+            if ((length & 1) != 0) { // Matches the C++ implementation, which only adds the remaining bytes for odd lengths
+                int rest = 0;
+                for (int i = 0; i < (length & 3); i++)
+                    rest |= (bytes[words * 4 + i] & 0xff) << (8 * i);
+                checksum += rest;
+            }
+            return checksum;
+        }
+
+    }
+
+    /** A state of the automaton under construction */
+    private static final class Node {
+
+        private static final byte[] noSymbols = new byte[0];
+        private static final Node[] noTargets = new Node[0];
+
+        private byte[] symbols = noSymbols;
+        private Node[] targets = noTargets;
+        private int count = 0;
+
+        /** The index of this among the frozen states, or -1 if it is not frozen */
+        private int id = -1;
+
+        /** The index of the data item of this if it is final, -1 otherwise */
+        private int data = -1;
+
+        private int hash;
+
+        /** The cell of this in the packed automaton */
+        private int cell;
+
+        /** The number of keys accepted from this state */
+        private int keyCount;
+
+        void add(byte symbol, Node target) {
+            if (count == symbols.length) {
+                symbols = Arrays.copyOf(symbols, Math.max(1, count * 2));
+                targets = Arrays.copyOf(targets, Math.max(1, count * 2));
+            }
+            symbols[count] = symbol;
+            targets[count] = target;
+            count++;
+        }
+
+        void replaceLastTarget(Node target) {
+            targets[count - 1] = target;
+        }
+
+        /** Finishes this state. Its targets must already be frozen, and it cannot be changed after this */
+        void freeze() {
+            int hash = data;
+            for (int i = 0; i < count; i++)
+                hash = 31 * (31 * hash + symbols[i]) + targets[i].id;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() { return hash; }
+
+        /** Returns whether the given state accepts the same keys with the same data as this, given frozen targets */
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof Node)) return false;
+            Node other = (Node)o;
+            if (this.hash != other.hash || this.data != other.data || this.count != other.count) return false;
+            for (int i = 0; i < count; i++) {
+                if (this.symbols[i] != other.symbols[i]) return false;
+                if (this.targets[i] != other.targets[i]) return false;
+            }
+            return true;
+        }
+
+    }
+
+    /** Writes little endian values in the byte order of the fsa format */
+    private static final class Output {
+
+        private final OutputStream out;
+        private final byte[] buffer = new byte[4];
+
+        Output(OutputStream out) {
+            this.out = out;
+        }
+
+        void writeInt(int value) throws IOException {
+            buffer[0] = (byte)value;
+            buffer[1] = (byte)(value >>> 8);
+            buffer[2] = (byte)(value >>> 16);
+            buffer[3] = (byte)(value >>> 24);
+            out.write(buffer);
+        }
+
+        void writeInts(int[] values, int length) throws IOException {
+            for (int i = 0; i < length; i++)
+                writeInt(values[i]);
+        }
+
+        void write(byte[] bytes, int length) throws IOException {
+            out.write(bytes, 0, length);
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+
+    }
+
+}
@@ -0,0 +1,119 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.fsa.test;
+
+import com.yahoo.fsa.FSA;
+import com.yahoo.fsa.FSABuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Measures the time to build an automaton of phrases, and the throughput of looking them up
+ * with the allocating and the allocation free lookup methods.
+ *
+ * @author agent
+ */
+public class FSABenchmark {
+
+    private static final int phraseCount = 1_000_000;
+    private static final int iterations = 5_000_000;
+
+    private final String[] phrases;
+    private final byte[][] phraseBytes;
+
+    private FSABenchmark() {
+        Random random = new Random(1);
+        String[] words = new String[5000];
+        for (int i = 0; i < words.length; i++)
+            words[i] = word(random);
+        TreeSet<String> phrases = new TreeSet<>();
+        while (phrases.size() < phraseCount)
+            phrases.add(words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]);
+        this.phrases = phrases.toArray(new String[0]);
+        this.phraseBytes = new byte[this.phrases.length][];
+        for (int i = 0; i < this.phrases.length; i++)
+            phraseBytes[i] = this.phrases[i].getBytes(StandardCharsets.UTF_8);
+    }
+
+    public void run() throws IOException {
+        File file = File.createTempFile("benchmark", ".fsa");
+        file.deleteOnExit();
+        long startTime = System.nanoTime();
+        FSABuilder builder = new FSABuilder();
+        for (int i = 0; i < phrases.length; i++)
+            builder.add(phrases[i], String.valueOf(i));
+        builder.write(file.getPath());
+        out("Built automaton of " + phrases.length + " phrases in " + (System.nanoTime() - startTime) / 1_000_000 +
+            " ms, size " + file.length() / 1024 + " kb");
+
+        FSA fsa = new FSA(file.getPath());
+        out("Warming up...");
+        for (int i = 0; i < 5; i++) {
+            runLookup(fsa, false);
+            runFindChars(fsa, false);
+            runFindBytes(fsa, false);
+        }
+        out("Running...");
+        runLookup(fsa, true);
+        runFindChars(fsa, true);
+        runFindBytes(fsa, true);
+        fsa.close();
+    }
+
+    private void runLookup(FSA fsa, boolean print) {
+        FSA.State state = fsa.getState();
+        long startTime = System.nanoTime();
+        long found = 0;
+        for (int i = 0; i < iterations; i++) {
+            if (state.lookup(phrases[i % phrases.length]) != null)
+                found++;
+        }
+        if (print)
+            out("lookup(String):     " + (System.nanoTime() - startTime) / 1_000_000 + " ms (" + found + " found)");
+    }
+
+    private void runFindChars(FSA fsa, boolean print) {
+        FSA.State state = fsa.getState();
+        long startTime = System.nanoTime();
+        long found = 0;
+        for (int i = 0; i < iterations; i++) {
+            if (state.find(phrases[i % phrases.length]))
+                found++;
+        }
+        if (print)
+            out("find(CharSequence): " + (System.nanoTime() - startTime) / 1_000_000 + " ms (" + found + " found)");
+    }
+
+    private void runFindBytes(FSA fsa, boolean print) {
+        FSA.State state = fsa.getState();
+        long startTime = System.nanoTime();
+        long found = 0;
+        for (int i = 0; i < iterations; i++) {
+            byte[] key = phraseBytes[i % phraseBytes.length];
+            if (state.find(key, 0, key.length))
+                found++;
+        }
+        if (print)
+            out("find(byte[]):       " + (System.nanoTime() - startTime) / 1_000_000 + " ms (" + found + " found)");
+    }
+
+    private static String word(Random random) {
+        StringBuilder b = new StringBuilder();
+        int length = 3 + random.nextInt(8);
+        for (int i = 0; i < length; i++)
+            b.append((char)('a' + random.nextInt(26)));
+        return b.toString();
+    }
+
+    private void out(String string) {
+        System.out.println(string);
+    }
+
+    public static void main(String[] args) throws IOException {
+        new FSABenchmark().run();
+    }
+
+}
@@ -0,0 +1,223 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.fsa.test;
+
+import com.yahoo.fsa.FSA;
+import com.yahoo.fsa.FSABuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author agent
+ */
+public class FSABuilderTestCase {
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    @Test
+    public void testBuildAndLookup() throws IOException {
+        FSA fsa = build(new FSABuilder().add("new york", "city")
+                                        .add("new york times", "newspaper")
+                                        .add("newark", "city")
+                                        .add("york", "city")
+                                        .add("ålesund", "city"));
+        assertEquals("city", fsa.lookup("new york"));
+        assertEquals("newspaper", fsa.lookup("new york times"));
+        assertEquals("city", fsa.lookup("newark"));
+        assertEquals("city", fsa.lookup("ålesund"));
+        assertNull(fsa.lookup("new"));
+        assertNull(fsa.lookup("new york time"));
+        assertNull(fsa.lookup("boston"));
+
+        FSA.State state = fsa.getState();
+        state.deltaWord("new");
+        state.deltaWord("york");
+        assertTrue(state.isFinal());
+        assertTrue(state.peekDelta((byte)' '));
+    }
+
+    @Test
+    public void testPerfectHashIsKeyIndex() throws IOException {
+        List<String> keys = List.of("a", "ab", "abc", "b", "bc", "bcd", "c", "cat", "dog", "dogs");
+        FSABuilder builder = new FSABuilder();
+        keys.forEach(builder::add);
+        FSA fsa = build(builder);
+        assertTrue(fsa.hasPerfectHash());
+
+        FSA.State state = fsa.getState();
+        for (int i = 0; i < keys.size(); i++) {
+            state.start();
+            state.delta(keys.get(i));
+            assertTrue(state.isFinal());
+            assertEquals(keys.get(i), i, state.hash());
+        }
+    }
+
+    @Test
+    public void testIteratorReturnsAllKeysInOrder() throws IOException {
+        TreeMap<String, String> entries = new TreeMap<>();
+        for (int i = 0; i < 2000; i++)
+            entries.put("key" + (i * 7919 % 2000), "value" + (i % 10));
+        FSABuilder builder = new FSABuilder();
+        entries.forEach(builder::add);
+        FSA fsa = build(builder);
+
+        Iterator<String> expected = entries.keySet().iterator();
+        for (Iterator<FSA.Iterator.Item> i = fsa.iterator(); i.hasNext(); ) {
+            FSA.Iterator.Item item = i.next();
+            String key = expected.next();
+            assertEquals(key, item.getString());
+            assertEquals(entries.get(key), item.getDataString());
+        }
+        assertFalse(expected.hasNext());
+    }
+
+    @Test
+    public void testRebuildingAnExistingAutomatonGivesTheSameLookups() throws IOException {
+        FSA original = new FSA("src/test/fsa/test-data.fsa");
+        List<FSA.Iterator.Item> items = new ArrayList<>();
+        original.iterator().forEachRemaining(items::add);
+        FSABuilder builder = new FSABuilder().perfectHash(original.hasPerfectHash());
+        for (FSA.Iterator.Item item : items)
+            builder.add(item.getString().getBytes(StandardCharsets.UTF_8), item.getData().array());
+        FSA rebuilt = build(builder);
+
+        assertEquals(original.hasPerfectHash(), rebuilt.hasPerfectHash());
+        FSA.State originalState = original.getState();
+        FSA.State rebuiltState = rebuilt.getState();
+        for (FSA.Iterator.Item item : items) {
+            originalState.lookup(item.getString());
+            rebuiltState.lookup(item.getString());
+            assertTrue(rebuiltState.isFinal());
+            assertEquals(originalState.dataString(), rebuiltState.dataString());
+            assertEquals(originalState.hash(), rebuiltState.hash());
+        }
+    }
+
+    @Test
+    public void testFixedSizeData() throws IOException {
+        FSABuilder builder = new FSABuilder();
+        for (int i = 1; i <= 100; i++)
+            builder.add(String.format("%03d", i).getBytes(StandardCharsets.UTF_8), intBytes(i * i));
+        FSA fsa = build(builder);
+
+        FSA.State state = fsa.getState();
+        for (int i = 1; i <= 100; i++) {
+            state.lookup(String.format("%03d", i));
+            assertEquals(4, state.dataLength());
+            assertEquals(i * i, state.data().getInt(0));
+        }
+    }
+
+    @Test
+    public void testAllocationFreeLookup() throws IOException {
+        String supplementary = "😀";
+        FSA fsa = build(new FSABuilder().add("café", "coffee")
+                                        .add("smile" + supplementary, "emoji")
+                                        .add("tea", "")
+                                        .add("東京", "tokyo"));
+        FSA.State state = fsa.getState();
+
+        assertTrue(state.find(new StringBuilder("café")));
+        assertEquals("coffee", state.dataString());
+        assertTrue(state.find("smile" + supplementary));
+        assertEquals("emoji", state.dataString());
+        assertTrue(state.find("東京"));
+        assertFalse(state.find("東"));
+        assertFalse(state.find("smile\ud83d"));
+        assertFalse(state.find("coffee"));
+
+        byte[] key = "xxtea".getBytes(StandardCharsets.UTF_8);
+        assertTrue(state.find(key, 2, 3));
+        assertFalse(state.find(key, 1, 3));
+        assertTrue(state.find(key, 2, 3));
+        byte[] data = new byte[8];
+        assertEquals(1, state.dataLength());
+        assertEquals(1, state.copyData(data, 2));
+        assertEquals(0, data[2]);
+
+        assertTrue(state.find("café"));
+        assertEquals(7, state.copyData(data, 0));
+        assertArrayEquals("coffee\0".getBytes(StandardCharsets.UTF_8), java.util.Arrays.copyOf(data, 7));
+
+        assertFalse(state.find("ca"));
+        assertEquals(-1, state.dataLength());
+        assertEquals(-1, state.copyData(data, 0));
+
+        state.start();
+        for (char c : "café".toCharArray())
+            state.delta(c);
+        assertTrue(state.isFinal());
+    }
+
+    @Test
+    public void testEmptyAutomaton() throws IOException {
+        FSA fsa = build(new FSABuilder());
+        FSA.State state = fsa.getState();
+        assertFalse(state.find("a"));
+        assertFalse(fsa.iterator().hasNext());
+    }
+
+    @Test
+    public void testInvalidKeys() {
+        assertInvalid("Keys must be sorted", "FSA keys must be added in sorted order without duplicates, but 'a' was added after 'b'",
+                      new FSABuilder().add("b"), "a");
+        assertInvalid("Keys must be unique", "FSA keys must be added in sorted order without duplicates, but 'b' was added after 'b'",
+                      new FSABuilder().add("b"), "b");
+        assertInvalid("Keys cannot be empty", "FSA keys cannot be empty",
+                      new FSABuilder(), "");
+        assertInvalid("Keys cannot contain 0", "FSA keys cannot contain the bytes 0x00 or 0xff, but got 'a\0'",
+                      new FSABuilder(), "a\0");
+    }
+
+    @Test
+    public void testCannotAddAfterWriting() throws IOException {
+        FSABuilder builder = new FSABuilder().add("a");
+        build(builder);
+        try {
+            builder.add("b");
+            fail("Expected exception");
+        }
+        catch (IllegalStateException expected) {
+        }
+    }
+
+    private void assertInvalid(String message, String expectedError, FSABuilder builder, String key) {
+        try {
+            builder.add(key);
+            fail(message);
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals(expectedError, e.getMessage());
+        }
+    }
+
+    private FSA build(FSABuilder builder) throws IOException {
+        File file = tmpDir.newFile();
+        builder.write(file.getPath());
+        return new FSA(file.getPath());
+    }
+
+    private static byte[] intBytes(int value) {
+        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+    }
+
+}
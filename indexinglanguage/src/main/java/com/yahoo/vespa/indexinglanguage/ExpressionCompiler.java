@@ -0,0 +1,37 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.indexinglanguage;
+
+import com.yahoo.document.DocumentType;
+import com.yahoo.vespa.indexinglanguage.expressions.Expression;
+import com.yahoo.vespa.indexinglanguage.expressions.FusedChainExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.StatementExpression;
+
+/**
+ * Compiles expressions for execution on documents of a given type. This is done once per document type,
+ * after optimizing with the {@link ExpressionOptimizer}.
+ * <p>
+ * Statements which read a field, optionally tokenize it, and write it to some fields are replaced by
+ * {@link FusedChainExpression}s, which access the fields directly. Other statements are left as they are.
+ * The compiled expression prints as the expression it was compiled from.
+ *
+ * @author agent
+ */
+public class ExpressionCompiler extends ExpressionConverter {
+
+    private final DocumentType documentType;
+
+    public ExpressionCompiler(DocumentType documentType) {
+        this.documentType = documentType;
+    }
+
+    @Override
+    protected boolean shouldConvert(Expression exp) {
+        return exp instanceof StatementExpression && FusedChainExpression.isFusable((StatementExpression)exp, documentType);
+    }
+
+    @Override
+    protected Expression doConvert(Expression exp) {
+        return new StatementExpression(new FusedChainExpression((StatementExpression)exp, documentType));
+    }
+
+}
@@ -59,6 +59,11 @@ public abstract class ExpressionConverter implements Cloneable {
         return new ForEachExpression(convert(exp.getInnerExpression()));
     }
 
+    /** Converts the statement the chain was fused from, as the conversion may change what the chain does */
+    public Expression innerConvert(FusedChainExpression exp) {
+        return convert(exp.getStatement());
+    }
+
     public Expression innerConvert(GuardExpression exp) {
         return new GuardExpression(convert(exp.getInnerExpression()));
     }
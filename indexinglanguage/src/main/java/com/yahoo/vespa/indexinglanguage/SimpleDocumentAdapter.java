@@ -63,6 +63,12 @@ public class SimpleDocumentAdapter implements DocumentAdapter {
         }
     }
 
+    @Override
+    public FieldValue getInputValue(Field field) {
+        if ( ! isFieldOf(input, field)) return getInputValue(field.getName());
+        return input.getFieldValue(field);
+    }
+
     @Override
     public void tryOutputType(Expression exp, String fieldName, DataType valueType) {
         Field field = output.getDataType().getField(fieldName);
@@ -87,4 +93,17 @@ public class SimpleDocumentAdapter implements DocumentAdapter {
         output.setFieldValue(field, fieldValue);
         return this;
     }
+
+    @Override
+    public SimpleDocumentAdapter setOutputValue(Expression exp, Field field, FieldValue fieldValue) {
+        if ( ! isFieldOf(output, field)) return setOutputValue(exp, field.getName(), fieldValue);
+        output.setFieldValue(field, fieldValue);
+        return this;
+    }
+
+    /** Returns whether the given field is the field with that id in the type of the given document */
+    private static boolean isFieldOf(Document document, Field field) {
+        return document.getDataType().getField(field.getId()) == field;
+    }
+
 }
@@ -2,6 +2,7 @@
 package com.yahoo.vespa.indexinglanguage.expressions;
 
 import com.yahoo.document.DataType;
+import com.yahoo.document.Field;
 import com.yahoo.document.FieldPath;
 import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.language.Language;
@@ -58,6 +59,14 @@ public class ExecutionContext implements FieldTypeAdapter, FieldValueAdapter, Cl
         return adapter.getInputValue(fieldPath);
     }
 
+    @Override
+    public FieldValue getInputValue(Field field) {
+        if (adapter == null) {
+            throw new IllegalStateException("Can not get field '" + field.getName() + "' because adapter is null.");
+        }
+        return adapter.getInputValue(field);
+    }
+
     @Override
     public void tryOutputType(Expression exp, String fieldName, DataType valueType) {
         adapter.tryOutputType(exp, fieldName, valueType);
@@ -72,6 +81,15 @@ public class ExecutionContext implements FieldTypeAdapter, FieldValueAdapter, Cl
         return this;
     }
 
+    @Override
+    public ExecutionContext setOutputValue(Expression exp, Field field, FieldValue fieldValue) {
+        if (adapter == null) {
+            throw new IllegalStateException("Can not set field '" + field.getName() + "' because adapter is null.");
+        }
+        adapter.setOutputValue(exp, field, fieldValue);
+        return this;
+    }
+
     public FieldValueAdapter getAdapter() {
         return adapter;
     }
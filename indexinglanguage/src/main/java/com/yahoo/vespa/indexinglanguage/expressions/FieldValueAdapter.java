@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.indexinglanguage.expressions;
 
+import com.yahoo.document.Field;
 import com.yahoo.document.FieldPath;
 import com.yahoo.document.datatypes.FieldValue;
 
@@ -12,5 +13,15 @@ public interface FieldValueAdapter extends FieldTypeAdapter {
     public FieldValue getInputValue(String fieldName);
     public FieldValue getInputValue(FieldPath fieldPath);
 
+    /** Returns the value of the given top level field, which adapters over documents can look up without a field path */
+    public default FieldValue getInputValue(Field field) {
+        return getInputValue(field.getName());
+    }
+
     public FieldValueAdapter setOutputValue(Expression exp, String fieldName, FieldValue fieldValue);
+
+    /** Sets the value of the given top level field, which adapters over documents can set without looking it up by name */
+    public default FieldValueAdapter setOutputValue(Expression exp, Field field, FieldValue fieldValue) {
+        return setOutputValue(exp, field.getName(), fieldValue);
+    }
 }
@@ -0,0 +1,186 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.indexinglanguage.expressions;
+
+import com.yahoo.document.DataType;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.Field;
+import com.yahoo.document.datatypes.FieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.language.Language;
+import com.yahoo.vespa.objects.ObjectOperation;
+import com.yahoo.vespa.objects.ObjectPredicate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A statement of the form "input field | tokenize ... | index field | summary field ...", where tokenize is
+ * optional, compiled for documents of a given type: The fields are resolved once when this is created,
+ * and the chain is executed as a whole instead of expression by expression.
+ * This is created by the {@link com.yahoo.vespa.indexinglanguage.ExpressionCompiler}.
+ *
+ * @author agent
+ */
+public final class FusedChainExpression extends CompositeExpression {
+
+    private final StatementExpression statement;
+    private final DataType createdOutputType;
+
+    private final Field input;
+    private final TokenizeExpression tokenize;
+    private final OutputExpression[] outputs;
+    private final Field[] outputFields;
+
+    /**
+     * Creates a fused chain from a statement.
+     *
+     * @throws IllegalArgumentException if the statement cannot be fused for documents of this type
+     */
+    public FusedChainExpression(StatementExpression statement, DocumentType documentType) {
+        super(null);
+        if ( ! isFusable(statement, documentType))
+            throw new IllegalArgumentException("Statement '" + statement + "' cannot be fused for " + documentType);
+        this.statement = statement;
+        this.createdOutputType = statement.createdOutputType();
+
+        List<Expression> expressions = statement.asList();
+        input = documentType.getField(((InputExpression)expressions.get(0)).getFieldName());
+        tokenize = expressions.get(1) instanceof TokenizeExpression ? (TokenizeExpression)expressions.get(1) : null;
+        int firstOutput = tokenize == null ? 1 : 2;
+        outputs = new OutputExpression[expressions.size() - firstOutput];
+        outputFields = new Field[outputs.length];
+        for (int i = 0; i < outputs.length; i++) {
+            outputs[i] = (OutputExpression)expressions.get(firstOutput + i);
+            outputFields[i] = documentType.getField(outputs[i].getFieldName());
+        }
+    }
+
+    /** Returns the statement this was created from */
+    public StatementExpression getStatement() { return statement; }
+
+    @Override
+    protected void doExecute(ExecutionContext context) {
+        context.setValue(context.getInputValue(input));
+        if (tokenize != null)
+            tokenize.execute(context);
+        setOutputValues(context.getValue(), context);
+    }
+
+    private FieldValue tokenize(FieldValue value, Language language) {
+        return new ExecutionContext().setLanguage(language).setValue(value).execute(tokenize).getValue();
+    }
+
+    private void setOutputValues(FieldValue value, ExecutionContext context) {
+        if (value == null) return;
+        for (int i = 0; i < outputs.length; i++)
+            context.setOutputValue(outputs[i], outputFields[i], value);
+    }
+
+    /** Returns whether this reads a field which is written by any of the given chains */
+    boolean readsOutputOf(List<FusedChainExpression> chains) {
+        for (FusedChainExpression chain : chains) {
+            for (Field outputField : chain.outputFields) {
+                if (outputField.getName().equals(input.getName())) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the chain of the given statement if it is a fused chain which tokenizes with a parallel segment length,
+     * such that it may be tokenized concurrently with other chains, and null otherwise.
+     */
+    static FusedChainExpression concurrentChainOf(StatementExpression statement) {
+        if (statement.size() != 1 || ! (statement.get(0) instanceof FusedChainExpression)) return null;
+        FusedChainExpression chain = (FusedChainExpression)statement.get(0);
+        if (chain.tokenize == null || chain.tokenize.getConfig().getParallelSegmentLength() <= 0) return null;
+        return chain;
+    }
+
+    /**
+     * Executes the given chains, none of which reads the output of another. If the total length of their inputs
+     * is above their parallel segment length, the inputs are tokenized concurrently in the common fork join pool.
+     * The inputs are read and the outputs written by the calling thread, in the order of the chains.
+     */
+    static void executeConcurrently(List<FusedChainExpression> chains, ExecutionContext context) {
+        FieldValue[] values = new FieldValue[chains.size()];
+        long totalLength = 0;
+        int parallelSegmentLength = Integer.MAX_VALUE;
+        for (int i = 0; i < values.length; i++) {
+            FusedChainExpression chain = chains.get(i);
+            values[i] = context.getInputValue(chain.input);
+            if (values[i] instanceof StringFieldValue)
+                totalLength += ((StringFieldValue)values[i]).getString().length();
+            parallelSegmentLength = Math.min(parallelSegmentLength, chain.tokenize.getConfig().getParallelSegmentLength());
+        }
+
+        Language language = context.getLanguage();
+        if (totalLength > parallelSegmentLength) {
+            List<ForkJoinTask<FieldValue>> tasks = new ArrayList<>(values.length);
+            for (int i = 0; i < values.length; i++) {
+                FusedChainExpression chain = chains.get(i);
+                FieldValue value = values[i];
+                tasks.add(ForkJoinTask.adapt(() -> chain.tokenize(value, language)));
+            }
+            ForkJoinTask.invokeAll(tasks);
+            for (int i = 0; i < values.length; i++)
+                values[i] = tasks.get(i).join();
+        }
+        else {
+            for (int i = 0; i < values.length; i++)
+                values[i] = chains.get(i).tokenize(values[i], language);
+        }
+
+        for (int i = 0; i < values.length; i++)
+            chains.get(i).setOutputValues(values[i], context);
+    }
+
+    @Override
+    protected void doVerify(VerificationContext context) {
+        context.execute(statement);
+    }
+
+    @Override
+    public DataType createdOutputType() { return createdOutputType; }
+
+    @Override
+    public void selectMembers(ObjectPredicate predicate, ObjectOperation operation) {
+        statement.select(predicate, operation);
+    }
+
+    @Override
+    public String toString() { return statement.toString(); }
+
+    @Override
+    public boolean equals(Object obj) {
+        if ( ! (obj instanceof FusedChainExpression)) return false;
+        return statement.equals(((FusedChainExpression)obj).statement);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode() + statement.hashCode();
+    }
+
+    /** Returns whether the given statement is a chain which can be fused for documents of the given type */
+    public static boolean isFusable(StatementExpression statement, DocumentType documentType) {
+        List<Expression> expressions = statement.asList();
+        if (expressions.size() < 2) return false;
+        if ( ! (expressions.get(0) instanceof InputExpression)) return false;
+        if ( ! isTopLevelField(((InputExpression)expressions.get(0)).getFieldName(), documentType)) return false;
+
+        int firstOutput = expressions.get(1) instanceof TokenizeExpression ? 2 : 1;
+        if (firstOutput == expressions.size()) return false;
+        for (int i = firstOutput; i < expressions.size(); i++) {
+            if ( ! (expressions.get(i) instanceof OutputExpression)) return false;
+            if ( ! isTopLevelField(((OutputExpression)expressions.get(i)).getFieldName(), documentType)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isTopLevelField(String fieldName, DocumentType documentType) {
+        return fieldName != null && documentType.getField(fieldName) != null;
+    }
+
+}
@@ -10,16 +10,23 @@ import com.yahoo.vespa.indexinglanguage.ScriptParserContext;
 import com.yahoo.vespa.indexinglanguage.parser.IndexingInput;
 import com.yahoo.vespa.indexinglanguage.parser.ParseException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Simon Thoresen Hult
  */
 public final class ScriptExpression extends ExpressionList<StatementExpression> {
 
+    /** Runs of statements which may be tokenized concurrently, by the index of the first statement in the run */
+    private final Map<Integer, List<FusedChainExpression>> concurrentRuns;
+
     public ScriptExpression() {
         this(Collections.emptyList());
     }
@@ -30,13 +37,21 @@ public final class ScriptExpression extends ExpressionList<StatementExpression>
 
     public ScriptExpression(Collection<? extends StatementExpression> lst) {
         super(lst, resolveInputType(lst));
+        concurrentRuns = resolveConcurrentRuns(asList());
     }
 
     @Override
     protected void doExecute(ExecutionContext ctx) {
         FieldValue input = ctx.getValue();
-        for (Expression exp : this) {
-            ctx.setValue(input).execute(exp);
+        for (int i = 0; i < size(); ) {
+            List<FusedChainExpression> run = concurrentRuns.get(i);
+            ctx.setValue(input);
+            if (run != null) {
+                FusedChainExpression.executeConcurrently(run, ctx);
+                i += run.size();
+            } else {
+                ctx.execute(get(i++));
+            }
         }
         ctx.setValue(input);
     }
@@ -50,6 +65,31 @@ public final class ScriptExpression extends ExpressionList<StatementExpression>
         context.setValue(input);
     }
 
+    /**
+     * Finds the runs of consecutive fused chains which tokenize with a parallel segment length,
+     * where no chain reads the output of an earlier chain in the same run.
+     */
+    private static Map<Integer, List<FusedChainExpression>> resolveConcurrentRuns(List<StatementExpression> statements) {
+        Map<Integer, List<FusedChainExpression>> runs = new HashMap<>();
+        List<FusedChainExpression> run = new ArrayList<>();
+        for (int i = 0; i < statements.size(); i++) {
+            FusedChainExpression chain = FusedChainExpression.concurrentChainOf(statements.get(i));
+            if (chain == null || chain.readsOutputOf(run)) {
+                if (run.size() > 1) {
+                    runs.put(i - run.size(), run);
+                }
+                run = new ArrayList<>();
+            }
+            if (chain != null) {
+                run.add(chain);
+            }
+        }
+        if (run.size() > 1) {
+            runs.put(statements.size() - run.size(), run);
+        }
+        return runs.isEmpty() ? Collections.emptyMap() : runs;
+    }
+
     private static DataType resolveInputType(Collection<? extends StatementExpression> list) {
         DataType prev = null;
         for (Expression exp : list) {
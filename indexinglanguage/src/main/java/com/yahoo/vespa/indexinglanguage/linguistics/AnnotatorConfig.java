@@ -15,6 +15,7 @@ public class AnnotatorConfig implements Cloneable {
     private boolean removeAccents;
     private int maxTermOccurences;
     private int maxTokenizeLength;
+    private int parallelSegmentLength;
 
     public static final int DEFAULT_MAX_TERM_OCCURRENCES;
     private static final int DEFAULT_MAX_TOKENIZE_LENGTH;
@@ -31,6 +32,7 @@ public class AnnotatorConfig implements Cloneable {
         removeAccents = false;
         maxTermOccurences = DEFAULT_MAX_TERM_OCCURRENCES;
         maxTokenizeLength = DEFAULT_MAX_TOKENIZE_LENGTH;
+        parallelSegmentLength = 0;
     }
 
     public AnnotatorConfig(AnnotatorConfig rhs) {
@@ -39,6 +41,7 @@ public class AnnotatorConfig implements Cloneable {
         removeAccents = rhs.removeAccents;
         maxTermOccurences = rhs.maxTermOccurences;
         maxTokenizeLength = rhs.maxTokenizeLength;
+        parallelSegmentLength = rhs.parallelSegmentLength;
     }
 
     public Language getLanguage() {
@@ -91,6 +94,19 @@ public class AnnotatorConfig implements Cloneable {
         return maxTokenizeLength;
     }
 
+    /**
+     * Sets the length above which strings are split into segments of about this length which are
+     * tokenized in parallel. 0 (the default) disables parallel tokenization.
+     */
+    public AnnotatorConfig setParallelSegmentLength(int parallelSegmentLength) {
+        this.parallelSegmentLength = parallelSegmentLength;
+        return this;
+    }
+
+    public int getParallelSegmentLength() {
+        return parallelSegmentLength;
+    }
+
     public boolean hasNonDefaultMaxTokenLength() {
         return maxTokenizeLength != DEFAULT_MAX_TOKENIZE_LENGTH;
     }
@@ -116,12 +132,15 @@ public class AnnotatorConfig implements Cloneable {
         if (maxTokenizeLength != rhs.maxTokenizeLength) {
             return false;
         }
+        if (parallelSegmentLength != rhs.parallelSegmentLength) {
+            return false;
+        }
         return true;
     }
 
     @Override
     public int hashCode() {
         return getClass().hashCode() + language.hashCode() + stemMode.hashCode() +
-               Boolean.valueOf(removeAccents).hashCode() + maxTermOccurences + maxTokenizeLength;
+               Boolean.valueOf(removeAccents).hashCode() + maxTermOccurences + maxTokenizeLength + parallelSegmentLength;
     }
 }
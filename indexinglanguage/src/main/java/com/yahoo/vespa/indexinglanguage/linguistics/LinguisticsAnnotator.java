@@ -13,8 +13,11 @@ import com.yahoo.language.process.StemMode;
 import com.yahoo.language.process.Token;
 import com.yahoo.language.process.Tokenizer;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
 
 import static com.yahoo.language.LinguisticsCase.toLowerCase;
 
@@ -48,6 +51,21 @@ public class LinguisticsAnnotator {
         }
     }
 
+    /** The tokens of a segment of a string, with offsets relative to the start of the segment */
+    private static class TokenizedSegment {
+
+        final Tokenizer tokenizer;
+        final List<Token> tokens;
+        final int offset;
+
+        TokenizedSegment(Tokenizer tokenizer, List<Token> tokens, int offset) {
+            this.tokenizer = tokenizer;
+            this.tokens = tokens;
+            this.offset = offset;
+        }
+
+    }
+
     /**
      * Constructs a new instance of this annotator.
      *
@@ -61,6 +79,8 @@ public class LinguisticsAnnotator {
 
     /**
      * Annotates the given string with the appropriate linguistics annotations.
+     * If the string is longer than the parallel segment length of the config, it is split at whitespace
+     * into segments which are tokenized in parallel in the common fork join pool.
      *
      * @param text the text to annotate
      * @return whether or not anything was annotated
@@ -68,16 +88,17 @@ public class LinguisticsAnnotator {
     public boolean annotate(StringFieldValue text) {
         if (text.getSpanTree(SpanTrees.LINGUISTICS) != null) return true;  // Already annotated with LINGUISTICS.
 
-        Tokenizer tokenizer = factory.getTokenizer();
         String input = (text.getString().length() <=  config.getMaxTokenizeLength())
                 ? text.getString()
                 : text.getString().substring(0, config.getMaxTokenizeLength());
-        Iterable<Token> tokens = tokenizer.tokenize(input, config.getLanguage(), config.getStemMode(),
-                                                    config.getRemoveAccents());
         TermOccurrences termOccurrences = new TermOccurrences(config.getMaxTermOccurrences());
         SpanTree tree = new SpanTree(SpanTrees.LINGUISTICS);
-        for (Token token : tokens) {
-            addAnnotationSpan(text.getString(), tree.spanList(), tokenizer, token, config.getStemMode(), termOccurrences);
+        // Spans are added in text order after tokenizing, such that the term occurrence limit applies as when sequential
+        for (TokenizedSegment segment : tokenize(input)) {
+            for (Token token : segment.tokens) {
+                addAnnotationSpan(text.getString(), tree.spanList(), segment.tokenizer, token, config.getStemMode(),
+                                  termOccurrences, segment.offset);
+            }
         }
 
         if (tree.numAnnotations() == 0) return false;
@@ -85,6 +106,49 @@ public class LinguisticsAnnotator {
         return true;
     }
 
+    private List<TokenizedSegment> tokenize(String input) {
+        int segmentLength = config.getParallelSegmentLength();
+        if (segmentLength <= 0 || input.length() <= segmentLength)
+            return List.of(tokenize(input, 0));
+
+        List<ForkJoinTask<TokenizedSegment>> tasks = new ArrayList<>();
+        for (int start = 0; start < input.length(); ) {
+            int segmentStart = start;
+            int segmentEnd = segmentEnd(input, start, segmentLength);
+            tasks.add(ForkJoinTask.adapt(() -> tokenize(input.substring(segmentStart, segmentEnd), segmentStart)));
+            start = segmentEnd;
+        }
+        ForkJoinTask.invokeAll(tasks);
+        List<TokenizedSegment> segments = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<TokenizedSegment> task : tasks)
+            segments.add(task.join());
+        return segments;
+    }
+
+    private TokenizedSegment tokenize(String segment, int offset) {
+        Tokenizer tokenizer = factory.getTokenizer();
+        List<Token> tokens = new ArrayList<>();
+        for (Token token : tokenizer.tokenize(segment, config.getLanguage(), config.getStemMode(), config.getRemoveAccents()))
+            tokens.add(token);
+        return new TokenizedSegment(tokenizer, tokens, offset);
+    }
+
+    /**
+     * Returns the end of the segment starting at the given position: The last whitespace in the second half of
+     * the segment length, or if there is none, the first whitespace after it, such that no token is split.
+     */
+    static int segmentEnd(String input, int start, int segmentLength) {
+        int end = start + segmentLength;
+        if (end >= input.length()) return input.length();
+        for (int i = end; i > start + segmentLength / 2; i--) {
+            if (Character.isWhitespace(input.charAt(i))) return i;
+        }
+        for (int i = end + 1; i < input.length(); i++) {
+            if (Character.isWhitespace(input.charAt(i))) return i;
+        }
+        return input.length();
+    }
+
     /**
      * Creates a TERM annotation which has the lowercase value as annotation (only) if it is different from the
      * original.
@@ -107,11 +171,12 @@ public class LinguisticsAnnotator {
         }
     }
 
-    private static void addAnnotationSpan(String input, SpanList parent, Tokenizer tokenizer, Token token, StemMode mode, TermOccurrences termOccurrences) {
+    private static void addAnnotationSpan(String input, SpanList parent, Tokenizer tokenizer, Token token, StemMode mode,
+                                          TermOccurrences termOccurrences, int offset) {
         if ( ! token.isSpecialToken()) {
             if (token.getNumComponents() > 0) {
                 for (int i = 0; i < token.getNumComponents(); ++i) {
-                    addAnnotationSpan(input, parent, tokenizer, token.getComponent(i), mode, termOccurrences);
+                    addAnnotationSpan(input, parent, tokenizer, token.getComponent(i), mode, termOccurrences, offset);
                 }
                 return;
             }
@@ -120,7 +185,7 @@ public class LinguisticsAnnotator {
             }
         }
         String orig = token.getOrig();
-        int pos = (int)token.getOffset();
+        int pos = offset + (int)token.getOffset();
         if (pos >= input.length()) {
             throw new IllegalArgumentException("Token '" + orig + "' has offset " + pos + ", which is outside the " +
                                                "bounds of the input string; " + input);
@@ -0,0 +1,142 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.indexinglanguage;
+
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.annotation.SpanTrees;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.language.simple.SimpleLinguistics;
+import com.yahoo.vespa.indexinglanguage.expressions.Expression;
+import com.yahoo.vespa.indexinglanguage.expressions.FusedChainExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.IndexExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.ScriptExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.StatementExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.SummaryExpression;
+import com.yahoo.vespa.indexinglanguage.linguistics.AnnotatorConfig;
+import com.yahoo.vespa.indexinglanguage.parser.IndexingInput;
+import com.yahoo.vespa.indexinglanguage.parser.ParseException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class ExpressionCompilerTestCase {
+
+    private final DocumentType type;
+
+    public ExpressionCompilerTestCase() {
+        type = new DocumentType("mytype");
+        type.addField("in", DataType.STRING);
+        type.addField("in-2", DataType.STRING);
+        type.addField("out-1", DataType.STRING);
+        type.addField("out-2", DataType.STRING);
+        type.addField("out-3", DataType.STRING);
+        type.addField("number", DataType.INT);
+    }
+
+    @Test
+    public void requireThatInputToOutputChainsAreFused() throws ParseException {
+        assertFused("input in | index out-1");
+        assertFused("input in | tokenize normalize stem:\"BEST\" | index out-1 | summary out-2");
+        assertFused("input in | summary out-1 | attribute out-2");
+    }
+
+    @Test
+    public void requireThatOtherStatementsAreNotFused() throws ParseException {
+        assertNotFused("input in");
+        assertNotFused("input in | tokenize");
+        assertNotFused("input in | lowercase | index out-1");
+        assertNotFused("input in | index out-1 | lowercase | index out-2");
+        assertNotFused("input in | tokenize | tokenize | index out-1");
+        assertNotFused("input unknown | index out-1");
+        assertNotFused("input in | index unknown");
+        assertNotFused("'foo' | index out-1");
+    }
+
+    @Test
+    public void requireThatStatementsInScriptsAreFused() throws ParseException {
+        Expression script = Expression.fromString("{ input in | tokenize | index out-1; " +
+                                                  "input in | lowercase | summary out-2; }");
+        Expression compiled = new ExpressionCompiler(type).convert(script);
+        assertEquals(script.toString(), compiled.toString());
+        assertTrue(compiled instanceof ScriptExpression);
+        assertTrue(isFused(((ScriptExpression)compiled).get(0)));
+        assertFalse(isFused(((ScriptExpression)compiled).get(1)));
+    }
+
+    @Test
+    public void requireThatCompiledScriptsProduceTheSameOutput() throws ParseException {
+        Document input = new Document(type, "id:scheme:mytype::");
+        input.setFieldValue("in", new StringFieldValue("Hello World"));
+        input.setFieldValue("number", 42);
+        String script = "{ input in | tokenize normalize | index out-1 | summary out-2; input number | attribute number; }";
+
+        Document interpreted = Expression.execute(Expression.fromString(script), input.clone());
+        Document compiled = Expression.execute(new ExpressionCompiler(type).convert(Expression.fromString(script)), input.clone());
+        assertEquals(interpreted, compiled);
+        StringFieldValue out1 = (StringFieldValue)compiled.getFieldValue("out-1");
+        assertEquals("Hello World", out1.getString());
+        assertNotNull(out1.getSpanTree(SpanTrees.LINGUISTICS));
+        assertSame(out1, compiled.getFieldValue("out-2"));
+    }
+
+    @Test
+    public void requireThatLargeDocumentsAreTokenizedConcurrently() throws ParseException {
+        Document input = new Document(type, "id:scheme:mytype::");
+        input.setFieldValue("in", new StringFieldValue("The quick brown fox jumps over the lazy dog"));
+        input.setFieldValue("in-2", new StringFieldValue("Pack my box with five dozen liquor jugs"));
+        String script = "{ input in | tokenize | index out-1; " +
+                        "input in-2 | tokenize normalize | index out-2 | summary out-2; " +
+                        "input out-1 | tokenize | index out-3; }";
+        ScriptParserContext parserContext = new ScriptParserContext(new SimpleLinguistics())
+                .setAnnotatorConfig(new AnnotatorConfig().setParallelSegmentLength(10));
+
+        Document interpreted = Expression.execute(Expression.fromString(script), input.clone());
+        Expression parsed = Expression.newInstance(parserContext.setInputStream(new IndexingInput(script)));
+        Document compiled = Expression.execute(new ExpressionCompiler(type).convert(parsed), input.clone());
+        assertEquals(interpreted, compiled);
+        assertNotNull(((StringFieldValue)compiled.getFieldValue("out-3")).getSpanTree(SpanTrees.LINGUISTICS));
+    }
+
+    @Test
+    public void requireThatMissingInputProducesNoOutput() throws ParseException {
+        Document input = new Document(type, "id:scheme:mytype::");
+        Expression compiled = new ExpressionCompiler(type).convert(Expression.fromString("input in | tokenize | index out-1"));
+        assertNull(Expression.execute(compiled, input).getFieldValue("out-1"));
+    }
+
+    @Test
+    public void requireThatCompiledExpressionsCanBeVisitedAndVerified() throws ParseException {
+        Expression compiled = new ExpressionCompiler(type).convert(Expression.fromString("input in | tokenize | summary out-1"));
+        assertTrue(new ExpressionSearcher<>(SummaryExpression.class).containedIn(compiled));
+        assertFalse(new ExpressionSearcher<>(IndexExpression.class).containedIn(compiled));
+        assertEquals(compiled, new ExpressionCompiler(type).convert(compiled));
+        compiled.verify(new Document(type, "id:scheme:mytype::"));
+    }
+
+    private void assertFused(String statement) throws ParseException {
+        Expression compiled = new ExpressionCompiler(type).convert(StatementExpression.fromString(statement));
+        assertTrue(statement + " is fused", isFused(compiled));
+        assertEquals(StatementExpression.fromString(statement).toString(), compiled.toString());
+    }
+
+    private void assertNotFused(String statement) throws ParseException {
+        Expression compiled = new ExpressionCompiler(type).convert(StatementExpression.fromString(statement));
+        assertFalse(statement + " is not fused", isFused(compiled));
+        assertEquals(StatementExpression.fromString(statement), compiled);
+    }
+
+    private static boolean isFused(Expression expression) {
+        return expression instanceof StatementExpression && ((StatementExpression)expression).size() == 1 &&
+               ((StatementExpression)expression).get(0) instanceof FusedChainExpression;
+    }
+
+}
@@ -3,6 +3,7 @@ package com.yahoo.vespa.indexinglanguage;
 
 import com.yahoo.document.*;
 import com.yahoo.document.datatypes.FieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
 import com.yahoo.document.datatypes.Struct;
 import com.yahoo.vespa.indexinglanguage.expressions.VerificationException;
 import org.junit.Test;
@@ -52,4 +53,28 @@ public class SimpleDocumentAdapterTestCase {
         }
         assertNull(adapter.getInputValue("foo"));
     }
+
+    @Test
+    public void requireThatFieldsOfOtherDocumentTypesAreResolvedByName() {
+        DocumentType superType = new DocumentType("my_super");
+        superType.addField("foo", DataType.STRING);
+        DocumentType subType = new DocumentType("my_sub");
+        subType.inherit(superType);
+        subType.addField("foo", DataType.STRING);
+        subType.addField("bar", DataType.STRING);
+        Document doc = new Document(superType, "id:scheme:my_super::");
+        doc.setFieldValue("foo", new StringFieldValue("foo"));
+
+        DocumentAdapter adapter = new SimpleDocumentAdapter(doc, doc);
+        assertEquals(new StringFieldValue("foo"), adapter.getInputValue(subType.getField("foo")));
+        adapter.setOutputValue(null, subType.getField("foo"), new StringFieldValue("baz"));
+        assertEquals(new StringFieldValue("baz"), doc.getFieldValue("foo"));
+        try {
+            adapter.setOutputValue(null, subType.getField("bar"), new StringFieldValue("bar"));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Field 'bar' not found in document type 'my_super'.", e.getMessage());
+        }
+        assertNull(doc.getFieldValue("bar"));
+    }
 }
@@ -27,6 +27,9 @@ public class AnnotatorConfigTestCase {
         assertTrue(config.getRemoveAccents());
         config.setRemoveAccents(false);
         assertFalse(config.getRemoveAccents());
+        assertEquals(0, config.getParallelSegmentLength());
+        config.setParallelSegmentLength(1000);
+        assertEquals(1000, config.getParallelSegmentLength());
     }
 
     @Test
@@ -35,11 +38,13 @@ public class AnnotatorConfigTestCase {
         config.setLanguage(Language.ARABIC);
         config.setStemMode(StemMode.SHORTEST);
         config.setRemoveAccents(!config.getRemoveAccents());
+        config.setParallelSegmentLength(1000);
 
         AnnotatorConfig other = new AnnotatorConfig(config);
         assertEquals(config.getLanguage(), other.getLanguage());
         assertEquals(config.getStemMode(), other.getStemMode());
         assertEquals(config.getRemoveAccents(), other.getRemoveAccents());
+        assertEquals(config.getParallelSegmentLength(), other.getParallelSegmentLength());
     }
 
     @Test
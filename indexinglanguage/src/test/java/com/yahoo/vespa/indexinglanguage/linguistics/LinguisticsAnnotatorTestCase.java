@@ -218,6 +218,34 @@ public class LinguisticsAnnotatorTestCase {
         }
     }
 
+    @Test
+    public void requireThatSegmentedAnnotationGivesTheSameSpansAsSequential() {
+        String[] words = { "Apple", "banana", "cherries", "dates", "elderberry", "figs", "grapes" };
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            input.append(words[i * 7919 % words.length]).append(i % 10 == 0 ? ".\n" : " ");
+        }
+        for (StemMode stemMode : Arrays.asList(StemMode.NONE, StemMode.ALL)) {
+            StringFieldValue sequential = new StringFieldValue(input.toString());
+            new LinguisticsAnnotator(new SimpleLinguistics(), new AnnotatorConfig().setStemMode(stemMode)).annotate(sequential);
+
+            StringFieldValue segmented = new StringFieldValue(input.toString());
+            AnnotatorConfig config = new AnnotatorConfig().setStemMode(stemMode).setParallelSegmentLength(100);
+            assertTrue(new LinguisticsAnnotator(new SimpleLinguistics(), config).annotate(segmented));
+            assertEquals(sequential.getSpanTree(SpanTrees.LINGUISTICS), segmented.getSpanTree(SpanTrees.LINGUISTICS));
+        }
+    }
+
+    @Test
+    public void requireThatSegmentsEndAtWhitespace() {
+        assertEquals(10, LinguisticsAnnotator.segmentEnd("0123456789", 0, 20));
+        assertEquals(8, LinguisticsAnnotator.segmentEnd("012345 7 9", 0, 8));
+        assertEquals(6, LinguisticsAnnotator.segmentEnd("012345 789", 0, 8));
+        assertEquals(10, LinguisticsAnnotator.segmentEnd("012 456789 b", 0, 8));
+        assertEquals(8, LinguisticsAnnotator.segmentEnd("01234567 9", 0, 4));
+        assertEquals(11, LinguisticsAnnotator.segmentEnd("0123456789a", 2, 4));
+    }
+
     // --------------------------------------------------------------------------------
     //
     // Utilities
@@ -2,6 +2,7 @@
 package com.yahoo.jrt;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
@@ -447,6 +448,13 @@ class Connection extends Target {
                 .flatMap(CryptoSocket::getSecurityContext);
     }
 
+    @Override
+    public Optional<InetSocketAddress> getPeerAddress() {
+        return Optional.ofNullable(socket)
+                .map(CryptoSocket::channel)
+                .map(channel -> (InetSocketAddress) channel.socket().getRemoteSocketAddress());
+    }
+
     public boolean isClient() {
         return !server;
     }
@@ -2,6 +2,7 @@
 package com.yahoo.jrt;
 
 
+import java.net.InetSocketAddress;
 import java.util.Optional;
 
 /**
@@ -74,6 +75,11 @@ public abstract class Target {
      */
     public abstract Optional<SecurityContext> getSecurityContext();
 
+    /**
+     * @return the address of the other end of the connection of this target, or empty if it is not connected.
+     */
+    public Optional<InetSocketAddress> getPeerAddress() { return Optional.empty(); }
+
     /**
      * Check if this target represents the client side of a
      * connection.
@@ -21,7 +21,8 @@ public class OpenNlpLinguistics extends SimpleLinguistics {
 
     @Inject
     public OpenNlpLinguistics(OpennlpLinguisticsConfig config) {
-        this(config.detector().enableOptimaize());
+        this(config.detector().enableOptimaize() ? new OptimaizeDetector()
+                                                 : new SimpleDetector(config.detector().enableLatinDetection()));
     }
 
     public OpenNlpLinguistics(boolean enableOptimaize) {
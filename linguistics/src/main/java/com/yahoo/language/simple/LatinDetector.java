@@ -0,0 +1,294 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.simple;
+
+import com.yahoo.language.Language;
+import com.yahoo.language.detect.Detection;
+import com.yahoo.language.detect.Detector;
+import com.yahoo.language.detect.Hint;
+import com.yahoo.text.Utf8;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Detects the language of text in the Latin script by scoring its character trigrams against a profile of
+ * each language, as a naive Bayes classifier.
+ *
+ * The profiles are computed from a small sample of common words in each language when this class is loaded,
+ * and kept in a single open addressing table from trigram to the log probability of it in each language.
+ * Detection only looks at the first {@link #maxChars} characters of the input, and stops as soon as one
+ * language leads the others by a large margin. Input with too few known trigrams to tell is not detected.
+ *
+ * This is thread safe.
+ *
+ * @author agent
+ */
+public class LatinDetector implements Detector {
+
+    /** The max number of characters of the input to look at */
+    static final int maxChars = 1000;
+
+    /** The min number of known trigrams needed to detect a language */
+    private static final int minTrigrams = 12;
+
+    /** The min difference in log probability between the best and next best language to detect a language */
+    private static final double minMargin = 4;
+
+    /** The difference in log probability after which the best language is accepted without looking further */
+    private static final double certainMargin = 40;
+
+    private static final Profiles profiles = new Profiles(Samples.all());
+
+    @Override
+    public Detection detect(byte[] input, int offset, int length, Hint hint) {
+        return new Detection(guessLanguage(Utf8.toString(input, offset, Math.min(length, maxChars * 4))),
+                             Utf8.getCharset().name(),
+                             false);
+    }
+
+    @Override
+    public Detection detect(ByteBuffer input, Hint hint) {
+        byte[] buf = new byte[input.remaining()];
+        input.get(buf, 0, buf.length);
+        return detect(buf, 0, buf.length, hint);
+    }
+
+    @Override
+    public Detection detect(String input, Hint hint) {
+        return new Detection(guessLanguage(input), Utf8.getCharset().name(), false);
+    }
+
+    /** Returns the language of the given text, or UNKNOWN if it cannot be determined */
+    public Language guessLanguage(CharSequence input) {
+        double[] scores = new double[profiles.languages.length];
+        int trigrams = 0;
+        char c1 = ' ', c2 = ' ';
+        int end = Math.min(input.length(), maxChars);
+        for (int i = 0; i <= end; i++) {
+            char c3 = i < end ? normalize(input.charAt(i)) : ' ';
+            if (c3 == ' ' && c2 == ' ') continue; // Only one boundary between words
+
+            int row = c2 == ' ' && c1 == ' ' ? -1 : profiles.row(c1, c2, c3);
+            c1 = c2;
+            c2 = c3;
+            if (row < 0) continue;
+
+            profiles.addScores(row, scores);
+            trigrams++;
+            if (trigrams >= minTrigrams && c3 == ' ' && margin(scores) >= certainMargin) break;
+        }
+        if (trigrams < minTrigrams || margin(scores) < minMargin) return Language.UNKNOWN;
+        return profiles.languages[best(scores)];
+    }
+
+    /** Returns the given char lowercased if it is a letter, and space otherwise */
+    static char normalize(char c) {
+        if (c < 0x80) {
+            if (c >= 'a' && c <= 'z') return c;
+            if (c >= 'A' && c <= 'Z') return (char)(c + ('a' - 'A'));
+            return ' ';
+        }
+        return Character.isLetter(c) ? Character.toLowerCase(c) : ' ';
+    }
+
+    private static int best(double[] scores) {
+        int best = 0;
+        for (int i = 1; i < scores.length; i++)
+            if (scores[i] > scores[best]) best = i;
+        return best;
+    }
+
+    private static double margin(double[] scores) {
+        double best = Double.NEGATIVE_INFINITY, next = Double.NEGATIVE_INFINITY;
+        for (double score : scores) {
+            if (score > best) {
+                next = best;
+                best = score;
+            }
+            else if (score > next) {
+                next = score;
+            }
+        }
+        return best - next;
+    }
+
+    /** The trigram profiles of all languages, as log probabilities in a table addressed by trigram */
+    private static final class Profiles {
+
+        final Language[] languages;
+
+        /** The trigram of each row, packed into a long, or 0 if the row is empty */
+        private final long[] keys;
+
+        /** The log probability of the trigram of each row in each language, at row * languages.length + language */
+        private final float[] logProbabilities;
+
+        private final int mask;
+
+        Profiles(Map<Language, String> samples) {
+            languages = samples.keySet().toArray(new Language[0]);
+            Map<Long, int[]> counts = new HashMap<>();
+            int[] totals = new int[languages.length];
+            for (int l = 0; l < languages.length; l++) {
+                String sample = samples.get(languages[l]);
+                char c1 = ' ', c2 = ' ';
+                for (int i = 0; i <= sample.length(); i++) {
+                    char c3 = i < sample.length() ? normalize(sample.charAt(i)) : ' ';
+                    if (c3 == ' ' && c2 == ' ') continue;
+                    if ( ! (c1 == ' ' && c2 == ' ')) {
+                        counts.computeIfAbsent(key(c1, c2, c3), __ -> new int[languages.length])[l]++;
+                        totals[l]++;
+                    }
+                    c1 = c2;
+                    c2 = c3;
+                }
+            }
+
+            int size = Integer.highestOneBit(counts.size() * 2) << 1;
+            keys = new long[size];
+            logProbabilities = new float[size * languages.length];
+            mask = size - 1;
+            for (Map.Entry<Long, int[]> trigram : counts.entrySet()) {
+                int row = slot(trigram.getKey());
+                while (keys[row] != 0)
+                    row = (row + 1) & mask;
+                keys[row] = trigram.getKey();
+                for (int l = 0; l < languages.length; l++) // Additive smoothing of trigrams not seen in a language
+                    logProbabilities[row * languages.length + l] =
+                            (float)Math.log((trigram.getValue()[l] + 0.1) / (totals[l] + 0.1 * counts.size()));
+            }
+        }
+
+        /** Returns the row of the given trigram, or -1 if it is not present in any profile */
+        int row(char c1, char c2, char c3) {
+            long key = key(c1, c2, c3);
+            for (int row = slot(key); keys[row] != 0; row = (row + 1) & mask) {
+                if (keys[row] == key) return row;
+            }
+            return -1;
+        }
+
+        void addScores(int row, double[] scores) {
+            for (int l = 0; l < scores.length; l++)
+                scores[l] += logProbabilities[row * scores.length + l];
+        }
+
+        private int slot(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int)(hash >>> 32) & mask;
+        }
+
+        private static long key(char c1, char c2, char c3) {
+            return ((long)c1 << 32) | ((long)c2 << 16) | c3;
+        }
+
+    }
+
+    /** Samples of common words in each language */
+    private static final class Samples {
+
+        static Map<Language, String> all() {
+            Map<Language, String> samples = new LinkedHashMap<>();
+            samples.put(Language.ENGLISH,
+                        "the of and to in is you that it he was for on are as with his they at be this have from " +
+                        "or one had by word but not what all were we when your can said there use an each which she " +
+                        "do how their if will up other about out many then them these so some her would make like him " +
+                        "into time has look two more write go see number no way could people my than first water been " +
+                        "call who oil its now find long down day did get come made may part over new sound take only " +
+                        "little work know place year live me back give most very after thing our just name good sentence " +
+                        "man think say great where help through much before line right too mean old any same tell boy " +
+                        "follow came want show also around form three small set put end does another well large must " +
+                        "big even such because turn here why ask went men read need land different home us move try " +
+                        "kind hand picture again change off play spell air away animal house point page letter mother " +
+                        "answer found study still learn should world high every near add food between own below country " +
+                        "The results of the search were ranked by how relevant they are to the users, and the documents " +
+                        "which were written most recently are shown first. We have been working on this for a while.");
+            samples.put(Language.GERMAN,
+                        "der die und in den von zu das mit sich des auf für ist im dem nicht ein eine als auch es an " +
+                        "werden aus er hat dass sie nach wird bei einer um am sind noch wie einem über einen so zum " +
+                        "war haben nur oder aber vor zur bis mehr durch man sein wurde sei hatte kann gegen vom können " +
+                        "schon wenn habe seine ihre dann unter wir soll ich eines jahr zwei jahre diese dieser wieder " +
+                        "keine uhr seiner worden will zwischen immer millionen was sagte gibt alle seit muss doch jetzt " +
+                        "drei neue damit bereits da ab ihr ihm sollen müssen heute ganz weil sehr viele nach hier " +
+                        "Die Überprüfung der Änderungen hat gezeigt, dass die Größe der Dokumente einen erheblichen " +
+                        "Einfluss auf die Verarbeitungszeit hat. Wir haben die Ergebnisse der Suche verbessert, und " +
+                        "die Benutzer können jetzt schneller finden, wonach sie suchen. Straße Mädchen schön größer.");
+            samples.put(Language.FRENCH,
+                        "de la le et les des en un du une que est pour qui dans a par plus pas au sur ne se le ce il " +
+                        "sont la les ou avec son aux d'un cette d'une ont ses mais comme on tout nous sa été aussi " +
+                        "leur bien peut ces y deux elle si entre fait être était sans même dont ils autres après très " +
+                        "encore faire contre avoir tous lors alors où je vous peu temps ans premier fois avant depuis " +
+                        "chez cela ainsi elles toujours quand notre votre leurs année trois nouveau pays monde jour " +
+                        "Les résultats de la requête ont été améliorés grâce à une meilleure compréhension du français. " +
+                        "Nous avons travaillé sur ce problème pendant plusieurs semaines, et les utilisateurs peuvent " +
+                        "maintenant trouver ce qu'ils cherchent beaucoup plus rapidement. C'est très intéressant.");
+            samples.put(Language.SPANISH,
+                        "de la que el en y a los se del las un por con no una su para es al lo como más o pero sus le " +
+                        "ha me si sin sobre este ya entre cuando todo esta ser son dos también fue había era muy años " +
+                        "hasta desde está mi porque qué sólo han yo hay vez puede todos así nos ni parte tiene él uno " +
+                        "donde bien tiempo mismo ese ahora cada e vida otro después te otros aunque esa eso hace otra " +
+                        "gobierno tan durante siempre día tanto ella tres sí dijo sido gran país según menos año antes " +
+                        "Los resultados de la búsqueda se ordenan según su relevancia para los usuarios, y los documentos " +
+                        "más recientes se muestran primero. Hemos trabajado en este problema durante varias semanas, " +
+                        "y ahora los usuarios pueden encontrar lo que buscan mucho más rápido. Niño mañana español.");
+            samples.put(Language.ITALIAN,
+                        "di e il la che a per un in è non del una le si sono i da con ha dei anche al nel come della " +
+                        "più ma ci lo alla gli mi io se ho delle o cosa questo essere tutto fatto era mio molto quando " +
+                        "ancora solo suo hanno sua poi stato dove così lei bene lui fare questa noi due già sempre " +
+                        "degli nella tra dopo tutti prima qui niente oggi casa anni perché voi loro vita stata questi " +
+                        "I risultati della ricerca sono ordinati in base alla loro rilevanza per gli utenti, e i " +
+                        "documenti più recenti vengono mostrati per primi. Abbiamo lavorato su questo problema per " +
+                        "diverse settimane, e adesso gli utenti possono trovare quello che cercano molto più velocemente. " +
+                        "Questa città è bellissima, e la gente è gentile. Vorrei un bicchiere di vino, per favore.");
+            samples.put(Language.PORTUGUESE,
+                        "de a o que e do da em um para é com não uma os no se na por mais as dos como mas foi ao ele " +
+                        "das tem à seu sua ou ser quando muito há nos já está eu também só pelo pela até isso ela entre " +
+                        "era depois sem mesmo aos ter seus quem nas me esse eles estão você tinha foram essa num nem " +
+                        "suas meu às minha têm numa pelos elas havia seja qual será nós tenho lhe deles essas esses " +
+                        "Os resultados da pesquisa são ordenados de acordo com a sua relevância para os usuários, e os " +
+                        "documentos mais recentes são mostrados primeiro. Trabalhamos neste problema durante várias " +
+                        "semanas, e agora os usuários podem encontrar o que procuram muito mais rapidamente. " +
+                        "A informação não está disponível. Ações, opções, coração, irmão, nação, então, são.");
+            samples.put(Language.DUTCH,
+                        "de van een het en in is dat op te zijn voor met die niet aan er om ook als dan maar bij of " +
+                        "uit nog worden door naar heeft tot ze wordt je kan hij dit over was al meer deze geen zo na " +
+                        "werd omdat zou wel moet hebben veel tegen onder twee jaar wat wij waar hun we kunnen haar " +
+                        "ik mijn jij jullie zij alles iets niets nieuwe grote goed echt altijd hier daar ook weer " +
+                        "De resultaten van de zoekopdracht worden gerangschikt op basis van hun relevantie voor de " +
+                        "gebruikers, en de meest recente documenten worden als eerste getoond. We hebben een aantal " +
+                        "weken aan dit probleem gewerkt, en nu kunnen de gebruikers veel sneller vinden wat ze zoeken. " +
+                        "Het huis is groot en mooi, maar de tuin is klein. Wij gaan morgen naar de stad.");
+            samples.put(Language.SWEDISH,
+                        "och i att det som en på är av för med till den har de inte om ett han men var jag sig från " +
+                        "vi så kan man när år säger hon under också efter eller nu sin där vid mot ska skulle kommer " +
+                        "ut få finns vara hade alla andra mycket än här då sedan över bara in blir upp även vad två " +
+                        "någon måste många mellan sina hans dem stora vilket mer första sverige utan får gör bli " +
+                        "Resultaten av sökningen rangordnas efter hur relevanta de är för användarna, och de senaste " +
+                        "dokumenten visas först. Vi har arbetat med det här problemet i flera veckor, och nu kan " +
+                        "användarna hitta det de söker mycket snabbare. Jag tycker om att läsa böcker på kvällen. " +
+                        "Hur mår du idag? Det är väldigt kallt ute, så ta på dig en jacka.");
+            samples.put(Language.NORWEGIAN_BOKMAL,
+                        "og i er det som på en til av å for med at har ikke de den han om et var jeg fra men seg vi " +
+                        "kan så også skal etter eller hun vil ble blir nå ut hadde sier år da over må dette når mot " +
+                        "sin bare noe kunne inn hva andre to sine mange enn opp meg vært her alle hvor mer under mye " +
+                        "deg hans denne hvis der slik uten mellom noen norge først sammen ham kommer gjøre gikk fikk " +
+                        "Vi har gjennomført en rekke endringer i systemet, og søkeresultatene blir nå rangert etter hvor " +
+                        "relevante de er for brukerne. Vi har jobbet med dette problemet i flere uker, og nå kan " +
+                        "brukerne finne det de leter etter mye raskere. Jeg liker å lese bøker om kvelden. " +
+                        "Hvordan har du det i dag? Det er veldig kaldt ute, så ta på deg en jakke. Hjemme hos oss.");
+            samples.put(Language.FINNISH,
+                        "ja on ei se että hän oli ovat mutta myös kun tai niin jos sen kuin mitä nyt vain jo ole olla " +
+                        "hänen minä sinä me te he tämä tämän siitä joka jotka mukaan vuoden sekä sitten koska vielä " +
+                        "kanssa ennen jälkeen paljon aina mikä kaikki kaksi kolme suomen suomessa olisi voi pitää " +
+                        "Hakutulokset järjestetään sen mukaan, kuinka merkityksellisiä ne ovat käyttäjille, ja uusimmat " +
+                        "asiakirjat näytetään ensin. Olemme työskennelleet tämän ongelman parissa useita viikkoja, ja " +
+                        "nyt käyttäjät löytävät etsimänsä paljon nopeammin. Minä pidän kirjojen lukemisesta illalla. " +
+                        "Mitä sinulle kuuluu tänään? Ulkona on todella kylmä, joten laita takki päälle. Hyvää päivää.");
+            return samples;
+        }
+
+    }
+
+}
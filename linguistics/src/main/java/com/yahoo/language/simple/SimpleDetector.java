@@ -19,12 +19,29 @@ import java.nio.ByteBuffer;
  * Japanese or Chinese characters, so their presence is a good indication of Korean.  If a string contains phonetic
  * japanese, this is a good indication of Japanese.  However, Japanese and Chinese characters occupy many of the same
  * character blocks, so if there are no definitive signs of Japanese then it is assumed that the String is Chinese.
+ * Text without any of these is UNKNOWN, or passed to the {@link LatinDetector} if that is enabled.
  *
  * @author Rich Pito
  * @author bjorncs
  */
 public class SimpleDetector implements Detector {
 
+    private static final LatinDetector latinDetector = new LatinDetector();
+
+    private final boolean detectLatinLanguages;
+
+    public SimpleDetector() {
+        this(false);
+    }
+
+    /**
+     * @param detectLatinLanguages whether to guess the language of text in the Latin script,
+     *                             rather than returning UNKNOWN
+     */
+    public SimpleDetector(boolean detectLatinLanguages) {
+        this.detectLatinLanguages = detectLatinLanguages;
+    }
+
     @Override
     public Detection detect(byte[] input, int offset, int length, Hint hint) {
         return new Detection(guessLanguage(input, offset, length), guessEncoding(input), false);
@@ -110,7 +127,9 @@ public class SimpleDetector implements Detector {
                 return Language.THAI;
             }
         }
-        // got to the end, so return the current best guess
+        // got to the end, so return the current best guess, or try the languages of the Latin script if there is none
+        if (soFar == Language.UNKNOWN && detectLatinLanguages)
+            return latinDetector.guessLanguage(input);
         return soFar;
     }
 
@@ -0,0 +1,183 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.simple;
+
+import com.yahoo.language.Language;
+import com.yahoo.language.LinguisticsCase;
+import com.yahoo.language.process.Normalizer;
+import com.yahoo.language.process.StemMode;
+import com.yahoo.language.process.TokenType;
+import com.yahoo.language.process.Transformer;
+import com.yahoo.language.simple.kstem.KStemmer;
+
+/**
+ * <p>A stream over the tokens of a text, as produced by the {@link SimpleTokenizer}, which does not create
+ * any objects per token. The current token is given by its offset and length in the input, and its processed
+ * form is kept in a buffer which is reused for each token.</p>
+ *
+ * <p>Tokens consisting only of ASCII characters are lowercased directly into the buffer, as normalizing
+ * and removing accents does not change them. Other tokens are processed as strings by the normalizer
+ * and transformer.</p>
+ *
+ * <p>This is not multithread safe.</p>
+ *
+ * @author agent
+ */
+public final class SimpleTokenStream {
+
+    private final static int SPACE_CODE = 32;
+
+    private final Normalizer normalizer;
+    private final Transformer transformer;
+    private final KStemmer stemmer = new KStemmer();
+
+    /** Whether the normalizer and transformer are known to leave ASCII text unchanged */
+    private final boolean asciiIsUnchanged;
+
+    private CharSequence input = "";
+    private Language language;
+    private StemMode stemMode;
+    private boolean removeAccents;
+
+    // The position in the input
+    private int prev, next;
+    private TokenType prevType;
+
+    // The current token
+    private int offset, length;
+    private TokenType type;
+    private char[] buffer = new char[64];
+    private int tokenLength;
+    private final TokenChars token = new TokenChars();
+
+    public SimpleTokenStream() {
+        this(new SimpleNormalizer(), new SimpleTransformer());
+    }
+
+    public SimpleTokenStream(Normalizer normalizer, Transformer transformer) {
+        this.normalizer = normalizer;
+        this.transformer = transformer;
+        this.asciiIsUnchanged = normalizer.getClass() == SimpleNormalizer.class &&
+                                transformer.getClass() == SimpleTransformer.class;
+    }
+
+    /** Starts streaming the tokens of the given input. Returns this for chaining. */
+    public SimpleTokenStream reset(CharSequence input, Language language, StemMode stemMode, boolean removeAccents) {
+        this.input = input;
+        this.language = language;
+        this.stemMode = stemMode;
+        this.removeAccents = removeAccents;
+        prev = 0;
+        length = 0;
+        if (input.length() > 0) {
+            int code = Character.codePointAt(input, 0);
+            prevType = SimpleTokenType.valueOf(code);
+            next = Character.charCount(code);
+        }
+        else {
+            next = 1; // Nothing to read
+        }
+        return this;
+    }
+
+    /** Advances to the next token. Returns false if there are no more tokens in the input */
+    public boolean next() {
+        while (next <= input.length()) {
+            int nextCode = next < input.length() ? Character.codePointAt(input, next) : SPACE_CODE;
+            TokenType nextType = SimpleTokenType.valueOf(nextCode);
+            boolean atBoundary = ! prevType.isIndexable() || ! nextType.isIndexable();
+            if (atBoundary) {
+                offset = prev;
+                length = next - prev;
+                type = prevType;
+                process();
+                prev = next;
+                prevType = nextType;
+            }
+            next += Character.charCount(nextCode);
+            if (atBoundary) return true;
+        }
+        return false;
+    }
+
+    /** Returns the offset of the current token in the input */
+    public int offset() { return offset; }
+
+    /** Returns the length of the current token in the input */
+    public int length() { return length; }
+
+    /** Returns the type of the current token */
+    public TokenType type() { return type; }
+
+    /** Returns the processed current token. This is only valid until next() is called. */
+    public CharSequence token() { return token; }
+
+    /** Returns whether the processed current token is equal to the current token in the input */
+    public boolean tokenIsOriginal() {
+        if (tokenLength != length) return false;
+        for (int i = 0; i < length; i++)
+            if (buffer[i] != input.charAt(offset + i)) return false;
+        return true;
+    }
+
+    private void process() {
+        if (asciiIsUnchanged && isAscii(offset, offset + length)) {
+            ensureCapacity(length);
+            for (int i = 0; i < length; i++) {
+                char c = input.charAt(offset + i);
+                buffer[i] = c >= 'A' && c <= 'Z' ? (char)(c + ('a' - 'A')) : c;
+            }
+            tokenLength = length;
+        }
+        else {
+            String token = normalizer.normalize(input.subSequence(offset, offset + length).toString());
+            token = LinguisticsCase.toLowerCase(token);
+            if (removeAccents)
+                token = transformer.accentDrop(token, language);
+            setBuffer(token);
+        }
+        if (stemMode != StemMode.NONE && stemmer.stem(buffer, tokenLength))
+            setBuffer(stemmer.asCharSequence());
+    }
+
+    private boolean isAscii(int start, int end) {
+        for (int i = start; i < end; i++)
+            if (input.charAt(i) >= 0x80) return false;
+        return true;
+    }
+
+    private void setBuffer(CharSequence chars) {
+        ensureCapacity(chars.length());
+        for (int i = 0; i < chars.length(); i++)
+            buffer[i] = chars.charAt(i);
+        tokenLength = chars.length();
+    }
+
+    private void ensureCapacity(int length) {
+        if (buffer.length < length)
+            buffer = new char[Math.max(length, buffer.length * 2)];
+    }
+
+    /** A view of the processed current token in the buffer */
+    private final class TokenChars implements CharSequence {
+
+        @Override
+        public int length() { return tokenLength; }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= tokenLength)
+                throw new IndexOutOfBoundsException("Index " + index + " in token of length " + tokenLength);
+            return buffer[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() { return new String(buffer, 0, tokenLength); }
+
+    }
+
+}
@@ -2,9 +2,7 @@
 package com.yahoo.language.simple;
 
 import com.yahoo.language.Language;
-import com.yahoo.language.LinguisticsCase;
 import com.yahoo.language.process.*;
-import com.yahoo.language.simple.kstem.KStemmer;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -14,6 +12,8 @@ import java.util.List;
  * <p>A tokenizer which splits on whitespace, normalizes and transforms using the given implementations
  * and stems using the kstem algorithm.</p>
  *
+ * <p>This creates a list of tokens from a {@link SimpleTokenStream}, which can be used directly to avoid that.</p>
+ *
  * <p>This is not multithread safe.</p>
  *
  * @author Mathias Mølster Lidal
@@ -21,10 +21,7 @@ import java.util.List;
  */
 public class SimpleTokenizer implements Tokenizer {
 
-    private final static int SPACE_CODE = 32;
-    private final Normalizer normalizer;
-    private final Transformer transformer;
-    private final KStemmer stemmer = new KStemmer();
+    private final SimpleTokenStream tokens;
 
     public SimpleTokenizer() {
         this(new SimpleNormalizer(), new SimpleTransformer());
@@ -35,42 +32,23 @@ public class SimpleTokenizer implements Tokenizer {
     }
 
     public SimpleTokenizer(Normalizer normalizer, Transformer transformer) {
-        this.normalizer = normalizer;
-        this.transformer = transformer;
+        this.tokens = new SimpleTokenStream(normalizer, transformer);
     }
 
     @Override
     public Iterable<Token> tokenize(String input, Language language, StemMode stemMode, boolean removeAccents) {
         if (input.isEmpty()) return Collections.emptyList();
 
-        List<Token> tokens = new ArrayList<>();
-        int nextCode = input.codePointAt(0);
-        TokenType prevType = SimpleTokenType.valueOf(nextCode);
-        for (int prev = 0, next = Character.charCount(nextCode); next <= input.length(); ) {
-            nextCode = next < input.length() ? input.codePointAt(next) : SPACE_CODE;
-            TokenType nextType = SimpleTokenType.valueOf(nextCode);
-            if (!prevType.isIndexable() || !nextType.isIndexable()) {
-                String original = input.substring(prev, next);
-                String token = processToken(original, language, stemMode, removeAccents);
-                tokens.add(new SimpleToken(original).setOffset(prev)
-                                                .setType(prevType)
-                                                .setTokenString(token));
-                prev = next;
-                prevType = nextType;
-            }
-            next += Character.charCount(nextCode);
+        List<Token> tokenList = new ArrayList<>();
+        tokens.reset(input, language, stemMode, removeAccents);
+        while (tokens.next()) {
+            String original = input.substring(tokens.offset(), tokens.offset() + tokens.length());
+            String token = tokens.tokenIsOriginal() ? original : tokens.token().toString();
+            tokenList.add(new SimpleToken(original).setOffset(tokens.offset())
+                                                   .setType(tokens.type())
+                                                   .setTokenString(token));
         }
-        return tokens;
-    }
-
-    private String processToken(String token, Language language, StemMode stemMode, boolean removeAccents) {
-        token = normalizer.normalize(token);
-        token = LinguisticsCase.toLowerCase(token);
-        if (removeAccents)
-            token = transformer.accentDrop(token, language);
-        if (stemMode != StemMode.NONE)
-            token = stemmer.stem(token);
-        return token;
+        return tokenList;
     }
 
 }
@@ -176,6 +176,14 @@ public class KStemmer {
   }
   
   private static final CharArrayMap<DictEntry> dict_ht = initializeDictHash();
+  
+  /** Stems computed by rules, shared by all stemmers. Each entry takes about 150 bytes. */
+  private static final StemCache cache = new StemCache(16384);
+  
+  /** Returns the cache of stems shared by all stemmers, which counts its hits and misses */
+  public static StemCache cache() {
+    return cache;
+  }
 
 
   private final OpenStringBuilder word = new OpenStringBuilder();
@@ -186,11 +194,6 @@ public class KStemmer {
                   * word, use the method wordLength, which returns (k+1).
                   */
   
-  /*
-   * private void initializeStemHash() { if (maxCacheSize > 0) cache = new
-   * CharArrayMap<String>(maxCacheSize,false); }
-   ***/
-  
   private char finalChar() {
     return word.charAt(k);
   }
@@ -1289,7 +1292,11 @@ public class KStemmer {
     return word.toString();
   }
   
-  CharSequence asCharSequence() {
+  /**
+   * Returns the result of the last stem (assuming the word was changed) without creating a String.
+   * This is only valid until the next call to stem.
+   */
+  public CharSequence asCharSequence() {
     return result != null ? result : word;
   }
 
@@ -1318,9 +1325,10 @@ public class KStemmer {
   }
   
   /**
-   * Stems the text in the token. Returns true if changed.
+   * Stems the text in the token. Returns true if changed, in which case the stem
+   * is available from {@link #asCharSequence}.
    */
-  boolean stem(char[] term, int len) {
+  public boolean stem(char[] term, int len) {
     
     result = null;
     
@@ -1340,14 +1348,24 @@ public class KStemmer {
       return false;
     }
     
-    /***
-     * caching off is normally faster if (cache == null) initializeStemHash();
-     * 
-     * // now check the cache, before we copy chars to "word" if (cache != null)
-     * { String val = cache.get(term, 0, len); if (val != null) { if (val !=
-     * SAME) { result = val; return true; } return false; } }
-     ***/
+    // now check the cache, before we copy chars to "word"
+    String cached = cache.get(term, len);
+    if (cached != null) {
+      if (cached == StemCache.unchanged) return false;
+      result = cached;
+      return true;
+    }
     
+    boolean changed = stemByRules(term, len);
+    cache.put(term, len, changed ? asString() : StemCache.unchanged);
+    return changed;
+  }
+  
+  /**
+   * Stems the text in the token by applying the rules. Returns true if changed.
+   */
+  private boolean stemByRules(char[] term, int len) {
+    DictEntry entry;
     word.reset();
     // allocate enough space so that an expansion is never needed
     word.reserve(len + 10);
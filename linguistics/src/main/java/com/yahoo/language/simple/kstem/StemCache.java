@@ -0,0 +1,92 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.simple.kstem;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size cache of stems by term, which is shared by all threads.
+ *
+ * The cache is direct mapped: each term hashes to a single slot, and a new entry simply replaces the one in it.
+ * Entries are immutable, so slots are read and written without locking, and a lookup which hits does not allocate.
+ * As term frequencies in natural language are heavily skewed, frequent terms stay in the cache.
+ * Hits and misses are counted in LongAdders, so counting does not make threads contend on a shared counter.
+ *
+ * @author agent
+ */
+public final class StemCache {
+
+    /** The stem of terms which are not changed by stemming. Compare by identity. */
+    static final String unchanged = new String("");
+
+    private final Entry[] slots;
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /** Creates a cache with room for the given number of stems, rounded up to a power of two */
+    StemCache(int size) {
+        if (size < 1) throw new IllegalArgumentException("Cache size must be positive, not " + size);
+        int slotCount = size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+        slots = new Entry[slotCount];
+        mask = slotCount - 1;
+    }
+
+    /** Returns the cached stem of the given term, {@link #unchanged} if it is its own stem, or null if it is not cached */
+    String get(char[] term, int length) {
+        Entry entry = slots[slot(term, length)];
+        if (entry != null && entry.is(term, length)) {
+            hits.increment();
+            return entry.stem;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /** Caches the stem of the given term, which is {@link #unchanged} if it is its own stem */
+    void put(char[] term, int length, String stem) {
+        char[] key = new char[length];
+        System.arraycopy(term, 0, key, 0, length);
+        slots[slot(term, length)] = new Entry(key, stem);
+    }
+
+    /** Returns the number of lookups which found a stem in this */
+    public long hits() { return hits.sum(); }
+
+    /** Returns the number of lookups which did not find a stem in this */
+    public long misses() { return misses.sum(); }
+
+    /** Returns the fraction of lookups which found a stem in this, or 0 if there are no lookups */
+    public double hitRate() {
+        long hits = hits();
+        long lookups = hits + misses();
+        return lookups == 0 ? 0 : (double)hits / lookups;
+    }
+
+    private int slot(char[] term, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++)
+            hash = 31 * hash + term[i];
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static final class Entry {
+
+        private final char[] term;
+        private final String stem;
+
+        Entry(char[] term, String stem) {
+            this.term = term;
+            this.stem = stem;
+        }
+
+        boolean is(char[] term, int length) {
+            if (this.term.length != length) return false;
+            for (int i = 0; i < length; i++)
+                if (this.term[i] != term[i]) return false;
+            return true;
+        }
+
+    }
+
+}
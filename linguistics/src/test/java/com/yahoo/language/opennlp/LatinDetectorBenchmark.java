@@ -0,0 +1,58 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.opennlp;
+
+import com.yahoo.language.detect.Detector;
+import com.yahoo.language.simple.LatinDetector;
+
+/**
+ * Compares the throughput of detecting the language of short documents in various Latin script languages
+ * with the built-in Latin detector and the Optimaize detector.
+ *
+ * @author agent
+ */
+public class LatinDetectorBenchmark {
+
+    private static final String[] texts = {
+            "The quick brown fox jumps over the lazy dog, while the investors were considering the running costs " +
+            "of their operations in 2019 and the expected returns on the happiest of the acquisitions.",
+            "Vi har gjennomført en rekke endringer i systemet, og søkeresultatene blir nå rangert etter hvor " +
+            "relevante de er for brukerne på tvers av alle språk.",
+            "Die Überprüfung der Änderungen hat gezeigt, dass die Größe der Dokumente einen erheblichen " +
+            "Einfluss auf die Verarbeitungszeit hat.",
+            "Les résultats de la requête ont été améliorés grâce à une meilleure compréhension du français.",
+            "Los resultados de la búsqueda se ordenan según su relevancia para los usuarios de la tienda."
+    };
+
+    private static final int iterations = 100_000;
+
+    public void run() {
+        out("Warming up...");
+        for (int i = 0; i < 3; i++) {
+            run(new LatinDetector(), false);
+            run(new OptimaizeDetector(), false);
+        }
+        out("Running...");
+        run(new LatinDetector(), true);
+        run(new OptimaizeDetector(), true);
+    }
+
+    private void run(Detector detector, boolean print) {
+        long startTime = System.nanoTime();
+        int detected = 0;
+        for (int i = 0; i < iterations; i++)
+            detected += detector.detect(texts[i % texts.length], null).getLanguage().ordinal() > 0 ? 1 : 0;
+        long elapsedNanos = System.nanoTime() - startTime;
+        if (print)
+            out(detector.getClass().getSimpleName() + ": " + (long)(iterations / (elapsedNanos / 1e9)) +
+                " documents/s (" + detected + " detected)");
+    }
+
+    private void out(String string) {
+        System.out.println(string);
+    }
+
+    public static void main(String[] args) {
+        new LatinDetectorBenchmark().run();
+    }
+
+}
@@ -0,0 +1,63 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.simple;
+
+import com.yahoo.language.Language;
+import com.yahoo.language.opennlp.OpenNlpLinguistics;
+import com.yahoo.language.opennlp.OpennlpLinguisticsConfig;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ */
+public class LatinDetectorTestCase {
+
+    private final LatinDetector detector = new LatinDetector();
+
+    @Test
+    public void testDetection() {
+        assertLanguage(Language.ENGLISH, "This is a short description of the product which you can buy from our store today.");
+        assertLanguage(Language.GERMAN, "Das ist eine kurze Beschreibung des Produkts, das Sie heute in unserem Geschäft kaufen können.");
+        assertLanguage(Language.FRENCH, "Ceci est une courte description du produit que vous pouvez acheter dans notre magasin aujourd'hui.");
+        assertLanguage(Language.SPANISH, "Esta es una breve descripción del producto que puede comprar hoy en nuestra tienda.");
+        assertLanguage(Language.ITALIAN, "Questa è una breve descrizione del prodotto che potete comprare oggi nel nostro negozio.");
+        assertLanguage(Language.PORTUGUESE, "Esta é uma breve descrição do produto que você pode comprar hoje na nossa loja.");
+        assertLanguage(Language.DUTCH, "Dit is een korte beschrijving van het product dat u vandaag in onze winkel kunt kopen.");
+        assertLanguage(Language.SWEDISH, "Det här är en kort beskrivning av produkten som du kan köpa i vår butik idag.");
+        assertLanguage(Language.NORWEGIAN_BOKMAL, "Dette er en kort beskrivelse av produktet som du kan kjøpe i butikken vår i dag.");
+        assertLanguage(Language.FINNISH, "Tämä on lyhyt kuvaus tuotteesta, jonka voit ostaa tänään meidän kaupastamme.");
+    }
+
+    @Test
+    public void testTooLittleTextIsNotDetected() {
+        assertLanguage(Language.UNKNOWN, "");
+        assertLanguage(Language.UNKNOWN, "Hello!");
+        assertLanguage(Language.UNKNOWN, "12345 678 !!! ---");
+    }
+
+    @Test
+    public void testOnlyTheStartOfLongTextIsUsed() {
+        StringBuilder text = new StringBuilder("The search results are ranked by how relevant they are to the users. ");
+        while (text.length() < LatinDetector.maxChars)
+            text.append("This is the way we do it here. ");
+        text.append("Die Überprüfung der Änderungen hat gezeigt, dass die Größe der Dokumente wichtig ist. ".repeat(100));
+        assertLanguage(Language.ENGLISH, text.toString());
+    }
+
+    @Test
+    public void testSimpleDetectorUsesLatinDetectionOnlyIfEnabled() {
+        String german = "Wir haben die Ergebnisse der Suche für die Benutzer verbessert.";
+        assertEquals(Language.UNKNOWN, new SimpleDetector().detect(german, null).getLanguage());
+        assertEquals(Language.GERMAN, new SimpleDetector(true).detect(german, null).getLanguage());
+
+        OpennlpLinguisticsConfig.Builder config = new OpennlpLinguisticsConfig.Builder();
+        config.detector(new OpennlpLinguisticsConfig.Detector.Builder().enableOptimaize(false).enableLatinDetection(true));
+        assertEquals(Language.GERMAN, new OpenNlpLinguistics(config.build()).getDetector().detect(german, null).getLanguage());
+    }
+
+    private void assertLanguage(Language expected, String input) {
+        assertEquals(input, expected, detector.detect(input, null).getLanguage());
+    }
+
+}
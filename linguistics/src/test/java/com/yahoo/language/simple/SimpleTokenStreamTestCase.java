@@ -0,0 +1,85 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.simple;
+
+import com.yahoo.language.Language;
+import com.yahoo.language.LinguisticsCase;
+import com.yahoo.language.process.StemMode;
+import com.yahoo.language.process.TokenType;
+import com.yahoo.language.simple.kstem.KStemmer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class SimpleTokenStreamTestCase {
+
+    private static final String text = "Running å TRALALALA n4lle. 𐏈 (old Persian sign Auramazda, " +
+                                       "Københavns hærlige FÜSSE, cafés ﬁnancing " +
+                                       "東京都  gods.Running)";
+
+    @Test
+    public void testTokensAndOffsets() {
+        SimpleTokenStream tokens = new SimpleTokenStream().reset("Foo bar.", Language.ENGLISH, StemMode.NONE, false);
+        assertToken("foo", 0, 3, TokenType.ALPHABETIC, tokens);
+        assertToken(" ", 3, 1, TokenType.SPACE, tokens);
+        assertToken("bar", 4, 3, TokenType.ALPHABETIC, tokens);
+        assertToken(".", 7, 1, TokenType.PUNCTUATION, tokens);
+        assertFalse(tokens.next());
+        assertFalse(tokens.reset("", Language.ENGLISH, StemMode.NONE, false).next());
+    }
+
+    @Test
+    public void testTokenIsOriginal() {
+        SimpleTokenStream tokens = new SimpleTokenStream().reset("foo Bar", Language.ENGLISH, StemMode.NONE, false);
+        assertTrue(tokens.next());
+        assertTrue(tokens.tokenIsOriginal());
+        assertTrue(tokens.next());
+        assertTrue(tokens.next());
+        assertFalse(tokens.tokenIsOriginal());
+    }
+
+    @Test
+    public void testTokensAreEqualToThoseProcessedAsStrings() {
+        SimpleTokenStream tokens = new SimpleTokenStream();
+        for (StemMode stemMode : new StemMode[] { StemMode.NONE, StemMode.ALL })
+            for (boolean removeAccents : new boolean[] { false, true })
+                assertProcessedAsStrings(text, stemMode, removeAccents, tokens);
+    }
+
+    private static void assertToken(String token, int offset, int length, TokenType type, SimpleTokenStream tokens) {
+        assertTrue(tokens.next());
+        assertEquals(token, tokens.token().toString());
+        assertEquals(offset, tokens.offset());
+        assertEquals(length, tokens.length());
+        assertEquals(type, tokens.type());
+    }
+
+    private static void assertProcessedAsStrings(String input, StemMode stemMode, boolean removeAccents, SimpleTokenStream tokens) {
+        List<String> expected = new ArrayList<>();
+        List<String> actual = new ArrayList<>();
+        tokens.reset(input, Language.ENGLISH, stemMode, removeAccents);
+        while (tokens.next()) {
+            expected.add(processAsString(input.substring(tokens.offset(), tokens.offset() + tokens.length()), stemMode, removeAccents));
+            actual.add(tokens.token().toString());
+        }
+        assertEquals(expected, actual);
+    }
+
+    private static String processAsString(String token, StemMode stemMode, boolean removeAccents) {
+        token = new SimpleNormalizer().normalize(token);
+        token = LinguisticsCase.toLowerCase(token);
+        if (removeAccents)
+            token = new SimpleTransformer().accentDrop(token, Language.ENGLISH);
+        if (stemMode != StemMode.NONE)
+            token = new KStemmer().stem(token);
+        return token;
+    }
+
+}
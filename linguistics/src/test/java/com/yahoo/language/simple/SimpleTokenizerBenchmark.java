@@ -0,0 +1,75 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.simple;
+
+import com.yahoo.language.Language;
+import com.yahoo.language.process.StemMode;
+import com.yahoo.language.process.Token;
+import com.yahoo.language.simple.kstem.KStemmer;
+
+/**
+ * Compares the throughput of tokenizing text in various languages with the simple tokenizer
+ * and with a token stream.
+ *
+ * @author agent
+ */
+public class SimpleTokenizerBenchmark {
+
+    private static final String[] texts = {
+            "The quick brown fox jumps over the lazy dog, while the investors were considering the running costs " +
+            "of their operations in 2019 and the expected returns on the happiest of the acquisitions.",
+            "Vi har gjennomført en rekke endringer i systemet, og søkeresultatene blir nå rangert etter hvor " +
+            "relevante de er for brukerne på tvers av alle språk.",
+            "Die Überprüfung der Änderungen hat gezeigt, dass die Größe der Dokumente einen erheblichen " +
+            "Einfluss auf die Verarbeitungszeit hat.",
+            "Les résultats de la requête ont été améliorés grâce à une meilleure compréhension du français.",
+            "東京都は日本の首都であり、世界で最も人口の多い都市圏の一つです。"
+    };
+
+    private static final int iterations = 200_000;
+
+    public void run() {
+        out("Warming up...");
+        for (int i = 0; i < 5; i++) {
+            runTokenizer(false);
+            runStream(false);
+        }
+        out("Running...");
+        runTokenizer(true);
+        runStream(true);
+        out("Stem cache hit rate: " + KStemmer.cache().hitRate());
+    }
+
+    private void runTokenizer(boolean print) {
+        SimpleTokenizer tokenizer = new SimpleTokenizer();
+        long startTime = System.nanoTime();
+        long count = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (Token token : tokenizer.tokenize(texts[i % texts.length], Language.ENGLISH, StemMode.ALL, true))
+                count += token.getTokenString().length();
+        }
+        if (print)
+            out("Tokenizer: " + (System.nanoTime() - startTime) / 1_000_000 + " ms (" + count + " chars)");
+    }
+
+    private void runStream(boolean print) {
+        SimpleTokenStream tokens = new SimpleTokenStream();
+        long startTime = System.nanoTime();
+        long count = 0;
+        for (int i = 0; i < iterations; i++) {
+            tokens.reset(texts[i % texts.length], Language.ENGLISH, StemMode.ALL, true);
+            while (tokens.next())
+                count += tokens.token().length();
+        }
+        if (print)
+            out("Stream:    " + (System.nanoTime() - startTime) / 1_000_000 + " ms (" + count + " chars)");
+    }
+
+    private void out(String string) {
+        System.out.println(string);
+    }
+
+    public static void main(String[] args) {
+        new SimpleTokenizerBenchmark().run();
+    }
+
+}
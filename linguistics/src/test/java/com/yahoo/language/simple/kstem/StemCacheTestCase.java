@@ -0,0 +1,61 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.simple.kstem;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class StemCacheTestCase {
+
+    @Test
+    public void testStemsAreCached() {
+        StemCache cache = new StemCache(4);
+        assertEquals(0, cache.hitRate(), 0);
+        char[] term = "runningxyz".toCharArray();
+        assertNull(cache.get(term, 7));
+        cache.put(term, 7, "run");
+        assertEquals("run", cache.get(term, 7));
+        assertNull(cache.get(term, 6));
+        cache.put(term, 3, StemCache.unchanged);
+        assertSame(StemCache.unchanged, cache.get(term, 3));
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.misses());
+        assertEquals(0.5, cache.hitRate(), 0);
+    }
+
+    @Test
+    public void testNewEntriesReplaceOldInTheSameSlot() {
+        StemCache cache = new StemCache(1);
+        cache.put("cats".toCharArray(), 4, "cat");
+        cache.put("dogs".toCharArray(), 4, "dog");
+        assertNull(cache.get("cats".toCharArray(), 4));
+        assertEquals("dog", cache.get("dogs".toCharArray(), 4));
+    }
+
+    @Test
+    public void testStemmerGivesTheSameStemsWhenCached() {
+        String[] terms = { "glorpings", "offended", "cats", "snarfed", "zunkily", "aging", "xyzzy" };
+        String[] stems = new String[terms.length];
+        for (int i = 0; i < terms.length; i++)
+            stems[i] = new KStemmer().stem(terms[i]);
+        assertEquals("offend", KStemmer.cache().get("offended".toCharArray(), 8));
+        assertNotNull(KStemmer.cache().get("xyzzy".toCharArray(), 5));
+        assertNull("Words in the dictionary are not cached", KStemmer.cache().get("aging".toCharArray(), 5));
+        long hits = KStemmer.cache().hits();
+        for (int i = 0; i < terms.length; i++)
+            assertEquals(stems[i], new KStemmer().stem(terms[i]));
+        assertTrue("All but the dictionary word are cache hits", KStemmer.cache().hits() >= hits + terms.length - 1);
+        assertEquals("offend", stems[1]);
+        assertEquals("cat", stems[2]);
+        assertEquals("age", stems[5]);
+        assertEquals("xyzzy", stems[6]);
+    }
+
+}
@@ -87,9 +87,25 @@ public class LogDispatcher implements LogHandler {
     }
 
     public void handle(List<LogMessage> messages) {
-        for (var message : messages) {
-            handle(message);
+        if ( ! batchedMode.get()) {
+            for (var message : messages) {
+                handle(message);
+            }
+            return;
+        }
+
+        List<LogMessage> toSend = null;
+        synchronized (this) {
+            if (currentBatchList == null) {
+                currentBatchList = new ArrayList<>(Math.max(batchSize, messages.size()));
+            }
+            currentBatchList.addAll(messages);
+            if (currentBatchList.size() >= batchSize) {
+                toSend = stealBatch();
+            }
         }
+        flushBatch(toSend);
+        messageCount.addAndGet(messages.size());
     }
 
     /**
@@ -9,14 +9,23 @@ import java.util.logging.Logger;
 import com.yahoo.io.FatalErrorHandler;
 import com.yahoo.log.LogLevel;
 import com.yahoo.log.LogMessage;
+import com.yahoo.log.event.Event;
 
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This handler implements a dispatcher which runs in its own
  * thread.  The purpose of this handler is to isolate execution
  * of handlers from the main server IO threads.
+ * <p>
+ * Messages are queued in a bounded queue, and handled in batches of
+ * everything in the queue, after which the handlers are flushed once.
+ * When the queue stays full, messages are dropped and counted rather
+ * than blocking the server.
  *
  * @author Bjorn Borud
  */
@@ -64,17 +73,20 @@ public class HandlerThread extends Thread implements LogHandler {
         }
     }
 
+    /** How long to wait for room in the queue before dropping messages */
+    private static final long maxEnqueueWaitMillis = 100;
+
+    /** Min time between log messages about dropping messages, and between reporting metrics */
+    private static final long reportIntervalMillis = 60_000;
+
     private final BlockingQueue<ItemOrList> queue;
-    private final List<LogHandler> handlers = new ArrayList<LogHandler>();
+    private final List<LogHandler> handlers = new CopyOnWriteArrayList<>();
     private long count;
-    @SuppressWarnings("unused")
-    private long droppedCount = 0;
-    @SuppressWarnings("unused")
+    private final AtomicLong droppedCount = new AtomicLong();
     private boolean queueWasFull = false;
-    @SuppressWarnings("unused")
     private long lastDropLogMessage = 0;
-    @SuppressWarnings("unused")
     private long lastAcceptingLogMessage = 0;
+    private long lastMetricsReport = 0;
 
     public HandlerThread(String name) {
         super(name);
@@ -109,26 +121,52 @@ public class HandlerThread extends Thread implements LogHandler {
         handleInternal(new ItemOrList(messages));
     }
 
+    /**
+     * Puts the given element on the queue, waiting a little for room if it is full.
+     * If there is still no room, the messages are dropped rather than stalling the caller,
+     * which is typically the thread serving log requests from all nodes.
+     */
     private void handleInternal(ItemOrList o) {
-        boolean done = false;
-        while (! done) {
-            try {
-                queue.put(o);
-                done = true;
-            } catch (InterruptedException e) {
-                // NOP
-            }
+        boolean accepted;
+        try {
+            accepted = queue.offer(o, maxEnqueueWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            accepted = queue.offer(o);
         }
+        if (accepted)
+            accepted();
+        else
+            dropped(o.item != null ? 1 : o.list.size());
     }
 
-    public void flush() {
-        Iterator<LogHandler> it = handlers.iterator();
-        while (it.hasNext()) {
-            LogHandler handler = it.next();
-            handler.flush();
+    private synchronized void accepted() {
+        if ( ! queueWasFull) return;
+
+        queueWasFull = false;
+        long now = System.currentTimeMillis();
+        if (now - lastAcceptingLogMessage > reportIntervalMillis) {
+            log.log(LogLevel.INFO, getName() + " is accepting messages again, after dropping " + droppedCount + " in total");
+            lastAcceptingLogMessage = now;
         }
     }
 
+    private synchronized void dropped(int messageCount) {
+        droppedCount.addAndGet(messageCount);
+        queueWasFull = true;
+        long now = System.currentTimeMillis();
+        if (now - lastDropLogMessage > reportIntervalMillis) {
+            log.log(LogLevel.WARNING, getName() + " has a full queue of " + queue.size() + " entries, and is dropping messages. " +
+                                      "Dropped " + droppedCount + " in total");
+            lastDropLogMessage = now;
+        }
+    }
+
+    /**
+     * Handlers are flushed by this thread each time it has handled the messages in its queue,
+     * so this does nothing. Flushing from other threads would race with the handlers.
+     */
+    public void flush() { }
+
     public void close() {
         Iterator<LogHandler> it = handlers.iterator();
         while (it.hasNext()) {
@@ -141,6 +179,16 @@ public class HandlerThread extends Thread implements LogHandler {
         return count;
     }
 
+    /** Returns the number of messages or lists of messages waiting to be handled by this */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /** Returns the number of messages dropped because the queue of this was full */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
     /**
      * Register a LogHandler
      */
@@ -182,6 +230,16 @@ public class HandlerThread extends Thread implements LogHandler {
         return queue;
     }
 
+    private void reportMetrics() {
+        long now = System.currentTimeMillis();
+        if (now - lastMetricsReport < reportIntervalMillis) return;
+
+        String prefix = "logserver." + getName().replace(' ', '_');
+        Event.value(prefix + ".queue_depth", queue.size());
+        Event.count(prefix + ".dropped", droppedCount.get());
+        lastMetricsReport = now;
+    }
+
     /**
      * Consume messages from the incoming queue and hand
      * them off to the handlers.
@@ -219,6 +277,12 @@ public class HandlerThread extends Thread implements LogHandler {
                     }
                     count++;
                 }
+
+                // Write out everything taken from the queue at once, rather than per message
+                for (LogHandler handler : handlers) {
+                    handler.flush();
+                }
+                reportMetrics();
             }
         } catch (InterruptedException e) {
             // NOP
@@ -53,10 +53,9 @@ public class ArchiverPlugin implements Plugin {
         int maxFileSize = config.getInt("maxfilesize", DEFAULT_MAXFILESIZE);
         String threadName = config.get("thread", getPluginName());
 
-        // register log handler and flusher
+        // register log handler, which is flushed by its handler thread
         archiver = new ArchiverHandler(rootDir, maxFileSize);
         server.registerLogHandler(archiver, threadName);
-        server.registerFlusher(archiver);
     }
 
     /**
@@ -70,7 +69,6 @@ public class ArchiverPlugin implements Plugin {
                                                     + getPluginName());
         }
         server.unregisterLogHandler(archiver);
-        server.unregisterFlusher(archiver);
         archiver.close();
         archiver = null;
     }
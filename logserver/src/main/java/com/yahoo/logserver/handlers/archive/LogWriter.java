@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.logserver.handlers.archive;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -17,6 +18,8 @@ import com.yahoo.log.LogLevel;
 public class LogWriter {
     private static final Logger log = Logger.getLogger(LogWriter.class.getName());
 
+    private static final int bufferSize = 64 * 1024;
+
     private long bytesWritten = 0;
     private int generation;
     private int maxSize = 20 * (1024 * 1024);
@@ -69,7 +72,7 @@ public class LogWriter {
                 log.log(LogLevel.DEBUG, "nextWriter, new file: " + name);
                 currentFile = f;
                 bytesWritten = 0;
-                return new FileWriter(f, true);
+                return newWriter(f);
             }
 
             // just skip over directories for now
@@ -83,7 +86,7 @@ public class LogWriter {
                 log.fine("nextWriter, resuming " + name + ", length was " + f.length());
                 currentFile = f;
                 bytesWritten = f.length();
-                return new FileWriter(f, true);
+                return newWriter(f);
             } else {
 
                 log.fine("nextWriter, not resuming " + name
@@ -96,6 +99,14 @@ public class LogWriter {
         throw new RuntimeException("Unable to create next log file");
     }
 
+    /**
+     * Returns a buffered writer appending to the given file. Messages are collected in the buffer
+     * until the handler thread flushes after handling a batch, so each batch is written at once.
+     */
+    private static Writer newWriter(File file) throws IOException {
+        return new BufferedWriter(new FileWriter(file, true), bufferSize);
+    }
+
     public void write(String str) throws IOException {
         if (writer == null) {
             writer = nextWriter();
@@ -4,6 +4,8 @@ package com.yahoo.logserver.handlers;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import org.junit.Test;
 
@@ -93,4 +95,64 @@ public class HandlerThreadTestCase {
         thread.join();
     }
 
+    @Test
+    public void testHandlersAreFlushedByThreadAfterEachBatch() throws InvalidLogFormatException, InterruptedException {
+        HandlerThread thread = new HandlerThread("myThread");
+        LogDispatcherTestCase.MockHandler h1 = new LogDispatcherTestCase.MockHandler();
+        thread.registerHandler(h1);
+        thread.start();
+        thread.handle(LogMessage.parseNativeFormat("1098709001\tnalle.puh.com\t23234\tserviceName\ttst\tinfo\tthis is a test"));
+        while (h1.flushCalled < 1) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, h1.messages.size());
+        thread.interrupt();
+        thread.join();
+    }
+
+    @Test
+    public void testMessagesAreDroppedWhenQueueIsFull() throws InvalidLogFormatException, InterruptedException {
+        HandlerThread thread = new HandlerThread("myThread");
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LogDispatcherTestCase.MockHandler h1 = new LogDispatcherTestCase.MockHandler() {
+            @Override
+            public void handle(LogMessage msg) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                super.handle(msg);
+            }
+        };
+        thread.registerHandler(h1);
+        thread.start();
+        LogMessage msg = LogMessage.parseNativeFormat("1098709001\tnalle.puh.com\t23234\tserviceName\ttst\tinfo\tthis is a test");
+        thread.handle(msg);
+        blocked.await();
+
+        for (int i = 0; i < HandlerThread.DEFAULT_QUEUESIZE; i++) {
+            thread.handle(msg);
+        }
+        assertEquals(HandlerThread.DEFAULT_QUEUESIZE, thread.getQueueDepth());
+        assertEquals(0, thread.getDroppedCount());
+
+        thread.handle(List.of(msg, msg, msg));
+        assertEquals(3, thread.getDroppedCount());
+
+        release.countDown();
+        while (h1.messages.size() < HandlerThread.DEFAULT_QUEUESIZE + 1) {
+            Thread.sleep(10);
+        }
+        thread.handle(msg);
+        while (h1.messages.size() < HandlerThread.DEFAULT_QUEUESIZE + 2) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, thread.getDroppedCount());
+        thread.interrupt();
+        thread.join();
+    }
+
 }
@@ -100,7 +100,8 @@ public class NodeRepository extends AbstractComponent {
      */
     @Inject
     public NodeRepository(NodeRepositoryConfig config, NodeFlavors flavors, Curator curator, Zone zone) {
-        this(flavors, curator, Clock.systemUTC(), zone, new DnsNameResolver(), DockerImage.fromString(config.dockerImage()), config.useCuratorClientCache());
+        this(flavors, curator, Clock.systemUTC(), zone, new DnsNameResolver(), DockerImage.fromString(config.dockerImage()),
+             config.useCuratorClientCache(), config.useBinaryNodeFormat());
     }
 
     /**
@@ -109,7 +110,16 @@ public class NodeRepository extends AbstractComponent {
      */
     public NodeRepository(NodeFlavors flavors, Curator curator, Clock clock, Zone zone, NameResolver nameResolver,
                           DockerImage dockerImage, boolean useCuratorClientCache) {
-        this.db = new CuratorDatabaseClient(flavors, curator, clock, zone, useCuratorClientCache);
+        this(flavors, curator, clock, zone, nameResolver, dockerImage, useCuratorClientCache, false);
+    }
+
+    /**
+     * Creates a node repository from a zookeeper provider and a clock instance
+     * which will be used for time-sensitive decisions, storing nodes in the binary format if so specified.
+     */
+    public NodeRepository(NodeFlavors flavors, Curator curator, Clock clock, Zone zone, NameResolver nameResolver,
+                          DockerImage dockerImage, boolean useCuratorClientCache, boolean useBinaryNodeFormat) {
+        this.db = new CuratorDatabaseClient(flavors, curator, clock, zone, useCuratorClientCache, useBinaryNodeFormat);
         this.zone = zone;
         this.clock = clock;
         this.flavors = flavors;
@@ -179,7 +189,7 @@ public class NodeRepository extends AbstractComponent {
      * @return the node, or empty if it was not found in any of the given states
      */
     public List<Node> getNodes(NodeType type, Node.State ... inState) {
-        return db.getNodes(inState).stream().filter(node -> node.type().equals(type)).collect(Collectors.toList());
+        return db.getNodes(type, inState);
     }
 
     /** Returns a filterable list of all nodes in this repository */
@@ -443,7 +453,7 @@ public class NodeRepository extends AbstractComponent {
 
         List<Node> nodesToDirty =
                 (nodeToDirty.type().isDockerHost() ?
-                        Stream.concat(list().childrenOf(hostname).asList().stream(), Stream.of(nodeToDirty)) :
+                        Stream.concat(db.getChildNodes(hostname).stream(), Stream.of(nodeToDirty)) :
                         Stream.of(nodeToDirty))
                 .filter(node -> node.state() != Node.State.dirty)
                 .collect(Collectors.toList());
@@ -513,7 +523,7 @@ public class NodeRepository extends AbstractComponent {
     }
 
     private List<Node> moveRecursively(String hostname, Node.State toState, Agent agent, Optional<String> reason) {
-        List<Node> moved = list().childrenOf(hostname).asList().stream()
+        List<Node> moved = db.getChildNodes(hostname).stream()
                                          .map(child -> move(child, toState, agent, reason))
                                          .collect(Collectors.toList());
 
@@ -589,7 +599,7 @@ public class NodeRepository extends AbstractComponent {
             List<Node> removed = new ArrayList<>();
 
              if (node.type().isDockerHost()) {
-                 list().childrenOf(node).asList().stream()
+                 db.getChildNodes(node.hostname()).stream()
                        .filter(child -> force || canRemove(child, true))
                        .forEach(removed::add);
              }
@@ -31,12 +31,14 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -70,9 +72,27 @@ public class CuratorDatabaseClient {
     private final Clock clock;
     private final Zone zone;
     private final CuratorCounter provisionIndexCounter;
+    private final boolean useCache;
+    private final boolean useBinaryFormat;
+
+    /** The most recent snapshot of the nodes in each state. Each is replaced, while holding it, by a newer one */
+    private final Map<Node.State, AtomicReference<NodeSnapshot>> snapshots = new EnumMap<>(Node.State.class);
 
     public CuratorDatabaseClient(NodeFlavors flavors, Curator curator, Clock clock, Zone zone, boolean useCache) {
+        this(flavors, curator, clock, zone, useCache, false);
+    }
+
+    /**
+     * @param useBinaryFormat whether to write nodes in the binary format, which is more compact and faster to read,
+     *                        but cannot be read by versions of this which are older than the one introducing it
+     */
+    public CuratorDatabaseClient(NodeFlavors flavors, Curator curator, Clock clock, Zone zone, boolean useCache,
+                                 boolean useBinaryFormat) {
         this.nodeSerializer = new NodeSerializer(flavors);
+        this.useCache = useCache;
+        this.useBinaryFormat = useBinaryFormat;
+        for (Node.State state : Node.State.values())
+            snapshots.put(state, new AtomicReference<>(NodeSnapshot.empty()));
         this.zone = zone;
         this.curatorDatabase = new CuratorDatabase(curator, root, useCache);
         this.clock = clock;
@@ -108,7 +128,7 @@ public class CuratorDatabaseClient {
                 throw new IllegalArgumentException(node + " is not in the " + expectedState + " state");
 
             node = node.with(node.history().recordStateTransition(null, expectedState, Agent.system, clock.instant()));
-            curatorTransaction.add(CuratorOperations.create(toPath(node).getAbsolute(), nodeSerializer.toJson(node)));
+            curatorTransaction.add(CuratorOperations.create(toPath(node).getAbsolute(), serialize(node)));
         }
         transaction.commit();
 
@@ -221,7 +241,7 @@ public class CuratorDatabaseClient {
     }
 
     private void writeNode(Node.State toState, CuratorTransaction curatorTransaction, Node node, Node newNode) {
-        byte[] nodeData = nodeSerializer.toJson(newNode);
+        byte[] nodeData = serialize(newNode);
         String currentNodePath = toPath(node).getAbsolute();
         String newNodePath = toPath(toState, newNode.hostname()).getAbsolute();
         if (newNodePath.equals(currentNodePath)) {
@@ -255,17 +275,7 @@ public class CuratorDatabaseClient {
      * If no states are given this returns all nodes.
      */
     public List<Node> getNodes(Node.State ... states) {
-        List<Node> nodes = new ArrayList<>();
-        if (states.length == 0)
-            states = Node.State.values();
-        CuratorDatabase.Session session = curatorDatabase.getSession();
-        for (Node.State state : states) {
-            for (String hostname : session.getChildren(toPath(state))) {
-                Optional<Node> node = getNode(session, hostname, state);
-                node.ifPresent(nodes::add); // node might disappear between getChildren and getNode
-            }
-        }
-        return nodes;
+        return getNodes(NodeSnapshot::nodes, states);
     }
 
     /** 
@@ -273,11 +283,50 @@ public class CuratorDatabaseClient {
      * If no states are given this returns all nodes.
      */
     public List<Node> getNodes(ApplicationId applicationId, Node.State ... states) {
-        List<Node> nodes = getNodes(states);
-        nodes.removeIf(node -> ! node.allocation().isPresent() || ! node.allocation().get().owner().equals(applicationId));
+        return getNodes(snapshot -> snapshot.nodesOf(applicationId), states);
+    }
+
+    /**
+     * Returns all nodes of the given type which are in one of the given states.
+     * If no states are given this returns all nodes of the type.
+     */
+    public List<Node> getNodes(NodeType type, Node.State ... states) {
+        return getNodes(snapshot -> snapshot.nodesOf(type), states);
+    }
+
+    /**
+     * Returns all nodes having the given parent host which are in one of the given states.
+     * If no states are given this returns all children of the host.
+     */
+    public List<Node> getChildNodes(String parentHostname, Node.State ... states) {
+        return getNodes(snapshot -> snapshot.childrenOf(parentHostname), states);
+    }
+
+    private List<Node> getNodes(Function<NodeSnapshot, List<Node>> selector, Node.State ... states) {
+        if (states.length == 0)
+            states = Node.State.values();
+        CuratorDatabase.Session session = curatorDatabase.getSession();
+        List<Node> nodes = new ArrayList<>();
+        for (Node.State state : states)
+            nodes.addAll(selector.apply(snapshot(session, state)));
         return nodes;
     }
 
+    /** Returns a snapshot of the nodes in the given state which is at least as new as the given session */
+    private NodeSnapshot snapshot(CuratorDatabase.Session session, Node.State state) {
+        AtomicReference<NodeSnapshot> snapshot = snapshots.get(state);
+        if (useCache && snapshot.get().generation() >= session.generation()) return snapshot.get();
+        synchronized (snapshot) {
+            if (useCache && snapshot.get().generation() >= session.generation()) return snapshot.get();
+            NodeSnapshot next = snapshot.get().next(session.generation(),
+                                                    session.getChildren(toPath(state)),
+                                                    hostname -> session.getData(toPath(state, hostname)),
+                                                    data -> nodeSerializer.lazyFromBytes(state, data));
+            snapshot.set(next);
+            return next;
+        }
+    }
+
     /**
      * Returns a particular node, or empty if this noe is not in any of the given states.
      * If no states are given this returns the node if it is present in any state.
@@ -288,7 +337,8 @@ public class CuratorDatabaseClient {
         for (Node.State state : states) {
             Optional<byte[]> nodeData = session.getData(toPath(state, hostname));
             if (nodeData.isPresent())
-                return nodeData.map((data) -> nodeSerializer.fromJson(state, data));
+                return Optional.of(snapshots.get(state).get().nodeIfReadFrom(hostname, nodeData.get())
+                                            .orElseGet(() -> nodeSerializer.fromBytes(state, nodeData.get())));
         }
         return Optional.empty();
     }
@@ -301,6 +351,10 @@ public class CuratorDatabaseClient {
         return getNode(curatorDatabase.getSession(), hostname, states);
     }
 
+    private byte[] serialize(Node node) {
+        return useBinaryFormat ? nodeSerializer.toBinary(node) : nodeSerializer.toJson(node);
+    }
+
     private Path toPath(Node.State nodeState) { return root.append(toDir(nodeState)); }
 
     private Path toPath(Node node) {
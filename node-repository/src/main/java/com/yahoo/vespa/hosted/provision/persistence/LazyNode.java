@@ -0,0 +1,61 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.hosted.provision.persistence;
+
+import com.yahoo.config.provision.ApplicationId;
+import com.yahoo.config.provision.NodeType;
+import com.yahoo.vespa.hosted.provision.Node;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * A node read from the curator database, where only the fields used to look up nodes are decoded eagerly.
+ * The full node, with its history, reports, allocation and so on, is decoded once, when first requested.
+ *
+ * This is thread safe.
+ *
+ * @author agent
+ */
+class LazyNode {
+
+    private final String hostname;
+    private final NodeType type;
+    private final Optional<String> parentHostname;
+    private final Optional<ApplicationId> owner;
+
+    /** Decodes the full node. This is null once the node is decoded */
+    private Supplier<Node> decoder;
+    private volatile Node node;
+
+    LazyNode(String hostname, NodeType type, Optional<String> parentHostname, Optional<ApplicationId> owner,
+             Supplier<Node> decoder) {
+        this.hostname = hostname;
+        this.type = type;
+        this.parentHostname = parentHostname;
+        this.owner = owner;
+        this.decoder = decoder;
+    }
+
+    String hostname() { return hostname; }
+
+    NodeType type() { return type; }
+
+    Optional<String> parentHostname() { return parentHostname; }
+
+    /** Returns the application this is allocated to, if any */
+    Optional<ApplicationId> owner() { return owner; }
+
+    /** Returns the fully decoded node */
+    Node node() {
+        Node node = this.node;
+        if (node != null) return node;
+        synchronized (this) {
+            if (this.node == null) {
+                this.node = decoder.get();
+                decoder = null; // Release the data it decodes from
+            }
+            return this.node;
+        }
+    }
+
+}
@@ -16,6 +16,7 @@ import com.yahoo.config.provision.TenantName;
 import com.yahoo.config.provision.host.FlavorOverrides;
 import com.yahoo.config.provision.serialization.NetworkPortsSerializer;
 import com.yahoo.slime.ArrayTraverser;
+import com.yahoo.slime.BinaryFormat;
 import com.yahoo.slime.Cursor;
 import com.yahoo.slime.Inspector;
 import com.yahoo.slime.Slime;
@@ -40,7 +41,7 @@ import java.util.Set;
 import java.util.function.UnaryOperator;
 
 /**
- * Serializes a node to/from JSON.
+ * Serializes a node to/from JSON or binary Slime.
  * Instances of this are multithread safe and can be reused
  *
  * @author bratseth
@@ -54,6 +55,9 @@ public class NodeSerializer {
     //          - REMOVING FIELDS: Stop reading the field first. Stop writing it on a later version.
     //          - CHANGING THE FORMAT OF A FIELD: Don't do it bro.
 
+    /** The first byte of nodes in the binary format, which distinguishes them from JSON as no JSON text starts with it */
+    private static final byte binaryFormatMarker = (byte) 0xff;
+
     /** The configured node flavors */
     private final NodeFlavors flavors;
 
@@ -129,6 +133,20 @@ public class NodeSerializer {
         }
     }
 
+    /**
+     * Returns the given node in the binary Slime format, which is more compact and faster to read than JSON.
+     * Data in this format can be read by {@link #fromBytes} but not by {@link #fromJson}.
+     */
+    public byte[] toBinary(Node node) {
+        Slime slime = new Slime();
+        toSlime(node, slime.setObject());
+        byte[] slimeData = BinaryFormat.encode(slime);
+        byte[] data = new byte[slimeData.length + 1];
+        data[0] = binaryFormatMarker;
+        System.arraycopy(slimeData, 0, data, 1, slimeData.length);
+        return data;
+    }
+
     private void toSlime(Node node, Cursor object) {
         object.setString(hostnameKey, node.hostname());
         toSlime(node.ipConfig().primary(), object.setArray(ipAddressesKey), IP.Config::require);
@@ -211,6 +229,31 @@ public class NodeSerializer {
         return nodeFromSlime(state, SlimeUtils.jsonToSlime(data).get());
     }
 
+    /** Returns the node in the given data, which may be either JSON or binary Slime */
+    public Node fromBytes(Node.State state, byte[] data) {
+        return nodeFromSlime(state, slimeFromBytes(data).get());
+    }
+
+    /**
+     * Returns a node where only the fields needed to look it up are decoded, while the rest is decoded
+     * when the node is first requested, from the given data, which may be either JSON or binary Slime
+     */
+    LazyNode lazyFromBytes(Node.State state, byte[] data) {
+        Inspector object = slimeFromBytes(data).get();
+        Inspector allocation = object.field(instanceKey);
+        return new LazyNode(object.field(hostnameKey).asString(),
+                            nodeTypeFromString(object.field(nodeTypeKey).asString()),
+                            parentHostnameFromSlime(object),
+                            allocation.valid() ? Optional.of(applicationIdFromSlime(allocation)) : Optional.empty(),
+                            () -> nodeFromSlime(state, object));
+    }
+
+    private static Slime slimeFromBytes(byte[] data) {
+        if (data.length > 0 && data[0] == binaryFormatMarker)
+            return BinaryFormat.decode(data, 1, data.length - 1);
+        return SlimeUtils.jsonToSlime(data);
+    }
+
     private Node nodeFromSlime(Node.State state, Inspector object) {
         Flavor flavor = flavorFromSlime(object);
         return new Node(object.field(idKey).asString(),
@@ -0,0 +1,142 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.hosted.provision.persistence;
+
+import com.yahoo.config.provision.ApplicationId;
+import com.yahoo.config.provision.NodeType;
+import com.yahoo.vespa.hosted.provision.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * An immutable snapshot of the nodes in one node state, as read at a given generation of the curator database,
+ * indexed by hostname, type, parent hostname and owner application.
+ *
+ * The snapshot of a new generation is created from the previous one: Only the nodes whose data has changed
+ * are deserialized, and the indexes are reused as-is if no node has changed. Nodes are only fully decoded
+ * when they are returned from this.
+ *
+ * @author agent
+ */
+class NodeSnapshot {
+
+    private static final NodeSnapshot empty = new NodeSnapshot(-1, Map.of());
+
+    private final long generation;
+
+    /** The nodes of this by hostname, in the order they were listed by the curator database */
+    private final Map<String, Entry> entries;
+
+    private final List<LazyNode> nodes;
+    private final Map<NodeType, List<LazyNode>> byType;
+    private final Map<String, List<LazyNode>> byParent;
+    private final Map<ApplicationId, List<LazyNode>> byApplication;
+
+    private NodeSnapshot(long generation, Map<String, Entry> entries) {
+        this.generation = generation;
+        this.entries = entries;
+        List<LazyNode> nodes = new ArrayList<>(entries.size());
+        Map<NodeType, List<LazyNode>> byType = new HashMap<>();
+        Map<String, List<LazyNode>> byParent = new HashMap<>();
+        Map<ApplicationId, List<LazyNode>> byApplication = new HashMap<>();
+        for (Entry entry : entries.values()) {
+            LazyNode node = entry.node;
+            nodes.add(node);
+            byType.computeIfAbsent(node.type(), __ -> new ArrayList<>()).add(node);
+            node.parentHostname().ifPresent(parent -> byParent.computeIfAbsent(parent, __ -> new ArrayList<>()).add(node));
+            node.owner().ifPresent(owner -> byApplication.computeIfAbsent(owner, __ -> new ArrayList<>()).add(node));
+        }
+        this.nodes = nodes;
+        this.byType = byType;
+        this.byParent = byParent;
+        this.byApplication = byApplication;
+    }
+
+    private NodeSnapshot(long generation, NodeSnapshot unchanged) {
+        this.generation = generation;
+        this.entries = unchanged.entries;
+        this.nodes = unchanged.nodes;
+        this.byType = unchanged.byType;
+        this.byParent = unchanged.byParent;
+        this.byApplication = unchanged.byApplication;
+    }
+
+    /** Returns an empty snapshot which is older than any generation */
+    static NodeSnapshot empty() { return empty; }
+
+    /** Returns the generation of the curator database this was read at */
+    long generation() { return generation; }
+
+    /** Returns all nodes in this */
+    List<Node> nodes() { return decoded(nodes); }
+
+    List<Node> nodesOf(NodeType type) { return decoded(byType.get(type)); }
+
+    List<Node> childrenOf(String parentHostname) { return decoded(byParent.get(parentHostname)); }
+
+    List<Node> nodesOf(ApplicationId application) { return decoded(byApplication.get(application)); }
+
+    /** Returns the node in this with the given hostname if it was read from the given data */
+    Optional<Node> nodeIfReadFrom(String hostname, byte[] data) {
+        Entry entry = entries.get(hostname);
+        if (entry == null || ! Arrays.equals(entry.data, data)) return Optional.empty();
+        return Optional.of(entry.node.node());
+    }
+
+    /**
+     * Returns a snapshot of the given generation, containing the nodes with the given hostnames
+     *
+     * @param data returns the current data of the node with a hostname, or empty if it no longer exists
+     * @param deserializer returns the node of the given data
+     */
+    NodeSnapshot next(long generation, List<String> hostnames,
+                      Function<String, Optional<byte[]>> data, Function<byte[], LazyNode> deserializer) {
+        Map<String, Entry> nextEntries = new LinkedHashMap<>();
+        boolean changed = hostnames.size() != entries.size();
+        for (String hostname : hostnames) {
+            Optional<byte[]> nodeData = data.apply(hostname);
+            if (nodeData.isEmpty()) { // node might disappear between listing and reading
+                changed = true;
+                continue;
+            }
+            Entry entry = entries.get(hostname);
+            if (entry == null || ! Arrays.equals(entry.data, nodeData.get())) {
+                entry = new Entry(nodeData.get(), deserializer.apply(nodeData.get()));
+                changed = true;
+            }
+            nextEntries.put(hostname, entry);
+        }
+        if ( ! changed && List.copyOf(entries.keySet()).equals(hostnames))
+            return new NodeSnapshot(generation, this);
+        return new NodeSnapshot(generation, Collections.unmodifiableMap(nextEntries));
+    }
+
+    private static List<Node> decoded(List<LazyNode> nodes) {
+        if (nodes == null) return List.of();
+        List<Node> decoded = new ArrayList<>(nodes.size());
+        for (LazyNode node : nodes)
+            decoded.add(node.node());
+        return decoded;
+    }
+
+    private static class Entry {
+
+        /** The serialized form of this node, as read from the curator database */
+        private final byte[] data;
+        private final LazyNode node;
+
+        Entry(byte[] data, LazyNode node) {
+            this.data = data;
+            this.node = node;
+        }
+
+    }
+
+}
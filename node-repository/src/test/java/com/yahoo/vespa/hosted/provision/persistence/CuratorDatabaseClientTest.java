@@ -4,6 +4,7 @@ package com.yahoo.vespa.hosted.provision.persistence;
 import com.yahoo.config.provision.ApplicationId;
 import com.yahoo.config.provision.ApplicationName;
 import com.yahoo.config.provision.InstanceName;
+import com.yahoo.config.provision.NodeFlavors;
 import com.yahoo.config.provision.NodeType;
 import com.yahoo.config.provision.TenantName;
 import com.yahoo.config.provision.Zone;
@@ -11,13 +12,18 @@ import com.yahoo.vespa.curator.Curator;
 import com.yahoo.vespa.curator.Lock;
 import com.yahoo.vespa.curator.mock.MockCurator;
 import com.yahoo.vespa.hosted.provision.Node;
+import com.yahoo.vespa.hosted.provision.node.Agent;
+import com.yahoo.vespa.hosted.provision.node.IP;
 import com.yahoo.vespa.hosted.provision.provisioning.FlavorConfigBuilder;
 import org.junit.Test;
 
 import java.time.Clock;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * @author mpolden
@@ -25,8 +31,9 @@ import static org.junit.Assert.assertEquals;
 public class CuratorDatabaseClientTest {
 
     private final Curator curator = new MockCurator();
+    private final NodeFlavors flavors = FlavorConfigBuilder.createDummies("default");
     private final CuratorDatabaseClient zkClient = new CuratorDatabaseClient(
-            FlavorConfigBuilder.createDummies("default"), curator, Clock.systemUTC(), Zone.defaultZone(), true);
+            flavors, curator, Clock.systemUTC(), Zone.defaultZone(), true);
 
     @Test
     public void can_read_stored_host_information() throws Exception {
@@ -59,4 +66,30 @@ public class CuratorDatabaseClientTest {
 
     }
 
- }
+    @Test
+    public void unchanged_nodes_are_not_read_again_after_other_nodes_change() {
+        Node host = Node.create("host1", IP.Config.EMPTY, "host1", Optional.empty(), Optional.empty(),
+                                flavors.getFlavorOrThrow("default"), Optional.empty(), NodeType.host);
+        Node child = Node.create("child1", IP.Config.EMPTY, "child1", Optional.of("host1"), Optional.empty(),
+                                 flavors.getFlavorOrThrow("default"), Optional.empty(), NodeType.tenant);
+        Node other = Node.create("other1", IP.Config.EMPTY, "other1", Optional.empty(), Optional.empty(),
+                                 flavors.getFlavorOrThrow("default"), Optional.empty(), NodeType.host);
+        zkClient.addNodesInState(List.of(host, child), Node.State.provisioned);
+        Node hostRead = zkClient.getNodes(NodeType.host).get(0);
+        Node childRead = zkClient.getNode("child1").get();
+        assertSame(childRead, zkClient.getNodes(NodeType.tenant).get(0));
+
+        zkClient.addNodesInState(List.of(other), Node.State.provisioned);
+        assertSame(hostRead, zkClient.getNodes(NodeType.host, Node.State.provisioned).get(0));
+        assertSame(childRead, zkClient.getChildNodes("host1").get(0));
+        assertEquals(List.of("host1", "other1"),
+                     zkClient.getNodes(NodeType.host).stream().map(Node::hostname).sorted().collect(Collectors.toList()));
+
+        zkClient.writeTo(Node.State.ready, List.of(childRead), Agent.system, Optional.empty());
+        assertSame(hostRead, zkClient.getNode("host1").get());
+        assertEquals(Node.State.ready, zkClient.getChildNodes("host1").get(0).state());
+        assertEquals(List.of(), zkClient.getChildNodes("host1", Node.State.provisioned));
+        assertEquals(2, zkClient.getNodes(Node.State.provisioned).size());
+    }
+
+}
@@ -0,0 +1,110 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.hosted.provision.persistence;
+
+import com.yahoo.component.Vtag;
+import com.yahoo.config.provision.ApplicationId;
+import com.yahoo.config.provision.ClusterMembership;
+import com.yahoo.config.provision.NodeFlavors;
+import com.yahoo.config.provision.NodeType;
+import com.yahoo.vespa.hosted.provision.Node;
+import com.yahoo.vespa.hosted.provision.node.Agent;
+import com.yahoo.vespa.hosted.provision.node.History;
+import com.yahoo.vespa.hosted.provision.node.IP;
+import com.yahoo.vespa.hosted.provision.provisioning.FlavorConfigBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Compares the time to serialize and deserialize 10k nodes in the JSON and binary formats,
+ * and to read only the fields needed to look up nodes.
+ *
+ * @author agent
+ */
+public class NodeSerializerBenchmark {
+
+    private static final int nodeCount = 10_000;
+
+    private final NodeFlavors flavors = FlavorConfigBuilder.createDummies("default");
+    private final NodeSerializer serializer = new NodeSerializer(flavors);
+
+    public void run() {
+        List<Node> nodes = createNodes();
+
+        out("Warming up...");
+        for (int i = 0; i < 10; i++) {
+            runFormat(nodes, serializer::toJson, false);
+            runFormat(nodes, serializer::toBinary, false);
+        }
+
+        out("Running...");
+        out("JSON:");
+        runFormat(nodes, serializer::toJson, true);
+        out("Binary:");
+        runFormat(nodes, serializer::toBinary, true);
+    }
+
+    private void runFormat(List<Node> nodes, Function<Node, byte[]> format, boolean print) {
+        long startTime = System.nanoTime();
+        List<byte[]> serialized = new ArrayList<>(nodes.size());
+        long bytes = 0;
+        for (Node node : nodes) {
+            byte[] data = format.apply(node);
+            serialized.add(data);
+            bytes += data.length;
+        }
+        long serializedTime = System.nanoTime();
+
+        int found = 0;
+        for (byte[] data : serialized)
+            found += serializer.fromBytes(Node.State.active, data).allocation().isPresent() ? 1 : 0;
+        long deserializedTime = System.nanoTime();
+
+        for (byte[] data : serialized)
+            found += serializer.lazyFromBytes(Node.State.active, data).owner().isPresent() ? 1 : 0;
+        long lazyTime = System.nanoTime();
+
+        if ( ! print) return;
+        out("  Size:             " + bytes / nodes.size() + " bytes per node");
+        out("  Serialization:    " + (serializedTime - startTime) / 1_000_000 + " ms");
+        out("  Deserialization:  " + (deserializedTime - serializedTime) / 1_000_000 + " ms");
+        out("  Lookup fields:    " + (lazyTime - deserializedTime) / 1_000_000 + " ms");
+        out("  (found " + found + " allocated nodes)");
+    }
+
+    private List<Node> createNodes() {
+        List<Node> nodes = new ArrayList<>(nodeCount);
+        Instant at = Instant.ofEpochMilli(1577836800000L);
+        for (int i = 0; i < nodeCount; i++) {
+            String hostname = "node" + i + ".example.com";
+            Node node = Node.create("id" + i,
+                                    new IP.Config(Set.of("::" + Integer.toHexString(i + 1)), Set.of()),
+                                    hostname,
+                                    Optional.of("host" + i / 10 + ".example.com"),
+                                    Optional.empty(),
+                                    flavors.getFlavorOrThrow("default"),
+                                    Optional.empty(),
+                                    NodeType.tenant);
+            node = node.allocate(ApplicationId.from("tenant" + i % 100, "application" + i % 50, "default"),
+                                 ClusterMembership.from("container/cluster" + i % 3 + "/0/" + i, Vtag.currentVersion),
+                                 node.flavor().resources(),
+                                 at);
+            node = node.with(node.history().with(new History.Event(History.Event.Type.activated, Agent.application, at)));
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    private void out(String string) {
+        System.out.println(string);
+    }
+
+    public static void main(String[] args) {
+        new NodeSerializerBenchmark().run();
+    }
+
+}
@@ -42,8 +42,10 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import static java.time.temporal.ChronoUnit.MILLIS;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -416,6 +418,37 @@ public class SerializationTest {
         assertEquals(list, listCopy);
     }
 
+    @Test
+    public void binary_serialization() {
+        Node node = createNode().allocate(ApplicationId.from(TenantName.from("myTenant"),
+                                                             ApplicationName.from("myApplication"),
+                                                             InstanceName.from("myInstance")),
+                                          ClusterMembership.from("content/myId/0/0", Vtag.currentVersion),
+                                          createNode().flavor().resources(),
+                                          clock.instant());
+        byte[] binary = nodeSerializer.toBinary(node);
+        byte[] json = nodeSerializer.toJson(node);
+        assertTrue(binary.length < json.length);
+
+        Node copy = nodeSerializer.fromBytes(State.active, binary);
+        assertEquals(nodeSerializer.fromBytes(State.active, json).toString(), copy.toString());
+        assertArrayEquals(json, nodeSerializer.toJson(copy));
+    }
+
+    @Test
+    public void lazy_deserialization() {
+        Node node = createNode().with(NodeType.host);
+        for (byte[] data : List.of(nodeSerializer.toJson(node), nodeSerializer.toBinary(node))) {
+            LazyNode lazy = nodeSerializer.lazyFromBytes(State.ready, data);
+            assertEquals("myHostname", lazy.hostname());
+            assertEquals(NodeType.host, lazy.type());
+            assertFalse(lazy.parentHostname().isPresent());
+            assertFalse(lazy.owner().isPresent());
+            assertEquals(State.ready, lazy.node().state());
+            assertEquals(node.id(), lazy.node().id());
+            assertSame(lazy.node(), lazy.node());
+        }
+    }
 
     private byte[] createNodeJson(String hostname, String... ipAddress) {
         String ipAddressJsonPart = "";
@@ -0,0 +1,303 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate;
+
+import com.google.common.annotations.Beta;
+import com.yahoo.document.predicate.Predicate;
+import org.eclipse.collections.impl.map.mutable.primitive.IntObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A {@link PredicateIndex} which documents can be added to and removed from while it is being searched.
+ * <p>
+ * The index consists of segments, each of which is an immutable {@link PredicateIndex}. Added documents are
+ * indexed into a new segment, and removed documents are marked as removed in their segment.
+ * Changes become visible to searchers created after the next call to {@link #refresh()}.
+ * A {@link Searcher} always searches the index as it was when the searcher was created, regardless of later changes.
+ * </p><p>
+ * When there are more than the max segment count segments, the smallest half of them are merged into one
+ * in the background, dropping the documents removed from them. A merge becomes visible at the refresh following it.
+ * Since merging reindexes the predicates of the merged segments, the predicates of all documents are kept in memory.
+ * </p><p>
+ * Hits are returned segment by segment, in the order the segments were created, where a merged segment takes
+ * the place of the oldest segment merged into it. Within a segment, hits are returned in the order their documents
+ * were indexed, and a merged segment keeps the order of the segments merged into it. Hence, documents which are
+ * never replaced are returned in the order they were indexed until segments are merged, but a document which is
+ * replaced moves to the newest segment.
+ * </p><p>
+ * Note that the {@link MutablePredicateIndex} is thread-safe, but a {@link Searcher} is not.
+ * Each thread <strong>must</strong> use its own searcher.
+ * </p>
+ * @author agent
+ */
+@Beta
+public class MutablePredicateIndex {
+
+    private final Config config;
+    private final int maxSegmentCount;
+    private final Executor mergeExecutor;
+
+    /** The segments of this, in the order they were created */
+    private final List<Segment> segments = new ArrayList<>();
+
+    /** The segment containing each document which is not removed and not in the builder */
+    private final IntObjectHashMap<Segment> segmentOf = new IntObjectHashMap<>();
+
+    /** Builds the documents added since the last flush into a new segment */
+    private PredicateIndexBuilder builder;
+    private Map<Integer, Predicate> added = new LinkedHashMap<>();
+    private Set<Integer> removedFromAdded = new HashSet<>();
+
+    private boolean merging = false;
+    private volatile List<SegmentSnapshot> snapshot = List.of();
+
+    /**
+     * Creates an empty index which merges segments when there are more than 8 segments.
+     *
+     * @param config the configuration of the segments of this
+     * @param mergeExecutor the executor running merges of segments
+     */
+    public MutablePredicateIndex(Config config, Executor mergeExecutor) {
+        this(config, 8, mergeExecutor);
+    }
+
+    /**
+     * Creates an empty index.
+     *
+     * @param config the configuration of the segments of this
+     * @param maxSegmentCount the number of segments above which segments are merged
+     * @param mergeExecutor the executor running merges of segments
+     */
+    public MutablePredicateIndex(Config config, int maxSegmentCount, Executor mergeExecutor) {
+        if (maxSegmentCount < 2)
+            throw new IllegalArgumentException("Max segment count must be at least 2, was " + maxSegmentCount);
+        this.config = config;
+        this.maxSegmentCount = maxSegmentCount;
+        this.mergeExecutor = mergeExecutor;
+        this.builder = new PredicateIndexBuilder(config);
+    }
+
+    /**
+     * Indexes a predicate with the given id, replacing any predicate already indexed with that id.
+     *
+     * @param docId     a 32-bit document id, returned in the Hit objects when the predicate matches
+     * @param predicate the predicate to index
+     */
+    public synchronized void indexDocument(int docId, Predicate predicate) {
+        if (added.containsKey(docId)) // the builder accepts each id once
+            flush();
+        builder.indexDocument(docId, predicate);
+        Segment segment = segmentOf.remove(docId);
+        if (segment != null)
+            segment.remove(docId);
+        added.put(docId, predicate);
+    }
+
+    /**
+     * Removes the predicate with the given id from this.
+     *
+     * @return whether a predicate with this id was indexed
+     */
+    public synchronized boolean removeDocument(int docId) {
+        if (added.containsKey(docId))
+            return removedFromAdded.add(docId);
+        Segment segment = segmentOf.remove(docId);
+        if (segment == null) return false;
+        segment.remove(docId);
+        return true;
+    }
+
+    /**
+     * Starts merging segments if there are too many, and makes the changes done to this since the last refresh
+     * visible to searchers created after this returns.
+     */
+    public synchronized void refresh() {
+        flush();
+        mergeIfNeeded();
+        List<SegmentSnapshot> snapshot = new ArrayList<>(segments.size());
+        for (Segment segment : segments)
+            snapshot.add(segment.snapshot());
+        this.snapshot = List.copyOf(snapshot);
+    }
+
+    public void rebuildPostingListCache() {
+        for (SegmentSnapshot segment : snapshot)
+            segment.index.rebuildPostingListCache();
+    }
+
+    /** Returns the number of segments visible to new searchers */
+    public int getSegmentCount() {
+        return snapshot.size();
+    }
+
+    /**
+     * Create a new searcher of the index as it was at the last refresh.
+     */
+    public Searcher searcher() {
+        return new Searcher(snapshot);
+    }
+
+    /** Builds the added documents into a new segment */
+    private void flush() {
+        if (added.isEmpty()) return;
+
+        Segment segment = new Segment(builder.build(), added, removedFromAdded);
+        segments.add(segment);
+        for (int docId : added.keySet()) {
+            if ( ! removedFromAdded.contains(docId))
+                segmentOf.put(docId, segment);
+        }
+        builder = new PredicateIndexBuilder(config);
+        added = new LinkedHashMap<>();
+        removedFromAdded = new HashSet<>();
+    }
+
+    private void mergeIfNeeded() {
+        if (merging || segments.size() <= maxSegmentCount) return;
+
+        List<Segment> toMerge = segments.stream()
+                                        .sorted(Comparator.comparingInt(Segment::documentCount))
+                                        .limit(Math.max(2, segments.size() / 2))
+                                        .sorted(Comparator.comparingInt(segments::indexOf))
+                                        .collect(toList());
+        List<Set<Integer>> removed = toMerge.stream().map(segment -> Set.copyOf(segment.removed)).collect(toList());
+        merging = true;
+        try {
+            mergeExecutor.execute(() -> merge(toMerge, removed));
+        } catch (RuntimeException e) {
+            merging = false;
+            throw e;
+        }
+    }
+
+    /**
+     * Reindexes the documents of the given segments which are not removed into one segment,
+     * and replaces the given segments by it.
+     */
+    private void merge(List<Segment> toMerge, List<Set<Integer>> removed) {
+        try {
+            PredicateIndexBuilder builder = new PredicateIndexBuilder(config);
+            Map<Integer, Predicate> documents = new LinkedHashMap<>();
+            for (int i = 0; i < toMerge.size(); i++) {
+                Set<Integer> removedFromSegment = removed.get(i);
+                for (Map.Entry<Integer, Predicate> document : toMerge.get(i).documents.entrySet()) {
+                    if (removedFromSegment.contains(document.getKey())) continue;
+                    builder.indexDocument(document.getKey(), document.getValue());
+                    documents.put(document.getKey(), document.getValue());
+                }
+            }
+            PredicateIndex index = builder.build();
+
+            synchronized (this) {
+                // Documents may have been removed from the merged segments while merging
+                Set<Integer> removedWhileMerging = new HashSet<>();
+                for (int i = 0; i < toMerge.size(); i++)
+                    for (int docId : toMerge.get(i).removed)
+                        if ( ! removed.get(i).contains(docId))
+                            removedWhileMerging.add(docId);
+                Segment merged = new Segment(index, documents, removedWhileMerging);
+                segments.add(segments.indexOf(toMerge.get(0)), merged);
+                segments.removeAll(toMerge);
+                for (int docId : documents.keySet()) {
+                    if ( ! removedWhileMerging.contains(docId))
+                        segmentOf.put(docId, merged);
+                }
+                merging = false;
+                mergeIfNeeded();
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                merging = false;
+            }
+            throw e;
+        }
+    }
+
+    @Beta
+    public static class Searcher {
+
+        private final List<SegmentSnapshot> segments;
+        private final List<PredicateIndex.Searcher> searchers;
+
+        private Searcher(List<SegmentSnapshot> segments) {
+            this.segments = segments;
+            this.searchers = segments.stream().map(segment -> segment.index.searcher()).collect(toList());
+        }
+
+        /**
+         * Retrieves a stream of hits for the given query, in the order described in {@link MutablePredicateIndex}.
+         *
+         * @param query Specifies the boolean variables that are true.
+         * @return A stream of hits.
+         */
+        public Stream<Hit> search(PredicateQuery query) {
+            return Stream.iterate(0, i -> i < segments.size(), i -> i + 1).flatMap(i -> search(i, query));
+        }
+
+        private Stream<Hit> search(int segment, PredicateQuery query) {
+            Set<Integer> removed = segments.get(segment).removed;
+            Stream<Hit> hits = searchers.get(segment).search(query);
+            return removed.isEmpty() ? hits : hits.filter(hit -> ! removed.contains(hit.getDocId()));
+        }
+
+    }
+
+    /** An immutable index of some documents, some of which may be removed. Guarded by the lock of the index. */
+    private static class Segment {
+
+        private final PredicateIndex index;
+        /** The documents of this, in the order they were indexed */
+        private final Map<Integer, Predicate> documents;
+        private final Set<Integer> removed;
+
+        /** The last snapshot of this, or null if this has changed since it was taken */
+        private SegmentSnapshot snapshot = null;
+
+        Segment(PredicateIndex index, Map<Integer, Predicate> documents, Set<Integer> removed) {
+            this.index = index;
+            this.documents = documents;
+            this.removed = removed;
+        }
+
+        void remove(int docId) {
+            removed.add(docId);
+            snapshot = null;
+        }
+
+        /** Returns the number of documents in this which are not removed */
+        int documentCount() {
+            return documents.size() - removed.size();
+        }
+
+        SegmentSnapshot snapshot() {
+            if (snapshot == null)
+                snapshot = new SegmentSnapshot(index, Set.copyOf(removed));
+            return snapshot;
+        }
+
+    }
+
+    /** The state of a segment visible to searchers */
+    private static class SegmentSnapshot {
+
+        private final PredicateIndex index;
+        private final Set<Integer> removed;
+
+        SegmentSnapshot(PredicateIndex index, Set<Integer> removed) {
+            this.index = index;
+            this.removed = removed;
+        }
+
+    }
+
+}
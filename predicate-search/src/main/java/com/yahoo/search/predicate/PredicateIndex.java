@@ -6,11 +6,14 @@ import com.yahoo.document.predicate.Predicate;
 import com.yahoo.search.predicate.index.*;
 import com.yahoo.search.predicate.index.conjunction.ConjunctionHit;
 import com.yahoo.search.predicate.index.conjunction.ConjunctionIndex;
+import com.yahoo.search.predicate.serialization.MappedFileReader;
 import com.yahoo.search.predicate.serialization.SerializationHelper;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
@@ -29,6 +32,11 @@ import java.util.stream.Stream;
  * method, which returns a stream of {@link Hit} objects,
  * each of which contains a document id and a 64-bit bitmap specifying which subqueries the hit is for.
  * </p><p>
+ * An index can be written in a mappable format with {@link #writeToMappableOutputStream(DataOutputStream)}
+ * and loaded with {@link #fromMappedFile(Path)}, which maps the posting lists and interval lists into memory
+ * instead of reading them onto the heap. Such an index loads quickly, and only a bounded number of the posting
+ * lists used by searches are kept on the heap.
+ * </p><p>
  * Note that the {@link PredicateIndex} is thread-safe, but a {@link Searcher} is not.
  * Each thread <strong>must</strong> use its own searcher.
  * </p>
@@ -39,6 +47,8 @@ import java.util.stream.Stream;
 public class PredicateIndex {
 
     private static final int SERIALIZATION_FORMAT_VERSION = 3;
+    private static final int MAPPABLE_SERIALIZATION_FORMAT_VERSION = 4;
+    private static final long DEFAULT_MAX_CACHED_POSTINGS = 1 << 24;
 
     private final PredicateRangeTermExpander expander;
     private final int[] internalToExternalIdMapping;
@@ -143,6 +153,86 @@ public class PredicateIndex {
         );
     }
 
+    /**
+     * Writes this in a format which can be loaded by mapping it into memory with {@link #fromMappedFile(Path)}.
+     * This format can not be read by {@link #fromInputStream(DataInputStream)}.
+     */
+    public void writeToMappableOutputStream(DataOutputStream out) throws IOException {
+        out.writeInt(MAPPABLE_SERIALIZATION_FORMAT_VERSION);
+        ByteArrayOutputStream configBytes = new ByteArrayOutputStream();
+        config.writeToOutputStream(new DataOutputStream(configBytes));
+        SerializationHelper.writeByteArray(configBytes.toByteArray(), out);
+        SerializationHelper.writeIntArray(internalToExternalIdMapping, out);
+        SerializationHelper.writeByteArray(minFeatureIndex, out);
+        SerializationHelper.writeShortArray(intervalEnds, out);
+        out.writeInt(highestIntervalEnd);
+        SerializationHelper.writeIntArray(zeroConstraintDocuments, out);
+        intervalIndex.writeToMappableOutputStream(out);
+        boundsIndex.writeToMappableOutputStream(out);
+        conjunctionIntervalIndex.writeToMappableOutputStream(out);
+        intervalStore.writeToMappableOutputStream(out);
+        ByteArrayOutputStream conjunctionIndexBytes = new ByteArrayOutputStream();
+        conjunctionIndex.writeToOutputStream(new DataOutputStream(conjunctionIndexBytes));
+        SerializationHelper.writeByteArray(conjunctionIndexBytes.toByteArray(), out);
+    }
+
+    /**
+     * Loads an index written by {@link #writeToMappableOutputStream(DataOutputStream)} by mapping the file
+     * into memory, keeping up to 16M postings of each posting list dictionary on the heap.
+     *
+     * @see #fromMappedFile(Path, long)
+     */
+    public static PredicateIndex fromMappedFile(Path file) throws IOException {
+        return fromMappedFile(file, DEFAULT_MAX_CACHED_POSTINGS);
+    }
+
+    /**
+     * Loads an index written by {@link #writeToMappableOutputStream(DataOutputStream)} by mapping the file
+     * into memory. The per-document arrays and the conjunction index are read onto the heap.
+     * Posting lists are copied from the mapped file when used, and the most recently used of them are kept
+     * on the heap, up to the given number of postings for each of the three posting list dictionaries.
+     * Posting lists used since the last {@link #rebuildPostingListCache()} are also referenced by the
+     * posting list counter. Interval lists are read from the mapped file each time they are used.
+     * The file must not be modified while the returned index is in use.
+     *
+     * @param file the file to map
+     * @param maxCachedPostings the max number of postings kept on the heap by each posting list dictionary
+     */
+    public static PredicateIndex fromMappedFile(Path file, long maxCachedPostings) throws IOException {
+        try (MappedFileReader in = new MappedFileReader(file)) {
+            int version = in.readInt();
+            if (version != MAPPABLE_SERIALIZATION_FORMAT_VERSION) {
+                throw new IllegalArgumentException(String.format(
+                        "Invalid mappable serialization format version. Expected %d, was %d.",
+                        MAPPABLE_SERIALIZATION_FORMAT_VERSION, version));
+            }
+            Config config = Config.fromInputStream(in.readSection());
+            int[] internalToExternalIdMapping = in.readIntArray();
+            byte[] minFeatureIndex = in.readByteArray();
+            short[] intervalEnds = in.readShortArray();
+            int highestIntervalEnd = in.readInt();
+            int[] zeroConstraintDocuments = in.readIntArray();
+            SimpleIndex intervalIndex = SimpleIndex.fromMappedFile(in, maxCachedPostings);
+            SimpleIndex boundsIndex = SimpleIndex.fromMappedFile(in, maxCachedPostings);
+            SimpleIndex conjunctionIntervalIndex = SimpleIndex.fromMappedFile(in, maxCachedPostings);
+            PredicateIntervalStore intervalStore = PredicateIntervalStore.fromMappedFile(in);
+            ConjunctionIndex conjunctionIndex = ConjunctionIndex.fromInputStream(in.readSection());
+            return new PredicateIndex(
+                    config,
+                    internalToExternalIdMapping,
+                    minFeatureIndex,
+                    intervalEnds,
+                    highestIntervalEnd,
+                    intervalIndex,
+                    boundsIndex,
+                    conjunctionIntervalIndex,
+                    intervalStore,
+                    conjunctionIndex,
+                    zeroConstraintDocuments
+            );
+        }
+    }
+
     @Beta
     public class Searcher {
         private final byte[] nPostingListsForDocument;
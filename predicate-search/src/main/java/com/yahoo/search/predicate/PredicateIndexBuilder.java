@@ -117,13 +117,16 @@ public class PredicateIndexBuilder {
         } else if (isNeverMatchingDocument(predicate)) {
             return;
         }
-        seenIds.add(docId);
         predicate = optimizer.optimizePredicate(predicate);
-        int internalId = documentIdCounter++;
         if (isAlwaysMatchingDocument(predicate)) {
-            indexZeroConstraintDocument(internalId);
+            seenIds.add(docId);
+            indexZeroConstraintDocument(documentIdCounter++);
         } else {
-            indexDocument(internalId, PredicateTreeAnnotator.createPredicateTreeAnnotations(predicate));
+            // Validate before changing any state, such that a failing document leaves this unchanged
+            PredicateTreeAnnotations annotations = PredicateTreeAnnotator.createPredicateTreeAnnotations(predicate);
+            validate(annotations);
+            seenIds.add(docId);
+            indexDocument(documentIdCounter++, annotations);
         }
     }
 
@@ -141,7 +144,7 @@ public class PredicateIndexBuilder {
         zeroConstraintDocuments.add(docId);
     }
 
-    private void indexDocument(int docId, PredicateTreeAnnotations annotations) {
+    private static void validate(PredicateTreeAnnotations annotations) {
         int minFeature = annotations.minFeature;
         Preconditions.checkState(minFeature <= 0xFF,
                 "Predicate is too complex. Expected min-feature less than %d, was %d.", 0xFF, minFeature);
@@ -149,6 +152,11 @@ public class PredicateIndexBuilder {
         Preconditions.checkState(intervalEnd <= Interval.MAX_INTERVAL_END,
                 "Predicate is too complex. Expected min-feature less than %d, was %d.",
                 Interval.MAX_INTERVAL_END, intervalEnd);
+    }
+
+    private void indexDocument(int docId, PredicateTreeAnnotations annotations) {
+        int minFeature = annotations.minFeature;
+        int intervalEnd = annotations.intervalEnd;
         highestIntervalEnd = Math.max(highestIntervalEnd, intervalEnd);
         intervalEndsBuilder.add((short) intervalEnd);
         minFeatureIndexBuilder.add((byte) minFeature);
@@ -2,11 +2,13 @@
 package com.yahoo.search.predicate.index;
 
 import com.google.common.primitives.Ints;
+import com.yahoo.search.predicate.serialization.MappedFileReader;
 import com.yahoo.search.predicate.serialization.SerializationHelper;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -18,21 +20,26 @@ import java.util.Map;
  */
 public class PredicateIntervalStore {
 
-    private final int[][] intervalsList;
+    private final IntervalsList intervalsList;
 
     public PredicateIntervalStore(int[][] intervalsList) {
+        this(new HeapIntervalsList(intervalsList));
+    }
+
+    private PredicateIntervalStore(IntervalsList intervalsList) {
         this.intervalsList = intervalsList;
     }
 
     public int[] get(int intervalRef) {
-        assert intervalRef < intervalsList.length;
-        return intervalsList[intervalRef];
+        assert intervalRef < intervalsList.size();
+        return intervalsList.get(intervalRef);
     }
 
     public void writeToOutputStream(DataOutputStream out) throws IOException {
-        out.writeInt(intervalsList.length);
-        for (int[] intervals : intervalsList) {
-            SerializationHelper.writeIntArray(intervals, out);
+        int size = intervalsList.size();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            SerializationHelper.writeIntArray(intervalsList.get(i), out);
         }
     }
 
@@ -45,6 +52,91 @@ public class PredicateIntervalStore {
         return new PredicateIntervalStore(intervalsList);
     }
 
+    /**
+     * Writes this in the format read by {@link #fromMappedFile}:
+     * The offset of each interval list, followed by all the interval lists.
+     */
+    public void writeToMappableOutputStream(DataOutputStream out) throws IOException {
+        int size = intervalsList.size();
+        int[] offsets = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            offsets[i + 1] = Math.addExact(offsets[i], intervalsList.get(i).length);
+        }
+        SerializationHelper.writeIntArray(offsets, out);
+        out.writeInt(offsets[size]);
+        for (int i = 0; i < size; i++) {
+            for (int interval : intervalsList.get(i)) {
+                out.writeInt(interval);
+            }
+        }
+    }
+
+    /**
+     * Reads a store written by {@link #writeToMappableOutputStream} by mapping it into memory.
+     * Interval lists are read from the mapped buffer each time they are used, and are not kept on the heap.
+     */
+    public static PredicateIntervalStore fromMappedFile(MappedFileReader in) throws IOException {
+        IntBuffer offsets = in.mapIntArray();
+        IntBuffer intervals = in.mapIntArray();
+        if (offsets.limit() == 0 || offsets.get(offsets.limit() - 1) != intervals.limit())
+            throw new IllegalArgumentException("Inconsistent array sizes in mapped interval store");
+        return new PredicateIntervalStore(new MappedIntervalsList(offsets, intervals));
+    }
+
+    private interface IntervalsList {
+
+        int[] get(int index);
+
+        int size();
+
+    }
+
+    private static class HeapIntervalsList implements IntervalsList {
+
+        private final int[][] intervalsList;
+
+        HeapIntervalsList(int[][] intervalsList) {
+            this.intervalsList = intervalsList;
+        }
+
+        @Override
+        public int[] get(int index) {
+            return intervalsList[index];
+        }
+
+        @Override
+        public int size() {
+            return intervalsList.length;
+        }
+
+    }
+
+    private static class MappedIntervalsList implements IntervalsList {
+
+        private final IntBuffer offsets;
+        private final IntBuffer intervals;
+
+        MappedIntervalsList(IntBuffer offsets, IntBuffer intervals) {
+            this.offsets = offsets;
+            this.intervals = intervals;
+        }
+
+        @Override
+        public int[] get(int index) {
+            int start = offsets.get(index);
+            int[] array = new int[offsets.get(index + 1) - start];
+            for (int i = 0; i < array.length; i++)
+                array[i] = intervals.get(start + i);
+            return array;
+        }
+
+        @Override
+        public int size() {
+            return offsets.limit() - 1;
+        }
+
+    }
+
     public static class Builder {
         private final List<int[]> intervalsListBuilder = new ArrayList<>();
         private final Map<Entry, Integer> intervalsListIndexes = new HashMap<>();
@@ -1,6 +1,10 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.predicate.index;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.yahoo.search.predicate.serialization.MappedFileReader;
 import com.yahoo.search.predicate.serialization.SerializationHelper;
 import org.eclipse.collections.api.map.primitive.LongObjectMap;
 import org.eclipse.collections.api.tuple.primitive.LongObjectPair;
@@ -9,7 +13,10 @@ import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -23,9 +30,13 @@ import java.util.Map;
  */
 public class SimpleIndex {
 
-    private final LongObjectMap<Entry> dictionary;
+    private final Dictionary dictionary;
 
     public SimpleIndex(LongObjectMap<Entry> dictionary) {
+        this(new HeapDictionary(dictionary));
+    }
+
+    private SimpleIndex(Dictionary dictionary) {
         this.dictionary = dictionary;
     }
 
@@ -40,10 +51,12 @@ public class SimpleIndex {
     }
 
     public void writeToOutputStream(DataOutputStream out) throws IOException {
-        out.writeInt(dictionary.size());
-        for (LongObjectPair<Entry> pair : dictionary.keyValuesView()) {
-            out.writeLong(pair.getOne());
-            Entry entry = pair.getTwo();
+        long[] keys = dictionary.keys();
+        Arrays.sort(keys); // make the output independent of the dictionary implementation
+        out.writeInt(keys.length);
+        for (long key : keys) {
+            out.writeLong(key);
+            Entry entry = dictionary.get(key);
             SerializationHelper.writeIntArray(entry.docIds, out);
             SerializationHelper.writeIntArray(entry.dataRefs, out);
         }
@@ -62,6 +75,46 @@ public class SimpleIndex {
         return new SimpleIndex(dictionary);
     }
 
+    /**
+     * Writes this in the format read by {@link #fromMappedFile}: The sorted keys, the offset of the postings
+     * of each key, followed by the document ids and the data references of all the keys.
+     */
+    public void writeToMappableOutputStream(DataOutputStream out) throws IOException {
+        long[] keys = dictionary.keys();
+        Arrays.sort(keys);
+        Entry[] entries = new Entry[keys.length];
+        int[] offsets = new int[keys.length + 1];
+        for (int i = 0; i < keys.length; i++) {
+            entries[i] = dictionary.get(keys[i]);
+            offsets[i + 1] = Math.addExact(offsets[i], entries[i].docIds.length);
+        }
+        SerializationHelper.writeLongArray(keys, out);
+        SerializationHelper.writeIntArray(offsets, out);
+        out.writeInt(offsets[keys.length]);
+        for (Entry entry : entries)
+            for (int docId : entry.docIds)
+                out.writeInt(docId);
+        out.writeInt(offsets[keys.length]);
+        for (Entry entry : entries)
+            for (int dataRef : entry.dataRefs)
+                out.writeInt(dataRef);
+    }
+
+    /**
+     * Reads an index written by {@link #writeToMappableOutputStream} by mapping it into memory.
+     * The postings of a key are copied to the heap when it is looked up, and the most recently used
+     * posting lists are kept on the heap, up to the given total number of postings.
+     */
+    public static SimpleIndex fromMappedFile(MappedFileReader in, long maxCachedPostings) throws IOException {
+        LongBuffer keys = in.mapLongArray();
+        IntBuffer offsets = in.mapIntArray();
+        IntBuffer docIds = in.mapIntArray();
+        IntBuffer dataRefs = in.mapIntArray();
+        if (offsets.limit() != keys.limit() + 1 || docIds.limit() != dataRefs.limit())
+            throw new IllegalArgumentException("Inconsistent array sizes in mapped index");
+        return new SimpleIndex(new MappedDictionary(keys, offsets, docIds, dataRefs, maxCachedPostings));
+    }
+
     public static class Entry {
         public final int[] docIds;
         public final int[] dataRefs;
@@ -109,4 +162,105 @@ public class SimpleIndex {
         public int getKeyCount() { return dictionaryBuilder.size(); }
     }
 
+    private interface Dictionary {
+
+        /** Returns the entry of the given key, or null if none */
+        Entry get(long key);
+
+        /** Returns all the keys of this, in no particular order */
+        long[] keys();
+
+    }
+
+    private static class HeapDictionary implements Dictionary {
+
+        private final LongObjectMap<Entry> entries;
+
+        HeapDictionary(LongObjectMap<Entry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public Entry get(long key) {
+            return entries.get(key);
+        }
+
+        @Override
+        public long[] keys() {
+            long[] keys = new long[entries.size()];
+            int i = 0;
+            for (LongObjectPair<Entry> pair : entries.keyValuesView())
+                keys[i++] = pair.getOne();
+            return keys;
+        }
+
+    }
+
+    /**
+     * A dictionary of sorted keys in a mapped buffer, which is binary searched.
+     * Entries are cached in a bounded cache, such that a posting list keeps its identity while it is in use.
+     */
+    private static class MappedDictionary implements Dictionary {
+
+        private final LongBuffer keys;
+        private final IntBuffer offsets;
+        private final IntBuffer docIds;
+        private final IntBuffer dataRefs;
+        private final LoadingCache<Integer, Entry> entries;
+
+        MappedDictionary(LongBuffer keys, IntBuffer offsets, IntBuffer docIds, IntBuffer dataRefs, long maxCachedPostings) {
+            this.keys = keys;
+            this.offsets = offsets;
+            this.docIds = docIds;
+            this.dataRefs = dataRefs;
+            this.entries = CacheBuilder.newBuilder()
+                                       .maximumWeight(maxCachedPostings)
+                                       .weigher((Integer index, Entry entry) -> entry.docIds.length)
+                                       .build(CacheLoader.from(this::read));
+        }
+
+        @Override
+        public Entry get(long key) {
+            int index = indexOf(key);
+            if (index < 0) return null;
+            return entries.getUnchecked(index);
+        }
+
+        @Override
+        public long[] keys() {
+            long[] array = new long[keys.limit()];
+            keys.duplicate().get(array);
+            return array;
+        }
+
+        private Entry read(int index) {
+            int start = offsets.get(index);
+            int length = offsets.get(index + 1) - start;
+            return new Entry(copy(docIds, start, length), copy(dataRefs, start, length));
+        }
+
+        private int indexOf(long key) {
+            int low = 0;
+            int high = keys.limit() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long middleKey = keys.get(middle);
+                if (middleKey < key)
+                    low = middle + 1;
+                else if (middleKey > key)
+                    high = middle - 1;
+                else
+                    return middle;
+            }
+            return -1;
+        }
+
+        private static int[] copy(IntBuffer buffer, int start, int length) {
+            int[] array = new int[length];
+            buffer.duplicate().position(start).get(array);
+            return array;
+        }
+
+    }
+
 }
@@ -0,0 +1,96 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate.serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file of values and arrays written by {@link SerializationHelper}, in order, either by mapping
+ * the arrays into memory or by copying them to the heap in bulk.
+ * Mapped buffers remain valid after this is closed.
+ *
+ * @author agent
+ */
+public class MappedFileReader implements Closeable {
+
+    private final FileChannel channel;
+    private long position = 0;
+
+    public MappedFileReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    public int readInt() throws IOException {
+        return read(Integer.BYTES).getInt();
+    }
+
+    public int[] readIntArray() throws IOException {
+        IntBuffer buffer = mapIntArray();
+        int[] array = new int[buffer.remaining()];
+        buffer.get(array);
+        return array;
+    }
+
+    public byte[] readByteArray() throws IOException {
+        ByteBuffer buffer = map(Byte.BYTES);
+        byte[] array = new byte[buffer.remaining()];
+        buffer.get(array);
+        return array;
+    }
+
+    public short[] readShortArray() throws IOException {
+        ByteBuffer buffer = map(Short.BYTES);
+        short[] array = new short[buffer.remaining() / Short.BYTES];
+        buffer.asShortBuffer().get(array);
+        return array;
+    }
+
+    /** Returns a stream of the content of a byte array, for reading data written in the stream format */
+    public DataInputStream readSection() throws IOException {
+        return new DataInputStream(new ByteArrayInputStream(readByteArray()));
+    }
+
+    public IntBuffer mapIntArray() throws IOException {
+        return map(Integer.BYTES).asIntBuffer();
+    }
+
+    public LongBuffer mapLongArray() throws IOException {
+        return map(Long.BYTES).asLongBuffer();
+    }
+
+    private ByteBuffer map(int elementSize) throws IOException {
+        int length = readInt();
+        long size = (long)length * elementSize;
+        if (length < 0 || position + size > channel.size())
+            throw new IOException("Array of " + length + " elements at position " + position +
+                                  " exceeds the file size " + channel.size());
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        position += size;
+        return buffer;
+    }
+
+    private ByteBuffer read(int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException("Unexpected end of file at position " + position);
+        }
+        position += size;
+        return buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
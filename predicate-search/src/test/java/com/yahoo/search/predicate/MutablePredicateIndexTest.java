@@ -0,0 +1,183 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate;
+
+import com.yahoo.document.predicate.BooleanPredicate;
+import com.yahoo.document.predicate.Predicate;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class MutablePredicateIndexTest {
+
+    private static final Config config = new Config.Builder().setArity(10).build();
+
+    @Test
+    public void requireThatChangesAreVisibleAfterRefresh() {
+        MutablePredicateIndex index = new MutablePredicateIndex(config, Runnable::run);
+        index.indexDocument(1, Predicate.fromString("country in ['no', 'se'] and gender in ['male']"));
+        index.indexDocument(2, Predicate.fromString("country in ['no'] and gender in ['female']"));
+        assertEquals("[]", search(index.searcher(), "country=no", "gender=male", "gender=female"));
+
+        index.refresh();
+        assertEquals("[1, 2]", search(index.searcher(), "country=no", "gender=male", "gender=female"));
+
+        assertTrue(index.removeDocument(1));
+        assertFalse(index.removeDocument(1));
+        assertFalse(index.removeDocument(3));
+        index.indexDocument(2, Predicate.fromString("country in ['se']"));
+        index.indexDocument(3, new BooleanPredicate(true));
+        assertEquals("[1, 2]", search(index.searcher(), "country=no", "gender=male", "gender=female"));
+
+        index.refresh();
+        assertEquals("[3]", search(index.searcher(), "country=no", "gender=male", "gender=female"));
+        assertEquals("[2, 3]", search(index.searcher(), "country=se"));
+    }
+
+    @Test
+    public void requireThatSearchersSeeTheIndexAsItWasWhenTheyWereCreated() {
+        MutablePredicateIndex index = new MutablePredicateIndex(config, Runnable::run);
+        index.indexDocument(1, Predicate.fromString("a in ['b']"));
+        index.refresh();
+        MutablePredicateIndex.Searcher searcher = index.searcher();
+
+        index.removeDocument(1);
+        index.indexDocument(2, Predicate.fromString("a in ['b']"));
+        index.refresh();
+        assertEquals("[1]", search(searcher, "a=b"));
+        assertEquals("[2]", search(index.searcher(), "a=b"));
+    }
+
+    @Test
+    public void requireThatDocumentsCanBeReplacedAndRemovedBeforeRefresh() {
+        MutablePredicateIndex index = new MutablePredicateIndex(config, Runnable::run);
+        index.indexDocument(1, Predicate.fromString("a in ['b']"));
+        index.indexDocument(1, Predicate.fromString("a in ['c']"));
+        index.indexDocument(2, Predicate.fromString("a in ['b']"));
+        assertTrue(index.removeDocument(2));
+        assertFalse(index.removeDocument(2));
+        index.refresh();
+        assertEquals("[]", search(index.searcher(), "a=b"));
+        assertEquals("[1]", search(index.searcher(), "a=c"));
+    }
+
+    @Test
+    public void requireThatSegmentsAreMerged() {
+        List<Runnable> merges = new ArrayList<>();
+        MutablePredicateIndex index = new MutablePredicateIndex(config, 4, merges::add);
+        for (int i = 0; i < 5; i++) {
+            index.indexDocument(i, Predicate.fromString("a in ['b']"));
+            index.refresh();
+        }
+        assertEquals(5, index.getSegmentCount());
+        assertEquals(1, merges.size());
+
+        // Changes done while merging are kept
+        index.removeDocument(0);
+        index.indexDocument(1, Predicate.fromString("a in ['c']"));
+        merges.remove(0).run();
+        assertEquals(5, index.getSegmentCount());
+        assertEquals("[0, 1, 2, 3, 4]", search(index.searcher(), "a=b"));
+
+        index.refresh(); // replaces two segments by the merged one, and adds a segment with the replaced document
+        assertEquals(5, index.getSegmentCount());
+        assertEquals("[2, 3, 4]", search(index.searcher(), "a=b"));
+        assertEquals("[1]", search(index.searcher(), "a=c"));
+        assertEquals(1, merges.size());
+
+        merges.remove(0).run();
+        index.refresh();
+        assertEquals(4, index.getSegmentCount());
+        assertEquals("[2, 3, 4]", search(index.searcher(), "a=b"));
+        assertEquals("[1]", search(index.searcher(), "a=c"));
+        assertTrue(merges.isEmpty());
+    }
+
+    @Test
+    public void requireThatSearchResultsMatchAnIndexOfTheSameDocuments() {
+        String[] predicates = { "a in ['1'] and b in ['2']", "a in ['1', '2']", "a not in ['2']",
+                                "b in ['1'] or c in [2..4]", "c in [3..10]", "true" };
+        Random random = new Random(1);
+        Predicate[] documents = new Predicate[100];
+        MutablePredicateIndex index = new MutablePredicateIndex(config, 3, Runnable::run);
+        for (int i = 0; i < 1000; i++) {
+            int docId = random.nextInt(documents.length);
+            if (random.nextInt(4) == 0) {
+                index.removeDocument(docId);
+                documents[docId] = null;
+            } else {
+                documents[docId] = Predicate.fromString(predicates[random.nextInt(predicates.length)]);
+                index.indexDocument(docId, documents[docId]);
+            }
+            if (random.nextInt(20) == 0)
+                index.refresh();
+        }
+        index.refresh();
+        assertTrue(index.getSegmentCount() <= 3);
+
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(config);
+        for (int docId = 0; docId < documents.length; docId++) {
+            if (documents[docId] != null)
+                builder.indexDocument(docId, documents[docId]);
+        }
+        PredicateIndex.Searcher expected = builder.build().searcher();
+        MutablePredicateIndex.Searcher searcher = index.searcher();
+        for (String[] features : List.of(new String[0], new String[] { "a=1" }, new String[] { "a=1", "b=2" },
+                                         new String[] { "a=2", "c=3" }, new String[] { "b=1", "c=5" })) {
+            PredicateQuery query = query(features);
+            assertEquals(expected.search(query).sorted().collect(toList()),
+                         searcher.search(query).sorted().collect(toList()));
+        }
+    }
+
+    @Test
+    public void requireThatHitsAreReturnedInSegmentAndIndexingOrder() {
+        MutablePredicateIndex index = new MutablePredicateIndex(config, 2, Runnable::run);
+        index.indexDocument(9, Predicate.fromString("a in ['b']"));
+        index.indexDocument(7, Predicate.fromString("a in ['b']"));
+        index.refresh();
+        index.indexDocument(5, Predicate.fromString("a in ['b']"));
+        index.refresh();
+        assertEquals("[9, 7, 5]", searchUnsorted(index.searcher(), "a=b"));
+
+        index.indexDocument(3, Predicate.fromString("a in ['b']"));
+        index.indexDocument(4, Predicate.fromString("a in ['b']"));
+        index.refresh(); // merges the two oldest segments
+        assertEquals(2, index.getSegmentCount());
+        assertEquals("[9, 7, 5, 3, 4]", searchUnsorted(index.searcher(), "a=b"));
+
+        index.indexDocument(7, Predicate.fromString("a in ['b']"));
+        index.refresh(); // merges the two smallest segments, [9, 5] and [7], into the place of the oldest
+        assertEquals("[9, 5, 7, 3, 4]", searchUnsorted(index.searcher(), "a=b"));
+    }
+
+    private static String searchUnsorted(MutablePredicateIndex.Searcher searcher, String... features) {
+        return searcher.search(query(features)).map(Hit::getDocId).collect(toList()).toString();
+    }
+
+    private static String search(MutablePredicateIndex.Searcher searcher, String... features) {
+        return searcher.search(query(features)).sorted().collect(toList()).toString();
+    }
+
+    private static PredicateQuery query(String... features) {
+        PredicateQuery query = new PredicateQuery();
+        for (String feature : features) {
+            String[] keyValue = feature.split("=");
+            if (keyValue[0].equals("c"))
+                query.addRangeFeature(keyValue[0], Long.parseLong(keyValue[1]));
+            else
+                query.addFeature(keyValue[0], keyValue[1]);
+        }
+        return query;
+    }
+
+}
@@ -5,7 +5,13 @@ import com.yahoo.document.predicate.BooleanPredicate;
 import com.yahoo.document.predicate.Predicate;
 import org.junit.Test;
 
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author bjorncs
@@ -39,4 +45,22 @@ public class PredicateIndexBuilderTest {
         builder.build();
     }
 
+    @Test
+    public void requireThatAFailingDocumentLeavesTheBuilderUnchanged() {
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(10);
+        builder.indexDocument(1, Predicate.fromString("a in ['b']"));
+        String tooComplex = IntStream.range(0, 256).mapToObj(i -> "a" + i + " in ['b']").collect(Collectors.joining(" and "));
+        try {
+            builder.indexDocument(2, Predicate.fromString(tooComplex));
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith("Predicate is too complex."));
+        }
+        builder.indexDocument(2, Predicate.fromString("a in ['b']"));
+
+        PredicateQuery query = new PredicateQuery();
+        query.addFeature("a", "b");
+        assertEquals("[1, 2]", builder.build().searcher().search(query).collect(toList()).toString());
+    }
+
 }
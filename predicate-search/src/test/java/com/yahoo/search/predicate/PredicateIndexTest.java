@@ -2,9 +2,15 @@
 package com.yahoo.search.predicate;
 
 import com.yahoo.document.predicate.Predicate;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.List;
 
 import static com.yahoo.search.predicate.serialization.SerializationTestHelper.assertSerializationDeserializationMatches;
 import static java.util.stream.Collectors.toList;
@@ -18,6 +24,9 @@ public class PredicateIndexTest {
 
     private static final int DOC_ID = 42;
 
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
     @Test
     public void requireThatPredicateIndexCanSearch() {
         PredicateIndexBuilder builder = new PredicateIndexBuilder(10);
@@ -138,4 +147,40 @@ public class PredicateIndexTest {
         assertSerializationDeserializationMatches(
                 index, PredicateIndex::writeToOutputStream, PredicateIndex::fromInputStream);
     }
+
+    @Test
+    public void requireThatMappedIndexGivesTheSameHits() throws IOException {
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(10);
+        builder.indexDocument(1, Predicate.fromString("country in ['no', 'se'] and gender in ['male']"));
+        builder.indexDocument(2, Predicate.fromString("country in ['no'] and gender in ['female']"));
+        builder.indexDocument(3, Predicate.fromString("country not in ['no'] and age in [20..40]"));
+        builder.indexDocument(4, Predicate.fromString("age in [30..]"));
+        builder.indexDocument(5, Predicate.fromString("true"));
+        PredicateIndex index = builder.build();
+
+        File file = tmpFolder.newFile();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            index.writeToMappableOutputStream(out);
+        }
+        PredicateIndex mapped = PredicateIndex.fromMappedFile(file.toPath());
+        PredicateIndex mappedWithSmallCache = PredicateIndex.fromMappedFile(file.toPath(), 1);
+
+        PredicateQuery noMale = new PredicateQuery();
+        noMale.addFeature("country", "no");
+        noMale.addFeature("gender", "male");
+        PredicateQuery seAge = new PredicateQuery();
+        seAge.addFeature("country", "se");
+        seAge.addRangeFeature("age", 35);
+        for (PredicateQuery query : List.of(new PredicateQuery(), noMale, seAge)) {
+            assertEquals(index.searcher().search(query).collect(toList()),
+                         mapped.searcher().search(query).collect(toList()));
+            assertEquals(index.searcher().search(query).collect(toList()),
+                         mappedWithSmallCache.searcher().search(query).collect(toList()));
+        }
+        assertEquals("[1, 5]",
+                     mapped.searcher().search(noMale).collect(toList()).toString());
+        assertSerializationDeserializationMatches(
+                mapped, PredicateIndex::writeToOutputStream, PredicateIndex::fromInputStream);
+    }
+
 }
@@ -1,13 +1,23 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.predicate.index;
 
+import com.yahoo.search.predicate.serialization.MappedFileReader;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 
 import static com.yahoo.search.predicate.serialization.SerializationTestHelper.assertSerializationDeserializationMatches;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * @author <a href="mailto:magnarn@yahoo-inc.com">Magnar Nedland</a>
@@ -18,6 +28,9 @@ public class SimpleIndexTest {
     private static final long KEY = 0x12345L;
     private static final int DOC_ID = 42;
 
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
     @Test
     public void requireThatValuesCanBeInserted() {
         SimpleIndex.Builder builder = new SimpleIndex.Builder();
@@ -62,4 +75,57 @@ public class SimpleIndexTest {
         SimpleIndex index = builder.build();
         assertSerializationDeserializationMatches(index, SimpleIndex::writeToOutputStream, SimpleIndex::fromInputStream);
     }
+
+    @Test
+    public void requireThatMappedIndexRetainsDictionary() throws IOException {
+        SimpleIndex.Builder builder = new SimpleIndex.Builder();
+        builder.insert(KEY, new Posting(DOC_ID, 10));
+        builder.insert(KEY, new Posting(DOC_ID + 1, 20));
+        builder.insert(-KEY, new Posting(DOC_ID + 2, 30));
+        builder.insert(KEY + 0xFFFFFF, new Posting(DOC_ID, 100));
+        SimpleIndex index = builder.build();
+
+        File file = tmpFolder.newFile();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            index.writeToMappableOutputStream(out);
+        }
+        SimpleIndex mapped;
+        try (MappedFileReader in = new MappedFileReader(file.toPath())) {
+            mapped = SimpleIndex.fromMappedFile(in, 1000);
+        }
+        for (long key : new long[] { KEY, -KEY, KEY + 0xFFFFFF }) {
+            SimpleIndex.Entry entry = mapped.getPostingList(key);
+            assertArrayEquals(index.getPostingList(key).docIds, entry.docIds);
+            assertArrayEquals(index.getPostingList(key).dataRefs, entry.dataRefs);
+            assertSame(entry, mapped.getPostingList(key));
+        }
+        assertNull(mapped.getPostingList(KEY + 1));
+    }
+
+    @Test
+    public void requireThatMappedIndexEvictsPostingListsBeyondCacheSize() throws IOException {
+        SimpleIndex.Builder builder = new SimpleIndex.Builder();
+        for (int i = 0; i < 10; i++)
+            builder.insert(KEY + i, new Posting(DOC_ID + i, i));
+        SimpleIndex index = builder.build();
+
+        File file = tmpFolder.newFile();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            index.writeToMappableOutputStream(out);
+        }
+        SimpleIndex mapped;
+        try (MappedFileReader in = new MappedFileReader(file.toPath())) {
+            mapped = SimpleIndex.fromMappedFile(in, 1);
+        }
+        SimpleIndex.Entry first = mapped.getPostingList(KEY);
+        for (int i = 0; i < 10; i++) {
+            SimpleIndex.Entry entry = mapped.getPostingList(KEY + i);
+            assertArrayEquals(new int[] { DOC_ID + i }, entry.docIds);
+            assertArrayEquals(new int[] { i }, entry.dataRefs);
+        }
+        SimpleIndex.Entry reread = mapped.getPostingList(KEY);
+        assertNotSame(first, reread);
+        assertArrayEquals(first.docIds, reread.docIds);
+    }
+
 }
@@ -7,6 +7,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import org.HdrHistogram.DoubleHistogram;
+import org.HdrHistogram.DoubleHistogramIterationValue;
 
 import com.yahoo.collections.Tuple2;
 import com.yahoo.container.jdisc.state.*;
@@ -69,7 +70,7 @@ class SnapshotConverter {
                 return GaugeMetric.newInstance(val.getLast(), val.getMax(), val.getMin(), val.getSum(), val.getCount());
             } else {
                 return GaugeMetric.newInstance(val.getLast(), val.getMax(), val.getMin(), val.getSum(), val.getCount(),
-                        Optional.of(buildPercentileList(val.getHistogram())));
+                                               buildPercentileList(val.getHistogram()), toSketch(val.getHistogram()));
             }
         }
     }
@@ -81,6 +82,14 @@ class SnapshotConverter {
         return prefixAndValues;
     }
 
+    /** Returns the values of the given histogram as a sketch, which can be exported and merged with those of other gauges */
+    private static QuantileSketch toSketch(DoubleHistogram histogram) {
+        QuantileSketch sketch = new QuantileSketch();
+        for (DoubleHistogramIterationValue value : histogram.recordedValues())
+            sketch.add(value.getValueIteratedTo(), value.getCountAddedInThisIterationStep());
+        return sketch;
+    }
+
     MetricSnapshot convert() {
         for (Map.Entry<Identifier, UntypedMetric> entry : snapshot.entrySet()) {
             Identifier ident = entry.getKey();
@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.metrics.simple.jdisc;
 
+import com.yahoo.collections.Tuple2;
 import com.yahoo.container.jdisc.state.CountMetric;
 import com.yahoo.container.jdisc.state.GaugeMetric;
 import com.yahoo.container.jdisc.state.MetricDimensions;
@@ -8,15 +9,20 @@ import com.yahoo.container.jdisc.state.MetricSet;
 import com.yahoo.container.jdisc.state.MetricSnapshot;
 import com.yahoo.container.jdisc.state.MetricValue;
 import com.yahoo.metrics.simple.Bucket;
+import com.yahoo.metrics.simple.Gauge;
 import com.yahoo.metrics.simple.Identifier;
 import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.metrics.simple.MetricSettings;
 import com.yahoo.metrics.simple.Point;
 import com.yahoo.metrics.simple.UntypedMetric;
+import org.HdrHistogram.DoubleHistogram;
 import org.junit.Test;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -74,4 +80,26 @@ public class SnapshotConverterTest {
         }
     }
 
+    @Test
+    public void testHistogramConversion() {
+        MetricReceiver mock = new MetricReceiver.MockReceiver();
+        Gauge gauge = mock.declareGauge("latency", Optional.empty(), new MetricSettings.Builder().histogram(true).build());
+        for (int i = 1; i <= 1000; i++)
+            gauge.sample(i);
+
+        Bucket bucket = mock.getSnapshot();
+        DoubleHistogram histogram = bucket.getValuesForMetric("latency").iterator().next().getValue().getHistogram();
+        MetricSnapshot snapshot = new SnapshotConverter(bucket).convert();
+
+        GaugeMetric latency = (GaugeMetric)snapshot.iterator().next().getValue().get("latency");
+        assertEquals(1000, latency.getSketch().get().count());
+        assertEquals(990, latency.getSketch().get().quantile(0.99), 990 * 0.02);
+        List<Tuple2<String, Double>> percentiles = latency.getPercentiles().get();
+        assertEquals("The percentiles of the histogram are kept", 2, percentiles.size());
+        assertEquals("95", percentiles.get(0).first);
+        assertEquals(histogram.getValueAtPercentile(95), percentiles.get(0).second, 0);
+        assertEquals("99", percentiles.get(1).first);
+        assertEquals(histogram.getValueAtPercentile(99), percentiles.get(1).second, 0);
+    }
+
 }
@@ -90,6 +90,13 @@ public interface OperationHandler {
 
     VisitResult visit(RestUri restUri, String documentSelection, VisitOptions options) throws RestApiException;
 
+    /**
+     * Starts visiting all documents matching the given selection, to be consumed from the returned stream
+     * as they arrive. The wanted document count of the options is ignored, and visiting does not time out.
+     * The caller must close the returned stream.
+     */
+    VisitStream visitStream(RestUri restUri, String documentSelection, VisitOptions options) throws RestApiException;
+
     void put(RestUri restUri, FeedOperation data, Optional<String> route) throws RestApiException;
 
     void update(RestUri restUri, FeedOperation data, Optional<String> route) throws RestApiException;
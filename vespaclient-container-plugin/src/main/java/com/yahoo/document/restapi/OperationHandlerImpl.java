@@ -14,6 +14,7 @@ import com.yahoo.documentapi.ProgressToken;
 import com.yahoo.documentapi.SyncParameters;
 import com.yahoo.documentapi.SyncSession;
 import com.yahoo.documentapi.VisitorControlHandler;
+import com.yahoo.documentapi.VisitorDataQueue;
 import com.yahoo.documentapi.VisitorParameters;
 import com.yahoo.documentapi.VisitorSession;
 import com.yahoo.documentapi.messagebus.MessageBusSyncSession;
@@ -157,6 +158,30 @@ public class OperationHandlerImpl implements OperationHandler {
         }
     }
 
+    @Override
+    public VisitStream visitStream(RestUri restUri, String documentSelection, VisitOptions options) throws RestApiException {
+        VisitorParameters visitorParameters = createVisitorParameters(restUri, documentSelection, options);
+        // Visit until done; the stream is throttled by the consumer rather than limited by size or time
+        visitorParameters.setMaxFirstPassHits(-1);
+        visitorParameters.setMaxTotalHits(-1);
+        visitorParameters.setSessionTimeoutMs(-1);
+
+        VisitorControlHandler visitorControlHandler = new VisitorControlHandler();
+        visitorParameters.setControlHandler(visitorControlHandler);
+        visitorParameters.setLocalDataHandler(new VisitorDataQueue());
+        try {
+            VisitorSession visitorSession = documentAccess.createVisitorSession(visitorParameters);
+            visitorControlHandler.setSession(visitorSession);
+            return new VisitStream(visitorSession, visitorControlHandler);
+        } catch (Exception e) {
+            throw new RestApiException(Response.createErrorResponse(
+                    500,
+                    "Failed during parsing of arguments for visiting: " + ExceptionUtils.getStackTraceAsString(e),
+                    restUri,
+                    RestUri.apiErrorCodes.VISITOR_ERROR));
+        }
+    }
+
     private static void throwIfFatalVisitingError(VisitorControlHandler handler, RestUri restUri) throws RestApiException {
         final VisitorControlHandler.Result result = handler.getResult();
         if (result.getCode() == VisitorControlHandler.CompletionCode.TIMEOUT) {
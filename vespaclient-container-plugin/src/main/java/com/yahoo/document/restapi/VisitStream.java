@@ -0,0 +1,88 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.restapi;
+
+import com.yahoo.documentapi.AckToken;
+import com.yahoo.documentapi.DocumentOpVisitorResponse;
+import com.yahoo.documentapi.VisitorControlHandler;
+import com.yahoo.documentapi.VisitorResponse;
+import com.yahoo.documentapi.VisitorSession;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A running visit whose documents are consumed one by one as they arrive, rather than collected into a page.
+ * Documents are not acked until the consumer calls {@link #ack}, so a slow consumer holds back the visitors
+ * (which have a bounded number of pending documents) instead of having documents pile up in memory.
+ *
+ * @author agent
+ */
+public class VisitStream implements AutoCloseable {
+
+    private final VisitorSession session;
+    private final VisitorControlHandler controlHandler;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    public VisitStream(VisitorSession session, VisitorControlHandler controlHandler) {
+        this.session = session;
+        this.controlHandler = controlHandler;
+    }
+
+    /**
+     * Returns the next visited document operation, or empty if none arrives within the given time.
+     * The returned operation must be acked when it is consumed. This returns empty once this is closed.
+     */
+    public Optional<DocumentOpVisitorResponse> next(int timeoutMs) throws InterruptedException {
+        if (closed.get()) return Optional.empty();
+        VisitorResponse response = session.getNext(timeoutMs);
+        if (response == null) return Optional.empty();
+        if ( ! (response instanceof DocumentOpVisitorResponse)) {
+            ack(response.getAckToken());
+            throw new IllegalStateException("Expected a document operation from the visitor, got " + response);
+        }
+        return Optional.of((DocumentOpVisitorResponse)response);
+    }
+
+    /**
+     * Acks a consumed document operation, allowing the visitor to send more.
+     * This may be called from any thread, and does nothing once this is closed.
+     */
+    public void ack(AckToken token) {
+        if (closed.get()) return;
+        session.ack(token);
+    }
+
+    /** Returns whether visiting has completed, successfully or not, such that no more documents will arrive */
+    public boolean isDone() {
+        return controlHandler.isDone();
+    }
+
+    /** Returns the token to continue visiting from, if visiting is done but did not cover all buckets */
+    public Optional<String> continuation() {
+        if (controlHandler.getProgress() == null || controlHandler.getProgress().isFinished()) return Optional.empty();
+        return Optional.of(controlHandler.getProgress().serializeToString());
+    }
+
+    /** Returns a description of why visiting failed, if it is done and did not succeed */
+    public Optional<String> error() {
+        if ( ! isDone() || controlHandler.getResult().getCode() == VisitorControlHandler.CompletionCode.SUCCESS)
+            return Optional.empty();
+        return Optional.of(controlHandler.getResult().toString());
+    }
+
+    /** Returns whether this is closed */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Stops visiting, if not already done, and frees the resources of this.
+     * This may be called from any thread, any number of times.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true))
+            session.destroy();
+    }
+
+}
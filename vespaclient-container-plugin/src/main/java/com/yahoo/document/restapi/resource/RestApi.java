@@ -22,6 +22,7 @@ import com.yahoo.document.restapi.OperationHandlerImpl;
 import com.yahoo.document.restapi.Response;
 import com.yahoo.document.restapi.RestApiException;
 import com.yahoo.document.restapi.RestUri;
+import com.yahoo.document.restapi.VisitStream;
 import com.yahoo.document.select.DocumentSelector;
 import com.yahoo.document.select.parser.ParseException;
 import com.yahoo.documentapi.messagebus.MessageBusDocumentAccess;
@@ -70,6 +71,7 @@ public class RestApi extends LoggingRequestHandler {
     private static final String FIELD_SET = "fieldSet";
     private static final String CONCURRENCY = "concurrency";
     private static final String BUCKET_SPACE = "bucketSpace";
+    private static final String STREAM = "stream";
     private static final String APPLICATION_JSON = "application/json";
     private final OperationHandler operationHandler;
     private SingleDocumentParser singleDocumentParser;
@@ -417,6 +419,9 @@ public class RestApi extends LoggingRequestHandler {
         } catch (BadRequestParameterException e) {
             return createInvalidParameterResponse(e.getParameter(), e.getMessage());
         }
+        if (parseBoolean(STREAM, request).orElse(false))
+            return handleStreamingVisit(restUri, documentSelection, options);
+
         OperationHandler.VisitResult visit = operationHandler.visit(restUri, documentSelection, options);
         ObjectNode resultNode = mapper.createObjectNode();
         visit.token.ifPresent(t -> resultNode.put(CONTINUATION, t));
@@ -437,4 +442,20 @@ public class RestApi extends LoggingRequestHandler {
         };
         return httpResponse;
     }
+
+    private HttpResponse handleStreamingVisit(RestUri restUri, String documentSelection,
+                                              OperationHandler.VisitOptions options) throws RestApiException {
+        VisitStream stream = operationHandler.visitStream(restUri, documentSelection, options);
+        // Rendering occupies a thread for the duration of the visit, so keep it out of the pool until done
+        threadsAvailableForApi.decrementAndGet();
+        try {
+            return new VisitStreamResponse(stream, restUri.getRawPath(), threadsAvailableForApi::incrementAndGet);
+        }
+        catch (RuntimeException e) {
+            stream.close();
+            threadsAvailableForApi.incrementAndGet();
+            throw e;
+        }
+    }
+
 }
@@ -0,0 +1,225 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.restapi.resource;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.yahoo.container.jdisc.AsyncHttpResponse;
+import com.yahoo.document.DocumentOperation;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentRemove;
+import com.yahoo.document.json.JsonWriter;
+import com.yahoo.document.restapi.VisitStream;
+import com.yahoo.documentapi.AckToken;
+import com.yahoo.documentapi.DocumentOpVisitorResponse;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import com.yahoo.jdisc.handler.ContentChannel;
+import com.yahoo.log.LogLevel;
+import com.yahoo.yolean.Exceptions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * A visit response which writes documents to the client as they are visited, instead of collecting them into a page.
+ *
+ * Visited documents are only acked once they are written to the network, so the visitors are throttled by
+ * how fast the client reads the response. Since the status is sent before visiting starts, a visit which fails
+ * is reported by a "message" in the response body, together with the continuation to resume from.
+ *
+ * The visitor session is destroyed, and the completion callback run, as soon as the client is found to be gone,
+ * or when the response is closed, whichever happens first. To find clients which leave while no documents arrive,
+ * whitespace is written to the response when nothing else has been written for a while.
+ *
+ * @author agent
+ */
+class VisitStreamResponse extends AsyncHttpResponse {
+
+    private static final Logger log = Logger.getLogger(VisitStreamResponse.class.getName());
+
+    /** The number of bytes to collect before writing them to the network */
+    static final int flushSize = 1 << 16;
+
+    /** The time to wait for a document before writing what has been collected so far */
+    private static final int pollTimeoutMs = 100;
+
+    /** The default time without writing anything before writing whitespace, to check that the client is still there */
+    private static final long defaultIdleWriteIntervalMs = 10_000;
+
+    private final VisitStream stream;
+    private final String pathId;
+    private final Runnable onCompletion;
+    private final long idleWriteIntervalMs;
+    private final AtomicBoolean completed = new AtomicBoolean();
+    private long lastWriteMillis;
+
+    /** Set when writing to the network fails, which means the client is gone */
+    private volatile Throwable writeFailure = null;
+
+    /**
+     * Creates a response rendering the given stream, which is closed when rendering completes.
+     *
+     * @param onCompletion invoked when rendering completes, successfully or not
+     */
+    VisitStreamResponse(VisitStream stream, String pathId, Runnable onCompletion) {
+        this(stream, pathId, onCompletion, defaultIdleWriteIntervalMs);
+    }
+
+    VisitStreamResponse(VisitStream stream, String pathId, Runnable onCompletion, long idleWriteIntervalMs) {
+        super(200);
+        this.stream = stream;
+        this.pathId = pathId;
+        this.onCompletion = onCompletion;
+        this.idleWriteIntervalMs = idleWriteIntervalMs;
+    }
+
+    @Override
+    public String getContentType() { return "application/json"; }
+
+    @Override
+    public void render(OutputStream output, ContentChannel networkChannel, CompletionHandler handler) {
+        lastWriteMillis = System.currentTimeMillis();
+        try {
+            Batch batch = new Batch();
+            batch.append("{\"pathId\":\"" + escape(pathId) + "\",\"documents\":[");
+            Optional<String> error = writeDocuments(batch, networkChannel);
+            batch.append("]");
+            if (writeFailure == null) {
+                stream.continuation().ifPresent(continuation -> batch.append(",\"continuation\":\"" + escape(continuation) + "\""));
+                error.ifPresent(message -> batch.append(",\"message\":\"" + escape(message) + "\""));
+            }
+            batch.append("}");
+            write(batch, networkChannel);
+        }
+        finally {
+            try {
+                networkChannel.close(new CompletionHandler() {
+                    @Override
+                    public void completed() {
+                        finish();
+                        if (handler != null) handler.completed();
+                    }
+                    @Override
+                    public void failed(Throwable t) {
+                        finish();
+                        if (handler != null) handler.failed(t);
+                    }
+                });
+            }
+            finally {
+                finish(); // Rendering is done, so there is no reason to keep the session until the channel is closed
+            }
+        }
+    }
+
+    /** Stops visiting and runs the completion callback, unless this has already been done */
+    private void finish() {
+        if ( ! completed.compareAndSet(false, true)) return;
+        try {
+            stream.close();
+        }
+        finally {
+            onCompletion.run();
+        }
+    }
+
+    /** Writes documents until visiting is done, and returns the reason it failed, if it did */
+    private Optional<String> writeDocuments(Batch batch, ContentChannel networkChannel) {
+        try {
+            boolean first = true;
+            while (writeFailure == null) {
+                boolean done = stream.isDone(); // Read before polling, so documents arriving just before completion are not lost
+                Optional<DocumentOpVisitorResponse> next = stream.next(done ? 0 : pollTimeoutMs);
+                if (next.isPresent()) {
+                    if ( ! first) batch.append(",");
+                    first = false;
+                    batch.append(toJson(next.get().getDocumentOperation()), next.get().getAckToken());
+                    if (batch.size() >= flushSize)
+                        write(batch, networkChannel);
+                }
+                else if (done) {
+                    return stream.error();
+                }
+                else if (batch.size() > 0) { // Nothing more arrived in a while: Don't hold on to what we have
+                    write(batch, networkChannel);
+                }
+                else if (System.currentTimeMillis() - lastWriteMillis >= idleWriteIntervalMs) { // Check the client is still there
+                    batch.append(" ");
+                    write(batch, networkChannel);
+                }
+            }
+            return Optional.empty();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.of("Interrupted while visiting");
+        }
+        catch (RuntimeException e) {
+            log.log(LogLevel.WARNING, "Failed streaming visit of " + pathId, e);
+            return Optional.of(Exceptions.toMessageString(e));
+        }
+    }
+
+    private static byte[] toJson(DocumentOperation operation) {
+        if (operation instanceof DocumentPut)
+            return JsonWriter.toByteArray(((DocumentPut)operation).getDocument());
+        if (operation instanceof DocumentRemove)
+            return JsonWriter.documentRemove(operation.getId());
+        throw new IllegalStateException("Unexpected document operation from visitor: " + operation);
+    }
+
+    /** Writes the content of the given batch to the network, and empties it */
+    private void write(Batch batch, ContentChannel networkChannel) {
+        lastWriteMillis = System.currentTimeMillis();
+        List<AckToken> ackTokens = batch.ackTokens;
+        networkChannel.write(ByteBuffer.wrap(batch.bytes.toByteArray()), new CompletionHandler() {
+            @Override
+            public void completed() {
+                for (AckToken token : ackTokens)
+                    stream.ack(token);
+            }
+            @Override
+            public void failed(Throwable t) {
+                writeFailure = t;
+                log.log(LogLevel.DEBUG, () -> "Failed writing visited documents of " + pathId + ": " + Exceptions.toMessageString(t));
+                finish(); // The client is gone, so stop visiting now rather than when rendering notices
+            }
+        });
+        batch.clear();
+    }
+
+    private static String escape(String value) {
+        return new String(JsonStringEncoder.getInstance().quoteAsString(value));
+    }
+
+    /** Serialized documents waiting to be written, and the tokens to ack when they are */
+    private static class Batch {
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(flushSize + 4096);
+        List<AckToken> ackTokens = new ArrayList<>();
+
+        void append(String json) {
+            append(json.getBytes(StandardCharsets.UTF_8), null);
+        }
+
+        void append(byte[] json, AckToken ackToken) {
+            bytes.write(json, 0, json.length);
+            if (ackToken != null)
+                ackTokens.add(ackToken);
+        }
+
+        int size() { return bytes.size(); }
+
+        void clear() {
+            bytes.reset();
+            ackTokens = new ArrayList<>();
+        }
+
+    }
+
+}
@@ -5,6 +5,7 @@ import com.yahoo.documentapi.DocumentAccess;
 import com.yahoo.documentapi.ProgressToken;
 import com.yahoo.documentapi.SyncParameters;
 import com.yahoo.documentapi.VisitorControlHandler;
+import com.yahoo.documentapi.VisitorDataQueue;
 import com.yahoo.documentapi.VisitorParameters;
 import com.yahoo.documentapi.VisitorSession;
 import com.yahoo.documentapi.messagebus.MessageBusSyncSession;
@@ -204,6 +205,20 @@ public class OperationHandlerImplTest {
         assertThat(fixture.assignedParameters.get().getSessionTimeoutMs(), is((long)OperationHandlerImpl.VISIT_TIMEOUT_MS));
     }
 
+    @Test
+    public void streaming_visit_is_not_limited_by_time_or_document_count() throws Exception {
+        OperationHandlerImplFixture fixture = new OperationHandlerImplFixture();
+        OperationHandlerImpl handler = fixture.createHandler();
+
+        try (VisitStream stream = handler.visitStream(dummyVisitUri(), "", visitOptionsWithWantedDocumentCount(123))) {
+            VisitorParameters parameters = fixture.assignedParameters.get();
+            assertThat(parameters.getMaxTotalHits(), is((long)-1));
+            assertThat(parameters.getSessionTimeoutMs(), is((long)-1));
+            assertThat(parameters.getLocalDataHandler(), instanceOf(VisitorDataQueue.class));
+            assertThat(stream.isDone(), is(true));
+        }
+    }
+
     private static VisitorParameters generatedVisitParametersFrom(RestUri restUri, String documentSelection,
                                                                   OperationHandler.VisitOptions options) throws Exception {
         OperationHandlerImplFixture fixture = new OperationHandlerImplFixture();
@@ -5,10 +5,15 @@ import com.yahoo.document.restapi.OperationHandler;
 import com.yahoo.document.restapi.Response;
 import com.yahoo.document.restapi.RestApiException;
 import com.yahoo.document.restapi.RestUri;
+import com.yahoo.document.restapi.VisitStream;
+import com.yahoo.documentapi.VisitorControlHandler;
+import com.yahoo.documentapi.VisitorSession;
 import com.yahoo.vespaxmlparser.FeedOperation;
 
 import java.util.Optional;
 
+import static org.mockito.Mockito.mock;
+
 /**
  * Mock that collects info about operation and returns them on second delete.
  */
@@ -29,6 +34,15 @@ public class MockedOperationHandler implements OperationHandler {
                 + options.cluster.map(s -> String.format(", cluster: '%s'", s)).orElse(""));
     }
 
+    /** Returns a stream which has completed visiting without finding any documents */
+    @Override
+    public VisitStream visitStream(RestUri restUri, String documentSelection, VisitOptions options) throws RestApiException {
+        log.append("VISIT STREAM: '" + documentSelection + "'");
+        VisitorControlHandler controlHandler = new VisitorControlHandler();
+        controlHandler.onDone(VisitorControlHandler.CompletionCode.SUCCESS, "Done");
+        return new VisitStream(mock(VisitorSession.class), controlHandler);
+    }
+
     @Override
     @SuppressWarnings("deprecation")
     public void put(RestUri restUri, FeedOperation data, Optional<String> route) throws RestApiException {
@@ -317,6 +317,17 @@ public class RestApiTest {
         assertThat(response.body, containsString(visit_response_part3));
     }
 
+    @Test
+    public void testStreamingVisit() throws Exception {
+        Request request = new Request("http://localhost:" + getFirstListenPort() + "/document/v1/namespace/document-type/docid/?stream=true");
+        HttpGet get = new HttpGet(request.getUri());
+        Response response = doRest(get);
+        assertThat(response.code, is(200));
+        assertThat(response.body, containsString("\"documents\":[]"));
+        assertThat(response.body, containsString(visit_response_part3));
+        assertThat(response.body, not(containsString("continuation")));
+    }
+
     private static String encoded(String original) {
         try {
             return URLEncoder.encode(original, StandardCharsets.UTF_8.name());
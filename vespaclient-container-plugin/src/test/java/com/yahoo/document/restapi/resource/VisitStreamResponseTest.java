@@ -0,0 +1,192 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.restapi.resource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentOperation;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentRemove;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.restapi.VisitStream;
+import com.yahoo.documentapi.AckToken;
+import com.yahoo.documentapi.DocumentOpVisitorResponse;
+import com.yahoo.documentapi.VisitorControlHandler;
+import com.yahoo.documentapi.VisitorSession;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import com.yahoo.jdisc.handler.ContentChannel;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author agent
+ */
+public class VisitStreamResponseTest {
+
+    private static final DocumentType type = new DocumentType("music");
+    static {
+        type.addField("title", DataType.STRING);
+    }
+
+    @Test
+    public void documents_are_written_as_they_arrive_and_acked_when_written() throws Exception {
+        Fixture fixture = new Fixture(VisitorControlHandler.CompletionCode.SUCCESS,
+                                      put("id:ns:music::1", "Hey Jude"),
+                                      new DocumentRemove(new DocumentId("id:ns:music::2")));
+        fixture.render();
+
+        JsonNode root = fixture.result();
+        assertEquals("/document/v1/ns/music/docid/", root.get("pathId").asText());
+        assertEquals(2, root.get("documents").size());
+        assertEquals("Hey Jude", root.get("documents").get(0).get("fields").get("title").asText());
+        assertEquals("id:ns:music::2", root.get("documents").get(1).get("remove").asText());
+        assertFalse(root.has("continuation"));
+        assertFalse(root.has("message"));
+
+        for (AckToken token : fixture.tokens)
+            verify(fixture.session).ack(token);
+        assertTrue(fixture.channel.closed);
+        verify(fixture.session).destroy();
+        assertEquals(1, fixture.completions.get());
+    }
+
+    @Test
+    public void large_responses_are_written_in_several_chunks() throws Exception {
+        DocumentOperation[] operations = new DocumentOperation[100];
+        char[] title = new char[VisitStreamResponse.flushSize / 10];
+        Arrays.fill(title, 'a');
+        for (int i = 0; i < operations.length; i++)
+            operations[i] = put("id:ns:music::" + i, new String(title));
+        Fixture fixture = new Fixture(VisitorControlHandler.CompletionCode.SUCCESS, operations);
+        fixture.render();
+
+        assertEquals(100, fixture.result().get("documents").size());
+        assertTrue(fixture.channel.writes > 5);
+    }
+
+    @Test
+    public void failure_is_reported_in_the_response_body() throws Exception {
+        Fixture fixture = new Fixture(VisitorControlHandler.CompletionCode.FAILURE, put("id:ns:music::1", "Let It Be"));
+        fixture.render();
+
+        JsonNode root = fixture.result();
+        assertEquals(1, root.get("documents").size());
+        assertTrue(root.get("message").asText().contains("bork bork"));
+        assertEquals(1, fixture.completions.get());
+    }
+
+    @Test
+    public void documents_are_not_acked_when_the_client_is_gone() throws Exception {
+        Fixture fixture = new Fixture(VisitorControlHandler.CompletionCode.SUCCESS, put("id:ns:music::1", "Yesterday"));
+        fixture.channel.fail = true;
+        fixture.render();
+
+        verify(fixture.session, never()).ack(any());
+        verify(fixture.session).destroy();
+        assertTrue(fixture.channel.closed);
+        assertEquals(1, fixture.completions.get());
+    }
+
+    @Test
+    public void visiting_stops_when_the_client_leaves_while_no_documents_arrive() throws Exception {
+        Fixture fixture = new Fixture(null); // Visiting never completes
+        fixture.channel.fail = true;
+        fixture.render(0);
+
+        assertFalse(fixture.controlHandler.isDone());
+        assertTrue(fixture.channel.writes > 0);
+        verify(fixture.session).destroy();
+        assertTrue(fixture.channel.closed);
+        assertEquals(1, fixture.completions.get());
+    }
+
+    private static DocumentPut put(String id, String title) {
+        Document document = new Document(type, id);
+        document.setFieldValue("title", title);
+        return new DocumentPut(document);
+    }
+
+    private static class Fixture {
+
+        final VisitorSession session = mock(VisitorSession.class);
+        final VisitorControlHandler controlHandler = new VisitorControlHandler();
+        final List<AckToken> tokens = new ArrayList<>();
+        final RecordingChannel channel = new RecordingChannel();
+        final AtomicInteger completions = new AtomicInteger();
+
+        Fixture(VisitorControlHandler.CompletionCode completionCode, DocumentOperation ... operations) throws Exception {
+            Deque<DocumentOpVisitorResponse> responses = new ArrayDeque<>();
+            for (DocumentOperation operation : operations) {
+                AckToken token = new AckToken(operation.getId());
+                tokens.add(token);
+                responses.add(new DocumentOpVisitorResponse(operation, token));
+            }
+            when(session.getNext(anyInt())).thenAnswer(invocation -> {
+                if (responses.isEmpty() && completionCode != null && ! controlHandler.isDone())
+                    controlHandler.onDone(completionCode, "bork bork");
+                return responses.poll();
+            });
+        }
+
+        void render() {
+            render(10_000);
+        }
+
+        void render(long idleWriteIntervalMs) {
+            VisitStream stream = new VisitStream(session, controlHandler);
+            new VisitStreamResponse(stream, "/document/v1/ns/music/docid/", completions::incrementAndGet, idleWriteIntervalMs)
+                    .render(null, channel, null);
+        }
+
+        JsonNode result() throws Exception {
+            return new ObjectMapper().readTree(channel.content.toByteArray());
+        }
+
+    }
+
+    private static class RecordingChannel implements ContentChannel {
+
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        int writes = 0;
+        boolean closed = false;
+        boolean fail = false;
+
+        @Override
+        public void write(ByteBuffer buf, CompletionHandler handler) {
+            writes++;
+            if (fail) {
+                handler.failed(new RuntimeException("Connection reset by peer"));
+                return;
+            }
+            content.write(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+            handler.completed();
+        }
+
+        @Override
+        public void close(CompletionHandler handler) {
+            closed = true;
+        }
+
+    }
+
+}
@@ -325,6 +325,24 @@ public class VdsVisit {
                 .desc("Skip visiting super buckets with fatal error codes.")
                 .build());
 
+        options.addOption(Option.builder()
+                .longOpt("slices")
+                .hasArg(true)
+                .argName("num")
+                .desc("Split the buckets to visit into this many slices, and visit only the one given by --sliceid. " +
+                      "Slices may be visited in parallel, and should then use separate progress files. " +
+                      "Must be a power of two, no larger than the number of buckets in the cluster.")
+                .type(Number.class)
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("sliceid")
+                .hasArg(true)
+                .argName("id")
+                .desc("The slice to visit when --slices is given, in the range [0, slices).")
+                .type(Number.class)
+                .build());
+
         options.addOption(Option.builder()
                 .longOpt("jsonoutput")
                 .desc("Output documents as JSON (default format)")
@@ -552,6 +570,14 @@ public class VdsVisit {
                 params.setThrottlePolicy(throttlePolicy);
             }
 
+            if (line.hasOption("slices") || line.hasOption("sliceid")) {
+                if ( ! line.hasOption("slices") || ! line.hasOption("sliceid")) {
+                    throw new IllegalArgumentException("Both --slices and --sliceid must be given to visit a slice");
+                }
+                params.slice(((Number)line.getParsedOptionValue("slices")).intValue(),
+                             ((Number)line.getParsedOptionValue("sliceid")).intValue());
+            }
+
             boolean jsonOutput = line.hasOption("jsonoutput");
             boolean xmlOutput = line.hasOption("xmloutput");
             if (jsonOutput && xmlOutput) {
@@ -660,6 +686,9 @@ public class VdsVisit {
         if (params.skipBucketsOnFatalErrors()) {
             out.println("Skip visiting super buckets with fatal errors.");
         }
+        if (params.getSlices() > 1) {
+            out.println("Visiting slice " + params.getSliceId() + " of " + params.getSlices() + ".");
+        }
     }
 
     private void onDocumentSelectionException(Exception e) {
@@ -128,7 +128,9 @@ public class VdsVisitTestCase {
                 "--skipbucketsonfatalerrors",
                 "--abortonclusterdown",
                 "--visitremoves",
-                "--bucketspace", "outerspace"
+                "--bucketspace", "outerspace",
+                "--slices", "8",
+                "--sliceid", "5"
         };
         VdsVisit.ArgumentParser parser = createMockArgumentParser();
         VdsVisit.VdsVisitParameters allParams = parser.parse(args);
@@ -163,6 +165,8 @@ public class VdsVisitTestCase {
         assertEquals(DocumentProtocol.Priority.NORMAL_1, params.getPriority());
         assertTrue(allParams.getAbortOnClusterDown());
         assertTrue(params.visitRemoves());
+        assertEquals(8, params.getSlices());
+        assertEquals(5, params.getSliceId());
 
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         PrintStream printStream = new PrintStream(outputStream);
@@ -185,7 +189,8 @@ public class VdsVisitTestCase {
                         "Adding the following library specific parameters:" + nl +
                         "  asdf = rargh" + nl +
                         "Visitor priority NORMAL_1" + nl +
-                        "Skip visiting super buckets with fatal errors." + nl,
+                        "Skip visiting super buckets with fatal errors." + nl +
+                        "Visiting slice 5 of 8." + nl,
                 outputStream.toString("utf-8"));
     }
 
@@ -199,6 +204,16 @@ public class VdsVisitTestCase {
         assertEquals(DocumentProtocol.Priority.LOW_1, params.getPriority());
     }
 
+    @Test
+    public void testSliceIdWithoutSlicesIsRejected() throws Exception {
+        try {
+            createMockArgumentParser().parse(new String[] { "--sliceid", "1" });
+            fail("no exception thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Both --slices and --sliceid must be given"));
+        }
+    }
+
     @Test
     public void testBadPriorityValue() throws Exception {
         String[] args = new String[] {